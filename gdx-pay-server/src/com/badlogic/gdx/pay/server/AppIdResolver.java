@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.receipt.ReceiptView;
+
+/** Determines the app (package name/bundle ID) a transaction belongs to, so {@link PurchaseVerifierManager} can route it to
+ * the verifier of that app. */
+public interface AppIdResolver {
+
+	/** Returns the app identifier of the transaction or null if it cannot be determined. Called for every verification, so it
+	 * should be cheap. */
+	String appId (Transaction transaction);
+
+	/** Reads the "packageName" field of the purchase data for Google Play and Huawei. Returns null for all other stores, as
+	 * their transaction data doesn't carry the app identifier in readable form. Provide your own resolver for those. */
+	AppIdResolver DEFAULT = new AppIdResolver() {
+		@Override
+		public String appId (Transaction transaction) {
+			String storeName = transaction.getStoreName();
+			if (PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE.equals(storeName)
+				|| PurchaseManagerConfig.STORE_NAME_ANDROID_HUAWEI.equals(storeName)) {
+				return ReceiptView.of(transaction).packageName();
+			}
+			return null;
+		}
+	};
+}
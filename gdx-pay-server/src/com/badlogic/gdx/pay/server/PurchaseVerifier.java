@@ -28,4 +28,11 @@ public interface PurchaseVerifier {
 
 	/** Returns true if the transaction was determined valid. */
 	boolean isValid(Transaction transaction);
+
+	/** Verifies the transaction and tells apart invalid purchases from failed verifications. Verifiers that can fail
+	 * transiently (e.g. remote post-back validation) should override this method. By default any false from
+	 * {@link #isValid(Transaction)} is considered {@link VerificationResult#INVALID}. */
+	default VerificationResult verify (Transaction transaction) {
+		return VerificationResult.of(isValid(transaction));
+	}
 }
@@ -16,10 +16,16 @@
 
 package com.badlogic.gdx.pay.server;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.jfr.PayEvents;
+import com.badlogic.gdx.pay.server.jfr.VerificationEvent;
+import com.badlogic.gdx.pay.server.state.VerificationRecord;
+import com.badlogic.gdx.pay.server.state.VerificationState;
 
 /** Verifies if a purchase is valid by e.g. doing a post-back validation on a server.
  * 
@@ -44,6 +50,25 @@ import com.badlogic.gdx.pay.Transaction;
  * }
  * </pre>
  * 
+ * To serve several apps from one manager, add a verifier per app with {@link #addVerifier(String, PurchaseVerifier)}. Each
+ * app verifier has its own keys/secrets. Transactions are routed by store name and the app identifier returned by the
+ * {@link AppIdResolver}; the store-wide verifier is used if there is no verifier for the app:
+ *
+ * <pre>
+ * verifier.addVerifier("com.mygame.one", googleVerifierForGameOne);
+ * verifier.addVerifier("com.mygame.two", googleVerifierForGameTwo);
+ * </pre>
+ *
+ * The app identifier comes from the transaction data sent by the client. If each app has its own endpoint, pass the app
+ * of the endpoint to {@link #verify(Transaction, String, String)}: a transaction claiming another app is rejected.
+ * 
+ * Cheap checks can be added as {@link VerificationStage}s. They run ordered by cost before the verifier and can reject a
+ * transaction right away, e.g. field sanity checks first, then local signature checks, then remote calls:
+ *
+ * <pre>
+ * verifier.addStage(new TransactionSanityStage(purchaseManagerConfig, knownStoreNames));
+ * </pre>
+ * 
  * IMPORTANT: this code runs on your SERVER! Don't use on your client-application (not secure).
  * 
  * @author noblemaster */
@@ -55,6 +80,21 @@ public class PurchaseVerifierManager {
 	/** The verifier implementations. */
 	private Map<String, PurchaseVerifier> verifiers;
 
+	/** The app-specific verifier implementations: store name -> app identifier -> verifier. */
+	private Map<String, Map<String, PurchaseVerifier>> appVerifiers;
+
+	/** Determines the app of a transaction for routing to app-specific verifiers. */
+	private AppIdResolver appIdResolver = AppIdResolver.DEFAULT;
+
+	/** The stages run before the verifier, ordered by cost. Replaced on change, never modified. */
+	private volatile VerificationStage[] stages = new VerificationStage[0];
+
+	/** Where verification outcomes are recorded (or null for none). */
+	private VerificationState state;
+
+	/** Notified of every verification. Replaced on change, never modified. */
+	private volatile VerificationListener[] listeners = new VerificationListener[0];
+
 	public PurchaseVerifierManager () {
 		this(false);
 	}
@@ -62,6 +102,7 @@ public class PurchaseVerifierManager {
 	public PurchaseVerifierManager (boolean defaultIfNoVerifierFound) {
 		this.defaultIfNoVerifierFound = defaultIfNoVerifierFound;
 		this.verifiers = new HashMap<String, PurchaseVerifier>(16);
+		this.appVerifiers = new HashMap<String, Map<String, PurchaseVerifier>>(16);
 	}
 
 	public void addVerifier (PurchaseVerifier verifier) {
@@ -72,6 +113,113 @@ public class PurchaseVerifierManager {
 		verifiers.remove(verifier.storeName());
 	}
 
+	/** Adds a verifier that is only used for transactions of the given app in the verifier's store.
+	 *
+	 * @param appId The package name/bundle ID as returned by the {@link AppIdResolver}. */
+	public void addVerifier (String appId, PurchaseVerifier verifier) {
+		Map<String, PurchaseVerifier> apps = appVerifiers.get(verifier.storeName());
+		if (apps == null) {
+			apps = new HashMap<String, PurchaseVerifier>(16);
+			appVerifiers.put(verifier.storeName(), apps);
+		}
+		apps.put(appId, verifier);
+	}
+
+	/** Removes the verifier if it is the one used for the given app. */
+	public void removeVerifier (String appId, PurchaseVerifier verifier) {
+		Map<String, PurchaseVerifier> apps = appVerifiers.get(verifier.storeName());
+		if (apps != null) {
+			apps.remove(appId, verifier);
+			if (apps.isEmpty()) appVerifiers.remove(verifier.storeName());
+		}
+	}
+
+	/** Sets how the app of a transaction is determined, {@link AppIdResolver#DEFAULT} by default. */
+	public void setAppIdResolver (AppIdResolver appIdResolver) {
+		this.appIdResolver = appIdResolver;
+	}
+
+	/** Returns the verifier a transaction is routed to or null if there is none. */
+	public PurchaseVerifier getVerifier (Transaction transaction) {
+		return getVerifier(transaction, resolveAppId(transaction, null));
+	}
+
+	/** Returns the verifier for a transaction of the given app (null if unknown). */
+	private PurchaseVerifier getVerifier (Transaction transaction, String appId) {
+		String storeName = transaction.getStoreName();
+		if (appId != null) {
+			Map<String, PurchaseVerifier> apps = appVerifiers.get(storeName);
+			if (apps != null) {
+				PurchaseVerifier verifier = apps.get(appId);
+				if (verifier != null) return verifier;
+			}
+		}
+		return verifiers.get(storeName);
+	}
+
+	/** Returns the app of a transaction, or null without asking the {@link AppIdResolver} if its store has no app
+	 * verifiers and no app is expected. */
+	private String resolveAppId (Transaction transaction, String expectedAppId) {
+		if (expectedAppId == null && !appVerifiers.containsKey(transaction.getStoreName())) return null;
+		return appIdResolver.appId(transaction);
+	}
+
+	/** Adds a stage that runs before the verifier, see {@link VerificationStage}. Stages with equal cost run in the order
+	 * they were added. */
+	public synchronized void addStage (VerificationStage stage) {
+		VerificationStage[] changed = Arrays.copyOf(stages, stages.length + 1);
+		changed[stages.length] = stage;
+		// stable sort: equal cost keeps insertion order
+		Arrays.sort(changed, new Comparator<VerificationStage>() {
+			@Override
+			public int compare (VerificationStage a, VerificationStage b) {
+				return Integer.compare(a.cost(), b.cost());
+			}
+		});
+		stages = changed;
+	}
+
+	public synchronized void removeStage (VerificationStage stage) {
+		for (int i = 0; i < stages.length; i++) {
+			if (stages[i] == stage) {
+				VerificationStage[] changed = new VerificationStage[stages.length - 1];
+				System.arraycopy(stages, 0, changed, 0, i);
+				System.arraycopy(stages, i + 1, changed, i, changed.length - i);
+				stages = changed;
+				return;
+			}
+		}
+	}
+
+	/** Sets the state all verification outcomes are recorded to, see {@link VerificationState}. Null for none. Purchases
+	 * the state knows as reversed are {@link VerificationResult#INVALID}, even if their receipt still verifies. */
+	public void setVerificationState (VerificationState state) {
+		this.state = state;
+	}
+
+	public VerificationState getVerificationState () {
+		return state;
+	}
+
+	/** Adds a listener notified of every verification result, including rejections by stages. */
+	public synchronized void addListener (VerificationListener listener) {
+		VerificationListener[] changed = Arrays.copyOf(listeners, listeners.length + 1);
+		changed[listeners.length] = listener;
+		listeners = changed;
+	}
+
+	public synchronized void removeListener (VerificationListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				VerificationListener[] changed = new VerificationListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, changed, 0, i);
+				System.arraycopy(listeners, i + 1, changed, i, changed.length - i);
+				listeners = changed;
+				return;
+			}
+		}
+	}
+
 	/** Returns true if a transaction is deemed valid.
 	 * <p>
 	 * IMPORTANT: will return "defaultIfNoVerifierFound" if no verifier was found for the given transaction.
@@ -79,12 +227,122 @@ public class PurchaseVerifierManager {
 	 * @param transaction The transaction to verify.
 	 * @return True for considered valid. */
 	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	/** Verifies a transaction, see {@link VerificationResult}.
+	 * <p>
+	 * IMPORTANT: will return the result for "defaultIfNoVerifierFound" if no verifier was found for the given transaction.
+	 * 
+	 * @param transaction The transaction to verify.
+	 * @return The verification result. */
+	public VerificationResult verify (Transaction transaction) {
+		return verify(transaction, null);
+	}
+
+	/** Returns true if a transaction received from the given source is deemed valid, see
+	 * {@link #verify(Transaction, String)}. */
+	public boolean isValid (Transaction transaction, String source) {
+		return verify(transaction, source).isValid();
+	}
+
+	/** Verifies a transaction received from the given source. The source is passed to the stages, e.g. for rate limiting
+	 * per client, see {@link VerificationStage#check(Transaction, String)}.
+	 * 
+	 * @param transaction The transaction to verify.
+	 * @param source Identifies the caller, e.g. the client IP or session (or null if unknown).
+	 * @return The verification result. */
+	public VerificationResult verify (Transaction transaction, String source) {
+		return verify(transaction, source, null);
+	}
+
+	/** Verifies a transaction received from the given source at an endpoint of the given app. The transaction is
+	 * {@link VerificationResult#INVALID} if the {@link AppIdResolver} names another app, otherwise it is routed to the
+	 * verifier of the expected app (or the store-wide verifier). A transaction whose app cannot be resolved is left to
+	 * that verifier, which checks it with the keys of the expected app.
+	 * 
+	 * @param transaction The transaction to verify.
+	 * @param source Identifies the caller, e.g. the client IP or session (or null if unknown).
+	 * @param expectedAppId The package name/bundle ID served by the endpoint (or null to trust the transaction data).
+	 * @return The verification result. */
+	public VerificationResult verify (Transaction transaction, String source, String expectedAppId) {
+		VerificationEvent event = new VerificationEvent();
+		if (event.isEnabled()) return verifyRecorded(transaction, source, expectedAppId, event);
+
+		VerificationListener[] listeners = this.listeners;
+		if (listeners.length == 0)
+			return doVerify(transaction, source, resolveAppId(transaction, expectedAppId), expectedAppId);
+
+		long start = System.nanoTime();
+		VerificationResult result = doVerify(transaction, source, resolveAppId(transaction, expectedAppId), expectedAppId);
+		fireVerified(listeners, transaction, source, result, System.nanoTime() - start);
+		return result;
+	}
+
+	/** Verifies while a Flight Recorder recording is running, see {@link VerificationEvent}. */
+	private VerificationResult verifyRecorded (Transaction transaction, String source, String expectedAppId,
+		VerificationEvent event) {
+		String storeName = transaction.getStoreName();
+		String tenant = appIdResolver.appId(transaction);
+		PayEvents.enter(storeName, tenant);
+		long start = System.nanoTime();
+		event.begin();
+		VerificationResult result = null;
+		try {
+			result = doVerify(transaction, source, tenant, expectedAppId);
+		} finally {
+			event.end();
+			PayEvents.exit();
+			if (event.shouldCommit()) {
+				String data = transaction.getTransactionData();
+				event.setStore(storeName);
+				event.setTenant(tenant);
+				event.setSource(source);
+				event.tag(result != null ? result.name() : "exception", data != null ? data.length() : 0);
+				event.commit();
+			}
+		}
+		fireVerified(listeners, transaction, source, result, System.nanoTime() - start);
+		return result;
+	}
+
+	private static void fireVerified (VerificationListener[] listeners, Transaction transaction, String source,
+		VerificationResult result, long durationNanos) {
+		for (VerificationListener listener : listeners) {
+			listener.verified(transaction, source, result, durationNanos);
+		}
+	}
+
+	/** @param appId The app of the transaction (null if unknown), resolved once by the caller.
+	 * @param expectedAppId The app of the endpoint (null if any). */
+	private VerificationResult doVerify (Transaction transaction, String source, String appId, String expectedAppId) {
+		// run the cheap checks first: rejections are not recorded, garbage shouldn't fill up the state
+		for (VerificationStage stage : stages) {
+			VerificationResult result = stage.check(transaction, source);
+			if (result != null) return result;
+		}
+		if (expectedAppId != null) {
+			// a receipt of another app, not recorded either
+			if (appId != null && !appId.equals(expectedAppId)) return VerificationResult.INVALID;
+			appId = expectedAppId;
+		}
+
 		// find the verifier and verify via verifier if a purchase is valid
-		PurchaseVerifier verifier = verifiers.get(transaction.getStoreName());
+		PurchaseVerifier verifier = getVerifier(transaction, appId);
 		if (verifier == null) {
-			return defaultIfNoVerifierFound;
+			return VerificationResult.of(defaultIfNoVerifierFound);
 		} else {
-			return verifier.isValid(transaction);
+			VerificationResult result = verifier.verify(transaction);
+			VerificationState state = this.state;
+			if (state != null && result.isTerminal()) {
+				state.record(transaction, result.isValid());
+				// a refunded receipt may still verify, e.g. Google's signature stays valid
+				if (result.isValid() && transaction.getOrderId() != null) {
+					VerificationRecord record = state.get(transaction.getStoreName(), transaction.getOrderId());
+					if (record != null && record.getReversalTime() >= 0) return VerificationResult.INVALID;
+				}
+			}
+			return result;
 		}
 	}
 }
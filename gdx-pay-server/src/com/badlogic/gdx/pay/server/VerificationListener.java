@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Notified by {@link PurchaseVerifierManager} of every verification result, e.g. for auditing or statistics.
+ * <p>
+ * Called on the verifying thread, so implementations must be thread-safe and return quickly: hand the work over to a
+ * background thread if it involves I/O. */
+public interface VerificationListener {
+
+	/** @param source The source passed to {@link PurchaseVerifierManager#verify(Transaction, String)} (or null).
+	 * @param durationNanos How long the verification took, including stages. */
+	void verified (Transaction transaction, String source, VerificationResult result, long durationNanos);
+}
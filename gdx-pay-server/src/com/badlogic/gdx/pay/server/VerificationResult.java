@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server;
+
+/** The outcome of verifying a purchase, see {@link PurchaseVerifier#verify}. */
+public enum VerificationResult {
+
+	/** The purchase is valid. */
+	VALID,
+	/** The purchase was determined invalid, e.g. the signature does not match or the store rejected the receipt. Verifying the
+	 * same data again will give the same result. */
+	INVALID,
+	/** The purchase could not be verified, e.g. because of an I/O error or the store being unavailable. Verifying again later
+	 * might succeed, so this outcome must not be cached. */
+	ERROR,
+	/** The purchase was refused in this request, but that says nothing about the purchase itself, e.g. the receipt is
+	 * already owned by another user or belongs to another store environment (Apple's sandbox). The same receipt may be
+	 * valid elsewhere, so this outcome must neither be cached nor recorded for the purchase. */
+	REFUSED;
+
+	public boolean isValid () {
+		return this == VALID;
+	}
+
+	/** True if verifying the same data again will give the same result, for anyone: only such outcomes may be cached and
+	 * recorded for the purchase. */
+	public boolean isTerminal () {
+		return this == VALID || this == INVALID;
+	}
+
+	public static VerificationResult of (boolean valid) {
+		return valid ? VALID : INVALID;
+	}
+}
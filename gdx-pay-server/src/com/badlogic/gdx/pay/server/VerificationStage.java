@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** A check run by {@link PurchaseVerifierManager} before the store's verifier. Stages run ordered by their cost, cheapest
+ * first, and each stage can short-circuit the verification. This way garbage is rejected by cheap field checks before any
+ * signature is checked and by signature checks before any remote call is made.
+ * <p>
+ * Implementations must be thread-safe. */
+public interface VerificationStage {
+
+	/** Cost of bookkeeping that must see every request, e.g. rate limiting. Runs before everything else. */
+	int COST_ADMISSION = -100;
+	/** Cost of checks on fields of the transaction only (microseconds or less). */
+	int COST_FIELD_CHECK = 0;
+	/** Cost of local cryptographic checks, e.g. an RSA signature verification. */
+	int COST_LOCAL_CRYPTO = 100;
+	/** Cost of a call to a remote service, e.g. the store's verification endpoint. */
+	int COST_REMOTE = 10000;
+
+	/** The relative cost of this stage, see the COST_* constants. Stages with lower cost run first. */
+	int cost ();
+
+	/** Checks the transaction.
+	 *
+	 * @return null to continue with the next stage, or the final result (short-circuit). */
+	VerificationResult check (Transaction transaction);
+
+	/** Checks the transaction of a request from the given source, see
+	 * {@link PurchaseVerifierManager#verify(Transaction, String)}. Ignores the source by default.
+	 *
+	 * @param source Identifies the caller, e.g. the client IP or session (or null if unknown). */
+	default VerificationResult check (Transaction transaction, String source) {
+		return check(transaction);
+	}
+}
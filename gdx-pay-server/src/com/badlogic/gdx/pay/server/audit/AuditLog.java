@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.audit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+import com.badlogic.gdx.pay.server.VerificationListener;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Writes every verification decision as one line of JSON (NDJSON) to rotating files, without slowing verification down.
+ * Verifying threads only put an {@link AuditRecord} into a lock-free ring buffer; a background thread formats and writes
+ * them in batches.
+ *
+ * <pre>
+ * AuditLog audit = new AuditLog(new File("/var/log/purchases"), "audit");
+ * audit.setMaxFileSize(256 * 1024 * 1024);
+ * audit.start();
+ * verifier.addListener(audit);
+ * ...
+ * audit.close(); // writes what's left
+ * </pre>
+ *
+ * Files are named {@code <prefix>-<yyyyMMdd-HHmmss>.ndjson} (UTC, opening time) and rotated by size and/or age. If the
+ * buffer is full, records are dropped (and counted) or the verifying thread waits, see {@link OverflowPolicy}. Configure
+ * before {@link #start()}. */
+public class AuditLog implements VerificationListener, Closeable {
+
+	/** What happens to records if the writer can't keep up and the buffer is full. */
+	public enum OverflowPolicy {
+		/** Drop the record, see {@link #getDroppedCount()}. Verification is never delayed. */
+		DROP,
+		/** Wait for space. No record is lost, but verification slows down to the disk's pace. */
+		BLOCK
+	}
+
+	private static final int BATCH_SIZE = 1024;
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+	private final File directory;
+	private final String prefix;
+
+	private int capacity = 65536;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+	private long maxFileSize = 64L * 1024 * 1024;
+	private long rotationIntervalMillis = TimeUnit.HOURS.toMillis(1);
+	private long syncIntervalMillis = 1000;
+
+	private AuditRingBuffer<AuditRecord> buffer;
+	private Thread writer;
+	private volatile boolean running;
+	/** Set by {@link #close()} once no {@link #append(AuditRecord)} can add anything anymore: the writer's next drain is its
+	 * last. */
+	private volatile boolean stopping;
+	/** The number of {@link #append(AuditRecord)} calls in progress. */
+	private final AtomicInteger appending = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile long written;
+
+	// writer thread only
+	private FileChannel channel;
+	private long fileSize;
+	private long fileOpenedAt;
+	private long lastSync;
+	private boolean unsynced;
+	private final SimpleDateFormat fileTime = new SimpleDateFormat("yyyyMMdd-HHmmss");
+
+	public AuditLog (File directory, String prefix) {
+		this.directory = directory;
+		this.prefix = prefix;
+		fileTime.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+
+	/** Sets the number of records buffered for the writer (rounded up to a power of two), 65536 by default. */
+	public void setCapacity (int capacity) {
+		this.capacity = capacity;
+	}
+
+	/** Sets what happens if the buffer is full, {@link OverflowPolicy#DROP} by default. */
+	public void setOverflowPolicy (OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/** Sets the size in bytes after which a new file is started, 64 MB by default. 0 or less for no limit. */
+	public void setMaxFileSize (long maxFileSize) {
+		this.maxFileSize = maxFileSize;
+	}
+
+	/** Sets the age after which a new file is started, 1 hour by default. 0 or less for no limit. */
+	public void setRotationInterval (long rotationIntervalMillis) {
+		this.rotationIntervalMillis = rotationIntervalMillis;
+	}
+
+	/** Sets how often written records are forced to disk (fsync): 0 after every batch, less than 0 never (left to the OS).
+	 * Every second by default. */
+	public void setSyncInterval (long syncIntervalMillis) {
+		this.syncIntervalMillis = syncIntervalMillis;
+	}
+
+	public synchronized void start () throws IOException {
+		if (running) return;
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create " + directory);
+		buffer = new AuditRingBuffer<AuditRecord>(capacity);
+		stopping = false;
+		running = true;
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				writeLoop();
+			}
+		}, "gdx-pay-audit");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	public void verified (Transaction transaction, String source, VerificationResult result, long durationNanos) {
+		append(AuditRecord.of(transaction, source, result, durationNanos));
+	}
+
+	/** Adds a record to the log. Records added before {@link #start()} or after {@link #close()} are dropped. */
+	public void append (AuditRecord record) {
+		appending.incrementAndGet();
+		try {
+			AuditRingBuffer<AuditRecord> buffer = this.buffer;
+			if (buffer == null || !running) {
+				dropped.incrementAndGet();
+				return;
+			}
+			if (buffer.offer(record)) return;
+			if (overflowPolicy == OverflowPolicy.BLOCK) {
+				while (running) {
+					LockSupport.parkNanos(10000);
+					if (buffer.offer(record)) return;
+				}
+			}
+			dropped.incrementAndGet();
+		} finally {
+			appending.decrementAndGet();
+		}
+	}
+
+	/** Returns the number of records dropped because the buffer was full, the log not running or writing failed. */
+	public long getDroppedCount () {
+		return dropped.get();
+	}
+
+	/** Returns the number of records written to files. */
+	public long getWrittenCount () {
+		return written;
+	}
+
+	/** Stops the writer after it wrote all buffered records, and closes the file. Waits for appends in progress. */
+	@Override
+	public void close () throws IOException {
+		Thread writer;
+		synchronized (this) {
+			if (!running) return;
+			running = false;
+			writer = this.writer;
+		}
+		// appends that saw running before it went false finish first, so the writer's last drain sees their records
+		while (appending.get() > 0) {
+			Thread.yield();
+		}
+		stopping = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop () {
+		Object[] batch = new Object[BATCH_SIZE];
+		StringBuilder lines = new StringBuilder(BATCH_SIZE * 160);
+		while (true) {
+			// read the flag before draining: once it is set, this drain sees everything ever added
+			boolean stopping = this.stopping;
+			int count = buffer.drain(batch, batch.length);
+			int unwritten = count;
+			try {
+				if (count > 0) {
+					lines.setLength(0);
+					for (int i = 0; i < count; i++) {
+						((AuditRecord)batch[i]).write(new JsonWriter(lines));
+						lines.append('\n');
+						batch[i] = null;
+					}
+					write(lines.toString().getBytes(StandardCharsets.UTF_8));
+					written += count;
+					unwritten = 0;
+					unsynced = true;
+				}
+				long now = System.currentTimeMillis();
+				if (unsynced && channel != null && syncIntervalMillis >= 0 && now - lastSync >= syncIntervalMillis) {
+					channel.force(false);
+					lastSync = now;
+					unsynced = false;
+				}
+			} catch (IOException e) {
+				error("Writing audit log failed: " + e, e);
+				// part of the batch may be in the file, but there is no telling which
+				dropped.addAndGet(unwritten);
+				closeFile();
+			}
+			if (count > 0) continue;
+			if (stopping && buffer.isEmpty()) break;
+			LockSupport.parkNanos(IDLE_NANOS);
+		}
+		closeFile();
+	}
+
+	private void write (byte[] bytes) throws IOException {
+		long now = System.currentTimeMillis();
+		if (channel != null && ((maxFileSize > 0 && fileSize + bytes.length > maxFileSize && fileSize > 0)
+			|| (rotationIntervalMillis > 0 && now - fileOpenedAt >= rotationIntervalMillis))) {
+			closeFile();
+		}
+		if (channel == null) open(now);
+		ByteBuffer data = ByteBuffer.wrap(bytes);
+		while (data.hasRemaining()) {
+			channel.write(data);
+		}
+		fileSize += bytes.length;
+	}
+
+	private void open (long now) throws IOException {
+		String name = prefix + "-" + fileTime.format(new Date(now));
+		File file = new File(directory, name + ".ndjson");
+		for (int i = 1; file.exists(); i++) {
+			file = new File(directory, name + "-" + i + ".ndjson");
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		fileSize = 0;
+		fileOpenedAt = now;
+	}
+
+	private void closeFile () {
+		if (channel == null) return;
+		try {
+			if (syncIntervalMillis >= 0 && unsynced) channel.force(false);
+			channel.close();
+		} catch (IOException e) {
+			error("Closing audit log failed: " + e, e);
+		}
+		channel = null;
+		unsynced = false;
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.audit;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** One verification decision as written to the audit log. Captures the fields at the time of the decision, so later changes
+ * to the transaction don't show up in the log. Immutable. */
+public final class AuditRecord {
+
+	private final long time;
+	private final String storeName;
+	private final String orderId;
+	private final String identifier;
+	private final String userId;
+	private final String source;
+	private final VerificationResult result;
+	private final long durationNanos;
+
+	public AuditRecord (long time, String storeName, String orderId, String identifier, String userId, String source,
+		VerificationResult result, long durationNanos) {
+		this.time = time;
+		this.storeName = storeName;
+		this.orderId = orderId;
+		this.identifier = identifier;
+		this.userId = userId;
+		this.source = source;
+		this.result = result;
+		this.durationNanos = durationNanos;
+	}
+
+	public static AuditRecord of (Transaction transaction, String source, VerificationResult result, long durationNanos) {
+		return new AuditRecord(System.currentTimeMillis(), transaction.getStoreName(), transaction.getOrderId(),
+			transaction.getIdentifier(), transaction.getUserId(), source, result, durationNanos);
+	}
+
+	/** The time of the decision in milliseconds since the epoch. */
+	public long getTime () {
+		return time;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	public String getOrderId () {
+		return orderId;
+	}
+
+	public String getIdentifier () {
+		return identifier;
+	}
+
+	public String getUserId () {
+		return userId;
+	}
+
+	public String getSource () {
+		return source;
+	}
+
+	public VerificationResult getResult () {
+		return result;
+	}
+
+	public long getDurationNanos () {
+		return durationNanos;
+	}
+
+	/** Writes the record as one JSON object. Null fields are omitted. */
+	public void write (JsonWriter writer) {
+		writer.beginObject();
+		writer.name("time").value(time);
+		if (storeName != null) writer.name("store").value(storeName);
+		if (orderId != null) writer.name("orderId").value(orderId);
+		if (identifier != null) writer.name("identifier").value(identifier);
+		if (userId != null) writer.name("userId").value(userId);
+		if (source != null) writer.name("source").value(source);
+		writer.name("result").value(result.name());
+		writer.name("durationMicros").value(durationNanos / 1000);
+		writer.endObject();
+	}
+
+	@Override
+	public String toString () {
+		JsonWriter writer = new JsonWriter();
+		write(writer);
+		return writer.toString();
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Bounded lock-free queue for many producers and a single consumer. Producers claim a sequence number with a CAS and
+ * publish their element into the slot; the consumer takes elements in sequence order and frees the slots. */
+final class AuditRingBuffer<T> {
+
+	private final AtomicReferenceArray<T> slots;
+	private final int mask;
+	/** Next sequence number to claim by producers. */
+	private final AtomicLong head = new AtomicLong();
+	/** Next sequence number to take by the consumer. Written by the consumer only. */
+	private volatile long tail;
+
+	/** @param capacity Rounded up to a power of two. */
+	AuditRingBuffer (int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		slots = new AtomicReferenceArray<T>(size);
+		mask = size - 1;
+	}
+
+	/** Adds the element if there is space. Never blocks.
+	 * @return False if the buffer is full. */
+	boolean offer (T element) {
+		long sequence;
+		do {
+			sequence = head.get();
+			if (sequence - tail > mask) return false;
+		} while (!head.compareAndSet(sequence, sequence + 1));
+		slots.lazySet((int)sequence & mask, element);
+		return true;
+	}
+
+	/** Moves up to max elements into the array, in order. Consumer thread only.
+	 * @return The number of elements moved. Stops early at an element claimed but not published yet. */
+	int drain (Object[] into, int max) {
+		long sequence = tail;
+		int count = 0;
+		while (count < max) {
+			int index = (int)sequence & mask;
+			T element = slots.get(index);
+			if (element == null) break;
+			slots.lazySet(index, null);
+			into[count++] = element;
+			sequence++;
+		}
+		tail = sequence;
+		return count;
+	}
+
+	/** True if nothing was claimed that the consumer didn't take yet. */
+	boolean isEmpty () {
+		return head.get() == tail;
+	}
+
+	int capacity () {
+		return mask + 1;
+	}
+}
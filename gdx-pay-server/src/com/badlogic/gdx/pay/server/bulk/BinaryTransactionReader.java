@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.bulk;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.TransactionBinaryCodec;
+
+/** Reads transactions from a stream of {@link TransactionBinaryCodec} batches, each prefixed with its length as a 4 byte
+ * big-endian int, as written by {@link #writeBatch(DataOutputStream, Transaction[])}. Only one batch is held in memory
+ * at a time.
+ * <p>
+ * A malformed batch can't be skipped reliably, so it results in an {@link IOException}. */
+public class BinaryTransactionReader implements TransactionReader {
+
+	/** Upper bound for the length of a batch, protects against reading garbage as a huge length. */
+	public static final int MAX_BATCH_SIZE = 64 * 1024 * 1024;
+
+	private final DataInputStream in;
+	private Transaction[] batch = new Transaction[0];
+	private int index;
+
+	public BinaryTransactionReader (InputStream in) {
+		this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16));
+	}
+
+	public BinaryTransactionReader (File file) throws IOException {
+		this(new FileInputStream(file));
+	}
+
+	/** Writes a length-prefixed batch. */
+	public static void writeBatch (DataOutputStream out, Transaction[] transactions) throws IOException {
+		byte[] bytes = TransactionBinaryCodec.encode(transactions);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	@Override
+	public Transaction read () throws IOException {
+		if (!fill()) return null;
+		Transaction transaction = batch[index];
+		batch[index++] = null;
+		return transaction;
+	}
+
+	@Override
+	public long skip (long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count && fill()) {
+			int n = (int)Math.min(count - skipped, batch.length - index);
+			index += n;
+			skipped += n;
+		}
+		return skipped;
+	}
+
+	/** Reads the next batch if the current one is used up. Returns false at the end of the input. */
+	private boolean fill () throws IOException {
+		while (index == batch.length) {
+			int length;
+			try {
+				length = in.readInt();
+			} catch (EOFException e) {
+				return false;
+			}
+			if (length < 0 || length > MAX_BATCH_SIZE) throw new IOException("Invalid batch length: " + length);
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			try {
+				batch = TransactionBinaryCodec.decode(bytes);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Malformed batch: " + e.getMessage(), e);
+			}
+			index = 0;
+		}
+		return true;
+	}
+
+	@Override
+	public void close () throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.bulk;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Re-verifies large amounts of historical transactions, e.g. after an incident or a change of verification rules.
+ * Transactions are streamed from a {@link TransactionReader} and verified in parallel through a
+ * {@link PurchaseVerifierManager}, with at most {@link #setMaxInFlight(int) max in-flight} transactions in memory. Results
+ * are written as NDJSON in input order, one line per transaction:
+ *
+ * <pre>
+ * {"index":0,"storeName":"GooglePlay","orderId":"GPA.1234","identifier":"coins","userId":"u1","result":"VALID"}
+ * {"index":1,"error":"Expected name at position 17"}
+ * </pre>
+ *
+ * Every {@link #setCheckpointInterval(int) checkpoint interval} transactions the output is synced and a checkpoint (the
+ * number of transactions done and the matching output length) is written. If the checkpoint file exists when starting, the
+ * output is truncated to the checkpointed length and the input is skipped up to the checkpointed position, so a run
+ * resumes after a crash without losing or duplicating results.
+ *
+ * <pre>
+ * BulkReverifier reverifier = new BulkReverifier(manager);
+ * reverifier.setParallelism(32); // remote verifiers are I/O bound
+ * reverifier.run(new NdjsonTransactionReader(input), output, checkpoint);
+ * </pre>
+ *
+ * Also runnable from the command line, see {@link #main(String[])}. */
+public class BulkReverifier {
+
+	private final PurchaseVerifierManager manager;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int maxInFlight = -1;
+	private int checkpointInterval = 10000;
+
+	private final AtomicLongArray counts = new AtomicLongArray(VerificationResult.values().length);
+	private volatile long malformedCount;
+	private volatile long position;
+
+	public BulkReverifier (PurchaseVerifierManager manager) {
+		this.manager = manager;
+	}
+
+	/** Sets the number of verifying threads, the number of processors by default. Use more if verifiers call remote
+	 * stores. */
+	public void setParallelism (int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/** Sets the maximum number of transactions read but not yet written, 4 times the parallelism by default. */
+	public void setMaxInFlight (int maxInFlight) {
+		if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be >= 1: " + maxInFlight);
+		this.maxInFlight = maxInFlight;
+	}
+
+	/** Sets after how many transactions a checkpoint is written, 10000 by default. */
+	public void setCheckpointInterval (int checkpointInterval) {
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("checkpointInterval must be >= 1: " + checkpointInterval);
+		}
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/** Re-verifies all transactions of the input, resuming from the checkpoint if it exists. Closes the reader.
+	 * @param checkpoint The checkpoint file or null to always start from the beginning (and overwrite the output).
+	 * @return The number of transactions done in this run, not counting those skipped for resuming. */
+	public long run (TransactionReader reader, File output, File checkpoint) throws IOException {
+		long start = 0;
+		long outputLength = 0;
+		if (checkpoint != null && checkpoint.exists()) {
+			long[] state = readCheckpoint(checkpoint);
+			start = state[0];
+			outputLength = state[1];
+		}
+
+		final int maxInFlight = this.maxInFlight > 0 ? this.maxInFlight : parallelism * 4;
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "gdx-pay-reverify-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		FileOutputStream out = null;
+		try {
+			if (reader.skip(start) < start) throw new IOException("Input is shorter than the checkpoint: " + start);
+			position = start;
+
+			out = new FileOutputStream(output, outputLength > 0);
+			FileChannel channel = out.getChannel();
+			if (channel.size() < outputLength) throw new IOException("Output is shorter than the checkpoint: " + output);
+			channel.truncate(outputLength);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+
+			// results are written in input order, so the checkpoint is a plain count
+			ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>(maxInFlight);
+			long index = start;
+			boolean more = true;
+			while (more || !pending.isEmpty()) {
+				while (more && pending.size() < maxInFlight) {
+					Transaction transaction;
+					try {
+						transaction = reader.read();
+					} catch (IllegalArgumentException e) {
+						malformedCount++;
+						pending.add(CompletableFuture.completedFuture(errorLine(index++, e.getMessage())));
+						continue;
+					}
+					if (transaction == null) {
+						more = false;
+					} else {
+						pending.add(executor.submit(new Verification(index++, transaction)));
+					}
+				}
+				if (pending.isEmpty()) break;
+
+				writer.write(await(pending.poll()));
+				if (++position % checkpointInterval == 0 && checkpoint != null) {
+					writer.flush();
+					channel.force(false);
+					writeCheckpoint(checkpoint, position, channel.size());
+				}
+			}
+			writer.flush();
+			channel.force(false);
+			if (checkpoint != null) writeCheckpoint(checkpoint, position, channel.size());
+			return position - start;
+		} finally {
+			executor.shutdownNow();
+			if (out != null) out.close();
+			reader.close();
+		}
+	}
+
+	private static String await (Future<String> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted.", e);
+		} catch (ExecutionException e) {
+			// Verification catches everything, only errors get here
+			throw new IOException("Verification failed: " + e.getCause(), e.getCause());
+		}
+	}
+
+	private class Verification implements Callable<String> {
+		private final long index;
+		private final Transaction transaction;
+
+		Verification (long index, Transaction transaction) {
+			this.index = index;
+			this.transaction = transaction;
+		}
+
+		@Override
+		public String call () {
+			VerificationResult result;
+			try {
+				result = manager.verify(transaction, null);
+			} catch (RuntimeException e) {
+				result = VerificationResult.ERROR;
+			}
+			counts.incrementAndGet(result.ordinal());
+
+			JsonWriter writer = new JsonWriter();
+			writer.beginObject();
+			writer.name("index").value(index);
+			if (transaction.getStoreName() != null) writer.name("storeName").value(transaction.getStoreName());
+			if (transaction.getOrderId() != null) writer.name("orderId").value(transaction.getOrderId());
+			if (transaction.getIdentifier() != null) writer.name("identifier").value(transaction.getIdentifier());
+			if (transaction.getUserId() != null) writer.name("userId").value(transaction.getUserId());
+			writer.name("result").value(result.name());
+			writer.endObject();
+			return writer.toString() + '\n';
+		}
+	}
+
+	private static String errorLine (long index, String message) {
+		return new JsonWriter().beginObject().name("index").value(index).name("error").value(message).endObject().toString()
+			+ '\n';
+	}
+
+	/** Returns the number of transactions verified with the given result since this reverifier was created. */
+	public long getCount (VerificationResult result) {
+		return counts.get(result.ordinal());
+	}
+
+	/** Returns the number of input lines that couldn't be read as a transaction. */
+	public long getMalformedCount () {
+		return malformedCount;
+	}
+
+	/** Returns the number of transactions done, including those done before resuming. Can be polled from another thread
+	 * for progress reports. */
+	public long getPosition () {
+		return position;
+	}
+
+	/** Returns {position, outputLength} of a checkpoint file. */
+	static long[] readCheckpoint (File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return new long[] {in.readLong(), in.readLong()};
+		} finally {
+			in.close();
+		}
+	}
+
+	/** Writes to a temporary file first and then moves it in place, so a crash never leaves a broken checkpoint. */
+	static void writeCheckpoint (File file, long position, long outputLength) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			FileOutputStream stream = new FileOutputStream(temp);
+			DataOutputStream out = new DataOutputStream(stream);
+			try {
+				out.writeLong(position);
+				out.writeLong(outputLength);
+				out.flush();
+				stream.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/** Usage: {@code BulkReverifier [options] <setup class> <input> <output>}
+	 * <ul>
+	 * <li>setup class: a class with a no-argument constructor implementing {@code Supplier<PurchaseVerifierManager>}, which
+	 * creates the manager with your verifiers and keys.</li>
+	 * <li>input: NDJSON if the file name ends with {@code .ndjson} or {@code .json}, length-prefixed binary batches
+	 * otherwise (see {@link BinaryTransactionReader}).</li>
+	 * <li>output: NDJSON results. A checkpoint is kept next to it as {@code <output>.checkpoint}.</li>
+	 * <li>options: {@code --threads <n>}, {@code --in-flight <n>}, {@code --checkpoint-interval <n>}.</li>
+	 * </ul> */
+	public static void main (String[] args) throws Exception {
+		int parallelism = -1, maxInFlight = -1, checkpointInterval = -1;
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("--"); i += 2) {
+			if (i + 1 >= args.length) usage();
+			int value = Integer.parseInt(args[i + 1]);
+			if (args[i].equals("--threads")) {
+				parallelism = value;
+			} else if (args[i].equals("--in-flight")) {
+				maxInFlight = value;
+			} else if (args[i].equals("--checkpoint-interval")) {
+				checkpointInterval = value;
+			} else {
+				usage();
+			}
+		}
+		if (args.length - i != 3) usage();
+
+		@SuppressWarnings("unchecked")
+		Supplier<PurchaseVerifierManager> setup = (Supplier<PurchaseVerifierManager>)Class.forName(args[i])
+			.getDeclaredConstructor().newInstance();
+		File input = new File(args[i + 1]);
+		File output = new File(args[i + 2]);
+		File checkpoint = new File(output.getPath() + ".checkpoint");
+
+		final BulkReverifier reverifier = new BulkReverifier(setup.get());
+		if (parallelism > 0) reverifier.setParallelism(parallelism);
+		if (maxInFlight > 0) reverifier.setMaxInFlight(maxInFlight);
+		if (checkpointInterval > 0) reverifier.setCheckpointInterval(checkpointInterval);
+
+		String name = input.getName();
+		TransactionReader reader = name.endsWith(".ndjson") || name.endsWith(".json") ? new NdjsonTransactionReader(input)
+			: new BinaryTransactionReader(input);
+
+		final long startTime = System.nanoTime();
+		Thread progress = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					while (true) {
+						Thread.sleep(10000);
+						long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+						System.err.println(reverifier.getPosition() + " done, " + reverifier.summary(seconds));
+					}
+				} catch (InterruptedException ignored) {
+				}
+			}
+		}, "gdx-pay-reverify-progress");
+		progress.setDaemon(true);
+		progress.start();
+
+		long done = reverifier.run(reader, output, checkpoint);
+		progress.interrupt();
+		long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+		System.err.println(done + " re-verified in " + seconds + " s, " + reverifier.summary(seconds));
+	}
+
+	private String summary (long seconds) {
+		StringBuilder builder = new StringBuilder();
+		long verified = 0;
+		for (VerificationResult result : VerificationResult.values()) {
+			builder.append(result.name().toLowerCase()).append(' ').append(getCount(result)).append(", ");
+			verified += getCount(result);
+		}
+		return builder.append("malformed ").append(malformedCount).append(", ").append(verified / seconds).append("/s")
+			.toString();
+	}
+
+	private static void usage () {
+		System.err.println("Usage: BulkReverifier [--threads n] [--in-flight n] [--checkpoint-interval n] "
+			+ "<setup class> <input> <output>");
+		System.exit(1);
+	}
+}
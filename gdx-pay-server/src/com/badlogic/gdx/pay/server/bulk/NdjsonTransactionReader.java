@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.bulk;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.PayJsonCodec;
+
+/** Reads transactions from newline-delimited JSON, one {@link PayJsonCodec} transaction per line. Blank lines are
+ * ignored. */
+public class NdjsonTransactionReader implements TransactionReader {
+
+	private final BufferedReader reader;
+
+	public NdjsonTransactionReader (Reader reader) {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader, 1 << 16);
+	}
+
+	public NdjsonTransactionReader (File file) throws IOException {
+		this(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public Transaction read () throws IOException {
+		String line = nextLine();
+		return line != null ? PayJsonCodec.transactionFromJson(line) : null;
+	}
+
+	/** Skips lines without parsing them. */
+	@Override
+	public long skip (long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count && nextLine() != null) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	private String nextLine () throws IOException {
+		String line;
+		do {
+			line = reader.readLine();
+		} while (line != null && line.trim().isEmpty());
+		return line;
+	}
+
+	@Override
+	public void close () throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** A stream of transactions, read one at a time so arbitrarily large inputs need constant memory. Not thread-safe. */
+public interface TransactionReader extends Closeable {
+
+	/** Returns the next transaction or null at the end of the input.
+	 * @throws IllegalArgumentException if this one transaction is malformed. Reading can continue with the next one.
+	 * @throws IOException if the input can't be read any further. */
+	Transaction read () throws IOException;
+
+	/** Skips the next transactions, e.g. to resume from a checkpoint. Cheaper than reading them if possible.
+	 * @return The number of transactions skipped, less than requested only at the end of the input. */
+	long skip (long count) throws IOException;
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** A cached verification result. Immutable.
+ * <p>
+ * The fingerprint identifies the receipt content the result was computed for: a cache entry found for an order ID is only
+ * used if the fingerprint of the transaction at hand matches, so a forged receipt can't borrow the result of a genuine
+ * purchase by copying its order ID. */
+public final class CachedResult {
+
+	private final String fingerprint;
+	private final VerificationResult result;
+	private final long expiresAt;
+
+	/** @param expiresAt Expiry time in milliseconds since the epoch. */
+	public CachedResult (String fingerprint, VerificationResult result, long expiresAt) {
+		this.fingerprint = fingerprint;
+		this.result = result;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getFingerprint () {
+		return fingerprint;
+	}
+
+	public VerificationResult getResult () {
+		return result;
+	}
+
+	public long getExpiresAt () {
+		return expiresAt;
+	}
+
+	public boolean isExpired (long now) {
+		return now >= expiresAt;
+	}
+
+	@Override
+	public String toString () {
+		return "CachedResult{" +
+				"fingerprint='" + fingerprint + '\'' +
+				", result=" + result +
+				", expiresAt=" + expiresAt +
+				'}';
+	}
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.fingerprint.ReceiptFingerprint;
+import com.badlogic.gdx.pay.server.jfr.CacheLookupEvent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Decorates a verifier with a {@link VerificationCache}. Only terminal results are cached (see
+ * {@link VerificationResult#isTerminal()}); transient errors are always retried. Transactions without order ID are never
+ * cached.
+ * <p>
+ * A verification still running when its purchase is invalidated doesn't put its result back. This verifier only sees
+ * {@link #invalidate(String)} though; to also cover invalidations through the cache itself (e.g. by a refund poller or
+ * another node) register it as listener of the {@link RemoteVerificationCache}. */
+public class CachingPurchaseVerifier implements PurchaseVerifier, InvalidationListener {
+
+	private static final int GENERATIONS = 256;
+
+	private final PurchaseVerifier delegate;
+	private final VerificationCache cache;
+	private final long timeToLiveMillis;
+	/** Invalidation counts, striped by key. A shared stripe only costs a skipped put. */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+	/** @param timeToLiveMillis How long results stay valid in the cache. */
+	public CachingPurchaseVerifier (PurchaseVerifier delegate, VerificationCache cache, long timeToLiveMillis) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+	@Override
+	public String storeName () {
+		return delegate.storeName();
+	}
+
+	@Override
+	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
+		if (transaction.getOrderId() == null) {
+			return delegate.verify(transaction);
+		}
+		String key = key(storeName(), transaction.getOrderId());
+		String fingerprint = fingerprint(transaction);
+		CacheLookupEvent event = new CacheLookupEvent();
+		event.begin();
+		CachedResult cached = cache.get(key);
+		event.end();
+		long now = System.currentTimeMillis();
+		boolean hit = cached != null && !cached.isExpired(now) && fingerprint.equals(cached.getFingerprint());
+		if (event.shouldCommit()) {
+			event.setStore(storeName());
+			event.tag(hit ? "hit" : cached == null ? "miss" : cached.isExpired(now) ? "expired" : "mismatch", 0);
+			event.commit();
+		}
+		if (hit) {
+			return cached.getResult();
+		}
+
+		int generation = generation(key);
+		long invalidations = generations.get(generation);
+		VerificationResult result = delegate.verify(transaction);
+		if (result.isTerminal() && generations.get(generation) == invalidations) {
+			cache.put(key, new CachedResult(fingerprint, result, now + timeToLiveMillis));
+			// invalidated between the check and the put
+			if (generations.get(generation) != invalidations) cache.invalidate(key);
+		}
+		return result;
+	}
+
+	/** Drops the cached result of a purchase, e.g. because it was refunded. */
+	public void invalidate (String orderId) {
+		String key = key(storeName(), orderId);
+		generations.incrementAndGet(generation(key));
+		cache.invalidate(key);
+	}
+
+	/** Keeps verifications running while the entry was invalidated elsewhere from caching their result. */
+	@Override
+	public void invalidated (String key) {
+		generations.incrementAndGet(generation(key));
+	}
+
+	private static int generation (String key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (GENERATIONS - 1);
+	}
+
+	public VerificationCache getCache () {
+		return cache;
+	}
+
+	/** Returns the cache key of a purchase. */
+	public static String key (String storeName, String orderId) {
+		return storeName + ':' + orderId;
+	}
+
+	/** Returns a fingerprint of the receipt content (transaction data and signature), see {@link ReceiptFingerprint}. */
+	public static String fingerprint (Transaction transaction) {
+		return ReceiptFingerprint.of(transaction).toString();
+	}
+}
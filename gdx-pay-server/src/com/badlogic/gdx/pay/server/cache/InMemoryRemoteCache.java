@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Reference implementation of {@link RemoteVerificationCache} within the process, for tests and single-node setups. Share
+ * one instance between several {@link TwoTierVerificationCache}s to simulate a fleet. Unbounded: expired entries are
+ * dropped on access only. */
+public class InMemoryRemoteCache implements RemoteVerificationCache {
+
+	private final ConcurrentMap<String, CachedResult> entries = new ConcurrentHashMap<String, CachedResult>();
+	private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<InvalidationListener>();
+
+	@Override
+	public CachedResult get (String key) {
+		CachedResult value = entries.get(key);
+		if (value != null && value.isExpired(System.currentTimeMillis())) {
+			entries.remove(key, value);
+			return null;
+		}
+		return value;
+	}
+
+	@Override
+	public void put (String key, CachedResult value) {
+		entries.put(key, value);
+	}
+
+	@Override
+	public void invalidate (String key) {
+		entries.remove(key);
+		for (InvalidationListener listener : listeners) {
+			listener.invalidated(key);
+		}
+	}
+
+	@Override
+	public void addInvalidationListener (InvalidationListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeInvalidationListener (InvalidationListener listener) {
+		listeners.remove(listener);
+	}
+
+	public int size () {
+		return entries.size();
+	}
+}
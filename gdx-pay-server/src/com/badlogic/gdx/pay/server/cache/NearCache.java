@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Bounded in-process LRU cache. Split into independently locked segments so concurrent lookups rarely contend. */
+public class NearCache implements VerificationCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	/** @param maxSize The maximum number of entries, evicting the least recently used ones beyond. */
+	public NearCache (int maxSize) {
+		int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	private Segment segment (String key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	@Override
+	public CachedResult get (String key) {
+		Segment segment = segment(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	@Override
+	public void put (String key, CachedResult value) {
+		Segment segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	@Override
+	public void invalidate (String key) {
+		Segment segment = segment(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	public int size () {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear () {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	private static final class Segment extends LinkedHashMap<String, CachedResult> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		Segment (int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry (Map.Entry<String, CachedResult> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.pay.server.fingerprint.ReceiptFingerprint;
+
+/** Bounded in-process set of receipts known to be invalid, by {@link ReceiptFingerprint}, each kept for a time to live.
+ * Split into independently locked segments like {@link NearCache}; beyond the maximum size the least recently seen
+ * receipts are evicted. See {@link NegativeCachingPurchaseVerifier}. */
+public class NegativeCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final long timeToLiveMillis;
+
+	/** @param maxSize The maximum number of receipts.
+	 * @param timeToLiveMillis How long a receipt stays known invalid. */
+	public NegativeCache (int maxSize, long timeToLiveMillis) {
+		if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1: " + maxSize);
+		int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+	private Segment segment (ReceiptFingerprint fingerprint) {
+		// the fingerprint is a hash already
+		return segments[(int)fingerprint.getLow() & (SEGMENTS - 1)];
+	}
+
+	/** Returns true if the receipt is known invalid. */
+	public boolean contains (ReceiptFingerprint fingerprint) {
+		Segment segment = segment(fingerprint);
+		synchronized (segment) {
+			Long expires = segment.get(fingerprint);
+			if (expires == null) return false;
+			if (expires > System.currentTimeMillis()) return true;
+			segment.remove(fingerprint);
+			return false;
+		}
+	}
+
+	/** Adds a receipt that verified as {@link com.badlogic.gdx.pay.server.VerificationResult#INVALID}. */
+	public void add (ReceiptFingerprint fingerprint) {
+		long expires = System.currentTimeMillis() + timeToLiveMillis;
+		Segment segment = segment(fingerprint);
+		synchronized (segment) {
+			segment.put(fingerprint, expires);
+		}
+	}
+
+	/** Forgets a receipt, e.g. because it was rejected by mistake. */
+	public void invalidate (ReceiptFingerprint fingerprint) {
+		Segment segment = segment(fingerprint);
+		synchronized (segment) {
+			segment.remove(fingerprint);
+		}
+	}
+
+	public int size () {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear () {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	private static final class Segment extends LinkedHashMap<ReceiptFingerprint, Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		Segment (int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry (Map.Entry<ReceiptFingerprint, Long> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.fingerprint.ReceiptFingerprint;
+
+/** Decorates a verifier with a {@link NegativeCache}, so replays of a forged receipt are rejected by a hash lookup instead
+ * of costing a signature check or store call each time. Only {@link VerificationResult#INVALID} results of the verifier
+ * are remembered, i.e. terminal failures such as a signature mismatch or Apple's 21003; transient failures (Apple's
+ * 21005, I/O errors, ...) are {@link VerificationResult#ERROR} and never are, nor are {@link VerificationResult#REFUSED}
+ * receipts (Apple's 21007 and 21008, a receipt sent to the wrong environment). The receipt is identified by its
+ * {@link ReceiptFingerprint}, whatever the order ID or user ID of the replay.
+ *
+ * <pre>
+ * NegativeCache forged = new NegativeCache(100000, TimeUnit.HOURS.toMillis(1));
+ * manager.addVerifier(new NegativeCachingPurchaseVerifier(new PurchaseVerifieriOSApple(), forged));
+ * </pre>
+ *
+ * Wrap the store's verifier directly, whose verdict depends on the receipt alone (Google Play, Huawei, Apple), not
+ * decorators that reject valid receipts for a particular user such as
+ * {@link com.badlogic.gdx.pay.server.fingerprint.ReuseDetectingPurchaseVerifier}, and not the Amazon verifier, which asks
+ * about the user ID. */
+public class NegativeCachingPurchaseVerifier implements PurchaseVerifier {
+
+	private final PurchaseVerifier delegate;
+	private final NegativeCache cache;
+	private final AtomicLong hitCount = new AtomicLong();
+
+	public NegativeCachingPurchaseVerifier (PurchaseVerifier delegate, NegativeCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public String storeName () {
+		return delegate.storeName();
+	}
+
+	@Override
+	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
+		ReceiptFingerprint fingerprint = ReceiptFingerprint.of(transaction);
+		if (cache.contains(fingerprint)) {
+			hitCount.incrementAndGet();
+			return VerificationResult.INVALID;
+		}
+		VerificationResult result = delegate.verify(transaction);
+		if (result == VerificationResult.INVALID) cache.add(fingerprint);
+		return result;
+	}
+
+	/** Returns the number of known invalid receipts rejected so far. */
+	public long getHitCount () {
+		return hitCount.get();
+	}
+
+	public NegativeCache getCache () {
+		return cache;
+	}
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+/** The shared, remote tier of a {@link TwoTierVerificationCache}, e.g. backed by Redis or Memcached. Survives restarts of
+ * verification nodes and is shared by all of them.
+ * <p>
+ * Implementations broadcast every {@link #invalidate(String)} to the listeners on all nodes (e.g. via pub/sub), so local
+ * near-caches can drop the entry too. */
+public interface RemoteVerificationCache extends VerificationCache {
+
+	void addInvalidationListener (InvalidationListener listener);
+
+	void removeInvalidationListener (InvalidationListener listener);
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+/** Verification cache with a bounded local {@link NearCache} in front of a shared {@link RemoteVerificationCache}. Most
+ * lookups are answered in-process; misses and expired near entries fall through to the remote tier and are copied into
+ * the near-cache.
+ * Invalidations go to the remote tier, which broadcasts them to the near-caches of all nodes.
+ *
+ * <pre>
+ * TwoTierVerificationCache cache = new TwoTierVerificationCache(new NearCache(100000), redisBackedCache);
+ * manager.addVerifier(new CachingPurchaseVerifier(googleVerifier, cache, TimeUnit.HOURS.toMillis(1)));
+ * </pre> */
+public class TwoTierVerificationCache implements VerificationCache, InvalidationListener {
+
+	private final NearCache near;
+	private final RemoteVerificationCache remote;
+
+	public TwoTierVerificationCache (NearCache near, RemoteVerificationCache remote) {
+		this.near = near;
+		this.remote = remote;
+		remote.addInvalidationListener(this);
+	}
+
+	@Override
+	public CachedResult get (String key) {
+		CachedResult value = near.get(key);
+		if (value != null) {
+			if (!value.isExpired(System.currentTimeMillis())) return value;
+			// another node may have written a fresh result to the remote tier meanwhile
+			near.invalidate(key);
+		}
+		value = remote.get(key);
+		if (value != null) near.put(key, value);
+		return value;
+	}
+
+	@Override
+	public void put (String key, CachedResult value) {
+		near.put(key, value);
+		remote.put(key, value);
+	}
+
+	/** Invalidates the entry locally and, through the remote tier, on all other nodes. */
+	@Override
+	public void invalidate (String key) {
+		near.invalidate(key);
+		remote.invalidate(key);
+	}
+
+	/** Called by the remote tier when an entry was invalidated by any node. */
+	@Override
+	public void invalidated (String key) {
+		near.invalidate(key);
+	}
+
+	/** Stops listening for invalidations of the remote tier. */
+	public void close () {
+		remote.removeInvalidationListener(this);
+	}
+
+	public NearCache getNearCache () {
+		return near;
+	}
+
+	public RemoteVerificationCache getRemoteCache () {
+		return remote;
+	}
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.cache;
+
+/** Cache SPI for verification results, keyed by store name and order ID (see {@link CachingPurchaseVerifier#key}).
+ * Implementations must be thread-safe. */
+public interface VerificationCache {
+
+	/** Returns the cached result or null if there is none. May return expired entries, callers check expiry. */
+	CachedResult get (String key);
+
+	void put (String key, CachedResult value);
+
+	/** Removes an entry, e.g. because the purchase was refunded. */
+	void invalidate (String key);
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Compresses receipt payloads ({@code transactionData}, {@code transactionDataSignature}) for storage and replication,
+ * using a preset {@link ReceiptDictionary} per store. Receipts of one store share most of their content (JSON field names,
+ * package names, Apple's certificate chain), which the dictionary provides up front, so even a single receipt compresses
+ * well.
+ *
+ * <pre>
+ * ReceiptCodec codec = new ReceiptCodec();
+ * codec.addDictionary(appleDictionary);
+ * byte[] stored = codec.compress(transaction.getStoreName(), transaction.getTransactionData());
+ * String data = codec.decompress(stored);
+ * </pre>
+ *
+ * Format: {@code byte flags, varint dictionaryId (0 for none), raw deflate data (or the bytes as-is if not deflated)}.
+ * Canonical Base64 payloads are compressed decoded and re-encoded on decompression. Deflaters and inflaters are reused per
+ * thread. Thread-safe. */
+public class ReceiptCodec {
+
+	private static final int DEFLATED = 1;
+	private static final int BASE64 = 1 << 1;
+
+	/** All dictionaries by ID, for decompression. */
+	private final ConcurrentHashMap<Integer, ReceiptDictionary> dictionaries =
+		new ConcurrentHashMap<Integer, ReceiptDictionary>();
+	/** The current dictionary per store, for compression. */
+	private final ConcurrentHashMap<String, ReceiptDictionary> storeDictionaries =
+		new ConcurrentHashMap<String, ReceiptDictionary>();
+
+	private final int level;
+	private final ThreadLocal<Deflater> deflaters;
+	private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue () {
+			return new Inflater(true);
+		}
+	};
+
+	public ReceiptCodec () {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/** @param level The deflate level, 1 (fastest) to 9 (smallest). */
+	public ReceiptCodec (final int level) {
+		this.level = level;
+		this.deflaters = new ThreadLocal<Deflater>() {
+			@Override
+			protected Deflater initialValue () {
+				return new Deflater(level, true);
+			}
+		};
+	}
+
+	/** Registers a dictionary for decompression and makes it the one used to compress receipts of its store. */
+	public void addDictionary (ReceiptDictionary dictionary) {
+		ReceiptDictionary previous = dictionaries.putIfAbsent(dictionary.getId(), dictionary);
+		if (previous != null && previous != dictionary) {
+			throw new IllegalArgumentException("Dictionary ID already in use: " + dictionary.getId());
+		}
+		storeDictionaries.put(dictionary.getStoreName(), dictionary);
+	}
+
+	/** Compresses a payload with the current dictionary of the store (or none). Null stays null. */
+	public byte[] compress (String storeName, String payload) {
+		if (payload == null) return null;
+		int flags = 0;
+		byte[] bytes = decodeCanonical(payload);
+		if (bytes != null) {
+			flags |= BASE64;
+		} else {
+			bytes = payload.getBytes(StandardCharsets.UTF_8);
+		}
+		ReceiptDictionary dictionary = storeName != null ? storeDictionaries.get(storeName) : null;
+
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setLevel(level);
+		if (dictionary != null) deflater.setDictionary(dictionary.bytes());
+		deflater.setInput(bytes);
+		deflater.finish();
+		byte[] out = new byte[6 + bytes.length + (bytes.length >> 3) + 16];
+		int header = writeHeader(out, flags | DEFLATED, dictionary != null ? dictionary.getId() : 0);
+		int length = header;
+		while (!deflater.finished()) {
+			if (length == out.length) out = Arrays.copyOf(out, out.length * 2);
+			length += deflater.deflate(out, length, out.length - length);
+		}
+		if (length - header >= bytes.length) {
+			// incompressible (tiny or random), store as-is
+			out = new byte[6 + bytes.length];
+			header = writeHeader(out, flags, 0);
+			System.arraycopy(bytes, 0, out, header, bytes.length);
+			length = header + bytes.length;
+		}
+		return Arrays.copyOf(out, length);
+	}
+
+	/** Decompresses what {@link #compress} returned. Null stays null.
+	 * @throws IllegalArgumentException if the data is corrupt or the dictionary is unknown. */
+	public String decompress (byte[] compressed) {
+		if (compressed == null) return null;
+		int[] header = readHeader(compressed);
+		int flags = header[0];
+		int offset = header[2];
+		byte[] bytes;
+		if ((flags & DEFLATED) == 0) {
+			bytes = Arrays.copyOfRange(compressed, offset, compressed.length);
+		} else {
+			Inflater inflater = inflater(header[1]);
+			inflater.setInput(compressed, offset, compressed.length - offset);
+			bytes = new byte[Math.max(64, (compressed.length - offset) * 4)];
+			int length = 0;
+			try {
+				while (!inflater.finished()) {
+					if (length == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+					int n = inflater.inflate(bytes, length, bytes.length - length);
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new IllegalArgumentException("Truncated receipt data.");
+					}
+					length += n;
+				}
+			} catch (DataFormatException e) {
+				throw new IllegalArgumentException("Corrupt receipt data.", e);
+			}
+			bytes = Arrays.copyOf(bytes, length);
+		}
+		return (flags & BASE64) != 0 ? Base64.getEncoder().encodeToString(bytes) : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/** Decompresses a payload from the stream to the output without holding all of it in memory, e.g. to send a large
+	 * receipt straight from storage to Apple. Writes the payload as UTF-8 (Base64 payloads in their original encoding).
+	 * Doesn't close either stream.
+	 * @throws IOException if reading or writing fails or the data is corrupt. */
+	public void decompress (InputStream in, OutputStream out) throws IOException {
+		int flags = in.read();
+		if (flags < 0) throw new IOException("Empty receipt data.");
+		int dictionaryId = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.read();
+			if (b < 0 || shift > 28) throw new IOException("Malformed receipt header.");
+			dictionaryId |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) break;
+		}
+
+		OutputStream target = (flags & BASE64) != 0 ? Base64.getEncoder().wrap(new NonClosing(out)) : out;
+		byte[] input = new byte[8192];
+		if ((flags & DEFLATED) == 0) {
+			for (int n; (n = in.read(input)) > 0;) {
+				target.write(input, 0, n);
+			}
+		} else {
+			Inflater inflater;
+			try {
+				inflater = inflater(dictionaryId);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage());
+			}
+			byte[] output = new byte[16384];
+			try {
+				while (!inflater.finished()) {
+					int n = inflater.inflate(output);
+					if (n > 0) {
+						target.write(output, 0, n);
+					} else if (inflater.needsInput()) {
+						int read = in.read(input);
+						if (read < 0) throw new IOException("Truncated receipt data.");
+						inflater.setInput(input, 0, read);
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt receipt data.", e);
+			}
+		}
+		// writes the Base64 padding, doesn't close the output
+		if (target != out) target.close();
+	}
+
+	private Inflater inflater (int dictionaryId) {
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		if (dictionaryId != 0) {
+			ReceiptDictionary dictionary = dictionaries.get(dictionaryId);
+			if (dictionary == null) throw new IllegalArgumentException("Unknown receipt dictionary: " + dictionaryId);
+			inflater.setDictionary(dictionary.bytes());
+		}
+		return inflater;
+	}
+
+	private static int writeHeader (byte[] out, int flags, int dictionaryId) {
+		int position = 0;
+		out[position++] = (byte)flags;
+		while ((dictionaryId & ~0x7F) != 0) {
+			out[position++] = (byte)((dictionaryId & 0x7F) | 0x80);
+			dictionaryId >>>= 7;
+		}
+		out[position++] = (byte)dictionaryId;
+		return position;
+	}
+
+	/** Returns flags, dictionary ID and data offset. */
+	private static int[] readHeader (byte[] in) {
+		if (in.length == 0) throw new IllegalArgumentException("Empty receipt data.");
+		int dictionaryId = 0;
+		int position = 1;
+		for (int shift = 0;; shift += 7) {
+			if (position >= in.length || shift > 28) throw new IllegalArgumentException("Malformed receipt header.");
+			int b = in[position++] & 0xFF;
+			dictionaryId |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) break;
+		}
+		return new int[] {in[0] & 0xFF, dictionaryId, position};
+	}
+
+	/** Returns the decoded bytes if the payload is canonical Base64 (encodes back to the same string), null otherwise. */
+	static byte[] decodeCanonical (String payload) {
+		if (payload.isEmpty() || payload.length() % 4 != 0) return null;
+		byte[] bytes;
+		try {
+			bytes = Base64.getDecoder().decode(payload);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		return Base64.getEncoder().encodeToString(bytes).equals(payload) ? bytes : null;
+	}
+
+	private static final class NonClosing extends OutputStream {
+		private final OutputStream out;
+
+		NonClosing (OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write (int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void flush () throws IOException {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.compress;
+
+/** A preset dictionary for compressing the receipts of one store, see {@link ReceiptDictionaryTrainer} and
+ * {@link ReceiptCodec}. Immutable.
+ * <p>
+ * The ID is stored with every compressed receipt: keep old dictionaries registered as long as receipts compressed with
+ * them exist, and give every new dictionary a new ID. */
+public final class ReceiptDictionary {
+
+	/** Deflate can't look back further than 32 KB, a larger dictionary would be cut anyway. */
+	public static final int MAX_SIZE = 32 * 1024;
+
+	private final int id;
+	private final String storeName;
+	private final byte[] bytes;
+
+	/** @param id A positive ID, unique across all dictionaries ever used.
+	 * @param bytes The dictionary, most common content last. */
+	public ReceiptDictionary (int id, String storeName, byte[] bytes) {
+		if (id <= 0) throw new IllegalArgumentException("Dictionary ID must be positive: " + id);
+		if (bytes.length > MAX_SIZE) throw new IllegalArgumentException("Dictionary too large: " + bytes.length);
+		this.id = id;
+		this.storeName = storeName;
+		this.bytes = bytes.clone();
+	}
+
+	public int getId () {
+		return id;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	/** Returns a copy of the dictionary bytes, e.g. to store them. */
+	public byte[] getBytes () {
+		return bytes.clone();
+	}
+
+	byte[] bytes () {
+		return bytes;
+	}
+
+	@Override
+	public String toString () {
+		return "ReceiptDictionary{" +
+				"id=" + id +
+				", storeName='" + storeName + '\'' +
+				", size=" + bytes.length +
+				'}';
+	}
+}
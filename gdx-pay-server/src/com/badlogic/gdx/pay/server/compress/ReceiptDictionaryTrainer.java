@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Builds a {@link ReceiptDictionary} from sample receipts of one store, e.g. a few hundred recent ones.
+ * <p>
+ * Finds the byte sequences that occur in many samples (segments made of 8-byte grams found in at least the minimum share
+ * of samples) and concatenates the best ones, most valuable last since deflate encodes short distances cheaper.
+ * Not thread-safe. */
+public class ReceiptDictionaryTrainer {
+
+	private static final int GRAM = 8;
+
+	private final int maxSize;
+	private final List<byte[]> samples = new ArrayList<byte[]>();
+	private float minShare = 0.1f;
+
+	public ReceiptDictionaryTrainer () {
+		this(ReceiptDictionary.MAX_SIZE);
+	}
+
+	public ReceiptDictionaryTrainer (int maxSize) {
+		if (maxSize <= 0 || maxSize > ReceiptDictionary.MAX_SIZE) throw new IllegalArgumentException("Invalid size: " + maxSize);
+		this.maxSize = maxSize;
+	}
+
+	/** Sets the share of samples a sequence must occur in to be considered, 0.1 (10%) by default. */
+	public void setMinShare (float minShare) {
+		this.minShare = minShare;
+	}
+
+	/** Adds a sample payload, prepared the same way {@link ReceiptCodec} does (Base64 decoded if canonical). */
+	public void addSample (String payload) {
+		if (payload == null || payload.isEmpty()) return;
+		byte[] bytes = ReceiptCodec.decodeCanonical(payload);
+		samples.add(bytes != null ? bytes : payload.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public int getSampleCount () {
+		return samples.size();
+	}
+
+	/** Builds the dictionary from the samples added so far. */
+	public ReceiptDictionary train (int id, String storeName) {
+		// number of samples each gram occurs in
+		Map<Long, Integer> counts = new HashMap<Long, Integer>();
+		for (byte[] sample : samples) {
+			Set<Long> seen = new HashSet<Long>();
+			for (int i = 0; i + GRAM <= sample.length; i++) {
+				Long gram = gram(sample, i);
+				if (seen.add(gram)) {
+					Integer count = counts.get(gram);
+					counts.put(gram, count == null ? 1 : count + 1);
+				}
+			}
+		}
+		int minCount = Math.max(2, (int)Math.ceil(samples.size() * minShare));
+
+		// segments: maximal runs of common grams, scored by length times how common they are
+		Map<String, Segment> segments = new HashMap<String, Segment>();
+		for (byte[] sample : samples) {
+			int start = -1;
+			long score = 0;
+			for (int i = 0; i + GRAM <= sample.length + 1; i++) {
+				Integer count = i + GRAM <= sample.length ? counts.get(gram(sample, i)) : null;
+				if (count != null && count >= minCount) {
+					if (start < 0) start = i;
+					score += count;
+				} else if (start >= 0) {
+					byte[] bytes = Arrays.copyOfRange(sample, start, i - 1 + GRAM);
+					String key = new String(bytes, StandardCharsets.ISO_8859_1);
+					if (!segments.containsKey(key)) segments.put(key, new Segment(bytes, score));
+					start = -1;
+					score = 0;
+				}
+			}
+		}
+		List<Segment> ranked = new ArrayList<Segment>(segments.values());
+		Collections.sort(ranked, new Comparator<Segment>() {
+			@Override
+			public int compare (Segment a, Segment b) {
+				return Long.compare(b.score, a.score);
+			}
+		});
+
+		// pick the best segments that aren't contained in picked ones yet
+		List<byte[]> picked = new ArrayList<byte[]>();
+		StringBuilder content = new StringBuilder();
+		int size = 0;
+		for (Segment segment : ranked) {
+			if (size + segment.bytes.length > maxSize) continue;
+			String text = new String(segment.bytes, StandardCharsets.ISO_8859_1);
+			if (content.indexOf(text) >= 0) continue;
+			picked.add(segment.bytes);
+			content.append(text);
+			size += segment.bytes.length;
+		}
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+		for (int i = picked.size() - 1; i >= 0; i--) {
+			dictionary.write(picked.get(i), 0, picked.get(i).length);
+		}
+		return new ReceiptDictionary(id, storeName, dictionary.toByteArray());
+	}
+
+	private static long gram (byte[] bytes, int offset) {
+		long gram = 0;
+		for (int i = 0; i < GRAM; i++) {
+			gram = (gram << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return gram;
+	}
+
+	private static final class Segment {
+		final byte[] bytes;
+		final long score;
+
+		Segment (byte[] bytes, long score) {
+			this.bytes = bytes;
+			this.score = score;
+		}
+	}
+}
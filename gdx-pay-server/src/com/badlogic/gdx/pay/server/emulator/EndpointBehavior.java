@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.emulator;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** How one endpoint of the {@link StoreEmulator} behaves: latency, injected faults and scripted responses. Can be changed
+ * while the emulator is running, e.g. to start a brownout in the middle of a load test. Thread-safe.
+ * <p>
+ * Per request, a scripted response is used if there is one. Otherwise faults are drawn in this order: dropped
+ * connection, error status, hang. Without fault the emulated store answers. */
+public final class EndpointBehavior {
+
+	private volatile Latency latency = Latency.NONE;
+	private volatile double dropRate;
+	private volatile double errorRate;
+	private volatile int errorStatus = 503;
+	private volatile double hangRate;
+	private volatile long hangMillis = 60000;
+
+	private final ConcurrentLinkedQueue<ScriptedResponse> script = new ConcurrentLinkedQueue<ScriptedResponse>();
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/** Sets the latency added to every response, including error responses. */
+	public EndpointBehavior latency (Latency latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/** Sets the share of requests whose connection is closed without response. */
+	public EndpointBehavior dropRate (double rate) {
+		this.dropRate = checkRate(rate);
+		return this;
+	}
+
+	/** Sets the share of requests answered with the HTTP status, e.g. 503 or 429. */
+	public EndpointBehavior errors (double rate, int status) {
+		this.errorRate = checkRate(rate);
+		this.errorStatus = status;
+		return this;
+	}
+
+	/** Sets the share of requests answered only after the given time on top of the latency, to trigger client timeouts. */
+	public EndpointBehavior hangs (double rate, long millis) {
+		this.hangRate = checkRate(rate);
+		this.hangMillis = millis;
+		return this;
+	}
+
+	/** Queues a response returned for the next request instead of the emulated one, e.g. to test a specific status. */
+	public EndpointBehavior script (int status, String body) {
+		script.add(new ScriptedResponse(status, body));
+		return this;
+	}
+
+	/** Removes all faults, scripted responses and latency. */
+	public EndpointBehavior reset () {
+		latency = Latency.NONE;
+		dropRate = errorRate = hangRate = 0;
+		script.clear();
+		return this;
+	}
+
+	public Latency getLatency () {
+		return latency;
+	}
+
+	double getDropRate () {
+		return dropRate;
+	}
+
+	double getErrorRate () {
+		return errorRate;
+	}
+
+	int getErrorStatus () {
+		return errorStatus;
+	}
+
+	double getHangRate () {
+		return hangRate;
+	}
+
+	long getHangMillis () {
+		return hangMillis;
+	}
+
+	ScriptedResponse nextScripted () {
+		return script.poll();
+	}
+
+	long incrementRequestCount () {
+		return requestCount.incrementAndGet();
+	}
+
+	/** Returns the number of requests received, including faulted ones. */
+	public long getRequestCount () {
+		return requestCount.get();
+	}
+
+	private static double checkRate (double rate) {
+		if (rate < 0 || rate > 1) throw new IllegalArgumentException("rate must be in [0, 1]: " + rate);
+		return rate;
+	}
+
+	static final class ScriptedResponse {
+		final int status;
+		final String body;
+
+		ScriptedResponse (int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+}
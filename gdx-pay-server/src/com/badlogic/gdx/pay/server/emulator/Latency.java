@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.emulator;
+
+import java.util.Random;
+
+/** A distribution of response latencies for the {@link StoreEmulator}. Immutable and thread-safe. */
+public abstract class Latency {
+
+	/** No added latency. */
+	public static final Latency NONE = fixed(0);
+
+	/** Returns a latency in microseconds. */
+	public abstract long sampleMicros (Random random);
+
+	/** Always the same latency. */
+	public static Latency fixed (final double millis) {
+		if (millis < 0) throw new IllegalArgumentException("millis must be >= 0: " + millis);
+		final long micros = Math.round(millis * 1000);
+		return new Latency() {
+			@Override
+			public long sampleMicros (Random random) {
+				return micros;
+			}
+
+			@Override
+			public String toString () {
+				return "fixed " + millis + " ms";
+			}
+		};
+	}
+
+	/** Equally distributed between min and max. */
+	public static Latency uniform (final double minMillis, final double maxMillis) {
+		if (minMillis < 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Invalid range: " + minMillis + " - " + maxMillis);
+		}
+		return new Latency() {
+			@Override
+			public long sampleMicros (Random random) {
+				return Math.round((minMillis + random.nextDouble() * (maxMillis - minMillis)) * 1000);
+			}
+
+			@Override
+			public String toString () {
+				return "uniform " + minMillis + " - " + maxMillis + " ms";
+			}
+		};
+	}
+
+	/** Log-normal with the given median and 99th percentile, the usual shape of network service latency: most responses
+	 * close to the median, with a long tail. */
+	public static Latency logNormal (final double medianMillis, final double p99Millis) {
+		if (medianMillis <= 0 || p99Millis < medianMillis) {
+			throw new IllegalArgumentException("Invalid median/p99: " + medianMillis + "/" + p99Millis);
+		}
+		final double mu = Math.log(medianMillis);
+		// the 99th percentile of the standard normal distribution is 2.326
+		final double sigma = Math.log(p99Millis / medianMillis) / 2.326;
+		return new Latency() {
+			@Override
+			public long sampleMicros (Random random) {
+				return Math.round(Math.exp(mu + sigma * random.nextGaussian()) * 1000);
+			}
+
+			@Override
+			public String toString () {
+				return "log-normal median " + medianMillis + " ms, p99 " + p99Millis + " ms";
+			}
+		};
+	}
+}
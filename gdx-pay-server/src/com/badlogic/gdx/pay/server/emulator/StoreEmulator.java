@@ -0,0 +1,557 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.emulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.codec.JsonReader;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/** Impersonates the store endpoints used by gdx-pay-server on a local JDK HTTP server, for repeatable load and fault
+ * tests without network: Apple verifyReceipt and refund lookup, Amazon RVS and the Google Play Developer API (products,
+ * subscriptions and voided purchases).
+ *
+ * <pre>
+ * StoreEmulator emulator = new StoreEmulator(0); // any free port
+ * emulator.start();
+ * emulator.behavior(Endpoint.APPLE_VERIFY_RECEIPT).latency(Latency.logNormal(80, 400)).errors(0.01, 503);
+ *
+ * PurchaseVerifieriOSApple apple = new PurchaseVerifieriOSApple();
+ * apple.setVerifyReceiptUrl(emulator.getAppleVerifyReceiptUrl());
+ * PurchaseVerifierAndroidAmazon amazon = new PurchaseVerifierAndroidAmazon("secret");
+ * amazon.setBaseUrl(emulator.getBaseUrl());
+ * </pre>
+ *
+ * Purchases are identified per store by what the store is asked about: the receipt data for Apple verifyReceipt, the
+ * receipt ID for Amazon and the purchase token for Google. Unknown purchases are valid unless
+ * {@link #setDefaultValid(boolean)} says otherwise, so load tests need no setup (for Amazon, set a
+ * {@link #setDefaultProductId(String) default product}). Responses are delayed on a scheduler
+ * rather than by sleeping threads, so thousands of slow requests can be in flight. */
+public class StoreEmulator implements Closeable {
+
+	/** The emulated endpoints, each with its own {@link EndpointBehavior}. */
+	public enum Endpoint {
+		/** POST /verifyReceipt */
+		APPLE_VERIFY_RECEIPT,
+		/** GET /inApps/v2/refund/lookup/{transactionId} */
+		APPLE_REFUND_LOOKUP,
+		/** GET /version/1.0/verifyReceiptId/developer/{secret}/user/{userId}/receiptId/{receiptId} */
+		AMAZON_RVS,
+		/** GET /androidpublisher/v3/applications/{package}/purchases/products/{productId}/tokens/{token} */
+		GOOGLE_PRODUCTS,
+		/** GET /androidpublisher/v3/applications/{package}/purchases/subscriptionsv2/tokens/{token} */
+		GOOGLE_SUBSCRIPTIONS,
+		/** GET /androidpublisher/v3/applications/{package}/purchases/voidedpurchases */
+		GOOGLE_VOIDED_PURCHASES
+	}
+
+	private static final String GOOGLE_PREFIX = "/androidpublisher/v3/applications/";
+	private static final int MAX_REFUNDS_PER_PAGE = 20;
+
+	private final int port;
+	private final int threads;
+	private final Map<Endpoint, EndpointBehavior> behaviors = new EnumMap<Endpoint, EndpointBehavior>(Endpoint.class);
+
+	/** store name + '\n' + id -> purchase */
+	private final ConcurrentHashMap<String, EmulatedPurchase> purchases = new ConcurrentHashMap<String, EmulatedPurchase>();
+	/** Reversed purchases in order of reversal, for the refund feeds. */
+	private final CopyOnWriteArrayList<EmulatedPurchase> reversals = new CopyOnWriteArrayList<EmulatedPurchase>();
+	private volatile boolean defaultValid = true;
+	private volatile String defaultProductId;
+	private volatile String amazonSecret;
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+
+	/** @param port The port to listen on (loopback only), 0 for any free port. */
+	public StoreEmulator (int port) {
+		this(port, 4);
+	}
+
+	/** @param threads The number of threads handling requests. Delays don't block them, so a few are enough. */
+	public StoreEmulator (int port, int threads) {
+		this.port = port;
+		this.threads = threads;
+		for (Endpoint endpoint : Endpoint.values()) {
+			behaviors.put(endpoint, new EndpointBehavior());
+		}
+	}
+
+	/** Returns the behavior of an endpoint, to be configured at any time. */
+	public EndpointBehavior behavior (Endpoint endpoint) {
+		return behaviors.get(endpoint);
+	}
+
+	/** Sets the latency of all endpoints. */
+	public void setLatency (Latency latency) {
+		for (EndpointBehavior behavior : behaviors.values()) {
+			behavior.latency(latency);
+		}
+	}
+
+	/** Sets whether purchases not added with {@link #addPurchase} or {@link #addInvalid} are valid, true by default. */
+	public void setDefaultValid (boolean defaultValid) {
+		this.defaultValid = defaultValid;
+	}
+
+	/** Sets the product ID Amazon RVS reports for purchases added without one, including unknown purchases. Null (the
+	 * default) leaves it out, which the Amazon verifier rejects, as it can't check the product of the transaction. */
+	public void setDefaultProductId (String productId) {
+		this.defaultProductId = productId;
+	}
+
+	/** Sets the developer secret Amazon requests must use, null (the default) to accept any. */
+	public void setAmazonSecret (String secret) {
+		this.amazonSecret = secret;
+	}
+
+	/** Adds a valid purchase.
+	 * @param id The receipt data (Apple), receipt ID (Amazon) or purchase token (Google).
+	 * @param orderId The order ID reported back, null to use the ID. */
+	public void addPurchase (String storeName, String id, String orderId) {
+		addPurchase(storeName, id, orderId, null);
+	}
+
+	/** Adds a valid purchase of the given product, reported by Amazon RVS.
+	 * @param productId The product ID, null for the {@link #setDefaultProductId(String) default}. */
+	public void addPurchase (String storeName, String id, String orderId, String productId) {
+		purchases.put(key(storeName, id),
+			new EmulatedPurchase(storeName, id, orderId != null ? orderId : id, productId, true, -1, null));
+	}
+
+	/** Adds a purchase the store rejects, e.g. a forged receipt. */
+	public void addInvalid (String storeName, String id) {
+		purchases.put(key(storeName, id), new EmulatedPurchase(storeName, id, id, null, false, -1, null));
+	}
+
+	/** Refunds a purchase: it's reported as cancelled and listed in the refund feeds (Google voided purchases, Apple refund
+	 * lookup). */
+	public void reverse (String storeName, String id, String orderId, long reversalTime, String reason) {
+		EmulatedPurchase reversed = new EmulatedPurchase(storeName, id, orderId != null ? orderId : id, null, true,
+			reversalTime, reason);
+		purchases.put(key(storeName, id), reversed);
+		reversals.add(reversed);
+	}
+
+	public synchronized void start () throws IOException {
+		if (server != null) return;
+		executor = Executors.newFixedThreadPool(threads, threadFactory("gdx-pay-emulator-"));
+		scheduler = Executors.newScheduledThreadPool(2, threadFactory("gdx-pay-emulator-delay-"));
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle (HttpExchange exchange) throws IOException {
+				try {
+					dispatch(exchange);
+				} catch (RuntimeException e) {
+					error("Emulator failed: " + e, e);
+					send(exchange, 500, "{\"error\":\"emulator failure\"}");
+				}
+			}
+		});
+		server.start();
+	}
+
+	/** Stops the server, dropping requests in flight. */
+	@Override
+	public synchronized void close () {
+		if (server == null) return;
+		server.stop(0);
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+		server = null;
+	}
+
+	/** Returns the base URL for the Amazon and Google verifiers and refund pollers, e.g. {@code http://127.0.0.1:8123}. */
+	public String getBaseUrl () {
+		if (server == null) throw new IllegalStateException("Not started.");
+		return "http://" + server.getAddress().getAddress().getHostAddress() + ':' + server.getAddress().getPort();
+	}
+
+	public String getAppleVerifyReceiptUrl () {
+		return getBaseUrl() + "/verifyReceipt";
+	}
+
+	private void dispatch (HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getRawPath();
+		String[] segments = path.split("/");
+		if (path.equals("/verifyReceipt")) {
+			handle(exchange, Endpoint.APPLE_VERIFY_RECEIPT, segments);
+		} else if (path.startsWith("/inApps/v2/refund/lookup/") && segments.length == 6) {
+			handle(exchange, Endpoint.APPLE_REFUND_LOOKUP, segments);
+		} else if (path.startsWith("/version/1.0/verifyReceiptId/developer/") && segments.length == 10) {
+			handle(exchange, Endpoint.AMAZON_RVS, segments);
+		} else if (path.startsWith(GOOGLE_PREFIX) && path.endsWith("/purchases/voidedpurchases")) {
+			handle(exchange, Endpoint.GOOGLE_VOIDED_PURCHASES, segments);
+		} else if (path.startsWith(GOOGLE_PREFIX) && path.contains("/purchases/products/") && segments.length == 10) {
+			handle(exchange, Endpoint.GOOGLE_PRODUCTS, segments);
+		} else if (path.startsWith(GOOGLE_PREFIX) && path.contains("/purchases/subscriptionsv2/tokens/")
+			&& segments.length == 9) {
+			handle(exchange, Endpoint.GOOGLE_SUBSCRIPTIONS, segments);
+		} else {
+			send(exchange, 404, "{\"error\":\"not found\"}");
+		}
+	}
+
+	private void handle (final HttpExchange exchange, Endpoint endpoint, String[] segments) throws IOException {
+		EndpointBehavior behavior = behaviors.get(endpoint);
+		behavior.incrementRequestCount();
+		String body = read(exchange.getRequestBody());
+		Random random = ThreadLocalRandom.current();
+		long delayMicros = behavior.getLatency().sampleMicros(random);
+
+		final int status;
+		final String response;
+		EndpointBehavior.ScriptedResponse scripted = behavior.nextScripted();
+		if (scripted != null) {
+			status = scripted.status;
+			response = scripted.body;
+		} else if (random.nextDouble() < behavior.getDropRate()) {
+			// close the connection without response after the latency
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run () {
+					exchange.close();
+				}
+			}, delayMicros, TimeUnit.MICROSECONDS);
+			return;
+		} else if (random.nextDouble() < behavior.getErrorRate()) {
+			status = behavior.getErrorStatus();
+			response = "{\"error\":\"injected\",\"status\":" + status + "}";
+		} else {
+			if (random.nextDouble() < behavior.getHangRate()) delayMicros += behavior.getHangMillis() * 1000;
+			String[] result = respond(endpoint, segments, exchange.getRequestURI().getRawQuery(), body);
+			status = Integer.parseInt(result[0]);
+			response = result[1];
+		}
+
+		if (delayMicros <= 0) {
+			send(exchange, status, response);
+			return;
+		}
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					send(exchange, status, response);
+				} catch (IOException ignored) {
+					// the client gave up
+				}
+			}
+		}, delayMicros, TimeUnit.MICROSECONDS);
+	}
+
+	/** Returns {status, body} of the emulated store. */
+	private String[] respond (Endpoint endpoint, String[] segments, String query, String body) {
+		switch (endpoint) {
+		case APPLE_VERIFY_RECEIPT:
+			return appleVerifyReceipt(body);
+		case APPLE_REFUND_LOOKUP:
+			return appleRefundLookup(decode(segments[5]), parameter(query, "revision"));
+		case AMAZON_RVS:
+			return amazonRvs(decode(segments[5]), decode(segments[9]));
+		case GOOGLE_PRODUCTS:
+			return googleProduct(decode(segments[9]));
+		case GOOGLE_SUBSCRIPTIONS:
+			return googleSubscription(decode(segments[8]));
+		case GOOGLE_VOIDED_PURCHASES:
+			return googleVoidedPurchases(query);
+		default:
+			throw new IllegalStateException(endpoint.name());
+		}
+	}
+
+	private String[] appleVerifyReceipt (String body) {
+		String receipt = null;
+		try {
+			JsonReader reader = new JsonReader(body);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("receipt-data")) {
+					receipt = reader.nextStringOrNull();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IllegalArgumentException e) {
+			return result(200, "{\"status\":21002}");
+		}
+		if (receipt == null) return result(200, "{\"status\":21002}");
+		EmulatedPurchase purchase = lookup(PurchaseManagerConfig.STORE_NAME_IOS_APPLE, receipt);
+		if (purchase == null || !purchase.valid) return result(200, "{\"status\":21003}");
+
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("status").value(0).name("environment").value("Sandbox");
+		writer.name("receipt").beginObject().name("in_app").beginArray().beginObject();
+		writer.name("transaction_id").value(purchase.orderId);
+		if (purchase.reversalTime >= 0) writer.name("cancellation_date_ms").value(String.valueOf(purchase.reversalTime));
+		writer.endObject().endArray().endObject().endObject();
+		return result(200, writer.toString());
+	}
+
+	private String[] appleRefundLookup (String transactionId, String revision) {
+		List<EmulatedPurchase> refunds = new ArrayList<EmulatedPurchase>();
+		for (EmulatedPurchase reversal : reversals) {
+			if (reversal.storeName.equals(PurchaseManagerConfig.STORE_NAME_IOS_APPLE) && reversal.orderId.equals(transactionId)) {
+				refunds.add(reversal);
+			}
+		}
+		int start = revision != null ? Integer.parseInt(revision) : 0;
+		int end = Math.min(refunds.size(), start + MAX_REFUNDS_PER_PAGE);
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("signedTransactions").beginArray();
+		for (int i = start; i < end; i++) {
+			EmulatedPurchase refund = refunds.get(i);
+			JsonWriter payload = new JsonWriter();
+			payload.beginObject().name("transactionId").value(refund.orderId).name("revocationDate").value(refund.reversalTime)
+				.name("revocationReason").value(0).endObject();
+			// unsigned JWS (alg none), pollers only read the payload
+			writer.value("eyJhbGciOiJub25lIn0." + Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8)) + '.');
+		}
+		writer.endArray().name("revision").value(String.valueOf(end)).name("hasMore").value(end < refunds.size());
+		return result(200, writer.endObject().toString());
+	}
+
+	private String[] amazonRvs (String secret, String receiptId) {
+		String expected = amazonSecret;
+		if (expected != null && !expected.equals(secret)) return result(496, "{\"error\":\"invalid developer secret\"}");
+		EmulatedPurchase purchase = lookup(PurchaseManagerConfig.STORE_NAME_ANDROID_AMAZON, receiptId);
+		if (purchase == null || !purchase.valid) return result(400, "{\"error\":\"invalid receipt\"}");
+
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("receiptId").value(receiptId);
+		String productId = purchase.productId != null ? purchase.productId : defaultProductId;
+		if (productId != null) writer.name("productId").value(productId);
+		writer.name("productType").value("ENTITLED").name("testTransaction").value(true).name("cancelDate");
+		if (purchase.reversalTime >= 0) {
+			writer.value(purchase.reversalTime);
+		} else {
+			writer.nullValue();
+		}
+		return result(200, writer.endObject().toString());
+	}
+
+	private String[] googleProduct (String token) {
+		EmulatedPurchase purchase = lookup(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE, token);
+		if (purchase == null || !purchase.valid) return googleInvalidToken();
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("kind").value("androidpublisher#productPurchase").name("orderId").value(purchase.orderId)
+			.name("purchaseState").value(purchase.reversalTime >= 0 ? 1 : 0).name("consumptionState").value(0)
+			.name("acknowledgementState").value(1);
+		return result(200, writer.endObject().toString());
+	}
+
+	private String[] googleSubscription (String token) {
+		EmulatedPurchase purchase = lookup(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE, token);
+		if (purchase == null || !purchase.valid) return googleInvalidToken();
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("kind").value("androidpublisher#subscriptionPurchaseV2").name("latestOrderId")
+			.value(purchase.orderId).name("subscriptionState")
+			.value(purchase.reversalTime >= 0 ? "SUBSCRIPTION_STATE_EXPIRED" : "SUBSCRIPTION_STATE_ACTIVE")
+			.name("acknowledgementState").value("ACKNOWLEDGEMENT_STATE_ACKNOWLEDGED");
+		return result(200, writer.endObject().toString());
+	}
+
+	private static String[] googleInvalidToken () {
+		return result(400, "{\"error\":{\"code\":400,\"message\":\"Invalid Value\",\"status\":\"INVALID_ARGUMENT\"}}");
+	}
+
+	private String[] googleVoidedPurchases (String query) {
+		String startTime = parameter(query, "startTime");
+		String maxResults = parameter(query, "maxResults");
+		String token = parameter(query, "token");
+		long since = startTime != null ? Long.parseLong(startTime) : 0;
+		int max = maxResults != null ? Integer.parseInt(maxResults) : 1000;
+		int offset = token != null ? Integer.parseInt(token) : 0;
+
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().name("voidedPurchases").beginArray();
+		int matched = 0, written = 0;
+		boolean more = false;
+		for (EmulatedPurchase reversal : reversals) {
+			if (!reversal.storeName.equals(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE) || reversal.reversalTime < since) {
+				continue;
+			}
+			if (matched++ < offset) continue;
+			if (written == max) {
+				more = true;
+				break;
+			}
+			writer.beginObject().name("kind").value("androidpublisher#voidedPurchase").name("purchaseToken").value(reversal.id)
+				.name("orderId").value(reversal.orderId).name("voidedTimeMillis").value(String.valueOf(reversal.reversalTime))
+				.name("voidedSource").value(0).name("voidedReason").value(reason(reversal.reason)).endObject();
+			written++;
+		}
+		writer.endArray();
+		if (more) writer.name("tokenPagination").beginObject().name("nextPageToken").value(String.valueOf(offset + written))
+			.endObject();
+		return result(200, writer.endObject().toString());
+	}
+
+	/** Google reports voided reasons as numbers. */
+	private static int reason (String reason) {
+		String[] reasons = {"OTHER", "REMORSE", "NOT_RECEIVED", "DEFECTIVE", "ACCIDENTAL_PURCHASE", "FRAUD", "FRIENDLY_FRAUD",
+			"CHARGEBACK"};
+		for (int i = 0; i < reasons.length; i++) {
+			if (reasons[i].equals(reason)) return i;
+		}
+		return 0;
+	}
+
+	/** Returns the purchase, a default valid one for unknown IDs if {@link #setDefaultValid(boolean) enabled}, else null. */
+	private EmulatedPurchase lookup (String storeName, String id) {
+		EmulatedPurchase purchase = purchases.get(key(storeName, id));
+		if (purchase == null && defaultValid) purchase = new EmulatedPurchase(storeName, id, id, null, true, -1, null);
+		return purchase;
+	}
+
+	private static String[] result (int status, String body) {
+		return new String[] {String.valueOf(status), body};
+	}
+
+	private static String key (String storeName, String id) {
+		return storeName + '\n' + id;
+	}
+
+	private static String parameter (String query, String name) {
+		if (query == null) return null;
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0 && pair.substring(0, equals).equals(name)) return decode(pair.substring(equals + 1));
+		}
+		return null;
+	}
+
+	private static String decode (String value) {
+		return URLDecoder.decode(value, StandardCharsets.UTF_8);
+	}
+
+	private static void send (HttpExchange exchange, int status, String body) throws IOException {
+		try {
+			byte[] bytes = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+			if (bytes.length > 0) {
+				OutputStream out = exchange.getResponseBody();
+				out.write(bytes);
+				out.close();
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static String read (InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		byte[] buffer = new byte[1024];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			out.write(buffer, 0, count);
+		}
+		in.close();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static ThreadFactory threadFactory (final String prefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+
+	private static final class EmulatedPurchase {
+		final String storeName;
+		final String id;
+		final String orderId;
+		/** Null if not set. */
+		final String productId;
+		final boolean valid;
+		/** -1 if not reversed. */
+		final long reversalTime;
+		final String reason;
+
+		EmulatedPurchase (String storeName, String id, String orderId, String productId, boolean valid, long reversalTime,
+			String reason) {
+			this.storeName = storeName;
+			this.id = id;
+			this.orderId = orderId;
+			this.productId = productId;
+			this.valid = valid;
+			this.reversalTime = reversalTime;
+			this.reason = reason;
+		}
+	}
+
+	/** Runs the emulator until killed: {@code StoreEmulator [port] [median p99 (latency ms)] [error rate]}. */
+	public static void main (String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		StoreEmulator emulator = new StoreEmulator(port, 16);
+		if (args.length > 2) {
+			emulator.setLatency(Latency.logNormal(Double.parseDouble(args[1]), Double.parseDouble(args[2])));
+		}
+		if (args.length > 3) {
+			for (Endpoint endpoint : Endpoint.values()) {
+				emulator.behavior(endpoint).errors(Double.parseDouble(args[3]), 503);
+			}
+		}
+		emulator.start();
+		System.out.println("Store emulator listening on " + emulator.getBaseUrl());
+		Thread.currentThread().join();
+	}
+}
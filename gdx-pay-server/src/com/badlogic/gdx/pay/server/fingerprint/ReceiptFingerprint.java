@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.fingerprint;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** The first 128 bits of the SHA-256 of the receipt content of a transaction: the transaction data and its signature, the
+ * part signed by the store. Editing the other fields (order ID, user ID, SKU, ...) doesn't change the fingerprint.
+ * <p>
+ * Base64 payloads (Apple receipts) are canonicalized by dropping whitespace, which Apple ignores but which would change the
+ * hash. Immutable. */
+public final class ReceiptFingerprint {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue () {
+			try {
+				return MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	private final long high;
+	private final long low;
+
+	public ReceiptFingerprint (long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/** Computes the fingerprint of the receipt content of the transaction. */
+	public static ReceiptFingerprint of (Transaction transaction) {
+		MessageDigest digest = SHA256.get();
+		update(digest, canonical(transaction.getTransactionData()));
+		update(digest, canonical(transaction.getTransactionDataSignature()));
+		byte[] hash = digest.digest();
+		return new ReceiptFingerprint(toLong(hash, 0), toLong(hash, 8));
+	}
+
+	private static long toLong (byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/** Returns the value without whitespace if it is Base64 with whitespace, the value as-is otherwise. */
+	static String canonical (String value) {
+		if (value == null) return null;
+		boolean whitespace = false;
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+				whitespace = true;
+			} else if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '+' || c == '/'
+				|| c == '=')) {
+				// not Base64 (e.g. JSON): signed as-is
+				return value;
+			}
+		}
+		if (!whitespace) return value;
+		StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	private static void update (MessageDigest digest, String value) {
+		// presence and length first, so (null, "a") and ("a", null) or ("ab", "c") and ("a", "bc") differ
+		if (value == null) {
+			digest.update((byte)0);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			digest.update((byte)1);
+			digest.update((byte)(bytes.length >>> 24));
+			digest.update((byte)(bytes.length >>> 16));
+			digest.update((byte)(bytes.length >>> 8));
+			digest.update((byte)bytes.length);
+			digest.update(bytes);
+		}
+	}
+
+	public long getHigh () {
+		return high;
+	}
+
+	public long getLow () {
+		return low;
+	}
+
+	@Override
+	public boolean equals (Object o) {
+		if (this == o) return true;
+		if (!(o instanceof ReceiptFingerprint)) return false;
+		ReceiptFingerprint that = (ReceiptFingerprint)o;
+		return high == that.high && low == that.low;
+	}
+
+	@Override
+	public int hashCode () {
+		return (int)(low ^ (low >>> 32));
+	}
+
+	/** Returns the fingerprint as 32 hex digits. */
+	@Override
+	public String toString () {
+		char[] chars = new char[32];
+		for (int i = 0; i < 16; i++) {
+			chars[i] = HEX[(int)(high >>> (60 - i * 4)) & 0xF];
+			chars[16 + i] = HEX[(int)(low >>> (60 - i * 4)) & 0xF];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.fingerprint;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.util.Hashing;
+
+/** Remembers the receipts seen so far by their {@link ReceiptFingerprint}, with the owner (user/account) and purchase
+ * (store name and order ID) they were first seen with. Finds out in O(1) if a receipt shows up again under another owner
+ * or with an edited order ID, no matter which other transaction fields were changed.
+ * <p>
+ * Entries are kept in open-addressing tables of longs (4 per entry: fingerprint, owner hash, purchase hash), split into
+ * segments with a lock each. Optionally, every new entry is appended to a journal file which is replayed on
+ * {@link #open(File)}. Thread-safe. */
+public class ReceiptFingerprintIndex implements Closeable {
+
+	/** The outcome of a lookup. */
+	public enum Match {
+		/** The receipt wasn't seen before. */
+		NEW,
+		/** The receipt was seen with the same purchase and the same (or an unknown) owner, e.g. a restore. */
+		KNOWN,
+		/** The receipt was seen with another owner or another order ID. */
+		REUSED
+	}
+
+	private static final int SEGMENTS = 16;
+	private static final int STRIDE = 4;
+	private static final int RECORD_SIZE = STRIDE * 8;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private DataOutputStream journal;
+	private FileOutputStream journalFile;
+
+	public ReceiptFingerprintIndex () {
+		this(1024);
+	}
+
+	/** @param expectedSize The expected number of receipts, to avoid growing the tables. */
+	public ReceiptFingerprintIndex (int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize / SEGMENTS * 4 / 3) * 2 - 1);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(capacity);
+		}
+	}
+
+	/** Creates an index backed by the given journal file: existing entries are loaded, new ones appended. A partially
+	 * written last entry (crash while writing) is ignored. */
+	public static ReceiptFingerprintIndex open (File file) throws IOException {
+		int expectedSize = (int)Math.min(Integer.MAX_VALUE / 2, file.length() / RECORD_SIZE);
+		ReceiptFingerprintIndex index = new ReceiptFingerprintIndex(expectedSize);
+		long valid = 0;
+		if (file.exists()) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			try {
+				while (true) {
+					index.add(in.readLong(), in.readLong(), in.readLong(), in.readLong(), false);
+					valid += RECORD_SIZE;
+				}
+			} catch (EOFException e) {
+				// end of journal
+			} finally {
+				in.close();
+			}
+		}
+		FileOutputStream out = new FileOutputStream(file, true);
+		if (out.getChannel().size() != valid) out.getChannel().truncate(valid);
+		index.journalFile = out;
+		index.journal = new DataOutputStream(out);
+		return index;
+	}
+
+	/** Looks up the receipt of the transaction, owned by the transaction's user ID. */
+	public Match lookup (Transaction transaction) {
+		return lookup(ReceiptFingerprint.of(transaction), ownerOf(transaction), purchaseOf(transaction));
+	}
+
+	/** Looks up the receipt of the transaction and remembers it if new. */
+	public Match add (Transaction transaction) throws IOException {
+		return add(ReceiptFingerprint.of(transaction), ownerOf(transaction), purchaseOf(transaction));
+	}
+
+	/** @param owner The hash of the owner, 0 for unknown, see {@link #hash(String)}.
+	 * @param purchase The hash of store name and order ID, see {@link #hash(String, String)}. */
+	public Match lookup (ReceiptFingerprint fingerprint, long owner, long purchase) {
+		Segment segment = segment(fingerprint.getLow());
+		synchronized (segment) {
+			int slot = segment.find(fingerprint.getHigh(), fingerprint.getLow());
+			return slot < 0 ? Match.NEW : segment.match(slot, owner, purchase);
+		}
+	}
+
+	/** Like {@link #lookup(ReceiptFingerprint, long, long)}, remembers the receipt if new.
+	 * @throws IOException if writing the journal failed; the entry is kept in memory nevertheless. */
+	public Match add (ReceiptFingerprint fingerprint, long owner, long purchase) throws IOException {
+		return add(fingerprint.getHigh(), fingerprint.getLow(), owner, purchase, true);
+	}
+
+	private Match add (long high, long low, long owner, long purchase, boolean write) throws IOException {
+		Segment segment = segment(low);
+		synchronized (segment) {
+			int slot = segment.find(high, low);
+			if (slot >= 0) return segment.match(slot, owner, purchase);
+			segment.insert(high, low, owner, purchase);
+		}
+		if (write) {
+			DataOutputStream journal = this.journal;
+			if (journal != null) {
+				synchronized (journal) {
+					// one write per record, so a crash leaves at most one partial record
+					byte[] record = new byte[RECORD_SIZE];
+					put(record, 0, high);
+					put(record, 8, low);
+					put(record, 16, owner);
+					put(record, 24, purchase);
+					journal.write(record);
+				}
+			}
+		}
+		return Match.NEW;
+	}
+
+	private static void put (byte[] bytes, int offset, long value) {
+		for (int i = 7; i >= 0; i--) {
+			bytes[offset + i] = (byte)value;
+			value >>>= 8;
+		}
+	}
+
+	/** Forces the journal to disk (fsync). */
+	public void sync () throws IOException {
+		FileOutputStream journalFile = this.journalFile;
+		if (journalFile != null) journalFile.getFD().sync();
+	}
+
+	/** Returns the number of receipts in the index. */
+	public int size () {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void close () throws IOException {
+		if (journal != null) {
+			synchronized (journal) {
+				journal.close();
+			}
+		}
+	}
+
+	/** Returns the owner hash of a user/account ID, 0 for null (unknown). */
+	public static long hash (String owner) {
+		if (owner == null) return 0;
+		long hash = Hashing.hash64(owner);
+		return hash != 0 ? hash : 1;
+	}
+
+	/** Returns the purchase hash of store name and order ID. */
+	public static long hash (String storeName, String orderId) {
+		return Hashing.hash64(storeName, orderId);
+	}
+
+	private static long ownerOf (Transaction transaction) {
+		return hash(transaction.getUserId());
+	}
+
+	private static long purchaseOf (Transaction transaction) {
+		return hash(transaction.getStoreName(), transaction.getOrderId());
+	}
+
+	private Segment segment (long low) {
+		return segments[(int)(low >>> 60)];
+	}
+
+	private static final class Segment {
+		/** STRIDE longs per slot: fingerprint high, low, owner, purchase. Both fingerprint halves 0 marks a free slot. */
+		long[] table;
+		int size;
+
+		Segment (int capacity) {
+			table = new long[capacity * STRIDE];
+		}
+
+		int find (long high, long low) {
+			if (high == 0 && low == 0) low = 1;
+			int mask = table.length / STRIDE - 1;
+			for (int slot = (int)low & mask;; slot = (slot + 1) & mask) {
+				int i = slot * STRIDE;
+				if (table[i] == high && table[i + 1] == low) return slot;
+				if (table[i] == 0 && table[i + 1] == 0) return -1;
+			}
+		}
+
+		Match match (int slot, long owner, long purchase) {
+			int i = slot * STRIDE;
+			if (table[i + 3] != purchase) return Match.REUSED;
+			long first = table[i + 2];
+			return first != 0 && owner != 0 && first != owner ? Match.REUSED : Match.KNOWN;
+		}
+
+		void insert (long high, long low, long owner, long purchase) {
+			if (high == 0 && low == 0) low = 1;
+			if ((size + 1) * 4 > table.length / STRIDE * 3) grow();
+			int mask = table.length / STRIDE - 1;
+			int slot = (int)low & mask;
+			while (table[slot * STRIDE] != 0 || table[slot * STRIDE + 1] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			int i = slot * STRIDE;
+			table[i] = high;
+			table[i + 1] = low;
+			table[i + 2] = owner;
+			table[i + 3] = purchase;
+			size++;
+		}
+
+		private void grow () {
+			long[] old = table;
+			table = new long[old.length * 2];
+			size = 0;
+			for (int i = 0; i < old.length; i += STRIDE) {
+				if (old[i] != 0 || old[i + 1] != 0) insert(old[i], old[i + 1], old[i + 2], old[i + 3]);
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.fingerprint;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Decorates a verifier with a {@link ReceiptFingerprintIndex}: a receipt that was already verified for another user or
+ * with another order ID is rejected right away, before the verifier is asked. Receipts are added to the index once they
+ * verified as valid. A reused receipt is {@link VerificationResult#REFUSED}, not INVALID: the purchase is still valid for its
+ * owner, so the rejection must not end up in caches or the state of the purchase. Wrap it around a
+ * {@link com.badlogic.gdx.pay.server.cache.CachingPurchaseVerifier}, not the other way round: the cache keys results by
+ * purchase and would answer a replay without asking this verifier.
+ * <p>
+ * The owner is {@link Transaction#getUserId()}; set it to your account ID before verifying if the store doesn't fill it
+ * in. Transactions without transaction data and signature have no receipt to compare and are passed through. */
+public class ReuseDetectingPurchaseVerifier implements PurchaseVerifier {
+
+	private final PurchaseVerifier delegate;
+	private final ReceiptFingerprintIndex index;
+	private final AtomicLong reuseCount = new AtomicLong();
+
+	public ReuseDetectingPurchaseVerifier (PurchaseVerifier delegate, ReceiptFingerprintIndex index) {
+		this.delegate = delegate;
+		this.index = index;
+	}
+
+	@Override
+	public String storeName () {
+		return delegate.storeName();
+	}
+
+	@Override
+	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
+		// nothing to fingerprint: all such transactions would share one fingerprint and look reused
+		if (transaction.getTransactionData() == null && transaction.getTransactionDataSignature() == null) {
+			return delegate.verify(transaction);
+		}
+		ReceiptFingerprint fingerprint = ReceiptFingerprint.of(transaction);
+		long owner = ReceiptFingerprintIndex.hash(transaction.getUserId());
+		long purchase = ReceiptFingerprintIndex.hash(transaction.getStoreName(), transaction.getOrderId());
+		if (index.lookup(fingerprint, owner, purchase) == ReceiptFingerprintIndex.Match.REUSED) {
+			reuseCount.incrementAndGet();
+			return VerificationResult.REFUSED;
+		}
+		VerificationResult result = delegate.verify(transaction);
+		if (result.isValid()) {
+			try {
+				// a concurrent request may have added it meanwhile under another owner
+				if (index.add(fingerprint, owner, purchase) == ReceiptFingerprintIndex.Match.REUSED) {
+					reuseCount.incrementAndGet();
+					return VerificationResult.REFUSED;
+				}
+			} catch (IOException e) {
+				// the entry is in memory, only the journal is behind
+				error("Writing receipt fingerprint journal failed: " + e, e);
+			}
+		}
+		return result;
+	}
+
+	/** Returns the number of reused receipts rejected so far. */
+	public long getReuseCount () {
+		return reuseCount.get();
+	}
+
+	public ReceiptFingerprintIndex getIndex () {
+		return index;
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.hedge;
+
+import java.net.HttpURLConnection;
+
+/** Lets a {@link HedgingPurchaseVerifier} abort the HTTP request of an attempt that lost the race. A blocked
+ * {@link HttpURLConnection} doesn't react to interrupts, so remote verifiers {@link #register(HttpURLConnection) register}
+ * their connection, which is then disconnected on cancellation, failing the pending read with an I/O error.
+ * <p>
+ * Outside of a hedged attempt all methods are no-ops. */
+public final class Cancellation {
+
+	private static final ThreadLocal<Cancellation> current = new ThreadLocal<Cancellation>();
+
+	private volatile boolean cancelled;
+	private HttpURLConnection connection;
+
+	Cancellation () {
+	}
+
+	/** Registers the connection of the calling thread's attempt, disconnecting it right away if already cancelled. */
+	public static void register (HttpURLConnection connection) {
+		Cancellation cancellation = current.get();
+		if (cancellation != null) cancellation.setConnection(connection);
+	}
+
+	/** Returns true if the calling thread's attempt was cancelled, e.g. to not log the resulting I/O error. */
+	public static boolean isCancelled () {
+		Cancellation cancellation = current.get();
+		return cancellation != null && cancellation.cancelled;
+	}
+
+	static void enter (Cancellation cancellation) {
+		current.set(cancellation);
+	}
+
+	static void exit () {
+		current.remove();
+	}
+
+	private synchronized void setConnection (HttpURLConnection connection) {
+		this.connection = connection;
+		if (cancelled) connection.disconnect();
+	}
+
+	synchronized void cancel () {
+		cancelled = true;
+		if (connection != null) connection.disconnect();
+	}
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.hedge;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.util.LatencyHistogram;
+
+/** Decorates a remote verifier with hedged requests to cut tail latency: if the store hasn't answered after a high
+ * percentile of recent latencies, the same request is sent a second time, the first answer is taken and the other
+ * request is cancelled (see {@link Cancellation}). Slow calls are mostly bad luck (a slow server, a lost packet) rather
+ * than slow receipts, so the second request usually answers quickly.
+ * <p>
+ * A budget caps the extra calls to a share of all requests, 5% by default. There is no hedging until enough latencies
+ * were observed. An {@link VerificationResult#ERROR} answer doesn't win while the other request is still pending.
+ *
+ * <pre>
+ * HedgingPurchaseVerifier apple = new HedgingPurchaseVerifier(new PurchaseVerifieriOSApple());
+ * apple.setPercentile(95);
+ * apple.setBudget(0.05, 10);
+ * manager.addVerifier(apple);
+ * </pre>
+ *
+ * Only for idempotent verifiers such as {@link com.badlogic.gdx.pay.server.impl.PurchaseVerifieriOSApple} and
+ * {@link com.badlogic.gdx.pay.server.impl.PurchaseVerifierAndroidAmazon}. */
+public class HedgingPurchaseVerifier implements PurchaseVerifier {
+
+	private final PurchaseVerifier delegate;
+	private final ExecutorService executor;
+
+	private volatile double percentile = 95;
+	private volatile long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+	private volatile long windowNanos = TimeUnit.MINUTES.toNanos(1);
+	private volatile int minSamples = 100;
+
+	/** Latencies of the current window, and of the last complete one which the hedge delay is based on. */
+	private volatile LatencyHistogram current = new LatencyHistogram();
+	private volatile LatencyHistogram previous;
+	private volatile long windowStart = System.nanoTime();
+
+	private double budget = 0.05;
+	private double burst = 10;
+	/** Hedges that may be sent, grows by the budget with each request up to the burst. */
+	private double credits;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong hedgeCount = new AtomicLong();
+	private final AtomicLong hedgeWinCount = new AtomicLong();
+	private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+	/** Sends requests on a pool of up to 256 daemon threads, see {@link #HedgingPurchaseVerifier(PurchaseVerifier, int)}. */
+	public HedgingPurchaseVerifier (PurchaseVerifier delegate) {
+		this(delegate, 256);
+	}
+
+	/** Sends requests on a pool of daemon threads that grows as needed up to the given size. Beyond, requests aren't
+	 * hedged and run on the verifying thread, so a store that stops answering can't pile up threads.
+	 * @param maxThreads The number of requests in flight at most, twice the expected concurrent verifications leaves room
+	 *           for the hedges. */
+	public HedgingPurchaseVerifier (PurchaseVerifier delegate, int maxThreads) {
+		this(delegate, new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+			new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread (Runnable runnable) {
+					Thread thread = new Thread(runnable, "gdx-pay-hedge-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			}));
+	}
+
+	/** @param executor Sends the requests, both the first and the hedged one. Must not queue, or queueing delays the
+	 *           hedge. If it rejects a request, the first runs on the verifying thread and the hedge isn't sent. */
+	public HedgingPurchaseVerifier (PurchaseVerifier delegate, ExecutorService executor) {
+		this.delegate = delegate;
+		this.executor = executor;
+	}
+
+	/** Sets the percentile of recent latencies after which a request is hedged, 95 by default. */
+	public void setPercentile (double percentile) {
+		if (percentile <= 0 || percentile >= 100) throw new IllegalArgumentException("percentile must be in (0, 100): " + percentile);
+		this.percentile = percentile;
+	}
+
+	/** Sets the minimum time before hedging, 10 ms by default, so a fast store isn't hedged on scheduling noise. */
+	public void setMinDelay (long delay, TimeUnit unit) {
+		minDelayNanos = unit.toNanos(delay);
+	}
+
+	/** Sets how long latencies are collected before the hedge delay is updated, one minute by default, and how many are
+	 * needed at least, 100 by default. */
+	public void setWindow (long window, TimeUnit unit, int minSamples) {
+		if (minSamples < 1) throw new IllegalArgumentException("minSamples must be >= 1: " + minSamples);
+		windowNanos = unit.toNanos(window);
+		this.minSamples = minSamples;
+	}
+
+	/** Sets the share of requests that may be hedged, 0.05 by default, and how many unused hedges may be saved up for a
+	 * burst of slow calls, 10 by default. */
+	public synchronized void setBudget (double budget, int burst) {
+		if (budget < 0 || budget > 1) throw new IllegalArgumentException("budget must be in [0, 1]: " + budget);
+		this.budget = budget;
+		this.burst = burst;
+		credits = Math.min(credits, burst);
+	}
+
+	@Override
+	public String storeName () {
+		return delegate.storeName();
+	}
+
+	@Override
+	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
+		requestCount.incrementAndGet();
+		addCredit();
+		long delay = getHedgeDelayNanos();
+		BlockingQueue<Attempt> done = new ArrayBlockingQueue<Attempt>(2);
+		Attempt primary = new Attempt(transaction, done);
+		Attempt hedge = null;
+		if (!primary.submit()) {
+			// the pool is exhausted: no hedging, and the caller waits for the store
+			primary.run();
+			return primary.result;
+		}
+		try {
+			Attempt first = delay >= 0 ? done.poll(delay, TimeUnit.NANOSECONDS) : done.take();
+			if (first == null) {
+				if (takeCredit()) {
+					hedge = new Attempt(transaction, done);
+					if (hedge.submit()) {
+						hedgeCount.incrementAndGet();
+					} else {
+						hedge = null;
+					}
+				} else {
+					budgetExhaustedCount.incrementAndGet();
+				}
+				first = done.take();
+			}
+			// an error loses against a pending answer
+			if (first.result == VerificationResult.ERROR && hedge != null) first = done.take();
+			if (first == hedge) hedgeWinCount.incrementAndGet();
+			return first.result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return VerificationResult.ERROR;
+		} finally {
+			primary.cancel();
+			if (hedge != null) hedge.cancel();
+		}
+	}
+
+	/** Returns the time after which requests are currently hedged or -1 if not enough latencies were observed yet. */
+	public long getHedgeDelayNanos () {
+		long now = System.nanoTime();
+		if (now - windowStart >= windowNanos && current.getCount() >= minSamples) {
+			synchronized (this) {
+				if (now - windowStart >= windowNanos) {
+					previous = current;
+					current = new LatencyHistogram();
+					windowStart = now;
+				}
+			}
+		}
+		LatencyHistogram latencies = previous;
+		if (latencies == null) {
+			// the first window: use what we have
+			latencies = current;
+			if (latencies.getCount() < minSamples) return -1;
+		}
+		return Math.max(minDelayNanos, latencies.percentile(percentile));
+	}
+
+	private synchronized void addCredit () {
+		credits = Math.min(burst, credits + budget);
+	}
+
+	private synchronized boolean takeCredit () {
+		if (credits < 1) return false;
+		credits--;
+		return true;
+	}
+
+	/** Returns the number of verifications. */
+	public long getRequestCount () {
+		return requestCount.get();
+	}
+
+	/** Returns the number of hedged (duplicate) requests sent. */
+	public long getHedgeCount () {
+		return hedgeCount.get();
+	}
+
+	/** Returns the number of hedged requests that answered first. */
+	public long getHedgeWinCount () {
+		return hedgeWinCount.get();
+	}
+
+	/** Returns the number of slow requests that weren't hedged because the budget was used up. */
+	public long getBudgetExhaustedCount () {
+		return budgetExhaustedCount.get();
+	}
+
+	/** Returns the latencies of the current window. */
+	LatencyHistogram latencies () {
+		return current;
+	}
+
+	public PurchaseVerifier getDelegate () {
+		return delegate;
+	}
+
+	/** One request to the store. */
+	private final class Attempt implements Runnable {
+		private final Transaction transaction;
+		private final BlockingQueue<Attempt> done;
+		private final Cancellation cancellation = new Cancellation();
+		private Future<?> future;
+		private volatile long start;
+		private volatile boolean finished;
+		/** Set by whoever records the latency, the attempt when done or the cancel before. */
+		private final AtomicBoolean recorded = new AtomicBoolean();
+		/** Written before being put into {@link #done}, which publishes it. */
+		VerificationResult result;
+
+		Attempt (Transaction transaction, BlockingQueue<Attempt> done) {
+			this.transaction = transaction;
+			this.done = done;
+		}
+
+		/** Returns false if the executor rejected the request. */
+		boolean submit () {
+			try {
+				future = executor.submit(this);
+				return true;
+			} catch (RejectedExecutionException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public void run () {
+			long start = System.nanoTime();
+			this.start = start;
+			Cancellation.enter(cancellation);
+			try {
+				result = delegate.verify(transaction);
+			} catch (RuntimeException e) {
+				result = VerificationResult.ERROR;
+			} finally {
+				Cancellation.exit();
+			}
+			if (recorded.compareAndSet(false, true)) current.record(System.nanoTime() - start);
+			finished = true;
+			done.offer(this);
+		}
+
+		void cancel () {
+			// disconnecting a finished request would only spoil connection reuse
+			if (finished || future == null) return;
+			// a loser would have taken at least this long: leaving it out would cut off the tail the hedge delay is based on
+			long start = this.start;
+			if (start != 0 && recorded.compareAndSet(false, true)) current.record(System.nanoTime() - start);
+			cancellation.cancel();
+			future.cancel(false);
+		}
+	}
+}
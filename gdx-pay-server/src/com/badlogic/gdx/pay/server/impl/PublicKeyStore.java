@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/** Holds the pre-parsed public keys of signature-based verifiers per store and app (package name). Several keys per app are
+ * supported so keys can be rotated without downtime: a signature is accepted if any of the keys matches.
+ * <p>
+ * Keys are held in an immutable map that is swapped atomically on every change, so lookups never lock. Keys can be loaded
+ * from a properties file which is reloaded automatically when changed (see {@link #watch(File)}):
+ *
+ * <pre>
+ * # keys for all apps on Google Play (comma separated, Base64-encoded X.509)
+ * GooglePlay=MIIBIjANBgkqhkiG9w0BAQEFAAOC...
+ * # keys for a single app, takes precedence over the above
+ * GooglePlay/com.mygame.paid=MIIBIjANBgkqhkiG9w0BAQEFAAOC...,MIIBIjANBgkqhkiG9w0BAQEFAAOC...
+ * </pre> */
+public class PublicKeyStore {
+
+	/** The app identifier used for keys that apply to all apps of a store. */
+	public static final String ANY_APP = "";
+
+	private static final PublicKey[] NO_KEYS = new PublicKey[0];
+
+	/** store name -> app -> keys. Never modified, only replaced. */
+	private volatile Map<String, Map<String, PublicKey[]>> keys = Collections.emptyMap();
+
+	private WatchService watchService;
+
+	/** Returns the keys for an app in a store. Falls back to the keys for {@link #ANY_APP} if there are no app-specific keys.
+	 * Never returns null. The returned array must not be modified.
+	 *
+	 * @param storeName The store name as defined in PurchaseManagerConfig.
+	 * @param appId The package name/bundle ID or null if unknown. */
+	public PublicKey[] getKeys (String storeName, String appId) {
+		Map<String, PublicKey[]> apps = keys.get(storeName);
+		if (apps == null) return NO_KEYS;
+		PublicKey[] result = appId != null ? apps.get(appId) : null;
+		if (result == null) result = apps.get(ANY_APP);
+		return result != null ? result : NO_KEYS;
+	}
+
+	/** Sets the keys for an app in a store replacing any previous keys for the app.
+	 *
+	 * @param appId The package name/bundle ID or {@link #ANY_APP}.
+	 * @param encodedKeys Base64-encoded public keys.
+	 * @throws IllegalArgumentException if a key is invalid */
+	public synchronized void setKeys (String storeName, String appId, String... encodedKeys) {
+		PublicKey[] parsed = new PublicKey[encodedKeys.length];
+		for (int i = 0; i < encodedKeys.length; i++) {
+			parsed[i] = Security.generatePublicKey(encodedKeys[i].trim());
+		}
+		Map<String, Map<String, PublicKey[]>> copy = new HashMap<String, Map<String, PublicKey[]>>(keys);
+		Map<String, PublicKey[]> apps = copy.get(storeName);
+		apps = apps != null ? new HashMap<String, PublicKey[]>(apps) : new HashMap<String, PublicKey[]>();
+		apps.put(appId, parsed);
+		copy.put(storeName, apps);
+		keys = copy;
+	}
+
+	/** Loads all keys from a properties file (format see class description) and replaces all current keys. The file is parsed
+	 * completely before the keys are swapped: if the file is invalid or empty, the current keys remain in use.
+	 *
+	 * @throws IllegalArgumentException if a key is invalid */
+	public void load (File file) throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		if (properties.isEmpty()) {
+			// e.g. an editor truncated the file before writing it: not a valid key set
+			throw new IOException("No public keys found in " + file);
+		}
+
+		Map<String, Map<String, PublicKey[]>> loaded = new HashMap<String, Map<String, PublicKey[]>>();
+		for (String name : properties.stringPropertyNames()) {
+			int slash = name.indexOf('/');
+			String storeName = slash >= 0 ? name.substring(0, slash) : name;
+			String appId = slash >= 0 ? name.substring(slash + 1) : ANY_APP;
+
+			List<PublicKey> parsed = new ArrayList<PublicKey>(2);
+			for (String encodedKey : properties.getProperty(name).split(",")) {
+				if (encodedKey.trim().length() > 0) {
+					parsed.add(Security.generatePublicKey(encodedKey.trim()));
+				}
+			}
+			Map<String, PublicKey[]> apps = loaded.get(storeName);
+			if (apps == null) {
+				apps = new HashMap<String, PublicKey[]>();
+				loaded.put(storeName, apps);
+			}
+			apps.put(appId, parsed.toArray(new PublicKey[parsed.size()]));
+		}
+
+		synchronized (this) {
+			keys = loaded;
+		}
+	}
+
+	/** Loads the keys from a file and reloads them on a background thread whenever the file changes. Invalid files are
+	 * ignored (logged) and the previous keys are kept. */
+	public synchronized void watch (final File file) throws IOException {
+		if (watchService != null) {
+			throw new IllegalStateException("Already watching a file.");
+		}
+		load(file);
+
+		final Path directory = file.getAbsoluteFile().getParentFile().toPath();
+		final Path fileName = file.toPath().getFileName();
+		final WatchService watchService = FileSystems.getDefault().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.watchService = watchService;
+
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					while (true) {
+						WatchKey key = watchService.take();
+						boolean changed = false;
+						for (WatchEvent<?> event : key.pollEvents()) {
+							if (fileName.equals(event.context())) changed = true;
+						}
+						key.reset();
+						if (changed) {
+							try {
+								load(file);
+								log("Reloaded public keys from " + file);
+							} catch (IOException e) {
+								error("Reloading public keys failed, keeping previous keys: " + e, e);
+							} catch (IllegalArgumentException e) {
+								error("Reloading public keys failed, keeping previous keys: " + e, e);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					// stopped
+				} catch (ClosedWatchServiceException e) {
+					// stopped
+				}
+			}
+		}, "gdx-pay-keystore-watch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/** Stops watching the file (if any). The current keys remain in use. */
+	public synchronized void close () throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+	}
+
+	protected void log (String message) {
+		System.out.println(message);
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -16,14 +16,35 @@
 
 package com.badlogic.gdx.pay.server.impl;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
 import com.badlogic.gdx.pay.PurchaseManagerConfig;
 import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.JsonReader;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.hedge.Cancellation;
+import com.badlogic.gdx.pay.server.jfr.RemoteCallEvent;
 
-/** Purchase verifier for Amazon. Return true if the purchase appears valid.
+/** Purchase verifier for Amazon. Asks Amazon's Receipt Verification Service (RVS) about the receipt ID (order ID) and
+ * Amazon user ID of the transaction. Cancelled (refunded) receipts are invalid.
  * @author noblemaster */
 public class PurchaseVerifierAndroidAmazon extends PurchaseVerifierBase {
 
+	/** The production RVS. */
+	public static final String PRODUCTION_URL = "https://appstore-sdk.amazon.com";
+	/** RVS Cloud Sandbox of the Amazon App Tester, running locally. */
+	public static final String SANDBOX_URL = "http://localhost:8080/RVSSandbox";
+
 	private String developerSecret;
+	private String baseUrl = PRODUCTION_URL;
+	private int connectTimeoutMillis = 10000;
+	private int readTimeoutMillis = 30000;
 	
 	/**
 	 * Constructs the purchase-verifier for purchases made via Amazon.
@@ -31,8 +52,22 @@ public class PurchaseVerifierAndroidAmazon extends PurchaseVerifierBase {
 	 * @param developerSecret  The shared secret for your Amazon developer account.
 	 */
 	public PurchaseVerifierAndroidAmazon(String developerSecret) {
+		if (developerSecret == null) throw new IllegalArgumentException("developerSecret cannot be null.");
 		this.developerSecret = developerSecret;
 	}
+
+	/** Sets the scheme, host, port and path prefix of RVS, e.g. {@link #SANDBOX_URL} or a local
+	 * {@link com.badlogic.gdx.pay.server.emulator.StoreEmulator}. {@link #PRODUCTION_URL} by default. */
+	public void setBaseUrl (String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/** Sets the connect and read timeouts, 10 and 30 seconds by default. A timeout results in
+	 * {@link VerificationResult#ERROR}. */
+	public void setTimeouts (int connectTimeoutMillis, int readTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
 	
 	@Override
 	public String storeName () {
@@ -41,7 +76,123 @@ public class PurchaseVerifierAndroidAmazon extends PurchaseVerifierBase {
 
 	@Override
 	public boolean isValid (Transaction transaction) {
-		// TODO: implement...
-		return true;
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
+		String receiptId = transaction.getOrderId();
+		String userId = transaction.getUserId();
+		String productId = transaction.getIdentifier();
+		if (receiptId == null || userId == null || productId == null) {
+			log("Receipt ID, user ID or product ID missing.");
+			return VerificationResult.INVALID;
+		}
+
+		final String endpoint = baseUrl + "/version/1.0/verifyReceiptId/developer/" + encode(developerSecret) + "/user/"
+			+ encode(userId) + "/receiptId/" + encode(receiptId);
+		RemoteCallEvent event = new RemoteCallEvent();
+		event.begin();
+		int httpStatus = 0;
+		int size = 0;
+		try {
+			HttpURLConnection conn = (HttpURLConnection)new URL(endpoint).openConnection();
+			Cancellation.register(conn);
+			conn.setConnectTimeout(connectTimeoutMillis);
+			conn.setReadTimeout(readTimeoutMillis);
+			conn.setRequestProperty("Accept", "application/json");
+			httpStatus = conn.getResponseCode();
+			switch (httpStatus) {
+				case 200:
+					String response = read(conn.getInputStream());
+					size = response.length();
+					return extractResult(response, receiptId, productId);
+				case 400: log(httpStatus + ": Invalid receipt"); return VerificationResult.INVALID;
+				case 410: log(httpStatus + ": Receipt no longer valid"); return VerificationResult.INVALID;
+				case 496: log(httpStatus + ": Invalid developer secret"); return VerificationResult.ERROR;
+				case 497: log(httpStatus + ": Invalid user ID"); return VerificationResult.INVALID;
+				default:
+					// 429, 500 and anything unexpected: try again later
+					log("Unexpected status: " + httpStatus);
+					return VerificationResult.ERROR;
+			}
+		} catch (IOException e) {
+			// not worth logging if a hedging verifier cancelled the request because the other one answered
+			if (!Cancellation.isCancelled()) error("I/O error during verification: " + e, e);
+			return VerificationResult.ERROR;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.setStore(storeName());
+				event.setUrl(baseUrl);
+				event.setHttpStatus(httpStatus);
+				event.tag(httpStatus != 0 ? String.valueOf(httpStatus) : "error", size);
+				event.commit();
+			}
+		}
+	}
+
+	/** Checks the receipt returned by RVS: it must name the receipt ID asked for, be for the product of the transaction (or a
+	 * receipt of a cheap item would unlock an expensive one) and not be cancelled. */
+	protected VerificationResult extractResult (String response, String receiptId, String productId) {
+		String returnedReceiptId = null;
+		String returnedProductId = null;
+		boolean cancelled = false;
+		try {
+			JsonReader reader = new JsonReader(response);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("receiptId")) {
+					returnedReceiptId = reader.nextStringOrNull();
+				} else if (name.equals("productId")) {
+					returnedProductId = reader.nextStringOrNull();
+				} else if (name.equals("cancelDate")) {
+					cancelled = reader.nextStringOrNull() != null;
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IllegalArgumentException e) {
+			error("Response extraction failed: " + e, e);
+			return VerificationResult.ERROR;
+		}
+		if (returnedReceiptId == null) {
+			// a receipt RVS doesn't name confirms nothing
+			log("Receipt ID missing in response for: " + receiptId);
+			return VerificationResult.INVALID;
+		}
+		if (!returnedReceiptId.equals(receiptId)) {
+			log("Receipt ID mismatch: " + returnedReceiptId);
+			return VerificationResult.INVALID;
+		}
+		if (!productId.equals(returnedProductId)) {
+			log("Product ID mismatch for " + receiptId + ": " + returnedProductId + " instead of " + productId);
+			return VerificationResult.INVALID;
+		}
+		if (cancelled) {
+			log("Receipt cancelled: " + receiptId);
+			return VerificationResult.INVALID;
+		}
+		return VerificationResult.VALID;
+	}
+
+	private static String encode (String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+	}
+
+	private static String read (InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+			byte[] buffer = new byte[1024];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			in.close();
+		}
 	}
 }
@@ -17,22 +17,13 @@
 package com.badlogic.gdx.pay.server.impl;
 
 import com.badlogic.gdx.pay.PurchaseManagerConfig;
-import com.badlogic.gdx.pay.Transaction;
-
-import java.security.PublicKey;
 
 /**
  * Purchase verifier for Google Play. Return true if the purchase appears valid.
  *
  * @author noblemaster
  */
-public class PurchaseVerifierAndroidGoogle extends PurchaseVerifierBase {
-
-    private PublicKey publicKey;
-
-    public void setPublicKey(String publicKeyString) {
-        publicKey = Security.generatePublicKey(publicKeyString);
-    }
+public class PurchaseVerifierAndroidGoogle extends PurchaseVerifierSignatureBase {
 
     @Override
     public String storeName() {
@@ -40,8 +31,7 @@ public class PurchaseVerifierAndroidGoogle extends PurchaseVerifierBase {
     }
 
     @Override
-    public boolean isValid(Transaction transaction) {
-        return Security.verify(publicKey, transaction.getTransactionData(),
-                transaction.getTransactionDataSignature());
+    protected String signatureAlgorithm() {
+        return "SHA1withRSA";
     }
 }
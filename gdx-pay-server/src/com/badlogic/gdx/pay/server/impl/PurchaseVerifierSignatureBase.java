@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.impl;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.receipt.ReceiptView;
+
+import java.security.PublicKey;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Base class for verifiers that check the store's signature of the purchase data with a public key
+ * (Google Play, Huawei). Verification is local and CPU-bound, so large sets of transactions (e.g. a
+ * restore) can be verified in parallel with {@link #verifyAll(Transaction[])}.
+ */
+public abstract class PurchaseVerifierSignatureBase extends PurchaseVerifierBase {
+
+    /** Default number of transactions below which {@link #verifyAll} stays on the calling thread. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 16;
+
+    private PublicKey[] publicKeys = new PublicKey[0];
+
+    /** Keys per app, takes precedence over {@link #publicKeys} if set. */
+    private PublicKeyStore publicKeyStore;
+
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private final Security.SecurityLogger logger = new Security.SecurityLogger() {
+        @Override public void log (String message) {
+            PurchaseVerifierSignatureBase.this.log(message);
+        }
+    };
+
+    /** Returns the signature algorithm used by the store, e.g. "SHA1withRSA". */
+    protected abstract String signatureAlgorithm();
+
+    public void setPublicKey(String publicKeyString) {
+        publicKeys = new PublicKey[] {Security.generatePublicKey(publicKeyString)};
+    }
+
+    /**
+     * Uses the keys from the given store instead of a single public key. The keys are looked up
+     * by the package name of the purchase, so one verifier can serve several apps and keys can be
+     * rotated (see {@link PublicKeyStore#watch}) without rebuilding the verifier.
+     */
+    public void setPublicKeyStore(PublicKeyStore publicKeyStore) {
+        this.publicKeyStore = publicKeyStore;
+    }
+
+    /**
+     * Sets the pool used by {@link #verifyAll}. Defaults to the common ForkJoinPool.
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the number of transactions below which {@link #verifyAll} doesn't split the work:
+     * for small sets the hand-over to other threads costs more than it gains.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    @Override
+    public boolean isValid(Transaction transaction) {
+        return verify(transaction).isValid();
+    }
+
+    /**
+     * Only a signature that doesn't match is {@link VerificationResult#INVALID}. Without a usable
+     * key for the purchase (e.g. an app missing in the key store, or while it's reloaded) the
+     * result is {@link VerificationResult#ERROR}, so the purchase isn't rejected for good.
+     */
+    @Override
+    public VerificationResult verify(Transaction transaction) {
+        String data = transaction.getTransactionData();
+        String signature = transaction.getTransactionDataSignature();
+        if (data == null || signature == null) {
+            log("Purchase data or signature missing.");
+            return VerificationResult.INVALID;
+        }
+        PublicKey[] keys = publicKeys;
+        PublicKeyStore publicKeyStore = this.publicKeyStore;
+        if (publicKeyStore != null) {
+            keys = publicKeyStore.getKeys(storeName(), extractPackageName(data));
+        }
+        return Security.check(keys, data, signature, signatureAlgorithm(), logger);
+    }
+
+    /**
+     * Verifies many transactions at once, e.g. when a user restores purchases. Work is split
+     * across the ForkJoin pool once there are at least as many transactions as the parallel
+     * threshold.
+     *
+     * @return the results in the order of the transactions
+     */
+    public VerificationResult[] verifyAll(Transaction[] transactions) {
+        VerificationResult[] results = new VerificationResult[transactions.length];
+        if (transactions.length < parallelThreshold) {
+            verifyRange(transactions, results, 0, transactions.length);
+        } else {
+            ForkJoinPool pool = this.pool != null ? this.pool : ForkJoinPool.commonPool();
+            pool.invoke(new VerifyTask(transactions, results, 0, transactions.length));
+        }
+        return results;
+    }
+
+    private void verifyRange(Transaction[] transactions, VerificationResult[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = verify(transactions[i]);
+        }
+    }
+
+    private final class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Transaction[] transactions;
+        private final VerificationResult[] results;
+        private final int from;
+        private final int to;
+
+        VerifyTask(Transaction[] transactions, VerificationResult[] results, int from, int to) {
+            this.transactions = transactions;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // an RSA check takes tens of microseconds: split down to small chunks to keep all cores busy
+            if (to - from <= Math.max(1, parallelThreshold / 4)) {
+                verifyRange(transactions, results, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyTask(transactions, results, from, middle),
+                        new VerifyTask(transactions, results, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Attempts to extract the package name from the purchase data (the original JSON of the purchase),
+     * e.g. '{"orderId":"GPA.1234","packageName":"com.mygame",...}'.
+     * Override this method if you want to use more robust json parser.
+     *
+     * @param transactionData the original purchase JSON
+     * @return the package name or null if not possible
+     */
+    protected String extractPackageName(String transactionData) {
+        return new ReceiptView(storeName(), transactionData).packageName();
+    }
+}
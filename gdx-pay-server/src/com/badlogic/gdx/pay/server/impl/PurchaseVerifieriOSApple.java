@@ -20,10 +20,11 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 
-import javax.net.ssl.HttpsURLConnection;
-
 import com.badlogic.gdx.pay.PurchaseManagerConfig;
 import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.hedge.Cancellation;
+import com.badlogic.gdx.pay.server.jfr.RemoteCallEvent;
 
 /** Purchase verifier for iOS/Apple. Return true if the purchase appears valid.
  * @author noblemaster */
@@ -36,6 +37,10 @@ public class PurchaseVerifieriOSApple extends PurchaseVerifierBase {
 
 	/** True for sandbox mode. */
 	private boolean sandbox;
+	/** The verifyReceipt URL if set, overrides sandbox mode. */
+	private String verifyReceiptUrl;
+	private int connectTimeoutMillis = 10000;
+	private int readTimeoutMillis = 30000;
 	
 	public PurchaseVerifieriOSApple() {
 		this(false);
@@ -45,6 +50,19 @@ public class PurchaseVerifieriOSApple extends PurchaseVerifierBase {
 		this.sandbox = sandbox;
 	}
 
+	/** Sets the verifyReceipt URL, e.g. of a local {@link com.badlogic.gdx.pay.server.emulator.StoreEmulator}. Overrides
+	 * sandbox mode, null to use the URL of the mode again. */
+	public void setVerifyReceiptUrl (String verifyReceiptUrl) {
+		this.verifyReceiptUrl = verifyReceiptUrl;
+	}
+
+	/** Sets the connect and read timeouts, 10 and 30 seconds by default. A timeout results in
+	 * {@link VerificationResult#ERROR}. */
+	public void setTimeouts (int connectTimeoutMillis, int readTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
 	@Override
 	public String storeName () {
 		return PurchaseManagerConfig.STORE_NAME_IOS_APPLE;
@@ -52,15 +70,28 @@ public class PurchaseVerifieriOSApple extends PurchaseVerifierBase {
 
 	@Override
 	public boolean isValid (Transaction transaction) {
+		return verify(transaction).isValid();
+	}
+
+	@Override
+	public VerificationResult verify (Transaction transaction) {
 		// the transaction data is our original == receipt!
 		String receipt = transaction.getTransactionDataSignature();
 
 		final String jsonData = "{\"receipt-data\" : \"" + receipt + "\"}";
+		final String endpoint = verifyReceiptUrl != null ? verifyReceiptUrl : sandbox ? SANDBOX_URL : PRODUCTION_URL;
+		RemoteCallEvent event = new RemoteCallEvent();
+		event.begin();
+		int status = -1;
+		int httpStatus = 0;
 		try {
 			// send the data to Apple
-			final URL url = new URL(sandbox ? SANDBOX_URL : PRODUCTION_URL);
-			final HttpURLConnection conn = (HttpsURLConnection)url.openConnection();
+			final URL url = new URL(endpoint);
+			final HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+			Cancellation.register(conn);
 			conn.setRequestMethod("POST");
+			conn.setConnectTimeout(connectTimeoutMillis);
+			conn.setReadTimeout(readTimeoutMillis);
 			conn.setDoOutput(true);
 			conn.setRequestProperty("Content-Type", "application/json");
 			conn.setRequestProperty("Accept", "application/json");
@@ -69,30 +100,45 @@ public class PurchaseVerifieriOSApple extends PurchaseVerifierBase {
 			wr.flush();
 
 			// obtain the response
-			int status = extractStatus(conn.getInputStream());
+			httpStatus = conn.getResponseCode();
+			status = extractStatus(conn.getInputStream());
 
 			wr.close();
+			if (Cancellation.isCancelled()) return VerificationResult.ERROR;
 			
 			switch (status) {
-				case -1: log(status + ": Status extraction failed"); return false;
-				case 0: return true;
-				case 21000: log(status + ": App store could not read"); return false;
-				case 21002: log(status + ": Data was malformed"); return false;
-				case 21003: log(status + ": Receipt not authenticated"); return false;
-				case 21004: log(status + ": Shared secret does not match"); return false;
-				case 21005: log(status + ": Receipt server unavailable"); return false;
-				case 21006: log(status + ": Receipt valid but sub expired"); return false;
-				case 21007: log(status + ": Sandbox receipt sent to Production environment"); return false;
-				case 21008: log(status + ": Production receipt sent to Sandbox environment"); return false;
+				case -1: log(status + ": Status extraction failed"); return VerificationResult.ERROR;
+				case 0: return VerificationResult.VALID;
+				case 21000: log(status + ": App store could not read"); return VerificationResult.INVALID;
+				case 21002: log(status + ": Data was malformed"); return VerificationResult.INVALID;
+				case 21003: log(status + ": Receipt not authenticated"); return VerificationResult.INVALID;
+				case 21004: log(status + ": Shared secret does not match"); return VerificationResult.ERROR;
+				case 21005: log(status + ": Receipt server unavailable"); return VerificationResult.ERROR;
+				case 21006: log(status + ": Receipt valid but sub expired"); return VerificationResult.INVALID;
+				case 21007:
+				case 21008:
+					// a verdict on the environment, not the receipt: the other one may accept it
+					log(status + (status == 21007 ? ": Sandbox receipt sent to Production environment"
+						: ": Production receipt sent to Sandbox environment"));
+					return VerificationResult.REFUSED;
 			   default:
-			   	// unknown error code (nevertheless a problem)
+			   	// unknown error code (nevertheless a problem): 21100-21199 are internal data access errors
 			   	log("Unknown error: status code = " + status);
-			   	return false;
+			   	return status >= 21100 && status <= 21199 ? VerificationResult.ERROR : VerificationResult.INVALID;
 			}
 		} catch (IOException e) {
-			// I/O-error: let's assume bad news...
-			error("I/O error during verification: " + e, e);
-			return false;
+			// I/O-error: let's assume bad news... (or a hedging verifier cancelled us, the other request answered)
+			if (!Cancellation.isCancelled()) error("I/O error during verification: " + e, e);
+			return VerificationResult.ERROR;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.setStore(storeName());
+				event.setUrl(endpoint);
+				event.setHttpStatus(httpStatus);
+				event.tag(status != -1 ? String.valueOf(status) : "error", jsonData.length());
+				event.commit();
+			}
 		}
 	}
 
@@ -127,7 +173,7 @@ public class PurchaseVerifieriOSApple extends PurchaseVerifierBase {
 				break;
 			}
 		} catch (IOException ex) {
-			error("Status extraction failed: " + ex, ex);
+			if (!Cancellation.isCancelled()) error("Status extraction failed: " + ex, ex);
 		} catch (NumberFormatException ex) {
 			error("Status extraction failed: " + ex, ex);
 		} catch (IndexOutOfBoundsException ex) {
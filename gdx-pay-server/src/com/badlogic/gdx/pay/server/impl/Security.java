@@ -1,5 +1,8 @@
 package com.badlogic.gdx.pay.server.impl;
 
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.jfr.Base64DecodeEvent;
+import com.badlogic.gdx.pay.server.jfr.SignatureCheckEvent;
 import com.badlogic.gdx.pay.server.util.Base64Util;
 
 import java.security.InvalidKeyException;
@@ -10,10 +13,18 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.HashMap;
+import java.util.Map;
 
 public class Security {
     private static final String KEY_FACTORY_ALGORITHM = "RSA";
     private static final String SIGNATURE_ALGORITHM = "SHA1withRSA";
+    /** Signature instances are costly to look up and not thread-safe: keep one per thread and algorithm. */
+    private static final ThreadLocal<Map<String, Signature>> signatures = new ThreadLocal<Map<String, Signature>>() {
+        @Override protected Map<String, Signature> initialValue () {
+            return new HashMap<String, Signature>(4);
+        }
+    };
     private static final SecurityLogger logger = new SecurityLogger() {
         @Override public void log (String message) {
             System.out.println(message);
@@ -64,25 +75,154 @@ public class Security {
      * @return true if the data and signature match
      */
     public static boolean verify(PublicKey publicKey, String signedData, String signature, SecurityLogger logger) {
+        return verify(new PublicKey[] {publicKey}, signedData, signature, SIGNATURE_ALGORITHM, logger);
+    }
+
+    /**
+     * Verifies that the signature from the server matches the computed
+     * signature on the data for any of the given keys, e.g. during key
+     * rotation. The signature is decoded only once.
+     *
+     * @param publicKeys public keys associated with the developer account
+     * @param signedData signed data from server
+     * @param signature  server signature
+     * @param logger logger that will log any issues
+     * @return true if the data and signature match for one of the keys
+     */
+    public static boolean verify(PublicKey[] publicKeys, String signedData, String signature, SecurityLogger logger) {
+        return verify(publicKeys, signedData, signature, SIGNATURE_ALGORITHM, logger);
+    }
+
+    /**
+     * Verifies that the signature from the server matches the computed
+     * signature on the data for any of the given keys, using the given
+     * signature algorithm (e.g. "SHA256withRSA").
+     *
+     * @param publicKeys public keys associated with the developer account
+     * @param signedData signed data from server
+     * @param signature  server signature
+     * @param algorithm  the signature algorithm
+     * @param logger logger that will log any issues
+     * @return true if the data and signature match for one of the keys
+     */
+    public static boolean verify(PublicKey[] publicKeys, String signedData, String signature, String algorithm,
+                                 SecurityLogger logger) {
+        return check(publicKeys, signedData, signature, algorithm, logger).isValid();
+    }
+
+    /**
+     * Verifies like {@link #verify(PublicKey[], String, String, String, SecurityLogger)}, but
+     * tells a signature that doesn't match apart from a check that couldn't be done.
+     *
+     * @param publicKeys public keys associated with the developer account
+     * @param signedData signed data from server
+     * @param signature  server signature
+     * @param algorithm  the signature algorithm
+     * @param logger logger that will log any issues
+     * @return VALID if the data and signature match for one of the keys, INVALID if they match
+     *         for none of the usable keys (or the signature isn't Base64) and ERROR if there is no
+     *         usable key or the algorithm isn't available
+     */
+    public static VerificationResult check(PublicKey[] publicKeys, String signedData, String signature,
+                                           String algorithm, SecurityLogger logger) {
+        if (publicKeys.length == 0) {
+            logger.log("No public key available.");
+            return VerificationResult.ERROR;
+        }
         byte[] signatureBytes;
         try {
-            signatureBytes = Base64Util.decode(signature);
-            Signature sig = Signature.getInstance(SIGNATURE_ALGORITHM);
-            sig.initVerify(publicKey);
-            sig.update(signedData.getBytes());
-            if (!sig.verify(signatureBytes)) {
+            signatureBytes = decode(signature);
+        } catch (IllegalArgumentException e) {
+            logger.log("Signature is not Base64.");
+            return VerificationResult.INVALID;
+        }
+        byte[] dataBytes = signedData.getBytes();
+        SignatureCheckEvent event = new SignatureCheckEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            Signature sig;
+            try {
+                sig = signature(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                logger.log("NoSuchAlgorithmException.");
+                return VerificationResult.ERROR;
+            }
+            // a key that can't be used (e.g. of another type during a rotation) must not stop the others from being tried
+            boolean checked = false;
+            for (PublicKey publicKey : publicKeys) {
+                try {
+                    sig.initVerify(publicKey);
+                    sig.update(dataBytes);
+                    if (sig.verify(signatureBytes)) {
+                        outcome = "valid";
+                        return VerificationResult.VALID;
+                    }
+                    checked = true;
+                } catch (InvalidKeyException e) {
+                    logger.log("Invalid key specification.");
+                    // the instance may have bound to no provider on this key and reject all others: start over
+                    signatures.get().remove(algorithm);
+                    try {
+                        sig = signature(algorithm);
+                    } catch (NoSuchAlgorithmException ex) {
+                        return VerificationResult.ERROR;
+                    }
+                } catch (SignatureException e) {
+                    // the signature doesn't fit the key (e.g. wrong length): a mismatch
+                    logger.log("Signature exception.");
+                    checked = true;
+                }
+            }
+            if (checked) {
+                outcome = "invalid";
                 logger.log("Signature verification failed.");
-                return false;
+                return VerificationResult.INVALID;
             }
-            return true;
-        } catch (NoSuchAlgorithmException e) {
-            logger.log("NoSuchAlgorithmException.");
-        } catch (InvalidKeyException e) {
-            logger.log("Invalid key specification.");
-        } catch (SignatureException e) {
-            logger.log("Signature exception.");
+            // none of the keys could be used: that's our problem, not the purchase's
+            return VerificationResult.ERROR;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setAlgorithm(algorithm);
+                event.setKeyCount(publicKeys.length);
+                event.tag(outcome, dataBytes.length);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Decodes the Base64-encoded signature, recording a {@link Base64DecodeEvent}.
+     */
+    private static byte[] decode(String signature) {
+        Base64DecodeEvent event = new Base64DecodeEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            byte[] bytes = Base64Util.decode(signature);
+            outcome = "ok";
+            return bytes;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.tag(outcome, signature.length());
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Returns the signature instance for the given algorithm of the calling thread.
+     */
+    private static Signature signature(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, Signature> instances = signatures.get();
+        Signature sig = instances.get(algorithm);
+        if (sig == null) {
+            sig = Signature.getInstance(algorithm);
+            instances.put(algorithm, sig);
         }
-        return false;
+        return sig;
     }
 
     public interface SecurityLogger {
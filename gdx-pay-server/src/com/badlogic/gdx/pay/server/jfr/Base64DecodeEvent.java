@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Decoding of a Base64 payload, e.g. a signature. Outcome is ok or error, the payload size is the encoded length. */
+@Name("com.badlogic.gdx.pay.Base64Decode")
+@Label("Base64 Decode")
+@Description("Decoding of a Base64 payload, e.g. a signature. Outcome is ok or error, the payload size is the encoded length.")
+public class Base64DecodeEvent extends PayEvent {
+}
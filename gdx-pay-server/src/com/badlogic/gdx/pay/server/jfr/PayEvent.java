@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/** Base of the JDK Flight Recorder events of gdx-pay-server. All events carry store, tenant (the app, see
+ * {@link com.badlogic.gdx.pay.server.AppIdResolver}), outcome and payload size, so latency can be attributed per store
+ * and app in JDK Mission Control.
+ * <p>
+ * Usage, at near-zero cost if the event is disabled (no recording, or the event type is switched off):
+ *
+ * <pre>
+ * SignatureCheckEvent event = new SignatureCheckEvent();
+ * event.begin();
+ * ... check ...
+ * event.end();
+ * if (event.shouldCommit()) {
+ *   event.tag("valid", data.length);
+ *   event.commit();
+ * }
+ * </pre> */
+@Category("gdx-pay")
+public abstract class PayEvent extends Event {
+
+	@Label("Store")
+	String store;
+
+	@Label("Tenant")
+	String tenant;
+
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Payload Size")
+	@DataAmount
+	long payloadSize;
+
+	/** Sets outcome and payload size, and store and tenant of the verification running on this thread (see
+	 * {@link PayEvents#enter}) unless already set. Only call if the event will be committed. */
+	public void tag (String outcome, long payloadSize) {
+		this.outcome = outcome;
+		this.payloadSize = payloadSize;
+		if (store == null) store = PayEvents.store();
+		if (tenant == null) tenant = PayEvents.tenant();
+	}
+
+	public void setStore (String store) {
+		this.store = store;
+	}
+
+	public void setTenant (String tenant) {
+		this.tenant = tenant;
+	}
+}
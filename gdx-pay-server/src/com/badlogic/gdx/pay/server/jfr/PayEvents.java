@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.jfr;
+
+/** Store and tenant of the verification running on the current thread, so events deep down the call chain (signature
+ * checks, Base64 decoding, ...) can be tagged without passing them through every method. Only set while a
+ * {@link VerificationEvent} is being recorded. */
+public final class PayEvents {
+
+	private static final ThreadLocal<Context> context = new ThreadLocal<Context>();
+
+	/** Sets store and tenant for the current thread until {@link #exit()}. Calls nest: a verification running inside
+	 * another one gets its own context, and the outer one is back after its exit. */
+	public static void enter (String store, String tenant) {
+		context.set(new Context(store, tenant, context.get()));
+	}
+
+	/** Restores the context that was current before the matching {@link #enter(String, String)}. */
+	public static void exit () {
+		Context current = context.get();
+		if (current == null) return;
+		if (current.outer != null) {
+			context.set(current.outer);
+		} else {
+			context.remove();
+		}
+	}
+
+	static String store () {
+		Context current = context.get();
+		return current != null ? current.store : null;
+	}
+
+	static String tenant () {
+		Context current = context.get();
+		return current != null ? current.tenant : null;
+	}
+
+	private static final class Context {
+		final String store;
+		final String tenant;
+		final Context outer;
+
+		Context (String store, String tenant, Context outer) {
+			this.store = store;
+			this.tenant = tenant;
+			this.outer = outer;
+		}
+	}
+
+	// Dummy constructor.
+	private PayEvents () {
+	}
+}
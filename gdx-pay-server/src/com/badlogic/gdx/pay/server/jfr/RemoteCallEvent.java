@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** An HTTP round trip to a store server. Outcome is the store's status or error. */
+@Name("com.badlogic.gdx.pay.RemoteCall")
+@Label("Remote Call")
+@Description("An HTTP round trip to a store server. Outcome is the store's status or error.")
+public class RemoteCallEvent extends PayEvent {
+
+	@Label("URL")
+	String url;
+
+	@Label("HTTP Status")
+	int httpStatus;
+
+	public void setUrl (String url) {
+		this.url = url;
+	}
+
+	public void setHttpStatus (int httpStatus) {
+		this.httpStatus = httpStatus;
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A purchase verification by the PurchaseVerifierManager, including all stages. Outcome is the result. */
+@Name("com.badlogic.gdx.pay.Verification")
+@Label("Purchase Verification")
+@Description("A purchase verification by the PurchaseVerifierManager, including all stages. Outcome is the result.")
+public class VerificationEvent extends PayEvent {
+
+	@Label("Source")
+	String source;
+
+	public void setSource (String source) {
+		this.source = source;
+	}
+}
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.impl.PurchaseVerifierAndroidGoogle;
+import com.badlogic.gdx.pay.server.util.LatencyHistogram;
+
+/** Drives a {@link PurchaseVerifierManager} with transactions at a fixed arrival rate and reports throughput, latency
+ * percentiles and verifications per CPU second of the verifying threads.
+ * <p>
+ * The load is open-loop: requests are scheduled at their arrival times whether or not earlier ones have completed, and
+ * latency is measured from the scheduled arrival time, including time spent waiting for a free thread. A closed loop
+ * (each thread sending the next request when the previous one is done) slows down with the system under test and hides
+ * exactly the queueing delays that users see, known as coordinated omission. If the rate is above capacity, latencies
+ * grow without bound, which is the honest answer.
+ *
+ * <pre>
+ * LoadGenerator generator = new LoadGenerator(manager, transactions);
+ * generator.setRate(5000);
+ * generator.setThreads(8);
+ * System.out.println(generator.run(5000, 30000)); // 5 s warm-up, 30 s measured
+ * </pre>
+ *
+ * Also runnable from the command line against a Google verifier with {@link SyntheticReceipts}, see
+ * {@link #main(String[])}. */
+public class LoadGenerator {
+
+	/** Below this the dispatcher spins instead of parking, parking is too coarse for high rates. */
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	/** How long to wait for outstanding requests after the last arrival. */
+	private static final long DRAIN_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final PurchaseVerifierManager manager;
+	private final Transaction[] transactions;
+
+	private double rate = 1000;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean poisson = true;
+	private int maxOutstanding = 100000;
+
+	/** @param transactions Sent round-robin. */
+	public LoadGenerator (PurchaseVerifierManager manager, Transaction[] transactions) {
+		if (transactions.length == 0) throw new IllegalArgumentException("No transactions.");
+		this.manager = manager;
+		this.transactions = transactions;
+	}
+
+	/** Sets the arrival rate in requests per second, 1000 by default. */
+	public void setRate (double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be > 0: " + rate);
+		this.rate = rate;
+	}
+
+	/** Sets the number of threads verifying, the number of processors by default. */
+	public void setThreads (int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads must be >= 1: " + threads);
+		this.threads = threads;
+	}
+
+	/** Sets whether arrivals are a Poisson process (exponential gaps, like independent users, the default) or evenly
+	 * spaced. */
+	public void setPoisson (boolean poisson) {
+		this.poisson = poisson;
+	}
+
+	/** Sets how many requests may be waiting or running at once, 100000 by default. Arrivals beyond are counted as missed
+	 * instead of queued, so an overloaded run doesn't run out of memory. */
+	public void setMaxOutstanding (int maxOutstanding) {
+		this.maxOutstanding = maxOutstanding;
+	}
+
+	/** Runs the load for warm-up plus duration and reports on the duration part. */
+	public Report run (long warmupMillis, long durationMillis) throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final AtomicLongArray results = new AtomicLongArray(VerificationResult.values().length);
+		final AtomicInteger outstanding = new AtomicInteger();
+		final AtomicLong lastCompletion = new AtomicLong();
+		final List<Thread> workers = new CopyOnWriteArrayList<Thread>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread (Runnable runnable) {
+					Thread thread = new Thread(runnable, "gdx-pay-load-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					workers.add(thread);
+					return thread;
+				}
+			});
+		executor.prestartAllCoreThreads();
+
+		Random random = new Random();
+		double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+		long measureStart = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+		long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		long cpuStart = -1;
+		long offered = 0, missed = 0;
+		double next = start;
+		int index = 0;
+		while (next < end) {
+			final long intended = (long)next;
+			long wait;
+			while ((wait = intended - System.nanoTime()) > 0) {
+				if (wait > SPIN_NANOS) {
+					LockSupport.parkNanos(wait - SPIN_NANOS);
+				} else {
+					Thread.onSpinWait();
+				}
+			}
+			final boolean measured = intended >= measureStart;
+			if (measured && cpuStart < 0) cpuStart = cpuNanos(workers);
+			if (measured) offered++;
+
+			if (outstanding.get() >= maxOutstanding) {
+				if (measured) missed++;
+			} else {
+				outstanding.incrementAndGet();
+				final Transaction transaction = transactions[index];
+				index = (index + 1) % transactions.length;
+				executor.execute(new Runnable() {
+					@Override
+					public void run () {
+						VerificationResult result;
+						try {
+							result = manager.verify(transaction, null);
+						} catch (RuntimeException e) {
+							result = VerificationResult.ERROR;
+						}
+						long now = System.nanoTime();
+						if (measured) {
+							histogram.record(now - intended);
+							results.incrementAndGet(result.ordinal());
+							lastCompletion.accumulateAndGet(now, Math::max);
+						}
+						outstanding.decrementAndGet();
+					}
+				});
+			}
+			next += poisson ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+		}
+
+		// wait while the workers are still alive, their CPU time can't be read once they ended
+		long deadline = System.nanoTime() + DRAIN_NANOS;
+		while (outstanding.get() > 0 && System.nanoTime() - deadline < 0) {
+			Thread.sleep(1);
+		}
+		long cpuEnd = cpuNanos(workers);
+		long cpuNanos = cpuStart >= 0 && cpuEnd >= 0 ? cpuEnd - cpuStart : -1;
+		int unfinished = outstanding.get();
+		executor.shutdown();
+		if (unfinished > 0) executor.shutdownNow();
+		long elapsed = Math.max(end, lastCompletion.get()) - measureStart;
+		long[] counts = new long[results.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = results.get(i);
+		}
+		return new Report(rate, threads, offered, missed, unfinished, counts, elapsed, cpuNanos, histogram);
+	}
+
+	/** Returns the CPU time used by the given threads so far or -1 if the JVM doesn't measure it. Only the workers are
+	 * measured: the dispatcher spins and would count as verification work otherwise. */
+	private static long cpuNanos (List<Thread> threads) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!bean.isThreadCpuTimeSupported()) return -1;
+		if (!bean.isThreadCpuTimeEnabled()) bean.setThreadCpuTimeEnabled(true);
+		long total = 0;
+		for (Thread thread : threads) {
+			long nanos = bean.getThreadCpuTime(thread.getId());
+			if (nanos > 0) total += nanos;
+		}
+		return total;
+	}
+
+	/** The outcome of a run. Immutable apart from the histogram. */
+	public static final class Report {
+		private final double rate;
+		private final int threads;
+		private final long offered;
+		private final long missed;
+		private final int unfinished;
+		private final long[] results;
+		private final long elapsedNanos;
+		private final long cpuNanos;
+		private final LatencyHistogram latency;
+
+		Report (double rate, int threads, long offered, long missed, int unfinished, long[] results, long elapsedNanos,
+			long cpuNanos, LatencyHistogram latency) {
+			this.rate = rate;
+			this.threads = threads;
+			this.offered = offered;
+			this.missed = missed;
+			this.unfinished = unfinished;
+			this.results = results;
+			this.elapsedNanos = elapsedNanos;
+			this.cpuNanos = cpuNanos;
+			this.latency = latency;
+		}
+
+		/** The number of requests scheduled in the measured part. */
+		public long getOffered () {
+			return offered;
+		}
+
+		/** The number of arrivals dropped because too many requests were outstanding. */
+		public long getMissed () {
+			return missed;
+		}
+
+		/** The number of requests that hadn't completed a minute after the last arrival, when the run gave up on them. If
+		 * not 0, the other numbers only cover part of the load. */
+		public int getUnfinished () {
+			return unfinished;
+		}
+
+		public long getCompleted () {
+			long completed = 0;
+			for (long count : results) {
+				completed += count;
+			}
+			return completed;
+		}
+
+		public long getCount (VerificationResult result) {
+			return results[result.ordinal()];
+		}
+
+		/** Completed verifications per second of the measured part, until the last one completed. */
+		public double getThroughput () {
+			return getCompleted() / (elapsedNanos / 1e9);
+		}
+
+		/** Completed verifications per second of CPU time used by the verifying threads, i.e. the capacity of one fully used
+		 * core. Excludes the load generator itself as well as GC and JIT compiler threads. -1 if the JVM doesn't report
+		 * thread CPU time. */
+		public double getPerCpuSecond () {
+			return cpuNanos > 0 ? getCompleted() / (cpuNanos / 1e9) : -1;
+		}
+
+		/** Latency from scheduled arrival to completion. */
+		public LatencyHistogram getLatency () {
+			return latency;
+		}
+
+		@Override
+		public String toString () {
+			StringBuilder builder = new StringBuilder();
+			builder.append(String.format("rate %.0f/s, %d threads: offered %d, completed %d, missed %d", rate, threads, offered,
+				getCompleted(), missed));
+			for (VerificationResult result : VerificationResult.values()) {
+				builder.append(", ").append(result.name().toLowerCase()).append(' ').append(getCount(result));
+			}
+			if (unfinished > 0) builder.append(String.format("%nINCOMPLETE: %d requests still running", unfinished));
+			builder.append(String.format("%nthroughput %.0f/s", getThroughput()));
+			if (cpuNanos > 0) builder.append(String.format(", %.0f per CPU second", getPerCpuSecond()));
+			return builder.append("\nlatency ").append(latency).toString();
+		}
+	}
+
+	/** Usage: {@code LoadGenerator [--rate n] [--threads n] [--seconds n] [--warmup n] [--receipts n] [--tampered share]
+	 * [--key-size bits] [--even]}
+	 * <p>
+	 * Verifies synthetic Google Play purchases with {@link PurchaseVerifierAndroidGoogle}, i.e. measures signature
+	 * verification. */
+	public static void main (String[] args) throws Exception {
+		double rate = 1000, tampered = 0.05;
+		int threads = Runtime.getRuntime().availableProcessors(), seconds = 30, warmup = 10, receipts = 10000, keySize = 2048;
+		boolean poisson = true;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--even")) {
+				poisson = false;
+				continue;
+			}
+			if (i + 1 >= args.length) usage();
+			String value = args[++i];
+			if (arg.equals("--rate")) {
+				rate = Double.parseDouble(value);
+			} else if (arg.equals("--threads")) {
+				threads = Integer.parseInt(value);
+			} else if (arg.equals("--seconds")) {
+				seconds = Integer.parseInt(value);
+			} else if (arg.equals("--warmup")) {
+				warmup = Integer.parseInt(value);
+			} else if (arg.equals("--receipts")) {
+				receipts = Integer.parseInt(value);
+			} else if (arg.equals("--tampered")) {
+				tampered = Double.parseDouble(value);
+			} else if (arg.equals("--key-size")) {
+				keySize = Integer.parseInt(value);
+			} else {
+				usage();
+			}
+		}
+
+		SyntheticReceipts synthetic = new SyntheticReceipts("com.badlogic.gdx.pay.load", 1, keySize);
+		Transaction[] transactions = synthetic.create(receipts, tampered);
+		PurchaseVerifierAndroidGoogle verifier = new PurchaseVerifierAndroidGoogle();
+		verifier.setPublicKey(synthetic.getPublicKey());
+		PurchaseVerifierManager manager = new PurchaseVerifierManager(false);
+		manager.addVerifier(verifier);
+
+		LoadGenerator generator = new LoadGenerator(manager, transactions);
+		generator.setRate(rate);
+		generator.setThreads(threads);
+		generator.setPoisson(poisson);
+		System.out.println(generator.run(TimeUnit.SECONDS.toMillis(warmup), TimeUnit.SECONDS.toMillis(seconds)));
+	}
+
+	private static void usage () {
+		System.err.println("Usage: LoadGenerator [--rate n] [--threads n] [--seconds n] [--warmup n] [--receipts n] "
+			+ "[--tampered share] [--key-size bits] [--even]");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.load;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Random;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+
+/** Creates Google Play transactions signed with a freshly generated RSA key, in the format of the billing library's
+ * {@code Purchase.getOriginalJson()} and {@code getSignature()}, for benchmarks and tests at realistic volume.
+ *
+ * <pre>
+ * SyntheticReceipts receipts = new SyntheticReceipts("com.my.game", 42);
+ * PurchaseVerifierAndroidGoogle verifier = new PurchaseVerifierAndroidGoogle();
+ * verifier.setPublicKey(receipts.getPublicKey());
+ * Transaction[] transactions = receipts.create(10000, 0.05); // 5% tampered
+ * </pre> */
+public class SyntheticReceipts {
+
+	private static final String[] PRODUCTS = {"coins_100", "coins_500", "coins_2000", "remove_ads", "pro_monthly",
+		"starter_pack"};
+	private static final int[] PRICES = {99, 499, 1499, 299, 499, 199};
+
+	private final String packageName;
+	private final KeyPair keyPair;
+	private final Random random;
+	private final Signature signature;
+
+	/** @param seed Seed for the purchase contents. The key is always random. */
+	public SyntheticReceipts (String packageName, long seed) throws GeneralSecurityException {
+		this(packageName, seed, 2048);
+	}
+
+	public SyntheticReceipts (String packageName, long seed, int keySize) throws GeneralSecurityException {
+		this.packageName = packageName;
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(keySize);
+		keyPair = generator.generateKeyPair();
+		random = new Random(seed);
+		signature = Signature.getInstance("SHA1withRSA");
+	}
+
+	/** Returns the Base64 public key, as shown in the Play Console, for
+	 * {@link com.badlogic.gdx.pay.server.impl.PurchaseVerifierSignatureBase#setPublicKey(String)}. */
+	public String getPublicKey () {
+		return Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+	}
+
+	public KeyPair getKeyPair () {
+		return keyPair;
+	}
+
+	/** Creates validly signed transactions, a share of them tampered with after signing (whitespace added to the signed
+	 * data, so they pass field checks and fail only the signature check). */
+	public Transaction[] create (int count, double tamperedShare) throws GeneralSecurityException {
+		Transaction[] transactions = new Transaction[count];
+		for (int i = 0; i < count; i++) {
+			transactions[i] = create(random.nextDouble() < tamperedShare);
+		}
+		return transactions;
+	}
+
+	public synchronized Transaction create (boolean tampered) throws GeneralSecurityException {
+		int product = random.nextInt(PRODUCTS.length);
+		String orderId = "GPA." + digits(4) + '-' + digits(4) + '-' + digits(4) + '-' + digits(5);
+		long purchaseTime = System.currentTimeMillis() - random.nextInt(30 * 24 * 3600) * 1000L;
+		String purchaseToken = token();
+
+		JsonWriter json = new JsonWriter();
+		json.beginObject();
+		json.name("orderId").value(orderId);
+		json.name("packageName").value(packageName);
+		json.name("productId").value(PRODUCTS[product]);
+		json.name("purchaseTime").value(purchaseTime);
+		json.name("purchaseState").value(0);
+		json.name("purchaseToken").value(purchaseToken);
+		json.name("quantity").value(1);
+		json.name("acknowledged").value(false);
+		json.endObject();
+		String data = json.toString();
+
+		signature.initSign(keyPair.getPrivate());
+		signature.update(data.getBytes(StandardCharsets.UTF_8));
+		String signed = Base64.getEncoder().encodeToString(signature.sign());
+		if (tampered) data = data.replace("\"purchaseState\":0", "\"purchaseState\":0 ");
+
+		Transaction transaction = new Transaction();
+		transaction.setStoreName(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE);
+		transaction.setIdentifier(PRODUCTS[product]);
+		transaction.setOrderId(orderId);
+		transaction.setUserId("user-" + random.nextInt(1000000));
+		transaction.setPurchaseTime(new Date(purchaseTime));
+		transaction.setPurchaseCost(PRICES[product]);
+		transaction.setPurchaseCostCurrency("USD");
+		transaction.setTransactionData(data);
+		transaction.setTransactionDataSignature(signed);
+		return transaction;
+	}
+
+	private String digits (int count) {
+		StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			builder.append((char)('0' + random.nextInt(10)));
+		}
+		return builder.toString();
+	}
+
+	/** A purchase token looks like 24 letters, a dot and a long Base64-ish string. */
+	private String token () {
+		String letters = "abcdefghijklmnopqrstuvwxyz";
+		StringBuilder builder = new StringBuilder(160);
+		for (int i = 0; i < 24; i++) {
+			builder.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		builder.append('.');
+		byte[] bytes = new byte[96];
+		random.nextBytes(bytes);
+		return builder.append(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes)).toString();
+	}
+}
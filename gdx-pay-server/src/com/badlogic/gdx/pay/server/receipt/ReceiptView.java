@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.receipt;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+
+/** Read-only view of the JSON the Android stores put into {@link Transaction#getTransactionData()}: Google's
+ * {@code Purchase.getOriginalJson()}, Amazon's {@code Receipt.toJSON()} and Huawei's {@code InAppPurchaseData}.
+ * <p>
+ * On first access, the top-level fields are indexed in a single pass that records offsets only; nested objects and arrays
+ * are skipped. Values are then compared in place or cut from the original string on request, nothing else is
+ * materialized. The typed accessors map to each store's field names:
+ *
+ * <pre>
+ * ReceiptView receipt = ReceiptView.of(transaction);
+ * if (!receipt.matches(transaction)) ... // order ID or product differ from the signed data
+ * String packageName = receipt.packageName();
+ * </pre>
+ *
+ * Malformed JSON results in an empty view (all fields missing), never in an exception. So do duplicate top-level field
+ * names and names with escape sequences (which no store uses): parsers disagree on which duplicate counts, and a name
+ * spelled with escapes would be a duplicate nobody sees. Not thread-safe. */
+public final class ReceiptView {
+
+	/** Normalized purchase state of the different stores. */
+	public enum PurchaseState {
+		PURCHASED, PENDING, CANCELED, REFUNDED, UNKNOWN
+	}
+
+	private final String storeName;
+	private final String json;
+
+	/** Offsets per top-level field: key start/end (without quotes), value start/end. Null until indexed. */
+	private int[] offsets;
+	private int count;
+
+	public ReceiptView (String storeName, String json) {
+		this.storeName = storeName;
+		this.json = json;
+	}
+
+	/** Returns the view of the transaction data of the given transaction. */
+	public static ReceiptView of (Transaction transaction) {
+		return new ReceiptView(transaction.getStoreName(), transaction.getTransactionData());
+	}
+
+	/** True if the store puts JSON into the transaction data, i.e. the typed accessors can work. */
+	public static boolean isSupported (String storeName) {
+		return PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE.equals(storeName)
+			|| PurchaseManagerConfig.STORE_NAME_ANDROID_AMAZON.equals(storeName)
+			|| PurchaseManagerConfig.STORE_NAME_ANDROID_HUAWEI.equals(storeName);
+	}
+
+	private boolean isAmazon () {
+		return PurchaseManagerConfig.STORE_NAME_ANDROID_AMAZON.equals(storeName);
+	}
+
+	public String productId () {
+		return getString(isAmazon() ? "sku" : "productId");
+	}
+
+	public String orderId () {
+		return getString(isAmazon() ? "receiptId" : "orderId");
+	}
+
+	/** Returns the purchase token (Google, Huawei) or null. */
+	public String purchaseToken () {
+		return getString("purchaseToken");
+	}
+
+	/** Returns the package name (Google, Huawei) or null. */
+	public String packageName () {
+		return getString("packageName");
+	}
+
+	public PurchaseState purchaseState () {
+		if (isAmazon()) {
+			int field = find("cancelDate");
+			return field < 0 || isNull(field) ? PurchaseState.PURCHASED : PurchaseState.CANCELED;
+		}
+		long state = getLong("purchaseState", Long.MIN_VALUE);
+		if (state == 0) return PurchaseState.PURCHASED;
+		if (state == 1) return PurchaseState.CANCELED;
+		if (state == 2) {
+			// Google: pending, Huawei: refunded
+			return PurchaseManagerConfig.STORE_NAME_ANDROID_HUAWEI.equals(storeName) ? PurchaseState.REFUNDED
+				: PurchaseState.PENDING;
+		}
+		return PurchaseState.UNKNOWN;
+	}
+
+	/** True if order ID and product of the receipt are the ones of the transaction. Fields missing on both sides match.
+	 * Compares in place without creating strings. */
+	public boolean matches (Transaction transaction) {
+		return isEqual(isAmazon() ? "receiptId" : "orderId", transaction.getOrderId())
+			&& isEqual(isAmazon() ? "sku" : "productId", transaction.getIdentifier());
+	}
+
+	/** True if the top-level field exists. */
+	public boolean has (String field) {
+		return find(field) >= 0;
+	}
+
+	/** Returns the value of a top-level string field (escape sequences decoded) or null if missing or not a string. */
+	public String getString (String field) {
+		int i = find(field);
+		if (i < 0) return null;
+		int start = offsets[i + 2];
+		int end = offsets[i + 3];
+		if (json.charAt(start) != '"') return null;
+		String raw = json.substring(start + 1, end - 1);
+		return raw.indexOf('\\') < 0 ? raw : unescape(raw);
+	}
+
+	/** Returns the value of a top-level integer field or the default value if missing or not an integer. Quoted numbers
+	 * are accepted. */
+	public long getLong (String field, long defaultValue) {
+		int i = find(field);
+		if (i < 0) return defaultValue;
+		int start = offsets[i + 2];
+		int end = offsets[i + 3];
+		if (json.charAt(start) == '"') {
+			start++;
+			end--;
+		}
+		boolean negative = start < end && json.charAt(start) == '-';
+		if (negative) start++;
+		if (start == end || end - start > 18) return defaultValue;
+		long value = 0;
+		for (int p = start; p < end; p++) {
+			char c = json.charAt(p);
+			if (c < '0' || c > '9') return defaultValue;
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/** True if the top-level field is a string equal to the expected value, or missing/null and the expected value is null. */
+	public boolean isEqual (String field, String expected) {
+		int i = find(field);
+		if (i < 0 || isNull(i)) return expected == null;
+		if (expected == null) return false;
+		int start = offsets[i + 2];
+		int length = offsets[i + 3] - start - 2;
+		if (json.charAt(start) != '"') return false;
+		// escaped values are rare, compare them decoded (the raw text would match the escaped spelling)
+		if (json.lastIndexOf('\\', start + length) > start) return expected.equals(getString(field));
+		return length == expected.length() && json.regionMatches(start + 1, expected, 0, length);
+	}
+
+	private boolean isNull (int i) {
+		return json.startsWith("null", offsets[i + 2]);
+	}
+
+	/** Returns the offset index of the field or -1. */
+	private int find (String field) {
+		if (offsets == null) index();
+		for (int i = 0; i < count; i += 4) {
+			int start = offsets[i];
+			if (offsets[i + 1] - start == field.length() && json.regionMatches(start, field, 0, field.length())) return i;
+		}
+		return -1;
+	}
+
+	private void index () {
+		offsets = new int[4 * 16];
+		count = 0;
+		if (json == null) return;
+		int p = skipWhitespace(0);
+		if (p >= json.length() || json.charAt(p) != '{') return;
+		p = skipWhitespace(p + 1);
+		if (p < json.length() && json.charAt(p) == '}') return;
+		while (p < json.length()) {
+			if (json.charAt(p) != '"') break;
+			int keyEnd = skipString(p);
+			if (keyEnd < 0 || json.lastIndexOf('\\', keyEnd - 2) > p) break;
+			int colon = skipWhitespace(keyEnd);
+			if (colon >= json.length() || json.charAt(colon) != ':') break;
+			int valueStart = skipWhitespace(colon + 1);
+			int valueEnd = skipValue(valueStart);
+			if (valueEnd < 0 || indexOf(p + 1, keyEnd - 1) >= 0) break;
+			add(p + 1, keyEnd - 1, valueStart, valueEnd);
+			p = skipWhitespace(valueEnd);
+			if (p >= json.length()) break;
+			if (json.charAt(p) == '}') return;
+			if (json.charAt(p) != ',') break;
+			p = skipWhitespace(p + 1);
+		}
+		// malformed
+		count = 0;
+	}
+
+	/** Returns the offset index of the field already indexed with the same raw key as json[start, end) or -1. */
+	private int indexOf (int start, int end) {
+		for (int i = 0; i < count; i += 4) {
+			if (offsets[i + 1] - offsets[i] == end - start && json.regionMatches(offsets[i], json, start, end - start)) return i;
+		}
+		return -1;
+	}
+
+	private void add (int keyStart, int keyEnd, int valueStart, int valueEnd) {
+		if (count == offsets.length) {
+			int[] grown = new int[offsets.length * 2];
+			System.arraycopy(offsets, 0, grown, 0, count);
+			offsets = grown;
+		}
+		offsets[count++] = keyStart;
+		offsets[count++] = keyEnd;
+		offsets[count++] = valueStart;
+		offsets[count++] = valueEnd;
+	}
+
+	private int skipWhitespace (int p) {
+		while (p < json.length()) {
+			char c = json.charAt(p);
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') break;
+			p++;
+		}
+		return p;
+	}
+
+	/** Returns the index after the closing quote of the string starting at p or -1. */
+	private int skipString (int p) {
+		for (p++; p < json.length(); p++) {
+			char c = json.charAt(p);
+			if (c == '\\') {
+				p++;
+			} else if (c == '"') {
+				return p + 1;
+			}
+		}
+		return -1;
+	}
+
+	/** Returns the index after the value starting at p or -1. Nested values are skipped by bracket depth. */
+	private int skipValue (int p) {
+		if (p >= json.length()) return -1;
+		char first = json.charAt(p);
+		if (first == '"') return skipString(p);
+		if (first == '{' || first == '[') {
+			int depth = 0;
+			while (p < json.length()) {
+				char c = json.charAt(p);
+				if (c == '"') {
+					p = skipString(p);
+					if (p < 0) return -1;
+					continue;
+				}
+				if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					if (--depth == 0) return p + 1;
+				}
+				p++;
+			}
+			return -1;
+		}
+		// number, true, false, null
+		int start = p;
+		while (p < json.length()) {
+			char c = json.charAt(p);
+			if (c == ',' || c == '}' || c == ' ' || c == '\n' || c == '\r' || c == '\t') break;
+			p++;
+		}
+		return p > start ? p : -1;
+	}
+
+	private static String unescape (String raw) {
+		StringBuilder builder = new StringBuilder(raw.length());
+		for (int i = 0; i < raw.length(); i++) {
+			char c = raw.charAt(i);
+			if (c != '\\' || i + 1 >= raw.length()) {
+				builder.append(c);
+				continue;
+			}
+			char escaped = raw.charAt(++i);
+			switch (escaped) {
+			case 'n':
+				builder.append('\n');
+				break;
+			case 'r':
+				builder.append('\r');
+				break;
+			case 't':
+				builder.append('\t');
+				break;
+			case 'b':
+				builder.append('\b');
+				break;
+			case 'f':
+				builder.append('\f');
+				break;
+			case 'u':
+				if (i + 4 < raw.length()) {
+					try {
+						builder.append((char)Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+						i += 4;
+						break;
+					} catch (NumberFormatException e) {
+						// keep as-is
+					}
+				}
+				builder.append('\\').append(escaped);
+				break;
+			default:
+				// '"', '\\' and '/'
+				builder.append(escaped);
+			}
+		}
+		return builder.toString();
+	}
+}
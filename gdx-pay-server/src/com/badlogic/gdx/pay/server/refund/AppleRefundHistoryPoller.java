@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.codec.JsonReader;
+import com.badlogic.gdx.pay.server.state.VerificationRecord;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+
+/** Polls the refund history of the App Store Server API. Apple reports refunds per customer, so this asks for the refund
+ * history of every watched transaction ID (any transaction of the customer will do), with the revision of the previous
+ * answer as cursor: customers without new refunds cost one small request. Needs a JWT signed with your App Store Connect
+ * API key.
+ *
+ * <pre>
+ * AppleRefundHistoryPoller poller = new AppleRefundHistoryPoller(jwt,
+ *    AppleRefundHistoryPoller.entitledTransactionIds(state), cursors);
+ * </pre>
+ *
+ * The signed transactions are decoded without checking their signature, the response comes from Apple over TLS. */
+public class AppleRefundHistoryPoller extends RefundPoller {
+
+	public static final String PRODUCTION_URL = "https://api.storekit.itunes.apple.com";
+	public static final String SANDBOX_URL = "https://api.storekit-sandbox.itunes.apple.com";
+
+	private static final String[] REASONS = {"OTHER", "APP_ISSUE"};
+
+	/** Cursors are flushed every so many transaction IDs, so a crash doesn't lose much progress. */
+	private static final int FLUSH_INTERVAL = 100;
+
+	private final Supplier<? extends Iterable<String>> transactionIds;
+	private String baseUrl = PRODUCTION_URL;
+
+	/** @param jwt Returns a valid JWT for the App Store Server API.
+	 * @param transactionIds Returns the transaction IDs (order IDs) whose customers are watched for refunds, one per customer
+	 *           is enough. See {@link #entitledTransactionIds(VerificationState)}. */
+	public AppleRefundHistoryPoller (Supplier<String> jwt, Supplier<? extends Iterable<String>> transactionIds,
+		CursorStore cursors) {
+		super(PurchaseManagerConfig.STORE_NAME_IOS_APPLE, jwt, cursors);
+		this.transactionIds = transactionIds;
+	}
+
+	/** Sets the scheme, host and port of the API, e.g. {@link #SANDBOX_URL} or a local stand-in. {@link #PRODUCTION_URL} by
+	 * default. */
+	public void setBaseUrl (String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/** Watches the Apple purchases of the state that are entitled, i.e. could still be refunded. */
+	public static Supplier<Iterable<String>> entitledTransactionIds (final VerificationState state) {
+		return new Supplier<Iterable<String>>() {
+			@Override
+			public Iterable<String> get () {
+				List<String> ids = new ArrayList<String>();
+				for (VerificationRecord record : state.records()) {
+					if (record.isEntitled() && PurchaseManagerConfig.STORE_NAME_IOS_APPLE.equals(record.getStoreName())) {
+						ids.add(record.getOrderId());
+					}
+				}
+				return ids;
+			}
+		};
+	}
+
+	@Override
+	public int poll () throws IOException {
+		int count = 0;
+		int unflushed = 0;
+		try {
+			for (String transactionId : transactionIds.get()) {
+				try {
+					count += poll(transactionId);
+				} catch (StatusException e) {
+					// unknown to Apple (e.g. a sandbox purchase): skip it, anything else ends this poll
+					if (e.getStatus() != 404) throw e;
+					log("Refund history of " + transactionId + " not found.");
+				}
+				if (++unflushed == FLUSH_INTERVAL) {
+					cursors.flush();
+					unflushed = 0;
+				}
+			}
+		} finally {
+			cursors.flush();
+		}
+		return count;
+	}
+
+	/** Fetches the new refunds of one customer. */
+	private int poll (String transactionId) throws IOException {
+		String cursorName = "apple:" + transactionId;
+		String revision = cursors.get(cursorName);
+		int count = 0;
+		boolean hasMore;
+		do {
+			String url = baseUrl + "/inApps/v2/refund/lookup/" + encode(transactionId)
+				+ (revision != null ? "?revision=" + encode(revision) : "");
+			JsonReader reader = new JsonReader(request("GET", url, null));
+			hasMore = false;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("signedTransactions")) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						Reversal reversal = decode(reader.nextString());
+						if (reversal != null) {
+							apply(reversal);
+							count++;
+						}
+					}
+					reader.endArray();
+				} else if (name.equals("revision")) {
+					revision = reader.nextStringOrNull();
+				} else if (name.equals("hasMore")) {
+					hasMore = reader.nextBoolean();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			// the page was pushed, so its revision can be stored
+			if (revision != null) cursors.put(cursorName, revision);
+		} while (hasMore);
+		return count;
+	}
+
+	/** Decodes the payload of a signed transaction (JWS), returns null if it isn't revoked. */
+	private Reversal decode (String jws) {
+		int start = jws.indexOf('.');
+		int end = jws.indexOf('.', start + 1);
+		if (start < 0 || end < 0) throw new IllegalArgumentException("Not a JWS: " + jws);
+		String payload = new String(Base64.getUrlDecoder().decode(jws.substring(start + 1, end)), StandardCharsets.UTF_8);
+
+		String transactionId = null;
+		long revocationDate = -1;
+		String reason = null;
+		JsonReader reader = new JsonReader(payload);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonReader.Token.NULL) {
+				reader.nextNull();
+			} else if (name.equals("transactionId")) {
+				transactionId = reader.nextString();
+			} else if (name.equals("revocationDate")) {
+				revocationDate = reader.nextLong();
+			} else if (name.equals("revocationReason")) {
+				int code = reader.nextInt();
+				reason = code >= 0 && code < REASONS.length ? REASONS[code] : String.valueOf(code);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (transactionId == null || revocationDate < 0) return null;
+		return new Reversal(getStoreName(), transactionId, revocationDate, reason);
+	}
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.IOException;
+
+/** Persists the continuation cursors of {@link RefundPoller}s, so a restarted poller only fetches what's new. Implement it
+ * on your database, or use {@link FileCursorStore}. Must be thread-safe. */
+public interface CursorStore {
+
+	/** Returns the cursor stored under the name or null if there is none. */
+	String get (String name) throws IOException;
+
+	/** Stores a cursor. Not necessarily durable before {@link #flush()}. */
+	void put (String name, String cursor) throws IOException;
+
+	/** Makes all cursors put so far durable. */
+	void flush () throws IOException;
+}
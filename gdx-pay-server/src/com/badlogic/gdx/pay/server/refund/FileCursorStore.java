@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/** Keeps cursors in memory and writes them to a properties file on {@link #flush()}, to a temporary file first and then
+ * moved in place, so a crash never leaves a broken file. Fine for thousands of cursors; with one cursor per customer (see
+ * {@link AppleRefundHistoryPoller}) and many customers, store them in your database instead. */
+public class FileCursorStore implements CursorStore {
+
+	private final File file;
+	private final Map<String, String> cursors = new TreeMap<String, String>();
+	private boolean dirty;
+
+	/** Loads the cursors from the file if it exists. */
+	public FileCursorStore (File file) throws IOException {
+		this.file = file;
+		if (file.exists()) {
+			Properties properties = new Properties();
+			Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+			try {
+				properties.load(reader);
+			} finally {
+				reader.close();
+			}
+			for (String name : properties.stringPropertyNames()) {
+				cursors.put(name, properties.getProperty(name));
+			}
+		}
+	}
+
+	@Override
+	public synchronized String get (String name) {
+		return cursors.get(name);
+	}
+
+	@Override
+	public synchronized void put (String name, String cursor) {
+		String previous = cursor != null ? cursors.put(name, cursor) : cursors.remove(name);
+		if (previous == null ? cursor != null : !previous.equals(cursor)) dirty = true;
+	}
+
+	@Override
+	public synchronized void flush () throws IOException {
+		if (!dirty) return;
+		Properties properties = new Properties();
+		properties.putAll(cursors);
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			FileOutputStream stream = new FileOutputStream(temp);
+			Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+			try {
+				properties.store(writer, null);
+				writer.flush();
+				stream.getFD().sync();
+			} finally {
+				writer.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			dirty = false;
+		} finally {
+			temp.delete();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.codec.JsonReader;
+
+/** Polls the voided purchases API of the Google Play Developer API for refunded, cancelled and charged back purchases of
+ * one app. Needs an OAuth access token of a service account with access to the app (e.g. from google-auth-library).
+ * <p>
+ * The cursor is the newest voided time seen. The next poll asks for everything voided since then, so the purchase at the
+ * cursor time is reported twice, which the layers pushed to don't mind. Google only keeps 30 days, so a poller down for
+ * longer misses refunds: re-verify those purchases. */
+public class GoogleVoidedPurchasesPoller extends RefundPoller {
+
+	public static final String PRODUCTION_URL = "https://androidpublisher.googleapis.com";
+
+	/** Google rejects start times older than 30 days, keep some margin. */
+	private static final long MAX_LOOKBACK_MILLIS = TimeUnit.DAYS.toMillis(30) - TimeUnit.HOURS.toMillis(1);
+
+	private static final String[] REASONS = {"OTHER", "REMORSE", "NOT_RECEIVED", "DEFECTIVE", "ACCIDENTAL_PURCHASE", "FRAUD",
+		"FRIENDLY_FRAUD", "CHARGEBACK"};
+
+	private final String packageName;
+	private String baseUrl = PRODUCTION_URL;
+	private boolean includeSubscriptions = true;
+
+	/** @param accessToken Returns a valid OAuth access token for the androidpublisher scope. */
+	public GoogleVoidedPurchasesPoller (String packageName, Supplier<String> accessToken, CursorStore cursors) {
+		super(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE, accessToken, cursors);
+		this.packageName = packageName;
+	}
+
+	/** Sets the scheme, host and port of the API, e.g. of a local stand-in. {@link #PRODUCTION_URL} by default. */
+	public void setBaseUrl (String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/** Whether voided subscriptions are reported too (type=1), true by default. Otherwise only in-app products. */
+	public void setIncludeSubscriptions (boolean includeSubscriptions) {
+		this.includeSubscriptions = includeSubscriptions;
+	}
+
+	@Override
+	public int poll () throws IOException {
+		String cursorName = "google:" + packageName;
+		String cursor = cursors.get(cursorName);
+		long startTime = Math.max(cursor != null ? Long.parseLong(cursor) : 0,
+			System.currentTimeMillis() - MAX_LOOKBACK_MILLIS);
+
+		long newest = startTime;
+		int count = 0;
+		String pageToken = null;
+		do {
+			StringBuilder url = new StringBuilder(baseUrl).append("/androidpublisher/v3/applications/")
+				.append(encode(packageName)).append("/purchases/voidedpurchases?maxResults=1000&startTime=").append(startTime);
+			if (includeSubscriptions) url.append("&type=1");
+			if (pageToken != null) url.append("&token=").append(encode(pageToken));
+
+			JsonReader reader = new JsonReader(request("GET", url.toString(), null));
+			pageToken = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("voidedPurchases")) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						Reversal reversal = readVoidedPurchase(reader);
+						if (reversal == null) continue;
+						apply(reversal);
+						newest = Math.max(newest, reversal.getReversalTime());
+						count++;
+					}
+					reader.endArray();
+				} else if (name.equals("tokenPagination")) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						if (reader.nextName().equals("nextPageToken")) {
+							pageToken = reader.nextStringOrNull();
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} while (pageToken != null);
+
+		// only after all pages: results aren't ordered by voided time, a crash mid-way must start over
+		if (cursor == null || newest > Long.parseLong(cursor)) {
+			cursors.put(cursorName, String.valueOf(newest));
+			cursors.flush();
+		}
+		return count;
+	}
+
+	/** Returns the reversal or null if the entry has no order ID (e.g. purchases made before order IDs existed). */
+	private Reversal readVoidedPurchase (JsonReader reader) {
+		String orderId = null;
+		long voidedTime = 0;
+		String reason = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("orderId")) {
+				orderId = reader.nextStringOrNull();
+			} else if (name.equals("voidedTimeMillis")) {
+				// int64 values are strings in Google's JSON
+				voidedTime = Long.parseLong(reader.nextString());
+			} else if (name.equals("voidedReason")) {
+				int code = Integer.parseInt(reader.nextString());
+				reason = code >= 0 && code < REASONS.length ? REASONS[code] : String.valueOf(code);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return orderId != null ? new Reversal(getStoreName(), orderId, voidedTime, reason) : null;
+	}
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.badlogic.gdx.pay.server.cache.CachingPurchaseVerifier;
+import com.badlogic.gdx.pay.server.cache.VerificationCache;
+import com.badlogic.gdx.pay.server.jfr.RemoteCallEvent;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+
+/** Base of the pollers that ingest refunds from the stores incrementally, so refunds take effect without re-verifying
+ * purchases. Every poll fetches what's new since the cursor persisted in the {@link CursorStore}, then pushes each
+ * {@link Reversal} to the {@link VerificationState} ({@link VerificationState#reverse}), invalidates it in the
+ * {@link VerificationCache}s and notifies the {@link ReversalListener}s (e.g. a {@link ReversalJournal} for replay after a
+ * restart).
+ *
+ * <pre>
+ * GoogleVoidedPurchasesPoller poller = new GoogleVoidedPurchasesPoller("com.my.game", accessToken, cursors);
+ * poller.setVerificationState(state);
+ * poller.addCache(cache);
+ * poller.addListener(journal);
+ * poller.start(15, TimeUnit.MINUTES);
+ * </pre>
+ *
+ * Cursors only advance after the reversals before them were pushed, so after a crash reversals may be pushed twice but
+ * are never lost. Configure before {@link #start}. */
+public abstract class RefundPoller {
+
+	private final String storeName;
+	/** Returns the current OAuth/JWT bearer token for the store API. */
+	private final Supplier<String> bearerToken;
+	protected final CursorStore cursors;
+
+	private VerificationState state;
+	private final CopyOnWriteArrayList<VerificationCache> caches = new CopyOnWriteArrayList<VerificationCache>();
+	private final CopyOnWriteArrayList<ReversalListener> listeners = new CopyOnWriteArrayList<ReversalListener>();
+	private int connectTimeoutMillis = 10000;
+	private int readTimeoutMillis = 30000;
+
+	private ScheduledExecutorService executor;
+	private volatile long reversalCount;
+
+	protected RefundPoller (String storeName, Supplier<String> bearerToken, CursorStore cursors) {
+		this.storeName = storeName;
+		this.bearerToken = bearerToken;
+		this.cursors = cursors;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	/** Sets the state reversals are recorded to, null for none. */
+	public void setVerificationState (VerificationState state) {
+		this.state = state;
+	}
+
+	/** Adds a cache reversed purchases are invalidated in, so the next verification doesn't return a cached VALID. */
+	public void addCache (VerificationCache cache) {
+		caches.add(cache);
+	}
+
+	public void addListener (ReversalListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener (ReversalListener listener) {
+		listeners.remove(listener);
+	}
+
+	public void setTimeouts (int connectTimeoutMillis, int readTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	/** Fetches all reversals since the last poll and pushes them. Called periodically after {@link #start}, or call it
+	 * yourself from your scheduler.
+	 * @return The number of reversals pushed. */
+	public abstract int poll () throws IOException;
+
+	/** Pushes a reversal to state, caches and listeners. Call it before advancing the cursor past the reversal.
+	 * @throws IOException If a listener failed, the poll must fail without advancing the cursor. */
+	protected void apply (Reversal reversal) throws IOException {
+		if (state != null) state.reverse(reversal.getStoreName(), reversal.getOrderId(), reversal.getReversalTime());
+		if (!caches.isEmpty()) {
+			String key = CachingPurchaseVerifier.key(reversal.getStoreName(), reversal.getOrderId());
+			for (VerificationCache cache : caches) {
+				cache.invalidate(key);
+			}
+		}
+		for (ReversalListener listener : listeners) {
+			listener.reversed(reversal);
+		}
+		reversalCount++;
+	}
+
+	/** Returns the number of reversals pushed since this poller was created. */
+	public long getReversalCount () {
+		return reversalCount;
+	}
+
+	/** Polls on a background thread, first right away, then with the given delay between the end of a poll and the start of
+	 * the next. */
+	public synchronized void start (long delay, TimeUnit unit) {
+		if (executor != null) return;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "gdx-pay-refunds-" + storeName);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					poll();
+				} catch (IOException e) {
+					error("Refund poll failed: " + e, e);
+				} catch (RuntimeException e) {
+					error("Refund poll failed: " + e, e);
+				}
+			}
+		}, 0, delay, unit);
+	}
+
+	/** Stops polling, waiting for a running poll to finish. */
+	public void stop () {
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			executor = this.executor;
+			this.executor = null;
+		}
+		if (executor == null) return;
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Sends a request with the bearer token and returns the response body. Statuses other than 2xx throw a
+	 * {@link StatusException}. */
+	protected String request (String method, String url, String body) throws IOException {
+		RemoteCallEvent event = new RemoteCallEvent();
+		event.begin();
+		int httpStatus = 0;
+		int size = 0;
+		try {
+			HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
+			conn.setRequestMethod(method);
+			conn.setConnectTimeout(connectTimeoutMillis);
+			conn.setReadTimeout(readTimeoutMillis);
+			conn.setRequestProperty("Accept", "application/json");
+			String token = bearerToken.get();
+			if (token != null) conn.setRequestProperty("Authorization", "Bearer " + token);
+			if (body != null) {
+				conn.setDoOutput(true);
+				conn.setRequestProperty("Content-Type", "application/json");
+				conn.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			}
+			httpStatus = conn.getResponseCode();
+			InputStream in = httpStatus < 400 ? conn.getInputStream() : conn.getErrorStream();
+			String response = in != null ? read(in) : "";
+			size = response.length();
+			if (httpStatus / 100 != 2) throw new StatusException(httpStatus, response);
+			return response;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.setStore(storeName);
+				event.setUrl(url);
+				event.setHttpStatus(httpStatus);
+				event.tag(httpStatus != 0 ? String.valueOf(httpStatus) : "error", size);
+				event.commit();
+			}
+		}
+	}
+
+	/** URL-encodes a path segment or query parameter value. */
+	protected static String encode (String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+	}
+
+	private static String read (InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			in.close();
+		}
+	}
+
+	/** A store API answered with an error status. */
+	public static class StatusException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		public StatusException (int status, String body) {
+			super("HTTP " + status + (body != null && !body.isEmpty() ? ": " + body : ""));
+			this.status = status;
+		}
+
+		public int getStatus () {
+			return status;
+		}
+	}
+
+	protected void log (String message) {
+		System.out.println(message);
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+/** A purchase refunded, revoked or charged back at the store, as reported by a {@link RefundPoller}. Immutable. */
+public final class Reversal {
+
+	private final String storeName;
+	private final String orderId;
+	private final long reversalTime;
+	private final String reason;
+
+	/** @param reason The store's reason for the reversal, null for unknown. */
+	public Reversal (String storeName, String orderId, long reversalTime, String reason) {
+		this.storeName = storeName;
+		this.orderId = orderId;
+		this.reversalTime = reversalTime;
+		this.reason = reason;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	public String getOrderId () {
+		return orderId;
+	}
+
+	/** The time of the reversal in milliseconds since the epoch. */
+	public long getReversalTime () {
+		return reversalTime;
+	}
+
+	/** The store's reason for the reversal, e.g. "CUSTOMER_REQUEST" or "FRAUD", null for unknown. */
+	public String getReason () {
+		return reason;
+	}
+
+	@Override
+	public String toString () {
+		return storeName + " " + orderId + " reversed at " + reversalTime + (reason != null ? " (" + reason + ")" : "");
+	}
+}
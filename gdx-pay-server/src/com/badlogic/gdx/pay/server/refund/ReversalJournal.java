@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.badlogic.gdx.pay.codec.JsonReader;
+import com.badlogic.gdx.pay.codec.JsonWriter;
+import com.badlogic.gdx.pay.server.state.StateReplay;
+import com.badlogic.gdx.pay.server.state.StateSnapshot;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+
+/** Appends every ingested reversal to a file as one line of JSON and replays them into a {@link VerificationState} restored
+ * from a {@link StateSnapshot}, so refunds ingested after the snapshot aren't lost on restart:
+ *
+ * <pre>
+ * ReversalJournal journal = new ReversalJournal(new File("reversals.ndjson"));
+ * StateSnapshot.restore(snapshotFile, state, journal);
+ * poller.addListener(journal);
+ * </pre>
+ *
+ * Every line is written and flushed to the OS before the poller advances its cursor; if writing fails, so does the poll
+ * and the cursor stays. A line torn by a crash is skipped on replay, the poller reports that reversal again. */
+public class ReversalJournal implements ReversalListener, StateReplay, Closeable {
+
+	private final File file;
+	private final FileOutputStream out;
+
+	public ReversalJournal (File file) throws IOException {
+		this.file = file;
+		this.out = new FileOutputStream(file, true);
+	}
+
+	@Override
+	public synchronized void reversed (Reversal reversal) throws IOException {
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject();
+		writer.name("storeName").value(reversal.getStoreName());
+		writer.name("orderId").value(reversal.getOrderId());
+		writer.name("reversalTime").value(reversal.getReversalTime());
+		if (reversal.getReason() != null) writer.name("reason").value(reversal.getReason());
+		writer.name("ingestedAt").value(System.currentTimeMillis());
+		writer.endObject();
+		// a torn line from a crash before gets its own line, so only that one is lost
+		out.write(('\n' + writer.toString()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Applies all reversals ingested at or after the given time. */
+	@Override
+	public int replay (long sinceMillis, VerificationState state) {
+		int count = 0;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isEmpty()) continue;
+					try {
+						if (replay(line, sinceMillis, state)) count++;
+					} catch (IllegalArgumentException e) {
+						log("Skipping malformed journal line: " + line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			error("Replaying reversals failed: " + e, e);
+		}
+		return count;
+	}
+
+	private static boolean replay (String line, long sinceMillis, VerificationState state) {
+		String storeName = null, orderId = null;
+		long reversalTime = -1, ingestedAt = -1;
+		JsonReader reader = new JsonReader(line);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("storeName")) {
+				storeName = reader.nextString();
+			} else if (name.equals("orderId")) {
+				orderId = reader.nextString();
+			} else if (name.equals("reversalTime")) {
+				reversalTime = reader.nextLong();
+			} else if (name.equals("ingestedAt")) {
+				ingestedAt = reader.nextLong();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (storeName == null || orderId == null || reversalTime < 0) throw new IllegalArgumentException("Incomplete");
+		if (ingestedAt < sinceMillis) return false;
+		state.reverse(storeName, orderId, reversalTime);
+		return true;
+	}
+
+	@Override
+	public synchronized void close () throws IOException {
+		out.close();
+	}
+
+	protected void log (String message) {
+		System.out.println(message);
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
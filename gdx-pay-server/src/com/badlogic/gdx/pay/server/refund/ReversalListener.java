@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.refund;
+
+import java.io.IOException;
+
+/** Notified of every reversal a {@link RefundPoller} ingests, e.g. to revoke items in your database. Reversals may be
+ * reported more than once (after a crash, or if the store reports them again), so implementations must be idempotent. */
+public interface ReversalListener {
+
+	/** @throws IOException Fails the poll: the poller's cursor doesn't advance past the reversal, so the next poll pushes it
+	 *            again. */
+	void reversed (Reversal reversal) throws IOException;
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.revenue;
+
+import java.util.Arrays;
+
+/** Open-addressing hash map from long keys to int values, without boxing. Keys must not be 0, which marks free slots. Not
+ * thread-safe. */
+final class LongIntMap {
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	LongIntMap (int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/** Returns the value of the key or -1 if it has none. */
+	int get (long key) {
+		for (int i = index(key);; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) return values[i];
+			if (k == 0) return -1;
+		}
+	}
+
+	/** Sets the value of the key and returns the previous value or -1 if it had none. */
+	int put (long key, int value) {
+		for (int i = index(key);; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				int previous = values[i];
+				values[i] = value;
+				return previous;
+			}
+			if (k == 0) {
+				keys[i] = key;
+				values[i] = value;
+				if (++size * 2 > keys.length) grow();
+				return -1;
+			}
+		}
+	}
+
+	int size () {
+		return size;
+	}
+
+	void clear () {
+		if (size == 0) return;
+		Arrays.fill(keys, 0);
+		size = 0;
+	}
+
+	private int index (long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	private void grow () {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
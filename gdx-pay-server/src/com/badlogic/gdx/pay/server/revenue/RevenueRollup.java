@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.revenue;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationListener;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.util.Hashing;
+
+/** Live revenue totals per offer, store and currency over a rolling time window, updated from verification results instead
+ * of warehouse queries.
+ *
+ * <pre>
+ * RevenueRollup rollup = new RevenueRollup(TimeUnit.MINUTES.toMillis(1), 24 * 60); // last 24 hours by minute
+ * verifier.addListener(rollup);
+ * ...
+ * RevenueTotal total = rollup.total(Dimension.OFFER, "pro_monthly", "USD");
+ * RevenueTotal[] lastDay = rollup.series(Dimension.STORE, "GooglePlay", "EUR"); // one per minute
+ * </pre>
+ *
+ * Valid purchases are added to the bucket of their purchase time. Valid transactions with a reversal time are netted out
+ * in the bucket of the reversal time, so the window shows what was earned and refunded in it. Transactions are counted
+ * once per bucket by store and order ID, so clients verifying the same purchase on every start don't inflate the totals.
+ * Purchases and reversals older than the window are ignored, see {@link #getLateCount()}.
+ * <p>
+ * Recording and {@link #total} are O(1): totals are kept per bucket and for the whole window, expired buckets are
+ * subtracted from the window totals as the window moves. All keys are packed into longs in primitive hash maps. Thread-safe,
+ * the lock is held for a few map operations per event. */
+public class RevenueRollup implements VerificationListener {
+
+	/** What totals are grouped by. Amounts are never added across currencies, so every group is also split by currency. */
+	public enum Dimension {
+		/** By offer identifier ({@link Transaction#getIdentifier()}). */
+		OFFER,
+		/** By store name. */
+		STORE,
+		/** By currency only. */
+		CURRENCY
+	}
+
+	private static final int PURCHASE = 1;
+	private static final int REVERSAL = 2;
+
+	private final long bucketMillis;
+	private final int bucketCount;
+	private final Clock clock;
+
+	private final Totals[] buckets;
+	/** Per bucket: transaction key -> PURCHASE and/or REVERSAL already counted. */
+	private final LongIntMap[] seen;
+	private final Totals window = new Totals();
+	/** The bucket number (time / bucketMillis) of the newest bucket. */
+	private long current = Long.MIN_VALUE;
+
+	/** Interned offer identifiers, store names and currencies, id 0 is null. */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+
+	private long lateCount;
+
+	public RevenueRollup (long bucketMillis, int bucketCount) {
+		this(bucketMillis, bucketCount, Clock.systemUTC());
+	}
+
+	/** @param clock Determines which buckets have expired, e.g. a fixed clock to replay historical transactions. */
+	public RevenueRollup (long bucketMillis, int bucketCount, Clock clock) {
+		if (bucketMillis < 1) throw new IllegalArgumentException("bucketMillis must be >= 1: " + bucketMillis);
+		if (bucketCount < 1) throw new IllegalArgumentException("bucketCount must be >= 1: " + bucketCount);
+		this.bucketMillis = bucketMillis;
+		this.bucketCount = bucketCount;
+		this.clock = clock;
+		buckets = new Totals[bucketCount];
+		seen = new LongIntMap[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new Totals();
+			seen[i] = new LongIntMap(16);
+		}
+		names.add(null);
+	}
+
+	@Override
+	public void verified (Transaction transaction, String source, VerificationResult result, long durationNanos) {
+		if (result == VerificationResult.VALID) record(transaction);
+	}
+
+	/** Records a transaction known to be valid, e.g. when replaying history. */
+	public synchronized void record (Transaction transaction) {
+		long now = clock.millis();
+		advance(now);
+
+		long key = transactionKey(transaction);
+		int offer = id(transaction.getIdentifier());
+		int store = id(transaction.getStoreName());
+		int currency = id(transaction.getPurchaseCostCurrency());
+		long cost = transaction.getPurchaseCost();
+
+		long purchaseTime = transaction.getPurchaseTime() != null ? transaction.getPurchaseTime().getTime() : now;
+		int bucket = bucketOf(purchaseTime);
+		if (bucket < 0) {
+			lateCount++;
+		} else if (firstTime(bucket, key, PURCHASE)) {
+			add(bucket, offer, store, currency, 1, 0, cost, 0);
+		}
+
+		if (transaction.getReversalTime() != null) {
+			bucket = bucketOf(transaction.getReversalTime().getTime());
+			if (bucket < 0) {
+				lateCount++;
+			} else if (firstTime(bucket, key, REVERSAL)) {
+				add(bucket, offer, store, currency, 0, 1, 0, cost);
+			}
+		}
+	}
+
+	private void add (int bucket, int offer, int store, int currency, int count, int refundCount, long gross, long refunded) {
+		Totals totals = buckets[bucket];
+		for (int i = 0; i < 3; i++) {
+			long key = i == 0 ? pack(Dimension.OFFER, offer, currency)
+				: i == 1 ? pack(Dimension.STORE, store, currency) : pack(Dimension.CURRENCY, currency, currency);
+			totals.add(key, count, refundCount, gross, refunded);
+			window.add(key, count, refundCount, gross, refunded);
+		}
+	}
+
+	/** Marks the transaction as counted in the bucket, returns false if it already was. Transactions without order ID and
+	 * data can't be told apart and are always counted. */
+	private boolean firstTime (int bucket, long key, int flag) {
+		if (key == 0) return true;
+		int flags = seen[bucket].get(key);
+		if (flags > 0 && (flags & flag) != 0) return false;
+		seen[bucket].put(key, Math.max(flags, 0) | flag);
+		return true;
+	}
+
+	private static long transactionKey (Transaction transaction) {
+		String id = transaction.getOrderId() != null ? transaction.getOrderId() : transaction.getTransactionData();
+		if (id == null) return 0;
+		long key = Hashing.hash64(transaction.getStoreName(), id);
+		return key != 0 ? key : 1;
+	}
+
+	/** Moves the window to the given time, expiring buckets that fell out of it. */
+	private void advance (long now) {
+		long bucket = Math.floorDiv(now, bucketMillis);
+		if (bucket <= current) return;
+		long expire = current == Long.MIN_VALUE ? 0 : Math.min(bucket - current, bucketCount);
+		for (long i = 1; i <= expire; i++) {
+			int index = (int)Math.floorMod(current + i, (long)bucketCount);
+			window.subtract(buckets[index]);
+			buckets[index].clear();
+			seen[index].clear();
+		}
+		current = bucket;
+	}
+
+	/** Returns the ring index of the bucket of the time, the newest bucket for future times and -1 if too old. */
+	private int bucketOf (long time) {
+		long bucket = Math.min(Math.floorDiv(time, bucketMillis), current);
+		if (bucket <= current - bucketCount) return -1;
+		return (int)Math.floorMod(bucket, (long)bucketCount);
+	}
+
+	private int id (String name) {
+		if (name == null) return 0;
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+
+	private static long pack (Dimension dimension, int name, int currency) {
+		// ordinal + 1 so no key is 0, which LongIntMap reserves
+		return (long)(dimension.ordinal() + 1) << 62 | (long)name << 31 | currency;
+	}
+
+	/** Returns the totals over the whole window. O(1). */
+	public synchronized RevenueTotal total (Dimension dimension, String name, String currency) {
+		advance(clock.millis());
+		return window.get(dimension, name, currency);
+	}
+
+	/** Returns all totals of the dimension over the whole window, e.g. per offer. */
+	public synchronized List<RevenueTotal> totals (Dimension dimension) {
+		advance(clock.millis());
+		List<RevenueTotal> totals = new ArrayList<RevenueTotal>();
+		for (int i = 0; i < window.size; i++) {
+			long key = window.keys[i];
+			if ((int)(key >>> 62) - 1 != dimension.ordinal() || window.counts[i] + window.refundCounts[i] == 0) continue;
+			totals.add(window.total(i, dimension));
+		}
+		return totals;
+	}
+
+	/** Returns the totals per bucket, oldest first, the last one being the current bucket. O(bucket count). */
+	public synchronized RevenueTotal[] series (Dimension dimension, String name, String currency) {
+		advance(clock.millis());
+		RevenueTotal[] series = new RevenueTotal[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			int index = (int)Math.floorMod(current - bucketCount + 1 + i, (long)bucketCount);
+			series[i] = buckets[index].get(dimension, name, currency);
+		}
+		return series;
+	}
+
+	/** Returns the start time (epoch milliseconds) of the oldest bucket in the window. */
+	public synchronized long getWindowStart () {
+		advance(clock.millis());
+		return (current - bucketCount + 1) * bucketMillis;
+	}
+
+	/** Returns the number of purchases and reversals ignored because they were older than the window. */
+	public synchronized long getLateCount () {
+		return lateCount;
+	}
+
+	/** Totals per packed key, in parallel arrays indexed through a {@link LongIntMap}. */
+	private final class Totals {
+		final LongIntMap index = new LongIntMap(16);
+		long[] keys = new long[16];
+		int[] counts = new int[16];
+		int[] refundCounts = new int[16];
+		long[] gross = new long[16];
+		long[] refunded = new long[16];
+		int size;
+
+		void add (long key, int count, int refundCount, long grossAmount, long refundedAmount) {
+			int i = index.get(key);
+			if (i < 0) {
+				if (size == keys.length) {
+					keys = Arrays.copyOf(keys, size * 2);
+					counts = Arrays.copyOf(counts, size * 2);
+					refundCounts = Arrays.copyOf(refundCounts, size * 2);
+					gross = Arrays.copyOf(gross, size * 2);
+					refunded = Arrays.copyOf(refunded, size * 2);
+				}
+				i = size++;
+				keys[i] = key;
+				index.put(key, i);
+			}
+			counts[i] += count;
+			refundCounts[i] += refundCount;
+			gross[i] += grossAmount;
+			refunded[i] += refundedAmount;
+		}
+
+		void subtract (Totals other) {
+			for (int i = 0; i < other.size; i++) {
+				add(other.keys[i], -other.counts[i], -other.refundCounts[i], -other.gross[i], -other.refunded[i]);
+			}
+		}
+
+		void clear () {
+			// keep the arrays, the same keys come back in the next round, but zero them: add() sums onto reused slots
+			Arrays.fill(counts, 0, size, 0);
+			Arrays.fill(refundCounts, 0, size, 0);
+			Arrays.fill(gross, 0, size, 0);
+			Arrays.fill(refunded, 0, size, 0);
+			index.clear();
+			size = 0;
+		}
+
+		RevenueTotal get (Dimension dimension, String name, String currency) {
+			Integer nameId = name != null ? ids.get(name) : Integer.valueOf(0);
+			Integer currencyId = currency != null ? ids.get(currency) : Integer.valueOf(0);
+			int i = nameId != null && currencyId != null ? index.get(pack(dimension, nameId, currencyId)) : -1;
+			return i >= 0 ? total(i, dimension) : new RevenueTotal(dimension, name, currency, 0, 0, 0, 0);
+		}
+
+		RevenueTotal total (int i, Dimension dimension) {
+			long key = keys[i];
+			String name = names.get((int)(key >>> 31) & Integer.MAX_VALUE);
+			String currency = names.get((int)key & Integer.MAX_VALUE);
+			return new RevenueTotal(dimension, name, currency, counts[i], refundCounts[i], gross[i], refunded[i]);
+		}
+	}
+}
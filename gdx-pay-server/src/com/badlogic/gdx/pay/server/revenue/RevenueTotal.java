@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.revenue;
+
+import com.badlogic.gdx.pay.server.revenue.RevenueRollup.Dimension;
+
+/** Revenue of one offer, store or currency in one currency over a time range, see {@link RevenueRollup}. Amounts are in
+ * the lowest denomination of the currency, like {@link com.badlogic.gdx.pay.Transaction#getPurchaseCost()}. Immutable. */
+public final class RevenueTotal {
+
+	private final Dimension dimension;
+	private final String name;
+	private final String currency;
+	private final int count;
+	private final int refundCount;
+	private final long grossAmount;
+	private final long refundedAmount;
+
+	public RevenueTotal (Dimension dimension, String name, String currency, int count, int refundCount, long grossAmount,
+		long refundedAmount) {
+		this.dimension = dimension;
+		this.name = name;
+		this.currency = currency;
+		this.count = count;
+		this.refundCount = refundCount;
+		this.grossAmount = grossAmount;
+		this.refundedAmount = refundedAmount;
+	}
+
+	public Dimension getDimension () {
+		return dimension;
+	}
+
+	/** The offer identifier, store name or currency code, null if the transactions didn't have one. */
+	public String getName () {
+		return name;
+	}
+
+	/** The currency of the amounts, null for transactions without currency. */
+	public String getCurrency () {
+		return currency;
+	}
+
+	/** The number of purchases. */
+	public int getCount () {
+		return count;
+	}
+
+	/** The number of reversals (refunds and cancellations). */
+	public int getRefundCount () {
+		return refundCount;
+	}
+
+	/** The sum of the purchase costs. */
+	public long getGrossAmount () {
+		return grossAmount;
+	}
+
+	/** The sum of the purchase costs of reversed purchases. */
+	public long getRefundedAmount () {
+		return refundedAmount;
+	}
+
+	/** The gross amount minus the refunded amount. */
+	public long getNetAmount () {
+		return grossAmount - refundedAmount;
+	}
+
+	@Override
+	public String toString () {
+		return dimension + " " + name + ": " + count + " purchases, " + refundCount + " reversals, net " + getNetAmount() + " "
+			+ currency;
+	}
+}
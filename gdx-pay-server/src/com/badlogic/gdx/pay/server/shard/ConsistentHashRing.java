@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.shard;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.badlogic.gdx.pay.server.util.Hashing;
+
+/** Places keys on nodes by consistent hashing. Every node owns a number of virtual nodes (points on the ring), so load is
+ * spread evenly and adding or removing a node only moves about 1/n of the keys. Immutable and thread-safe: use
+ * {@link #withNode(String)} and {@link #withoutNode(String)} to derive a ring for changed membership. */
+public final class ConsistentHashRing {
+
+	/** Default number of virtual nodes per node. */
+	public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+	private final List<String> nodes;
+	private final int virtualNodes;
+
+	/** Sorted ring positions and the index into {@link #nodes} owning each position. */
+	private final long[] points;
+	private final int[] owners;
+
+	public ConsistentHashRing (Set<String> nodes) {
+		this(nodes, DEFAULT_VIRTUAL_NODES);
+	}
+
+	public ConsistentHashRing (Set<String> nodes, int virtualNodes) {
+		if (virtualNodes < 1) throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+		this.nodes = Collections.unmodifiableList(Arrays.asList(nodes.toArray(new String[nodes.size()])));
+		this.virtualNodes = virtualNodes;
+
+		int count = this.nodes.size() * virtualNodes;
+		long[] keys = new long[count];
+		int i = 0;
+		for (int node = 0; node < this.nodes.size(); node++) {
+			String id = this.nodes.get(node);
+			for (int v = 0; v < virtualNodes; v++) {
+				keys[i++] = Hashing.hash64(id, Integer.toString(v));
+			}
+		}
+		// sort positions together with their owners
+		Integer[] order = new Integer[count];
+		for (int k = 0; k < count; k++) {
+			order[k] = k;
+		}
+		final long[] unsorted = keys;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare (Integer a, Integer b) {
+				return Long.compare(unsorted[a], unsorted[b]);
+			}
+		});
+		points = new long[count];
+		owners = new int[count];
+		for (int p = 0; p < count; p++) {
+			points[p] = keys[order[p]];
+			owners[p] = order[p] / virtualNodes;
+		}
+	}
+
+	/** Returns the node owning the given key hash or null if the ring is empty. */
+	public String nodeFor (long hash) {
+		if (points.length == 0) return null;
+		int index = Arrays.binarySearch(points, hash);
+		if (index < 0) index = -index - 1;
+		if (index == points.length) index = 0; // wrap around
+		return nodes.get(owners[index]);
+	}
+
+	/** Returns the node owning the purchase identified by store name and order ID or null if the ring is empty. */
+	public String nodeFor (String storeName, String orderId) {
+		return nodeFor(Hashing.hash64(storeName, orderId));
+	}
+
+	public List<String> getNodes () {
+		return nodes;
+	}
+
+	public ConsistentHashRing withNode (String node) {
+		Set<String> changed = new LinkedHashSet<String>(nodes);
+		changed.add(node);
+		return new ConsistentHashRing(changed, virtualNodes);
+	}
+
+	public ConsistentHashRing withoutNode (String node) {
+		Set<String> changed = new LinkedHashSet<String>(nodes);
+		changed.remove(node);
+		return new ConsistentHashRing(changed, virtualNodes);
+	}
+}
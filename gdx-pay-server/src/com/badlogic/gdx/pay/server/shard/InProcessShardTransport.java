@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.shard;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Stand-in transport connecting several nodes within one process, for tests and load simulations of a sharded
+ * deployment. */
+public class InProcessShardTransport implements ShardTransport {
+
+	private final Map<String, PurchaseVerifierManager> nodes = new ConcurrentHashMap<String, PurchaseVerifierManager>();
+
+	/** Registers the local manager of a node. */
+	public void addNode (String nodeId, PurchaseVerifierManager manager) {
+		nodes.put(nodeId, manager);
+	}
+
+	/** Unregisters a node, simulating a node that went down. */
+	public void removeNode (String nodeId) {
+		nodes.remove(nodeId);
+	}
+
+	@Override
+	public VerificationResult verify (String nodeId, Transaction transaction, String source) throws IOException {
+		PurchaseVerifierManager manager = nodes.get(nodeId);
+		if (manager == null) {
+			throw new IOException("Node not reachable: " + nodeId);
+		}
+		return manager.verify(transaction, source);
+	}
+}
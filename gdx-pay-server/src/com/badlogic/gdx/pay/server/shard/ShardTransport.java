@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.shard;
+
+import java.io.IOException;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Forwards a verification to the node owning the transaction, e.g. via HTTP or your RPC framework (see
+ * TransactionBinaryCodec for a compact wire format). The receiving node must verify with its local
+ * {@link com.badlogic.gdx.pay.server.PurchaseVerifierManager} and not forward again. */
+public interface ShardTransport {
+
+	/** Verifies the transaction on the given node with
+	 * {@link com.badlogic.gdx.pay.server.PurchaseVerifierManager#verify(Transaction, String)} and returns its result as is, so
+	 * a transient {@link VerificationResult#ERROR} on the owner stays an error for the caller.
+	 * @param source Identifies the original caller (or null if unknown), for the stages of the owner.
+	 * @throws IOException if the node could not be reached; the caller then verifies locally. */
+	VerificationResult verify (String nodeId, Transaction transaction, String source) throws IOException;
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.shard;
+
+import java.io.IOException;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+
+/** Optional sharding layer around {@link PurchaseVerifierManager} for a cluster of verification nodes. Each purchase (store
+ * name plus order ID) is owned by exactly one node via a {@link ConsistentHashRing}, so every receipt is cached and
+ * de-duplicated on one node only and cache capacity adds up across nodes. Transactions owned by other nodes are forwarded
+ * through a {@link ShardTransport}.
+ *
+ * <pre>
+ * ConsistentHashRing ring = new ConsistentHashRing(allNodeIds);
+ * ShardedVerifierManager sharded = new ShardedVerifierManager("node-1", localManager, ring, transport);
+ *
+ * // front door (e.g. your HTTP handler for clients)
+ * VerificationResult result = sharded.verify(transaction, clientIp);
+ *
+ * // forwarded requests from other nodes go to localManager directly
+ * </pre>
+ *
+ * If the owning node cannot be reached, the transaction is verified locally: availability wins over cache locality. */
+public class ShardedVerifierManager {
+
+	private final String localNodeId;
+	private final PurchaseVerifierManager local;
+	private final ShardTransport transport;
+
+	private volatile ConsistentHashRing ring;
+
+	public ShardedVerifierManager (String localNodeId, PurchaseVerifierManager local, ConsistentHashRing ring,
+		ShardTransport transport) {
+		this.localNodeId = localNodeId;
+		this.local = local;
+		this.ring = ring;
+		this.transport = transport;
+	}
+
+	/** Replaces the ring, e.g. when nodes join or leave the cluster. */
+	public void setRing (ConsistentHashRing ring) {
+		this.ring = ring;
+	}
+
+	public ConsistentHashRing getRing () {
+		return ring;
+	}
+
+	/** Returns the node owning the transaction. Transactions without order ID are always owned by the local node. */
+	public String ownerOf (Transaction transaction) {
+		if (transaction.getOrderId() == null) return localNodeId;
+		String owner = ring.nodeFor(transaction.getStoreName(), transaction.getOrderId());
+		return owner != null ? owner : localNodeId;
+	}
+
+	/** Returns true if the transaction is deemed valid by the node owning it, see {@link #verify(Transaction, String)}. */
+	public boolean isValid (Transaction transaction) {
+		return verify(transaction, null).isValid();
+	}
+
+	/** Returns true if the transaction received from the given source is deemed valid by the node owning it, see
+	 * {@link #verify(Transaction, String)}. */
+	public boolean isValid (Transaction transaction, String source) {
+		return verify(transaction, source).isValid();
+	}
+
+	/** Verifies the transaction on the node owning it, see {@link PurchaseVerifierManager#verify(Transaction)}. */
+	public VerificationResult verify (Transaction transaction) {
+		return verify(transaction, null);
+	}
+
+	/** Verifies the transaction received from the given source on the node owning it, see
+	 * {@link PurchaseVerifierManager#verify(Transaction, String)}. The result of the owner is returned as is, e.g. a
+	 * {@link VerificationResult#ERROR} there is an error here too and not a rejection.
+	 *
+	 * @param source Identifies the caller, e.g. the client IP (or null if unknown). Forwarded to the owner. */
+	public VerificationResult verify (Transaction transaction, String source) {
+		String owner = ownerOf(transaction);
+		if (!owner.equals(localNodeId)) {
+			try {
+				return transport.verify(owner, transaction, source);
+			} catch (IOException e) {
+				error("Forwarding to " + owner + " failed, verifying locally: " + e, e);
+			}
+		}
+		return local.verify(transaction, source);
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.stage;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.VerificationStage;
+
+/** Runs a verifier as a pipeline stage, e.g. a local signature check in front of a remote verifier for the same store.
+ * Transactions of other stores pass. A valid result continues with the next stage, anything else ends the
+ * verification. */
+public class PurchaseVerifierStage implements VerificationStage {
+
+	private final PurchaseVerifier verifier;
+	private final int cost;
+
+	/** @param cost The cost, usually {@link #COST_LOCAL_CRYPTO} or {@link #COST_REMOTE}. */
+	public PurchaseVerifierStage (PurchaseVerifier verifier, int cost) {
+		this.verifier = verifier;
+		this.cost = cost;
+	}
+
+	@Override
+	public int cost () {
+		return cost;
+	}
+
+	@Override
+	public VerificationResult check (Transaction transaction) {
+		if (!verifier.storeName().equals(transaction.getStoreName())) return null;
+		VerificationResult result = verifier.verify(transaction);
+		return result.isValid() ? null : result;
+	}
+}
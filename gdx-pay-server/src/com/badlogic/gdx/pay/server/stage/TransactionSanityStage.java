@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.stage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.VerificationStage;
+import com.badlogic.gdx.pay.server.receipt.ReceiptView;
+
+/** Structural and field sanity checks of a transaction, the cheapest stage of the verification pipeline. Rejects
+ * transactions with
+ * <ul>
+ * <li>an item identifier that is not in the catalog for its store (if a catalog is set),</li>
+ * <li>a purchase time that is missing, before the store could have existed or in the future (beyond clock skew),</li>
+ * <li>a store name that is not known (if known stores are set),</li>
+ * <li>an order ID or item identifier that differs from the one in the receipt JSON (Google, Amazon, Huawei).</li>
+ * </ul>
+ * All lookups are hash lookups on data copied at construction time, receipt fields are compared in place (see
+ * {@link ReceiptView}). */
+public class TransactionSanityStage implements VerificationStage {
+
+	/** 2008-07-10, the opening of Apple's App Store. No in-app purchase is older. */
+	public static final long DEFAULT_EARLIEST_PURCHASE_TIME = 1215648000000L;
+	/** Default tolerated clock difference between stores and this server. */
+	public static final long DEFAULT_MAX_CLOCK_SKEW = 24L * 60 * 60 * 1000;
+
+	/** The default identifiers of all offers, accepted in every store. */
+	private final Set<String> identifiers;
+	/** The default identifiers plus the store-specific ones, per store with store-specific identifiers. */
+	private final Map<String, Set<String>> storeIdentifiers;
+	private final Set<String> storeNames;
+	private final long earliestPurchaseTime;
+	private final long maxClockSkew;
+
+	/** @param catalog The offers of your app (or null to not check identifiers). The default identifiers are accepted in
+	 *           every store, store-specific identifiers only in their store. Later changes to the configuration are not
+	 *           picked up; create a new stage instead.
+	 * @param storeNames The known store names (or null to not check store names). */
+	public TransactionSanityStage (PurchaseManagerConfig catalog, Collection<String> storeNames) {
+		this(catalog, storeNames, DEFAULT_EARLIEST_PURCHASE_TIME, DEFAULT_MAX_CLOCK_SKEW);
+	}
+
+	public TransactionSanityStage (PurchaseManagerConfig catalog, Collection<String> storeNames, long earliestPurchaseTime,
+		long maxClockSkew) {
+		this.identifiers = catalog != null ? identifiers(catalog) : null;
+		this.storeIdentifiers = catalog != null ? storeIdentifiers(catalog, identifiers)
+			: Collections.<String, Set<String>> emptyMap();
+		this.storeNames = storeNames != null ? Collections.unmodifiableSet(new HashSet<String>(storeNames)) : null;
+		this.earliestPurchaseTime = earliestPurchaseTime;
+		this.maxClockSkew = maxClockSkew;
+	}
+
+	private static Set<String> identifiers (PurchaseManagerConfig catalog) {
+		Set<String> identifiers = new HashSet<String>();
+		for (int i = 0; i < catalog.getOfferCount(); i++) {
+			identifiers.add(catalog.getOffer(i).getIdentifier());
+		}
+		return Collections.unmodifiableSet(identifiers);
+	}
+
+	private static Map<String, Set<String>> storeIdentifiers (PurchaseManagerConfig catalog, Set<String> defaults) {
+		Map<String, Set<String>> storeIdentifiers = new HashMap<String, Set<String>>();
+		for (int i = 0; i < catalog.getOfferCount(); i++) {
+			for (Map.Entry<String, String> entry : catalog.getOffer(i).getIdentifierForStores()) {
+				Set<String> identifiers = storeIdentifiers.get(entry.getKey());
+				if (identifiers == null) {
+					identifiers = new HashSet<String>(defaults);
+					storeIdentifiers.put(entry.getKey(), identifiers);
+				}
+				identifiers.add(entry.getValue());
+			}
+		}
+		return storeIdentifiers;
+	}
+
+	@Override
+	public int cost () {
+		return COST_FIELD_CHECK;
+	}
+
+	@Override
+	public VerificationResult check (Transaction transaction) {
+		if (storeNames != null && !storeNames.contains(transaction.getStoreName())) {
+			return VerificationResult.INVALID;
+		}
+		if (identifiers != null) {
+			Set<String> accepted = storeIdentifiers.get(transaction.getStoreName());
+			if (!(accepted != null ? accepted : identifiers).contains(transaction.getIdentifier())) {
+				// e.g. the SKU of an offer in another store
+				return VerificationResult.INVALID;
+			}
+		}
+		if (transaction.getPurchaseTime() == null) {
+			return VerificationResult.INVALID;
+		}
+		long purchaseTime = transaction.getPurchaseTime().getTime();
+		if (purchaseTime < earliestPurchaseTime || purchaseTime > System.currentTimeMillis() + maxClockSkew) {
+			return VerificationResult.INVALID;
+		}
+		if (transaction.getTransactionData() != null && ReceiptView.isSupported(transaction.getStoreName())
+			&& !ReceiptView.of(transaction).matches(transaction)) {
+			// the signed data is for another purchase or item than claimed
+			return VerificationResult.INVALID;
+		}
+		return null;
+	}
+}
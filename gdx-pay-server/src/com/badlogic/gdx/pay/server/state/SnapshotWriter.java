@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/** Periodically writes snapshots of a {@link VerificationState} on a background thread. A snapshot is only written if the
+ * state changed since the last one.
+ *
+ * <pre>
+ * VerificationState state = new VerificationState();
+ * StateSnapshot.restore(file, state, replayFromDatabase);
+ * manager.setVerificationState(state);
+ *
+ * SnapshotWriter writer = new SnapshotWriter(state, file, 60, TimeUnit.SECONDS);
+ * writer.start();
+ * ...
+ * writer.stop(); // writes a final snapshot
+ * </pre> */
+public class SnapshotWriter {
+
+	private final VerificationState state;
+	private final File file;
+	private final long period;
+	private final TimeUnit unit;
+
+	private ScheduledExecutorService executor;
+	private long writtenVersion = -1;
+	private volatile long lastSnapshotTime = -1;
+
+	public SnapshotWriter (VerificationState state, File file, long period, TimeUnit unit) {
+		this.state = state;
+		this.file = file;
+		this.period = period;
+		this.unit = unit;
+	}
+
+	public synchronized void start () {
+		if (executor != null) return;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "gdx-pay-snapshot");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run () {
+				try {
+					writeIfChanged();
+				} catch (IOException e) {
+					error("Snapshot failed: " + e, e);
+				}
+			}
+		}, period, period, unit);
+	}
+
+	/** Stops the background thread and writes a final snapshot if the state changed. */
+	public void stop () throws IOException {
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			executor = this.executor;
+			this.executor = null;
+		}
+		if (executor == null) return;
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writeIfChanged();
+	}
+
+	/** Writes a snapshot now if the state changed since the last snapshot.
+	 * @return True if a snapshot was written. */
+	public synchronized boolean writeIfChanged () throws IOException {
+		long version = state.getVersion();
+		if (version == writtenVersion) return false;
+		lastSnapshotTime = StateSnapshot.write(state, file);
+		writtenVersion = version;
+		return true;
+	}
+
+	/** Returns the creation time of the last snapshot written or -1 if none was written yet. */
+	public long getLastSnapshotTime () {
+		return lastSnapshotTime;
+	}
+
+	protected void error (String message, Exception ex) {
+		System.err.println(message);
+		ex.printStackTrace();
+	}
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.state;
+
+/** Catch-up replay after a snapshot was loaded: applies everything that changed after the snapshot was taken, typically read
+ * from your database or journal. */
+public interface StateReplay {
+
+	/** Applies all verification outcomes and reversals recorded at or after the given time to the state.
+	 *
+	 * @param sinceMillis The time the loaded snapshot was taken (milliseconds since the epoch) or -1 if there was no snapshot.
+	 * @param state The state to update.
+	 * @return The number of records replayed. */
+	int replay (long sinceMillis, VerificationState state);
+}
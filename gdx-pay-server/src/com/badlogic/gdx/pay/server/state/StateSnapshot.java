@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.state;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Exports and imports {@link VerificationState} as a compact binary snapshot.
+ * <p>
+ * Layout (big-endian): a header, a string table holding each distinct string once (store names, SKUs and user IDs repeat a
+ * lot) and a section of fixed-size records referencing the string table by index. Snapshots are loaded via a memory-mapped
+ * read-only buffer, so a node restart only costs the time to read the file once.
+ *
+ * <pre>
+ * header:  int magic, int version, long createdAt, int stringCount, int recordCount
+ * strings: stringCount x (int byteLength, byte[] utf8)
+ * records: recordCount x (int store, int orderId, int identifier, int userId, byte flags,
+ *                         long verifiedAt, long purchaseTime, long reversalTime)
+ * </pre>
+ *
+ * String indexes of -1 denote null. Snapshots are written to a temporary file first and then moved in place, so a crash
+ * while writing never corrupts the previous snapshot. */
+public final class StateSnapshot {
+
+	private static final int MAGIC = 0x47505353; // "GPSS"
+	private static final int VERSION = 1;
+
+	private static final int FLAG_VALID = 1;
+
+	private StateSnapshot () {
+	}
+
+	/** Writes a snapshot of the state. Safe to call while the state is being modified: records changing during the write
+	 * may or may not be included, which is why {@link #restore(File, VerificationState, StateReplay)} replays from the
+	 * time the snapshot was started.
+	 *
+	 * @return The snapshot creation time in milliseconds since the epoch. */
+	public static long write (VerificationState state, File file) throws IOException {
+		long createdAt = System.currentTimeMillis();
+		List<VerificationRecord> records = new ArrayList<VerificationRecord>(state.records());
+
+		// build the string table
+		Map<String, Integer> indexes = new HashMap<String, Integer>(records.size() * 2 + 16);
+		List<String> strings = new ArrayList<String>();
+		int[] refs = new int[records.size() * 4];
+		for (int i = 0; i < records.size(); i++) {
+			VerificationRecord record = records.get(i);
+			refs[i * 4] = index(record.getStoreName(), indexes, strings);
+			refs[i * 4 + 1] = index(record.getOrderId(), indexes, strings);
+			refs[i * 4 + 2] = index(record.getIdentifier(), indexes, strings);
+			refs[i * 4 + 3] = index(record.getUserId(), indexes, strings);
+		}
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			FileOutputStream stream = new FileOutputStream(temp);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(createdAt);
+				out.writeInt(strings.size());
+				out.writeInt(records.size());
+				for (int i = 0; i < strings.size(); i++) {
+					byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+				for (int i = 0; i < records.size(); i++) {
+					VerificationRecord record = records.get(i);
+					out.writeInt(refs[i * 4]);
+					out.writeInt(refs[i * 4 + 1]);
+					out.writeInt(refs[i * 4 + 2]);
+					out.writeInt(refs[i * 4 + 3]);
+					out.writeByte(record.isValid() ? FLAG_VALID : 0);
+					out.writeLong(record.getVerifiedAt());
+					out.writeLong(record.getPurchaseTime());
+					out.writeLong(record.getReversalTime());
+				}
+				out.flush();
+				// on disk before the move, or a crash can leave an empty snapshot under the real name
+				stream.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			// only exists if something went wrong
+			temp.delete();
+		}
+		return createdAt;
+	}
+
+	private static int index (String string, Map<String, Integer> indexes, List<String> strings) {
+		if (string == null) return -1;
+		Integer index = indexes.get(string);
+		if (index == null) {
+			index = strings.size();
+			indexes.put(string, index);
+			strings.add(string);
+		}
+		return index;
+	}
+
+	/** Loads a snapshot into the state. Records already in the state with the same key are replaced.
+	 *
+	 * @return The time the snapshot was created in milliseconds since the epoch.
+	 * @throws IOException If the file cannot be read or is not a valid snapshot. */
+	public static long read (File file, VerificationState state) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 24 || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a verification state snapshot: " + file);
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			}
+			long createdAt = buffer.getLong();
+			String[] strings = new String[buffer.getInt()];
+			int recordCount = buffer.getInt();
+
+			byte[] bytes = new byte[256];
+			for (int i = 0; i < strings.length; i++) {
+				int length = buffer.getInt();
+				if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+				buffer.get(bytes, 0, length);
+				strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			}
+			for (int i = 0; i < recordCount; i++) {
+				String storeName = string(strings, buffer.getInt());
+				String orderId = string(strings, buffer.getInt());
+				String identifier = string(strings, buffer.getInt());
+				String userId = string(strings, buffer.getInt());
+				boolean valid = (buffer.get() & FLAG_VALID) != 0;
+				long verifiedAt = buffer.getLong();
+				long purchaseTime = buffer.getLong();
+				long reversalTime = buffer.getLong();
+				state.put(new VerificationRecord(storeName, orderId, identifier, userId, valid, verifiedAt, purchaseTime,
+					reversalTime));
+			}
+			return createdAt;
+		} catch (RuntimeException e) {
+			// buffer underflow or bad string index: truncated or corrupt file
+			throw new IOException("Corrupt verification state snapshot: " + file, e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static String string (String[] strings, int index) {
+		return index < 0 ? null : strings[index];
+	}
+
+	/** Restores the state at startup: loads the snapshot if there is one and then runs the catch-up replay for everything
+	 * that happened after the snapshot was taken.
+	 *
+	 * @param file The snapshot file (may not exist yet).
+	 * @param state The state to restore into.
+	 * @param replay The catch-up replay or null for none.
+	 * @return The snapshot creation time or -1 if no snapshot was loaded. */
+	public static long restore (File file, VerificationState state, StateReplay replay) throws IOException {
+		long createdAt = file.exists() ? read(file, state) : -1;
+		if (replay != null) {
+			replay.replay(createdAt, state);
+		}
+		return createdAt;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.state;
+
+import java.util.Date;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** The outcome of verifying a single purchase, as kept in {@link VerificationState}. Immutable.
+ * <p>
+ * All times are in milliseconds since the epoch (Jan 1, 1970) or -1 for unknown. */
+public final class VerificationRecord {
+
+	private final String storeName;
+	private final String orderId;
+	private final String identifier;
+	private final String userId;
+	private final boolean valid;
+	private final long verifiedAt;
+	private final long purchaseTime;
+	private final long reversalTime;
+
+	public VerificationRecord (String storeName, String orderId, String identifier, String userId, boolean valid,
+		long verifiedAt, long purchaseTime, long reversalTime) {
+		this.storeName = storeName;
+		this.orderId = orderId;
+		this.identifier = identifier;
+		this.userId = userId;
+		this.valid = valid;
+		this.verifiedAt = verifiedAt;
+		this.purchaseTime = purchaseTime;
+		this.reversalTime = reversalTime;
+	}
+
+	/** Creates a record for a transaction that has just been verified. */
+	public static VerificationRecord of (Transaction transaction, boolean valid, long verifiedAt) {
+		return new VerificationRecord(transaction.getStoreName(), transaction.getOrderId(), transaction.getIdentifier(),
+			transaction.getUserId(), valid, verifiedAt, toMillis(transaction.getPurchaseTime()),
+			toMillis(transaction.getReversalTime()));
+	}
+
+	private static long toMillis (Date date) {
+		return date != null ? date.getTime() : -1;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	public String getOrderId () {
+		return orderId;
+	}
+
+	/** The item identifier/SKU (or null for unknown). */
+	public String getIdentifier () {
+		return identifier;
+	}
+
+	/** The user identifier (or null for unknown). */
+	public String getUserId () {
+		return userId;
+	}
+
+	/** True if the verifier considered the purchase valid. */
+	public boolean isValid () {
+		return valid;
+	}
+
+	/** True if the purchase is valid and has not been refunded/cancelled. */
+	public boolean isEntitled () {
+		return valid && reversalTime < 0;
+	}
+
+	public long getVerifiedAt () {
+		return verifiedAt;
+	}
+
+	public long getPurchaseTime () {
+		return purchaseTime;
+	}
+
+	/** The refund/cancellation time or -1 for non-refunded. */
+	public long getReversalTime () {
+		return reversalTime;
+	}
+
+	/** Returns a copy of this record marked as reversed at the given time. */
+	public VerificationRecord withReversalTime (long reversalTime) {
+		return new VerificationRecord(storeName, orderId, identifier, userId, valid, verifiedAt, purchaseTime, reversalTime);
+	}
+
+	@Override
+	public String toString () {
+		return "VerificationRecord{" +
+				"storeName='" + storeName + '\'' +
+				", orderId='" + orderId + '\'' +
+				", identifier='" + identifier + '\'' +
+				", userId='" + userId + '\'' +
+				", valid=" + valid +
+				", verifiedAt=" + verifiedAt +
+				", purchaseTime=" + purchaseTime +
+				", reversalTime=" + reversalTime +
+				'}';
+	}
+}
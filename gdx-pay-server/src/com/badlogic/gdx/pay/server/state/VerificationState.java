@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.state;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** In-memory entitlement and verification state of a verification node, keyed by store name and order ID. Thread-safe.
+ * <p>
+ * Use {@link StateSnapshot} to persist and restore the state so a restarted node does not have to rebuild it from the
+ * database. */
+public class VerificationState {
+
+	private final ConcurrentMap<String, VerificationRecord> records;
+
+	/** Incremented on every modification, used to detect if a new snapshot is needed. */
+	private final AtomicLong version = new AtomicLong();
+
+	public VerificationState () {
+		this(1024);
+	}
+
+	public VerificationState (int initialCapacity) {
+		this.records = new ConcurrentHashMap<String, VerificationRecord>(initialCapacity);
+	}
+
+	/** Records the verification outcome of a transaction. Transactions without order ID are ignored. A known reversal of
+	 * the purchase is kept, and an invalid outcome doesn't replace a valid one: anyone can send a forged receipt with the
+	 * order ID of someone else's purchase. Revoke purchases with {@link #reverse(String, String, long)}. */
+	public void record (Transaction transaction, boolean valid) {
+		if (transaction.getStoreName() == null || transaction.getOrderId() == null) return;
+		VerificationRecord record = VerificationRecord.of(transaction, valid, System.currentTimeMillis());
+		records.merge(key(record.getStoreName(), record.getOrderId()), record, KeepReversal.instance);
+		version.incrementAndGet();
+	}
+
+	public void put (VerificationRecord record) {
+		records.put(key(record.getStoreName(), record.getOrderId()), record);
+		version.incrementAndGet();
+	}
+
+	/** Returns the record for a purchase or null if the purchase is unknown. */
+	public VerificationRecord get (String storeName, String orderId) {
+		return records.get(key(storeName, orderId));
+	}
+
+	public VerificationRecord remove (String storeName, String orderId) {
+		VerificationRecord removed = records.remove(key(storeName, orderId));
+		if (removed != null) version.incrementAndGet();
+		return removed;
+	}
+
+	/** Marks a purchase as refunded/cancelled. An unknown purchase (verified before the state existed, on another node,
+	 * ...) gets an invalid record with the reversal time, so it isn't entitled once it is verified here.
+	 * @return false if the purchase was unknown */
+	public boolean reverse (final String storeName, final String orderId, final long reversalTime) {
+		final boolean[] known = new boolean[1];
+		// atomic, so a concurrent record() can't be lost or overwrite the reversal
+		records.compute(key(storeName, orderId), new BiFunction<String, VerificationRecord, VerificationRecord>() {
+			@Override
+			public VerificationRecord apply (String key, VerificationRecord record) {
+				if (record == null) return new VerificationRecord(storeName, orderId, null, null, false, -1, -1, reversalTime);
+				known[0] = true;
+				return record.withReversalTime(reversalTime);
+			}
+		});
+		version.incrementAndGet();
+		return known[0];
+	}
+
+	/** True if the purchase was verified as valid and has not been reversed since. */
+	public boolean isEntitled (String storeName, String orderId) {
+		VerificationRecord record = get(storeName, orderId);
+		return record != null && record.isEntitled();
+	}
+
+	public int size () {
+		return records.size();
+	}
+
+	public void clear () {
+		records.clear();
+		version.incrementAndGet();
+	}
+
+	/** Returns an unmodifiable, weakly consistent view of all records. */
+	public Collection<VerificationRecord> records () {
+		return Collections.unmodifiableCollection(records.values());
+	}
+
+	/** Returns the modification counter. Changes whenever the state is modified. */
+	public long getVersion () {
+		return version.get();
+	}
+
+	private static String key (String storeName, String orderId) {
+		return storeName + '\n' + orderId;
+	}
+
+	/** Keeps a valid old record over an invalid new one, and the reversal time of the old record if the new one has none: a
+	 * refund is final, a verification that raced with {@link VerificationState#reverse(String, String, long)} must not undo
+	 * it. */
+	private static final class KeepReversal implements BiFunction<VerificationRecord, VerificationRecord, VerificationRecord> {
+		static final KeepReversal instance = new KeepReversal();
+
+		@Override
+		public VerificationRecord apply (VerificationRecord old, VerificationRecord record) {
+			if (old.isValid() && !record.isValid()) return old;
+			if (old.getReversalTime() < 0 || record.getReversalTime() >= 0) return record;
+			return record.withReversalTime(old.getReversalTime());
+		}
+	}
+}
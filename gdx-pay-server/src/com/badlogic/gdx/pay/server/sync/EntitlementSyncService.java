@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.refund.RefundPoller;
+import com.badlogic.gdx.pay.server.refund.Reversal;
+import com.badlogic.gdx.pay.server.refund.ReversalListener;
+import com.badlogic.gdx.pay.server.state.VerificationRecord;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+import com.badlogic.gdx.pay.sync.EntitlementSync;
+import com.badlogic.gdx.pay.sync.EntitlementTree;
+
+/** Server side of the entitlement sync, see {@link EntitlementSync}. Keeps an {@link EntitlementTree} per account of the
+ * transactions the account's client uploaded and their verification results, so a restore where nothing changed costs a
+ * single hash comparison instead of re-verifying every transaction.
+ *
+ * <pre>
+ * // client sends its root hash
+ * if (sync.rootHash(account) == clientRoot) return; // in sync
+ * // client sends the hashes of the children of the differing nodes, level by level
+ * int[] differing = sync.differing(account, level, indexes, hashes);
+ * // at the leaves, client uploads the transactions of the differing leaves
+ * VerificationResult[] results = sync.reconcile(account, leaves, transactions);
+ * </pre>
+ *
+ * The account is whatever identifies the user in your backend, don't take it from the transactions. Only terminal results
+ * are kept; transactions that failed with {@link VerificationResult#ERROR} keep their leaf differing, so they are uploaded
+ * and verified again on the next sync.
+ * <p>
+ * Trees are kept for a bounded number of accounts, the least recently synced ones are dropped beyond; their next sync
+ * uploads and verifies everything again. A refund is pushed to the client with {@link #reverse(String, String)}: the
+ * purchase is dropped from the tree, so the client uploads it on its next sync, and it is answered as
+ * {@link VerificationResult#INVALID} if the manager's {@link VerificationState} knows it was reversed. Add the service as
+ * listener of a {@link RefundPoller} that also pushes to that state to do this for every ingested refund. Thread-safe. */
+public class EntitlementSyncService implements ReversalListener {
+
+	private final PurchaseVerifierManager manager;
+	/** Account -> tree, least recently used first. Guarded by itself. */
+	private final Trees trees;
+	/** Purchase key -> account, to find the tree of a reversed purchase. */
+	private final ConcurrentHashMap<String, String> accounts = new ConcurrentHashMap<String, String>();
+
+	/** Keeps the trees of up to 100000 accounts. */
+	public EntitlementSyncService (PurchaseVerifierManager manager) {
+		this(manager, 100000);
+	}
+
+	/** @param maxAccounts The number of accounts to keep trees for. */
+	public EntitlementSyncService (PurchaseVerifierManager manager, int maxAccounts) {
+		if (maxAccounts < 1) throw new IllegalArgumentException("maxAccounts must be >= 1: " + maxAccounts);
+		this.manager = manager;
+		this.trees = new Trees(maxAccounts);
+	}
+
+	/** Returns the root hash of the account's tree, 0 for an unknown account. */
+	public long rootHash (String account) {
+		EntitlementTree<VerificationResult> tree;
+		synchronized (trees) {
+			tree = trees.get(account);
+		}
+		if (tree == null) return 0;
+		synchronized (tree) {
+			return tree.rootHash();
+		}
+	}
+
+	/** Compares node hashes sent by the client, see {@link EntitlementTree#differing}.
+	 * @return the indexes of the nodes that differ */
+	public int[] differing (String account, int level, int[] indexes, long[] hashes) {
+		EntitlementTree<VerificationResult> tree = tree(account);
+		synchronized (tree) {
+			return tree.differing(level, indexes, hashes);
+		}
+	}
+
+	/** Takes the transactions the client uploaded for the given leaves. Transactions the server already knows in the same
+	 * state are answered from the tree, the others are verified. Entries of these leaves the client no longer has are
+	 * dropped, so afterwards both trees match.
+	 *
+	 * @param leaves the differing leaves, all transactions uploaded must belong to them
+	 * @return the verification result per transaction, in order
+	 * @throws IllegalArgumentException if a transaction has no order ID or doesn't belong to the given leaves */
+	public VerificationResult[] reconcile (String account, int[] leaves, Transaction[] transactions) {
+		EntitlementTree<VerificationResult> tree = tree(account);
+		boolean[] allowed = new boolean[EntitlementTree.LEAF_COUNT];
+		for (int leaf : leaves) {
+			allowed[leaf] = true;
+		}
+
+		String[] keys = new String[transactions.length];
+		long[] hashes = new long[transactions.length];
+		Map<String, Transaction> uploaded = new HashMap<String, Transaction>(transactions.length * 2);
+		for (int i = 0; i < transactions.length; i++) {
+			keys[i] = EntitlementSync.key(transactions[i]);
+			if (keys[i] == null || !allowed[EntitlementTree.leafOf(keys[i])]) {
+				throw new IllegalArgumentException("Transaction not part of the given leaves: " + transactions[i].getOrderId());
+			}
+			hashes[i] = EntitlementSync.hash(transactions[i]);
+			uploaded.put(keys[i], transactions[i]);
+		}
+
+		// find out what's new without holding the lock during (possibly remote) verification
+		VerificationResult[] results = new VerificationResult[transactions.length];
+		synchronized (tree) {
+			for (int leaf : leaves) {
+				for (String key : tree.keys(leaf)) {
+					if (!uploaded.containsKey(key)) {
+						tree.remove(key);
+						accounts.remove(key, account);
+					}
+				}
+			}
+			for (int i = 0; i < transactions.length; i++) {
+				if (tree.contains(keys[i], hashes[i])) results[i] = tree.get(keys[i]);
+			}
+		}
+		VerificationState state = manager.getVerificationState();
+		for (int i = 0; i < transactions.length; i++) {
+			if (results[i] != null) continue;
+			VerificationRecord record = state != null
+				? state.get(transactions[i].getStoreName(), transactions[i].getOrderId()) : null;
+			// a refund the client doesn't know about yet: the receipt alone may still verify
+			results[i] = record != null && record.getReversalTime() >= 0 ? VerificationResult.INVALID
+				: manager.verify(transactions[i]);
+		}
+		synchronized (tree) {
+			for (int i = 0; i < transactions.length; i++) {
+				if (results[i].isTerminal()) {
+					tree.put(keys[i], hashes[i], results[i]);
+					accounts.put(keys[i], account);
+				} else {
+					tree.remove(keys[i]);
+				}
+			}
+		}
+		return results;
+	}
+
+	/** Drops a refunded or cancelled purchase from its account's tree, so the account's next sync differs and the client
+	 * uploads it again. Record the reversal in the manager's {@link VerificationState} as well, which answers the upload.
+	 * @return false if no tree holds the purchase */
+	public boolean reverse (String storeName, String orderId) {
+		String key = EntitlementSync.key(storeName, orderId);
+		String account = accounts.remove(key);
+		if (account == null) return false;
+		EntitlementTree<VerificationResult> tree;
+		synchronized (trees) {
+			tree = trees.get(account);
+		}
+		if (tree == null) return false;
+		synchronized (tree) {
+			return tree.remove(key) != null;
+		}
+	}
+
+	/** Drops the reversed purchase from its account's tree, see {@link #reverse(String, String)}. */
+	@Override
+	public void reversed (Reversal reversal) {
+		reverse(reversal.getStoreName(), reversal.getOrderId());
+	}
+
+	/** Forgets everything about the account, its next sync uploads and verifies everything again. */
+	public void forget (String account) {
+		EntitlementTree<VerificationResult> tree;
+		synchronized (trees) {
+			tree = trees.remove(account);
+		}
+		if (tree != null) unindex(account, tree);
+	}
+
+	/** Returns the number of accounts trees are kept for. */
+	public int size () {
+		synchronized (trees) {
+			return trees.size();
+		}
+	}
+
+	private EntitlementTree<VerificationResult> tree (String account) {
+		EntitlementTree<VerificationResult> tree;
+		Map.Entry<String, EntitlementTree<VerificationResult>> evicted;
+		synchronized (trees) {
+			tree = trees.get(account);
+			if (tree != null) return tree;
+			tree = new EntitlementTree<VerificationResult>();
+			trees.put(account, tree);
+			evicted = trees.evicted;
+			trees.evicted = null;
+		}
+		if (evicted != null) unindex(evicted.getKey(), evicted.getValue());
+		return tree;
+	}
+
+	private void unindex (String account, EntitlementTree<VerificationResult> tree) {
+		List<String> keys = new ArrayList<String>();
+		synchronized (tree) {
+			for (int leaf = 0; leaf < EntitlementTree.LEAF_COUNT; leaf++) {
+				keys.addAll(tree.keys(leaf));
+			}
+		}
+		for (String key : keys) {
+			accounts.remove(key, account);
+		}
+	}
+
+	private static final class Trees extends LinkedHashMap<String, EntitlementTree<VerificationResult>> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+		/** The entry evicted by the last put, if any. */
+		Map.Entry<String, EntitlementTree<VerificationResult>> evicted;
+
+		Trees (int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry (Map.Entry<String, EntitlementTree<VerificationResult>> eldest) {
+			if (size() <= maxSize) return false;
+			evicted = eldest;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.throttle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.VerificationStage;
+
+/** Sheds floods of verification requests before they cost any signature check or store call. Keeps a
+ * {@link TokenBucketLimiter} per {@link Transaction#getUserId() user} and per source (passed to
+ * {@link com.badlogic.gdx.pay.server.PurchaseVerifierManager#verify(Transaction, String)}, e.g. the client IP):
+ *
+ * <pre>
+ * verifier.addStage(new ThrottlingStage(new TokenBucketLimiter(100000, 0.5, 20), new TokenBucketLimiter(100000, 5, 100)));
+ * VerificationResult result = verifier.verify(transaction, clientIp);
+ * </pre>
+ *
+ * The user ID is only filled in by some stores; set it to your account ID before verifying to limit per account. Shed
+ * requests get the shed result, {@link VerificationResult#ERROR} by default so clients retry later and nothing is
+ * recorded. Runs before all other stages, see {@link #COST_ADMISSION}. */
+public class ThrottlingStage implements VerificationStage {
+
+	private final TokenBucketLimiter userLimiter;
+	private final TokenBucketLimiter sourceLimiter;
+	private volatile VerificationResult shedResult = VerificationResult.ERROR;
+	private final AtomicLong shedCount = new AtomicLong();
+
+	/** @param userLimiter The limits per user ID (or null for none).
+	 * @param sourceLimiter The limits per source (or null for none). */
+	public ThrottlingStage (TokenBucketLimiter userLimiter, TokenBucketLimiter sourceLimiter) {
+		this.userLimiter = userLimiter;
+		this.sourceLimiter = sourceLimiter;
+	}
+
+	/** Sets the result returned for shed requests: {@link VerificationResult#ERROR} (retry later, the default) or
+	 * {@link VerificationResult#INVALID} (reject). */
+	public void setShedResult (VerificationResult shedResult) {
+		if (shedResult == VerificationResult.VALID) throw new IllegalArgumentException("Shed requests can't be valid.");
+		this.shedResult = shedResult;
+	}
+
+	/** Returns the number of requests shed so far. */
+	public long getShedCount () {
+		return shedCount.get();
+	}
+
+	@Override
+	public int cost () {
+		return COST_ADMISSION;
+	}
+
+	@Override
+	public VerificationResult check (Transaction transaction) {
+		return check(transaction, null);
+	}
+
+	@Override
+	public VerificationResult check (Transaction transaction, String source) {
+		if (source != null && sourceLimiter != null && !sourceLimiter.tryAcquire(source)) {
+			return shed();
+		}
+		String userId = transaction.getUserId();
+		if (userId != null && userLimiter != null && !userLimiter.tryAcquire(userId)) {
+			return shed();
+		}
+		return null;
+	}
+
+	private VerificationResult shed () {
+		shedCount.incrementAndGet();
+		return shedResult;
+	}
+}
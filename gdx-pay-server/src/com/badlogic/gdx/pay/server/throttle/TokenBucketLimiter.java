@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.throttle;
+
+import java.security.SecureRandom;
+
+import com.badlogic.gdx.pay.server.util.Hashing;
+
+/** Token buckets per key in a fixed amount of memory. Each key may take {@code burst} requests at once and then
+ * {@code ratePerSecond} on average.
+ * <p>
+ * Keys are not stored, only their 64-bit hash, so memory stays fixed no matter how many distinct keys an attacker makes up.
+ * The hash is keyed with a random secret per instance ({@link Hashing#sipHash24}), so an attacker can't make up keys that
+ * share a victim's bucket. The table is split into stripes with a lock each; a key lives in one of {@link #PROBE} slots of
+ * its stripe. If all of them are taken, the one idle the longest is evicted.
+ * <p>
+ * Unknown keys, including evicted ones, start with a full burst, so e.g. a client restoring its purchases at startup isn't
+ * shed. The flip side: a client that pushes its own key out of the table with made-up keys gets a full burst again. Size
+ * the table for the number of keys active within {@code burst / ratePerSecond} seconds, so evicting a key takes more
+ * made-up keys than a limiter per source lets through, or make new keys start with fewer tokens with
+ * {@link #setNewKeyTokens(double)} if a first burst isn't needed. Thread-safe. */
+public class TokenBucketLimiter {
+
+	static final int PROBE = 8;
+	private static final int STRIPES = 64;
+	/** Tokens are counted in millionths, so fractional rates work with integer math. */
+	private static final long ONE = 1000000;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final int slotsPerStripe;
+	private final long capacity;
+	/** Refill in millionths of a token per nanosecond, scaled by 2^20 to keep precision. */
+	private final long refillPerNano;
+	private volatile long newKeyTokens;
+	private final long hashKey0;
+	private final long hashKey1;
+
+	/** @param maxKeys The number of keys tracked at once (rounded up to a multiple of the stripe count).
+	 * @param ratePerSecond Sustained requests per second per key.
+	 * @param burst Requests per key allowed at once. */
+	public TokenBucketLimiter (int maxKeys, double ratePerSecond, double burst) {
+		if (maxKeys <= 0 || ratePerSecond <= 0 || burst < 1) throw new IllegalArgumentException("Invalid limits.");
+		this.slotsPerStripe = Math.max(PROBE, (maxKeys + STRIPES - 1) / STRIPES);
+		this.capacity = (long)(burst * ONE);
+		this.refillPerNano = Math.max(1, (long)(ratePerSecond * ONE / 1e9 * (1 << 20)));
+		this.newKeyTokens = capacity;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(slotsPerStripe);
+		}
+		SecureRandom random = new SecureRandom();
+		hashKey0 = random.nextLong();
+		hashKey1 = random.nextLong();
+	}
+
+	/** Sets the tokens a key starts with when it isn't in the table, the burst by default (and at most). E.g. 1 makes
+	 * evicting one's own key useless, but also sheds a legitimate first burst beyond one request. */
+	public void setNewKeyTokens (double tokens) {
+		if (tokens < 0) throw new IllegalArgumentException("tokens must be >= 0: " + tokens);
+		newKeyTokens = Math.min(capacity, (long)(tokens * ONE));
+	}
+
+	/** Takes a token for the key. Returns false if the key's bucket is empty, i.e. the request should be shed. */
+	public boolean tryAcquire (CharSequence key) {
+		return tryAcquire(hash(key), System.nanoTime());
+	}
+
+	/** Returns the keyed hash of the key, secret to this instance. */
+	long hash (CharSequence key) {
+		return Hashing.sipHash24(hashKey0, hashKey1, key);
+	}
+
+	/** @param hash The 64-bit hash of the key, never 0.
+	 * @param now The current time of {@link System#nanoTime()}. */
+	boolean tryAcquire (long hash, long now) {
+		if (hash == 0) hash = 1; // 0 marks free slots
+		Stripe stripe = stripes[(int)(hash >>> 58)];
+		int start = (int)((hash & 0x7FFFFFFFL) % slotsPerStripe);
+		synchronized (stripe) {
+			int slot = -1;
+			// free slot or else the one idle the longest
+			int victim = -1;
+			for (int i = 0; i < PROBE; i++) {
+				int index = (start + i) % slotsPerStripe;
+				long current = stripe.keys[index];
+				if (current == hash) {
+					slot = index;
+					break;
+				}
+				if (victim < 0
+					|| (stripe.keys[victim] != 0 && (current == 0 || stripe.times[index] - stripe.times[victim] < 0))) {
+					victim = index;
+				}
+			}
+			if (slot < 0) {
+				// new (or evicted) key
+				slot = victim;
+				stripe.keys[slot] = hash;
+				stripe.tokens[slot] = newKeyTokens;
+				stripe.times[slot] = now;
+			} else {
+				long elapsed = now - stripe.times[slot];
+				if (elapsed > (capacity / refillPerNano) << 20) {
+					// idle long enough to be full, also avoids overflows
+					stripe.tokens[slot] = capacity;
+					stripe.times[slot] = now;
+				} else {
+					long refill = (elapsed * refillPerNano) >> 20;
+					stripe.tokens[slot] = Math.min(capacity, stripe.tokens[slot] + refill);
+					// move the time on by what was credited only, so calls in quick succession don't lose the fractions
+					stripe.times[slot] += (refill << 20) / refillPerNano;
+				}
+			}
+			if (stripe.tokens[slot] < ONE) return false;
+			stripe.tokens[slot] -= ONE;
+			return true;
+		}
+	}
+
+	private static final class Stripe {
+		final long[] keys;
+		final long[] tokens;
+		final long[] times;
+
+		Stripe (int slots) {
+			keys = new long[slots];
+			tokens = new long[slots];
+			times = new long[slots];
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.token;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/** The claims of a signed entitlement token: the account is entitled to the item of the given purchase until the token
+ * expires. Immutable. See {@link EntitlementTokenIssuer} and {@link EntitlementTokenValidator}.
+ * <p>
+ * All times are in milliseconds since the epoch (Jan 1, 1970). */
+public final class EntitlementToken {
+
+	static final int VERSION = 1;
+	/** The maximum length of each string field in bytes of (modified) UTF-8. */
+	public static final int MAX_FIELD_LENGTH = 65535;
+
+	private final String keyId;
+	private final String subject;
+	private final String storeName;
+	private final String orderId;
+	private final String identifier;
+	private final long issuedAt;
+	private final long expiresAt;
+
+	public EntitlementToken (String keyId, String subject, String storeName, String orderId, String identifier,
+		long issuedAt, long expiresAt) {
+		this.keyId = keyId;
+		this.subject = subject;
+		this.storeName = storeName;
+		this.orderId = orderId;
+		this.identifier = identifier;
+		this.issuedAt = issuedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	/** The ID of the key the token is signed with, so keys can be rotated. */
+	public String getKeyId () {
+		return keyId;
+	}
+
+	/** The account the entitlement belongs to. */
+	public String getSubject () {
+		return subject;
+	}
+
+	public String getStoreName () {
+		return storeName;
+	}
+
+	public String getOrderId () {
+		return orderId;
+	}
+
+	/** The item identifier/SKU. */
+	public String getIdentifier () {
+		return identifier;
+	}
+
+	public long getIssuedAt () {
+		return issuedAt;
+	}
+
+	public long getExpiresAt () {
+		return expiresAt;
+	}
+
+	public boolean isExpired (long now) {
+		return now >= expiresAt;
+	}
+
+	/** Returns the signed part of the token. Null fields are written as empty strings. */
+	byte[] toBytes () {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(VERSION);
+			out.writeUTF(keyId);
+			out.writeUTF(nonNull(subject));
+			out.writeUTF(nonNull(storeName));
+			out.writeUTF(nonNull(orderId));
+			out.writeUTF(nonNull(identifier));
+			out.writeLong(issuedAt);
+			out.writeLong(expiresAt);
+		} catch (IOException e) {
+			// writes to memory, only fails for fields too long for writeUTF, which issue() rejects up front
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/** @throws IllegalArgumentException if a field is longer than {@link #MAX_FIELD_LENGTH} bytes. */
+	void checkLengths () {
+		checkLength("keyId", keyId);
+		checkLength("subject", subject);
+		checkLength("storeName", storeName);
+		checkLength("orderId", orderId);
+		checkLength("identifier", identifier);
+	}
+
+	private static void checkLength (String name, String value) {
+		if (value == null || value.length() * 3 <= MAX_FIELD_LENGTH) return;
+		// the modified UTF-8 of DataOutput.writeUTF
+		long length = 0;
+		for (int i = 0, n = value.length(); i < n; i++) {
+			char c = value.charAt(i);
+			length += c >= 1 && c <= 0x7f ? 1 : c <= 0x7ff ? 2 : 3;
+		}
+		if (length > MAX_FIELD_LENGTH) throw new IllegalArgumentException(name + " too long: " + length + " bytes");
+	}
+
+	/** @throws IllegalArgumentException if the bytes aren't a token of a supported version. */
+	static EntitlementToken fromBytes (byte[] bytes) {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		try {
+			int version = in.readUnsignedByte();
+			if (version != VERSION) throw new IllegalArgumentException("Unsupported token version: " + version);
+			EntitlementToken token = new EntitlementToken(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+				in.readLong(), in.readLong());
+			if (in.available() > 0) throw new IllegalArgumentException("Unexpected data after token.");
+			return token;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Malformed token.", e);
+		}
+	}
+
+	private static String nonNull (String s) {
+		return s != null ? s : "";
+	}
+
+	@Override
+	public String toString () {
+		return "EntitlementToken{" +
+				"keyId='" + keyId + '\'' +
+				", subject='" + subject + '\'' +
+				", storeName='" + storeName + '\'' +
+				", orderId='" + orderId + '\'' +
+				", identifier='" + identifier + '\'' +
+				", issuedAt=" + issuedAt +
+				", expiresAt=" + expiresAt +
+				'}';
+	}
+}
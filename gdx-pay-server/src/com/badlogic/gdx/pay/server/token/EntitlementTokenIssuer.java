@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.token;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Mints short-lived signed entitlement tokens after a purchase has been verified, so other services (matchmaking,
+ * inventory, chat, ...) can check the entitlement locally with an {@link EntitlementTokenValidator} instead of asking the
+ * verification tier again.
+ *
+ * <pre>
+ * EntitlementTokenIssuer issuer = EntitlementTokenIssuer.hmac("k1", secret);
+ * if (verifier.isValid(transaction)) {
+ *   String token = issuer.issue(account, transaction, TimeUnit.MINUTES.toMillis(15));
+ *   ... hand the token to the client ...
+ * }
+ * </pre>
+ *
+ * Tokens are {@code base64url(claims) + "." + base64url(signature)}. Use HMAC if issuer and validators share a secret, a
+ * key pair (e.g. "Ed25519", "SHA256withECDSA" or "SHA256withRSA") if validators must not be able to mint tokens.
+ * Thread-safe. */
+public class EntitlementTokenIssuer {
+
+	public static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private final String keyId;
+	private final ThreadLocal<Mac> macs;
+	private final ThreadLocal<Signature> signatures;
+
+	private EntitlementTokenIssuer (String keyId, ThreadLocal<Mac> macs, ThreadLocal<Signature> signatures) {
+		if (keyId == null) throw new IllegalArgumentException("Key ID missing.");
+		this.keyId = keyId;
+		this.macs = macs;
+		this.signatures = signatures;
+	}
+
+	/** Creates an issuer signing with HMAC-SHA256 and the given shared secret (at least 32 random bytes). */
+	public static EntitlementTokenIssuer hmac (String keyId, byte[] secret) {
+		final SecretKeySpec key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+		Tokens.mac(key); // fail early on bad keys
+		return new EntitlementTokenIssuer(keyId, new ThreadLocal<Mac>() {
+			@Override
+			protected Mac initialValue () {
+				return Tokens.mac(key);
+			}
+		}, null);
+	}
+
+	/** Creates an issuer signing with the given private key, e.g. an "Ed25519" key with algorithm "Ed25519". */
+	public static EntitlementTokenIssuer signature (String keyId, final PrivateKey privateKey, final String algorithm) {
+		Tokens.signer(privateKey, algorithm); // fail early on bad keys
+		return new EntitlementTokenIssuer(keyId, null, new ThreadLocal<Signature>() {
+			@Override
+			protected Signature initialValue () {
+				return Tokens.signer(privateKey, algorithm);
+			}
+		});
+	}
+
+	public String getKeyId () {
+		return keyId;
+	}
+
+	/** Issues a token for the item of a verified transaction.
+	 *
+	 * @param subject The account the entitlement belongs to.
+	 * @param ttlMillis How long the token is valid. Keep this short, tokens can't be revoked.
+	 * @throws IllegalArgumentException if a field is too long, see {@link #issue(EntitlementToken)}. */
+	public String issue (String subject, Transaction transaction, long ttlMillis) {
+		long now = System.currentTimeMillis();
+		return issue(new EntitlementToken(keyId, subject, transaction.getStoreName(), transaction.getOrderId(),
+			transaction.getIdentifier(), now, now + ttlMillis));
+	}
+
+	/** Signs the given claims. The key ID of the claims must be the one of this issuer.
+	 * @throws IllegalArgumentException if a field is longer than {@link EntitlementToken#MAX_FIELD_LENGTH} bytes in UTF-8. */
+	public String issue (EntitlementToken claims) {
+		if (!keyId.equals(claims.getKeyId())) throw new IllegalArgumentException("Wrong key ID: " + claims.getKeyId());
+		claims.checkLengths();
+		byte[] payload = claims.toBytes();
+		byte[] signature;
+		try {
+			if (macs != null) {
+				signature = macs.get().doFinal(payload);
+			} else {
+				Signature signer = signatures.get();
+				signer.update(payload);
+				signature = signer.sign();
+			}
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Signing token failed.", e);
+		}
+		return ENCODER.encodeToString(payload) + '.' + ENCODER.encodeToString(signature);
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.token;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/** Checks entitlement tokens minted by an {@link EntitlementTokenIssuer} locally, without calling the verification tier.
+ * Only depends on the JDK, so downstream services can use it on its own:
+ *
+ * <pre>
+ * EntitlementTokenValidator validator = new EntitlementTokenValidator();
+ * validator.addPublicKey("k1", issuerPublicKey, "Ed25519");
+ * EntitlementToken token = validator.validate(tokenFromClient);
+ * if (token != null &amp;&amp; token.getSubject().equals(account)) {
+ *   // entitled to token.getIdentifier()
+ * }
+ * </pre>
+ *
+ * Mac/Signature instances are created once per thread and key and reused. Add the new key before an issuer switches to it
+ * and remove the old one after its tokens expired. Thread-safe. */
+public class EntitlementTokenValidator {
+
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	private final ConcurrentHashMap<String, Key> keys = new ConcurrentHashMap<String, Key>();
+
+	/** Adds (or replaces) a shared HMAC-SHA256 secret. */
+	public void addHmacKey (String keyId, byte[] secret) {
+		final SecretKeySpec key = new SecretKeySpec(secret, EntitlementTokenIssuer.HMAC_ALGORITHM);
+		Tokens.mac(key); // fail early on bad keys
+		keys.put(keyId, new Key(new ThreadLocal<Mac>() {
+			@Override
+			protected Mac initialValue () {
+				return Tokens.mac(key);
+			}
+		}, null));
+	}
+
+	/** Adds (or replaces) a public key, e.g. an "Ed25519" key with algorithm "Ed25519". */
+	public void addPublicKey (String keyId, final PublicKey publicKey, final String algorithm) {
+		Tokens.verifier(publicKey, algorithm); // fail early on bad keys
+		keys.put(keyId, new Key(null, new ThreadLocal<Signature>() {
+			@Override
+			protected Signature initialValue () {
+				return Tokens.verifier(publicKey, algorithm);
+			}
+		}));
+	}
+
+	public void removeKey (String keyId) {
+		keys.remove(keyId);
+	}
+
+	/** Returns the claims of the token if it is well-formed, signed with a known key and not expired, null otherwise. */
+	public EntitlementToken validate (String token) {
+		return validate(token, System.currentTimeMillis());
+	}
+
+	/** @param now The current time in milliseconds since the epoch. */
+	public EntitlementToken validate (String token, long now) {
+		if (token == null) return null;
+		int dot = token.indexOf('.');
+		if (dot < 0) return null;
+		try {
+			byte[] payload = DECODER.decode(token.substring(0, dot));
+			byte[] signature = DECODER.decode(token.substring(dot + 1));
+			EntitlementToken claims = EntitlementToken.fromBytes(payload);
+			Key key = keys.get(claims.getKeyId());
+			if (key == null || !key.verify(payload, signature) || claims.isExpired(now)) return null;
+			return claims;
+		} catch (IllegalArgumentException e) {
+			// malformed: not our token
+			return null;
+		}
+	}
+
+	/** True if the token is valid and entitles the given account to the given item. */
+	public boolean isEntitled (String token, String subject, String identifier) {
+		EntitlementToken claims = validate(token);
+		return claims != null && claims.getSubject().equals(subject) && claims.getIdentifier().equals(identifier);
+	}
+
+	private static final class Key {
+		private final ThreadLocal<Mac> macs;
+		private final ThreadLocal<Signature> signatures;
+
+		Key (ThreadLocal<Mac> macs, ThreadLocal<Signature> signatures) {
+			this.macs = macs;
+			this.signatures = signatures;
+		}
+
+		boolean verify (byte[] payload, byte[] signature) {
+			if (macs != null) {
+				// constant time, doesn't leak how much of a forged signature matches
+				return MessageDigest.isEqual(macs.get().doFinal(payload), signature);
+			}
+			Signature verifier = signatures.get();
+			try {
+				verifier.update(payload);
+				return verifier.verify(signature);
+			} catch (GeneralSecurityException e) {
+				// e.g. signature of wrong length. The instance may still hold the payload, the next token would be checked
+				// against both, so this thread gets a new one
+				signatures.remove();
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.token;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/** Creates initialized Mac/Signature instances. Bad keys and unsupported algorithms are configuration errors and result in
+ * an {@link IllegalArgumentException}. */
+final class Tokens {
+
+	static Mac mac (SecretKeySpec key) {
+		try {
+			Mac mac = Mac.getInstance(key.getAlgorithm());
+			mac.init(key);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("Invalid HMAC key.", e);
+		}
+	}
+
+	static Signature signer (PrivateKey key, String algorithm) {
+		try {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initSign(key);
+			return signature;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("Invalid private key for " + algorithm + ".", e);
+		}
+	}
+
+	static Signature verifier (PublicKey key, String algorithm) {
+		try {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initVerify(key);
+			return signature;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("Invalid public key for " + algorithm + ".", e);
+		}
+	}
+
+	// Dummy constructor.
+	private Tokens () {
+	}
+}
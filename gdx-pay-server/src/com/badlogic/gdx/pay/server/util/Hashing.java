@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.util;
+
+/** Fast 64-bit hashing for placement and lookup tables. {@link #hash64} is not keyed and not suitable where an attacker
+ * could profit from collisions, use {@link #sipHash24} with a secret random key for that. */
+public final class Hashing {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** 64-bit hash of the characters of a string (FNV-1a with a final avalanche step so all bits are well distributed). */
+	public static long hash64 (CharSequence s) {
+		return mix64(fnv(FNV_OFFSET, s));
+	}
+
+	/** 64-bit hash of two strings, equivalent to hashing them with a separator in between but without concatenating. */
+	public static long hash64 (CharSequence first, CharSequence second) {
+		long hash = fnv(FNV_OFFSET, first);
+		hash = (hash ^ 0xFFFF) * FNV_PRIME;
+		return mix64(fnv(hash, second));
+	}
+
+	private static long fnv (long hash, CharSequence s) {
+		if (s == null) return (hash ^ 0xFFFE) * FNV_PRIME;
+		for (int i = 0, n = s.length(); i < n; i++) {
+			char c = s.charAt(i);
+			hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/** Keyed 64-bit hash of the characters of a string: SipHash-2-4 of their UTF-16LE bytes. Without the key, colliding
+	 * strings can't be made up, so it is safe for tables keyed by attacker-controlled strings. */
+	public static long sipHash24 (long k0, long k1, CharSequence s) {
+		SipHash hash = new SipHash(k0, k1);
+		int n = s.length();
+		int end = n & ~3;
+		for (int i = 0; i < end; i += 4) {
+			hash.compress(s.charAt(i) | (long)s.charAt(i + 1) << 16 | (long)s.charAt(i + 2) << 32 | (long)s.charAt(i + 3) << 48);
+		}
+		long last = (long)(n * 2 & 0xFF) << 56;
+		for (int i = end, shift = 0; i < n; i++, shift += 16) {
+			last |= (long)s.charAt(i) << shift;
+		}
+		return hash.finish(last);
+	}
+
+	/** SipHash-2-4 of the bytes. */
+	public static long sipHash24 (long k0, long k1, byte[] bytes, int offset, int length) {
+		SipHash hash = new SipHash(k0, k1);
+		int end = offset + (length & ~7);
+		for (int i = offset; i < end; i += 8) {
+			long m = 0;
+			for (int j = 7; j >= 0; j--) {
+				m = m << 8 | (bytes[i + j] & 0xFF);
+			}
+			hash.compress(m);
+		}
+		long last = (long)(length & 0xFF) << 56;
+		for (int i = end, shift = 0; i < offset + length; i++, shift += 8) {
+			last |= (long)(bytes[i] & 0xFF) << shift;
+		}
+		return hash.finish(last);
+	}
+
+	/** The MurmurHash3 64-bit finalizer. */
+	public static long mix64 (long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	// Dummy constructor.
+	private Hashing () {
+	}
+
+	private static final class SipHash {
+		private long v0, v1, v2, v3;
+
+		SipHash (long k0, long k1) {
+			v0 = k0 ^ 0x736f6d6570736575L;
+			v1 = k1 ^ 0x646f72616e646f6dL;
+			v2 = k0 ^ 0x6c7967656e657261L;
+			v3 = k1 ^ 0x7465646279746573L;
+		}
+
+		void compress (long m) {
+			v3 ^= m;
+			round();
+			round();
+			v0 ^= m;
+		}
+
+		long finish (long last) {
+			compress(last);
+			v2 ^= 0xFF;
+			round();
+			round();
+			round();
+			round();
+			return v0 ^ v1 ^ v2 ^ v3;
+		}
+
+		private void round () {
+			v0 += v1;
+			v1 = Long.rotateLeft(v1, 13);
+			v1 ^= v0;
+			v0 = Long.rotateLeft(v0, 32);
+			v2 += v3;
+			v3 = Long.rotateLeft(v3, 16);
+			v3 ^= v2;
+			v0 += v3;
+			v3 = Long.rotateLeft(v3, 21);
+			v3 ^= v0;
+			v2 += v1;
+			v1 = Long.rotateLeft(v1, 17);
+			v1 ^= v2;
+			v2 = Long.rotateLeft(v2, 32);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.server.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Lock-free histogram of latencies in nanoseconds with about 3% relative precision, over the full range of a long.
+ * Values are counted in log-linear buckets: 32 buckets per power of two. Recording is a few instructions and one atomic
+ * increment, so it can sit on the hot path of every thread. Percentiles report the upper bound of the bucket, so they err
+ * on the slow side. */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/** Records a latency. Negative values are recorded as 0. */
+	public void record (long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts.incrementAndGet(index(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		long current;
+		while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+		}
+	}
+
+	static int index (long value) {
+		if (value < SUB_BUCKETS) return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/** Returns the largest value counted in the bucket. */
+	static long upperBound (int index) {
+		if (index < SUB_BUCKETS) return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long sub = index % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+	}
+
+	public long getCount () {
+		return count.get();
+	}
+
+	public long getMax () {
+		return max.get();
+	}
+
+	public double getMean () {
+		long n = count.get();
+		return n > 0 ? (double)sum.get() / n : 0;
+	}
+
+	/** Returns the latency below or at which the given percentage of the values lie, 0 if nothing was recorded. Not
+	 * consistent with concurrent recording, but close. */
+	public long percentile (double percent) {
+		long n = count.get();
+		if (n == 0) return 0;
+		long target = Math.max(1, (long)Math.ceil(percent / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target) return Math.min(upperBound(i), max.get());
+		}
+		return max.get();
+	}
+
+	/** Removes all values. Not atomic with concurrent recording. */
+	public void reset () {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/** Returns a report like "n=1000 mean=1.20ms p50=1.10ms p90=1.80ms p99=4.20ms p99.9=9.10ms max=12.00ms". */
+	@Override
+	public String toString () {
+		return "n=" + getCount() + " mean=" + millis((long)getMean()) + " p50=" + millis(percentile(50)) + " p90="
+			+ millis(percentile(90)) + " p99=" + millis(percentile(99)) + " p99.9=" + millis(percentile(99.9)) + " max="
+			+ millis(getMax());
+	}
+
+	private static String millis (long nanos) {
+		return String.format("%.2fms", nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+	}
+}
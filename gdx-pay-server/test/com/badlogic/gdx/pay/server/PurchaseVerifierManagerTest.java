@@ -0,0 +1,139 @@
+package com.badlogic.gdx.pay.server;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PurchaseVerifierManagerTest {
+
+    private static final String GOOGLE = PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE;
+    private static final String APPLE = PurchaseManagerConfig.STORE_NAME_IOS_APPLE;
+
+    @Test
+    public void transactionsShouldBeRoutedByApp() throws Exception {
+        List<String> calls = new ArrayList<String>();
+        PurchaseVerifier one = verifier(GOOGLE, "one", calls);
+        PurchaseVerifier two = verifier(GOOGLE, "two", calls);
+        PurchaseVerifier store = verifier(GOOGLE, "store", calls);
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.addVerifier("com.mygame.one", one);
+        manager.addVerifier("com.mygame.two", two);
+        manager.addVerifier(store);
+
+        assertEquals(one, manager.getVerifier(google("com.mygame.one")));
+        assertEquals(two, manager.getVerifier(google("com.mygame.two")));
+        assertTrue(manager.isValid(google("com.mygame.one")));
+        assertTrue(manager.isValid(google("com.mygame.two")));
+        assertEquals("[one, two]", calls.toString());
+
+        // unknown and unresolvable apps fall back to the store-wide verifier
+        assertEquals(store, manager.getVerifier(google("com.mygame.three")));
+        assertEquals(store, manager.getVerifier(google(null)));
+        Transaction garbage = google(null);
+        garbage.setTransactionData("not json");
+        assertEquals(store, manager.getVerifier(garbage));
+    }
+
+    @Test
+    public void storesWithoutAppVerifiersShouldNotResolveTheApp() throws Exception {
+        final List<Transaction> resolved = new ArrayList<Transaction>();
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.setAppIdResolver(new AppIdResolver() {
+            @Override
+            public String appId(Transaction transaction) {
+                resolved.add(transaction);
+                return "com.mygame.one";
+            }
+        });
+        PurchaseVerifier apple = verifier(APPLE, "apple", new ArrayList<String>());
+        manager.addVerifier(apple);
+        manager.addVerifier("com.mygame.one", verifier(GOOGLE, "one", new ArrayList<String>()));
+
+        Transaction transaction = new Transaction();
+        transaction.setStoreName(APPLE);
+        assertEquals(apple, manager.getVerifier(transaction));
+        assertTrue(resolved.isEmpty());
+        assertEquals(VerificationResult.VALID, manager.verify(transaction));
+        assertTrue(resolved.isEmpty());
+    }
+
+    @Test
+    public void removeVerifierShouldOnlyRemoveThatVerifier() throws Exception {
+        List<String> calls = new ArrayList<String>();
+        PurchaseVerifier one = verifier(GOOGLE, "one", calls);
+        PurchaseVerifier other = verifier(GOOGLE, "other", calls);
+        PurchaseVerifier store = verifier(GOOGLE, "store", calls);
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.addVerifier("com.mygame.one", one);
+        manager.addVerifier(store);
+
+        // not the verifier of the app
+        manager.removeVerifier("com.mygame.one", other);
+        assertEquals(one, manager.getVerifier(google("com.mygame.one")));
+
+        manager.removeVerifier("com.mygame.one", one);
+        assertEquals(store, manager.getVerifier(google("com.mygame.one")));
+
+        manager.removeVerifier(store);
+        assertNull(manager.getVerifier(google("com.mygame.one")));
+        assertEquals(VerificationResult.INVALID, manager.verify(google("com.mygame.one")));
+        assertEquals(VerificationResult.VALID, new PurchaseVerifierManager(true).verify(google("com.mygame.one")));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void transactionOfAnotherAppShouldBeRejectedAtAnAppEndpoint() throws Exception {
+        List<String> calls = new ArrayList<String>();
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.addVerifier("com.mygame.one", verifier(GOOGLE, "one", calls));
+        manager.addVerifier("com.mygame.two", verifier(GOOGLE, "two", calls));
+        manager.addVerifier(verifier(GOOGLE, "store", calls));
+        manager.addVerifier(verifier(APPLE, "apple", calls));
+
+        assertEquals(VerificationResult.VALID, manager.verify(google("com.mygame.one"), null, "com.mygame.one"));
+        // a receipt of app two sent to the endpoint of app one
+        assertEquals(VerificationResult.INVALID, manager.verify(google("com.mygame.two"), null, "com.mygame.one"));
+        assertEquals(VerificationResult.INVALID, manager.verify(google("com.other.game"), null, "com.mygame.one"));
+        // the app can't be resolved, the verifier of the endpoint's app decides
+        assertEquals(VerificationResult.VALID, manager.verify(google(null), null, "com.mygame.two"));
+        // no verifier for the endpoint's app, the store-wide one decides
+        assertEquals(VerificationResult.VALID, manager.verify(google("com.mygame.three"), null, "com.mygame.three"));
+        // Apple receipts don't name the app in readable form
+        Transaction apple = new Transaction();
+        apple.setStoreName(APPLE);
+        assertEquals(VerificationResult.VALID, manager.verify(apple, null, "com.mygame.one"));
+        assertEquals("[one, two, store, apple]", calls.toString());
+    }
+
+    private static PurchaseVerifier verifier(final String storeName, final String name, final List<String> calls) {
+        return new PurchaseVerifier() {
+            @Override
+            public String storeName() {
+                return storeName;
+            }
+
+            @Override
+            public boolean isValid(Transaction transaction) {
+                calls.add(name);
+                return true;
+            }
+        };
+    }
+
+    private static Transaction google(String packageName) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName(GOOGLE);
+        transaction.setOrderId("GPA.1");
+        transaction.setTransactionData(packageName != null
+                ? "{\"orderId\":\"GPA.1\",\"packageName\":\"" + packageName + "\"}"
+                : "{\"orderId\":\"GPA.1\"}");
+        return transaction;
+    }
+}
@@ -0,0 +1,74 @@
+package com.badlogic.gdx.pay.server.audit;
+
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class AuditLogTest {
+
+    @Test
+    public void recordsAppendedWhileClosingShouldBeWrittenOrCountedAsDropped() throws Exception {
+        File directory = Files.createTempDirectory("audit").toFile();
+        final AuditLog log = new AuditLog(directory, "audit");
+        log.start();
+
+        final AtomicLong appended = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 20000; n++) {
+                        log.append(record("GPA." + n));
+                        appended.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        Thread.sleep(5);
+        log.close();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(appended.get(), log.getWrittenCount() + log.getDroppedCount());
+        assertEquals(log.getWrittenCount(), lines(directory));
+    }
+
+    @Test
+    public void recordsThatFailedToWriteShouldBeCountedAsDropped() throws Exception {
+        File directory = Files.createTempDirectory("audit").toFile();
+        AuditLog log = new AuditLog(directory, "audit") {
+            @Override
+            protected void error(String message, Exception ex) {
+            }
+        };
+        log.start();
+        // the writer can't create a file anymore
+        assertEquals(true, directory.delete());
+
+        log.append(record("GPA.1"));
+        log.append(record("GPA.2"));
+        log.close();
+
+        assertEquals(0, log.getWrittenCount());
+        assertEquals(2, log.getDroppedCount());
+    }
+
+    private static AuditRecord record(String orderId) {
+        return new AuditRecord(System.currentTimeMillis(), "GooglePlay", orderId, "coins", "u1", "test",
+                VerificationResult.VALID, 1000);
+    }
+
+    private static long lines(File directory) throws Exception {
+        long lines = 0;
+        File[] files = directory.listFiles();
+        if (files == null) return 0;
+        for (File file : files) lines += Files.readAllLines(file.toPath()).size();
+        return lines;
+    }
+}
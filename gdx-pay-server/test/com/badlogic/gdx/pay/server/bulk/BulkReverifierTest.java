@@ -0,0 +1,227 @@
+package com.badlogic.gdx.pay.server.bulk;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.codec.PayJsonCodec;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkReverifierTest {
+
+    private static final int COUNT = 100;
+    private static final int CHECKPOINT_INTERVAL = 10;
+    private static final String CRASH = "GPA.37";
+    private static final int[] MALFORMED = {5, 33, 71};
+
+    @Test
+    public void resumedRunShouldWriteWhatAnUninterruptedRunWrites() throws Exception {
+        File expected = File.createTempFile("reverify", ".expected");
+        File output = File.createTempFile("reverify", ".ndjson");
+        File checkpoint = new File(output.getPath() + ".checkpoint");
+        try {
+            BulkReverifier uninterrupted = reverifier(false);
+            assertEquals(COUNT, uninterrupted.run(new NdjsonTransactionReader(new StringReader(ndjson())), expected, null));
+            assertEquals(MALFORMED.length, uninterrupted.getMalformedCount());
+
+            try {
+                reverifier(true).run(new NdjsonTransactionReader(new StringReader(ndjson())), output, checkpoint);
+                fail("should have crashed");
+            } catch (IOException e) {
+                // expected
+            }
+            long[] state = BulkReverifier.readCheckpoint(checkpoint);
+            assertEquals(30, state[0]);
+            assertEquals(output.length(), state[1]);
+
+            // a torn write and garbage past the checkpoint, as a crash in the middle of a flush can leave
+            append(output, "{\"index\":30,\"storeName\":\"Goo\u0000\u0000");
+
+            BulkReverifier resumed = reverifier(false);
+            assertEquals(COUNT - 30, resumed.run(new NdjsonTransactionReader(new StringReader(ndjson())), output, checkpoint));
+            assertEquals(COUNT, resumed.getPosition());
+            // only the malformed lines after the checkpoint were read
+            assertEquals(2, resumed.getMalformedCount());
+            assertEquals(read(expected), read(output));
+            assertEquals(COUNT, BulkReverifier.readCheckpoint(checkpoint)[0]);
+        } finally {
+            expected.delete();
+            output.delete();
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void malformedLinesShouldKeepTheirPosition() throws Exception {
+        File output = File.createTempFile("reverify", ".ndjson");
+        try {
+            BulkReverifier reverifier = reverifier(false);
+            reverifier.run(new NdjsonTransactionReader(new StringReader(ndjson())), output, null);
+
+            String[] lines = read(output).split("\n");
+            assertEquals(COUNT, lines.length);
+            for (int i = 0; i < COUNT; i++) {
+                assertTrue(lines[i], lines[i].startsWith("{\"index\":" + i + ","));
+                assertEquals(isMalformed(i), lines[i].contains("\"error\""));
+            }
+            assertTrue(lines[6].contains("\"orderId\":\"GPA.6\""));
+            assertEquals(COUNT - MALFORMED.length, reverifier.getCount(VerificationResult.VALID)
+                + reverifier.getCount(VerificationResult.INVALID));
+        } finally {
+            output.delete();
+        }
+    }
+
+    @Test
+    public void outputShorterThanCheckpointShouldBeRefused() throws Exception {
+        File output = File.createTempFile("reverify", ".ndjson");
+        File checkpoint = new File(output.getPath() + ".checkpoint");
+        try {
+            BulkReverifier.writeCheckpoint(checkpoint, 10, 1000);
+            try {
+                reverifier(false).run(new NdjsonTransactionReader(new StringReader(ndjson())), output, checkpoint);
+                fail("output lost data the checkpoint says is there");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            output.delete();
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void resumeFromBinaryBatchesShouldMatchUninterruptedRun() throws Exception {
+        File expected = File.createTempFile("reverify", ".expected");
+        File output = File.createTempFile("reverify", ".ndjson");
+        File checkpoint = new File(output.getPath() + ".checkpoint");
+        try {
+            reverifier(false).run(new BinaryTransactionReader(new ByteArrayInputStream(batches(7))), expected, null);
+            try {
+                reverifier(true).run(new BinaryTransactionReader(new ByteArrayInputStream(batches(7))), output, checkpoint);
+                fail("should have crashed");
+            } catch (IOException e) {
+                // expected
+            }
+
+            // the checkpoint (30) is in the middle of a batch of 7
+            assertEquals(70, reverifier(false).run(new BinaryTransactionReader(new ByteArrayInputStream(batches(7))), output,
+                checkpoint));
+            assertEquals(read(expected), read(output));
+        } finally {
+            expected.delete();
+            output.delete();
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void binarySkipShouldCrossBatchBoundaries() throws Exception {
+        BinaryTransactionReader reader = new BinaryTransactionReader(new ByteArrayInputStream(batches(7)));
+
+        assertEquals(0, reader.skip(0));
+        assertEquals(5, reader.skip(5));
+        assertEquals("GPA.5", reader.read().getOrderId());
+        // from the middle of the first batch to the middle of the third
+        assertEquals(10, reader.skip(10));
+        assertEquals("GPA.16", reader.read().getOrderId());
+        assertEquals(4, reader.skip(4));
+        // first of a batch
+        assertEquals("GPA.21", reader.read().getOrderId());
+        assertEquals(COUNT - 22, reader.skip(1000));
+        assertNull(reader.read());
+        assertEquals(0, reader.skip(1));
+        reader.close();
+    }
+
+    private static BulkReverifier reverifier(final boolean crash) {
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.addVerifier(new PurchaseVerifier() {
+            @Override
+            public String storeName() {
+                return "GooglePlay";
+            }
+
+            @Override
+            public boolean isValid(Transaction transaction) {
+                if (crash && CRASH.equals(transaction.getOrderId())) {
+                    // not caught as a verifier failure, stands in for the process dying
+                    throw new Error("crash");
+                }
+                return transaction.getOrderId().hashCode() % 3 != 0;
+            }
+        });
+        BulkReverifier reverifier = new BulkReverifier(manager);
+        reverifier.setParallelism(4);
+        reverifier.setCheckpointInterval(CHECKPOINT_INTERVAL);
+        return reverifier;
+    }
+
+    private static String ndjson() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < COUNT; i++) {
+            if (i == 50) builder.append("\n  \n"); // blank lines aren't transactions
+            builder.append(isMalformed(i) ? "{\"orderId\":\"GPA." + i : PayJsonCodec.toJson(transaction(i))).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /** All transactions in length-prefixed batches of the given size, no malformed ones. */
+    private static byte[] batches(int batchSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < COUNT; i += batchSize) {
+            Transaction[] batch = new Transaction[Math.min(batchSize, COUNT - i)];
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = transaction(i + j);
+            }
+            BinaryTransactionReader.writeBatch(out, batch);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static boolean isMalformed(int index) {
+        for (int malformed : MALFORMED) {
+            if (malformed == index) return true;
+        }
+        return false;
+    }
+
+    private static Transaction transaction(int index) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId("GPA." + index);
+        transaction.setIdentifier("coins");
+        transaction.setUserId("u" + (index % 7));
+        return transaction;
+    }
+
+    private static void append(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
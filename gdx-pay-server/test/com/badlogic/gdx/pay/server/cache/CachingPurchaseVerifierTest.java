@@ -0,0 +1,138 @@
+package com.badlogic.gdx.pay.server.cache;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CachingPurchaseVerifierTest {
+
+    private static final String KEY = "GooglePlay:GPA.1";
+
+    @Test
+    public void terminalResultsShouldBeCached() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        NearCache cache = new NearCache(100);
+        CachingPurchaseVerifier verifier = new CachingPurchaseVerifier(verifier(calls, null, null), cache, 60000);
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction()));
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction()));
+        assertEquals(1, calls.get());
+
+        verifier.invalidate("GPA.1");
+        assertNull(cache.get(KEY));
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction()));
+        assertEquals(2, calls.get());
+        assertNotNull(cache.get(KEY));
+    }
+
+    @Test
+    public void verificationRunningDuringInvalidationShouldNotBeCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        NearCache cache = new NearCache(100);
+        final CachingPurchaseVerifier verifier = new CachingPurchaseVerifier(verifier(calls, started, invalidated), cache,
+                60000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // asked the store before the refund, answers after it
+            Future<VerificationResult> stale = executor.submit(new Callable<VerificationResult>() {
+                @Override
+                public VerificationResult call() {
+                    return verifier.verify(transaction());
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            verifier.invalidate("GPA.1");
+            invalidated.countDown();
+
+            assertEquals(VerificationResult.VALID, stale.get(10, TimeUnit.SECONDS));
+            assertNull(cache.get(KEY));
+        } finally {
+            executor.shutdown();
+        }
+
+        // the next verification is cached again
+        verifier.verify(transaction());
+        assertNotNull(cache.get(KEY));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void invalidationThroughTheRemoteTierShouldBeSeen() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        InMemoryRemoteCache remote = new InMemoryRemoteCache();
+        final TwoTierVerificationCache cache = new TwoTierVerificationCache(new NearCache(100), remote);
+        final CachingPurchaseVerifier verifier = new CachingPurchaseVerifier(verifier(new AtomicInteger(), started,
+                invalidated), cache, 60000);
+        remote.addInvalidationListener(verifier);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<VerificationResult> stale = executor.submit(new Callable<VerificationResult>() {
+                @Override
+                public VerificationResult call() {
+                    return verifier.verify(transaction());
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // e.g. a refund poller, which only knows the cache
+            cache.invalidate(KEY);
+            invalidated.countDown();
+
+            stale.get(10, TimeUnit.SECONDS);
+            assertNull(cache.get(KEY));
+            assertNull(remote.get(KEY));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Returns a verifier that finds everything valid, optionally signaling it started and waiting before answering. */
+    private static PurchaseVerifier verifier(final AtomicInteger calls, final CountDownLatch started,
+            final CountDownLatch proceed) {
+        return new PurchaseVerifier() {
+            @Override
+            public String storeName() {
+                return "GooglePlay";
+            }
+
+            @Override
+            public boolean isValid(Transaction transaction) {
+                calls.incrementAndGet();
+                if (started != null) {
+                    started.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId("GPA.1");
+        transaction.setIdentifier("coins");
+        transaction.setTransactionData("{\"orderId\":\"GPA.1\"}");
+        return transaction;
+    }
+}
@@ -0,0 +1,78 @@
+package com.badlogic.gdx.pay.server.cache;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class NegativeCachingPurchaseVerifierTest {
+
+    @Test
+    public void onlyInvalidShouldBeRemembered() throws Exception {
+        StubVerifier store = new StubVerifier(VerificationResult.ERROR);
+        NegativeCachingPurchaseVerifier verifier = new NegativeCachingPurchaseVerifier(store,
+                new NegativeCache(100, TimeUnit.HOURS.toMillis(1)));
+
+        assertEquals(VerificationResult.ERROR, verifier.verify(transaction("receipt")));
+        assertEquals(VerificationResult.ERROR, verifier.verify(transaction("receipt")));
+        assertEquals(2, store.calls.get());
+
+        store.result = VerificationResult.INVALID;
+        assertEquals(VerificationResult.INVALID, verifier.verify(transaction("receipt")));
+        assertEquals(VerificationResult.INVALID, verifier.verify(transaction("receipt")));
+        assertEquals(3, store.calls.get());
+        assertEquals(1, verifier.getHitCount());
+    }
+
+    @Test
+    public void refusedShouldNotBeRemembered() throws Exception {
+        // like Apple's 21007, a sandbox receipt sent to production
+        StubVerifier store = new StubVerifier(VerificationResult.REFUSED);
+        NegativeCachingPurchaseVerifier verifier = new NegativeCachingPurchaseVerifier(
+                new CachingPurchaseVerifier(store, new InMemoryRemoteCache(), 60000),
+                new NegativeCache(100, TimeUnit.HOURS.toMillis(1)));
+
+        assertEquals(VerificationResult.REFUSED, verifier.verify(transaction("sandbox")));
+        assertEquals(VerificationResult.REFUSED, verifier.verify(transaction("sandbox")));
+        assertEquals(2, store.calls.get());
+        assertEquals(0, verifier.getCache().size());
+    }
+
+    private static Transaction transaction(String data) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("AppleAppStore");
+        transaction.setOrderId("1000000000000001");
+        transaction.setTransactionData(data);
+        return transaction;
+    }
+
+    private static class StubVerifier implements PurchaseVerifier {
+        final AtomicInteger calls = new AtomicInteger();
+        VerificationResult result;
+
+        StubVerifier(VerificationResult result) {
+            this.result = result;
+        }
+
+        @Override
+        public String storeName() {
+            return "AppleAppStore";
+        }
+
+        @Override
+        public boolean isValid(Transaction transaction) {
+            return verify(transaction).isValid();
+        }
+
+        @Override
+        public VerificationResult verify(Transaction transaction) {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+}
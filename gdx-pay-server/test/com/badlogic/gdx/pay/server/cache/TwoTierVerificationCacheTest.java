@@ -0,0 +1,49 @@
+package com.badlogic.gdx.pay.server.cache;
+
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TwoTierVerificationCacheTest {
+
+    @Test
+    public void expiredNearEntryShouldFallThroughToRemote() throws Exception {
+        InMemoryRemoteCache remote = new InMemoryRemoteCache();
+        TwoTierVerificationCache node1 = new TwoTierVerificationCache(new NearCache(100), remote);
+        TwoTierVerificationCache node2 = new TwoTierVerificationCache(new NearCache(100), remote);
+        long now = System.currentTimeMillis();
+
+        node1.put("GooglePlay:GPA.1", new CachedResult("f", VerificationResult.VALID, now - 1));
+        CachedResult fresh = new CachedResult("f", VerificationResult.VALID, now + 60000);
+        node2.put("GooglePlay:GPA.1", fresh);
+
+        assertEquals(fresh, node1.get("GooglePlay:GPA.1"));
+        // and copied into the near-cache
+        assertEquals(fresh, node1.getNearCache().get("GooglePlay:GPA.1"));
+    }
+
+    @Test
+    public void expiredEverywhereShouldMiss() throws Exception {
+        TwoTierVerificationCache cache = new TwoTierVerificationCache(new NearCache(100), new InMemoryRemoteCache());
+        cache.put("GooglePlay:GPA.1", new CachedResult("f", VerificationResult.VALID, System.currentTimeMillis() - 1));
+
+        assertNull(cache.get("GooglePlay:GPA.1"));
+        assertNull(cache.getNearCache().get("GooglePlay:GPA.1"));
+    }
+
+    @Test
+    public void invalidationShouldReachAllNodes() throws Exception {
+        InMemoryRemoteCache remote = new InMemoryRemoteCache();
+        TwoTierVerificationCache node1 = new TwoTierVerificationCache(new NearCache(100), remote);
+        TwoTierVerificationCache node2 = new TwoTierVerificationCache(new NearCache(100), remote);
+        CachedResult result = new CachedResult("f", VerificationResult.VALID, System.currentTimeMillis() + 60000);
+        node1.put("GooglePlay:GPA.1", result);
+        assertEquals(result, node2.get("GooglePlay:GPA.1"));
+
+        node1.invalidate("GooglePlay:GPA.1");
+
+        assertNull(node2.get("GooglePlay:GPA.1"));
+    }
+}
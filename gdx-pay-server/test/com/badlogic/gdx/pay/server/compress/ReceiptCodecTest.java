@@ -0,0 +1,245 @@
+package com.badlogic.gdx.pay.server.compress;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReceiptCodecTest {
+
+    @Test
+    public void jsonShouldRoundTripWithAndWithoutDictionary() throws Exception {
+        ReceiptCodec plain = new ReceiptCodec();
+        ReceiptCodec trained = new ReceiptCodec();
+        trained.addDictionary(train(1, "GooglePlay", 50));
+        String receipt = googleReceipt(1000);
+
+        byte[] withoutDictionary = plain.compress("GooglePlay", receipt);
+        byte[] withDictionary = trained.compress("GooglePlay", receipt);
+
+        assertEquals(receipt, plain.decompress(withoutDictionary));
+        assertEquals(receipt, trained.decompress(withDictionary));
+        assertEquals(receipt, stream(trained, withDictionary));
+        assertTrue(withoutDictionary.length < receipt.length());
+        // a single receipt has little redundancy of its own, the dictionary provides it
+        assertTrue(withDictionary.length < withoutDictionary.length / 2);
+    }
+
+    @Test
+    public void storesWithoutDictionaryShouldNotUseAnother() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        codec.addDictionary(train(1, "GooglePlay", 50));
+        String receipt = googleReceipt(1000);
+
+        byte[] compressed = codec.compress("AmazonApps", receipt);
+
+        assertEquals(receipt, new ReceiptCodec().decompress(compressed));
+        assertEquals(receipt, codec.decompress(codec.compress(null, receipt)));
+    }
+
+    @Test
+    public void canonicalBase64ShouldBeCompressedDecoded() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        byte[] binary = new byte[3000];
+        Arrays.fill(binary, (byte)7);
+        String base64 = Base64.getEncoder().encodeToString(binary);
+
+        byte[] compressed = codec.compress("AppleiOS", base64);
+
+        // the decoded bytes are all the same, the Base64 text is not
+        assertTrue(compressed.length < 100);
+        assertEquals(base64, codec.decompress(compressed));
+        assertEquals(base64, stream(codec, compressed));
+    }
+
+    @Test
+    public void nonCanonicalBase64ShouldBeKeptAsText() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        String canonical = Base64.getEncoder().encodeToString("{\"orderId\":\"GPA.1\"}".getBytes(StandardCharsets.UTF_8));
+        // decodes to the same bytes, but wouldn't encode back to it
+        String mime = canonical.substring(0, 8) + "\r\n" + canonical.substring(8);
+        String urlSafe = Base64.getUrlEncoder().encodeToString(new byte[] {(byte)0xfb, (byte)0xff, 0x00});
+
+        for (String payload : new String[] {mime, urlSafe, "abc", "", "{\"a\":1}"}) {
+            assertEquals(payload, codec.decompress(codec.compress("GooglePlay", payload)));
+            assertEquals(payload, stream(codec, codec.compress("GooglePlay", payload)));
+        }
+        assertNull(codec.compress("GooglePlay", null));
+        assertNull(codec.decompress(null));
+    }
+
+    @Test
+    public void incompressibleDataShouldBeStoredAsIs() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        byte[] random = new byte[1024];
+        new Random(1).nextBytes(random);
+        String base64 = Base64.getEncoder().encodeToString(random);
+
+        byte[] compressed = codec.compress("AppleiOS", base64);
+
+        // flags and dictionary ID, then the decoded bytes as they are
+        assertEquals(random.length + 2, compressed.length);
+        assertEquals(0, compressed[1]);
+        assertTrue(Arrays.equals(random, Arrays.copyOfRange(compressed, 2, compressed.length)));
+        assertEquals(base64, codec.decompress(compressed));
+        assertEquals(base64, stream(codec, compressed));
+    }
+
+    @Test
+    public void unknownDictionaryShouldBeRejected() throws Exception {
+        ReceiptCodec trained = new ReceiptCodec();
+        trained.addDictionary(train(300, "GooglePlay", 20));
+        byte[] compressed = trained.compress("GooglePlay", googleReceipt(1));
+        ReceiptCodec other = new ReceiptCodec();
+
+        try {
+            other.decompress(compressed);
+            fail("unknown dictionary");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("300"));
+        }
+        try {
+            stream(other, compressed);
+            fail("unknown dictionary");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("300"));
+        }
+    }
+
+    @Test
+    public void dictionaryIdsShouldBeUnique() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        codec.addDictionary(new ReceiptDictionary(1, "GooglePlay", new byte[] {1}));
+        try {
+            codec.addDictionary(new ReceiptDictionary(1, "AppleiOS", new byte[] {2}));
+            fail("ID in use");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void truncatedDataShouldBeRejected() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        codec.addDictionary(train(1, "GooglePlay", 20));
+        byte[] compressed = codec.compress("GooglePlay", googleReceipt(1));
+
+        assertRejected(codec, Arrays.copyOf(compressed, compressed.length / 2));
+        assertRejected(codec, Arrays.copyOf(compressed, 2));
+        assertRejected(codec, new byte[0]);
+        // dictionary ID varint that never ends
+        assertRejected(codec, new byte[] {1, (byte)0x80});
+        assertRejected(codec, new byte[] {1, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 1});
+    }
+
+    @Test
+    public void corruptDataShouldBeRejected() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        codec.addDictionary(train(1, "GooglePlay", 20));
+        byte[] compressed = codec.compress("GooglePlay", googleReceipt(1));
+
+        // reserved deflate block type
+        byte[] corrupt = compressed.clone();
+        corrupt[2] = (byte)0xff;
+        assertRejected(codec, corrupt);
+
+        // compressed with a dictionary, but the header says none: back references into nothing
+        byte[] withoutId = compressed.clone();
+        withoutId[1] = 0;
+        assertRejected(codec, withoutId);
+    }
+
+    @Test
+    public void streamingShouldMatchDecompressForLargePayloads() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        codec.addDictionary(train(1, "GooglePlay", 20));
+        StringBuilder large = new StringBuilder();
+        Random random = new Random(2);
+        while (large.length() < 200000) {
+            large.append(googleReceipt(random.nextInt(100000))).append('\n');
+        }
+        String payload = large.toString();
+        String base64 = Base64.getEncoder().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+
+        for (String receipt : new String[] {payload, base64}) {
+            byte[] compressed = codec.compress("GooglePlay", receipt);
+            assertEquals(codec.decompress(compressed), stream(codec, compressed));
+            assertEquals(receipt, stream(codec, compressed));
+        }
+    }
+
+    @Test
+    public void trainedDictionaryShouldHoldCommonContentOnly() throws Exception {
+        ReceiptDictionaryTrainer trainer = new ReceiptDictionaryTrainer(1024);
+        for (int i = 0; i < 5; i++) {
+            trainer.addSample(googleReceipt(i));
+        }
+        trainer.addSample(null);
+        trainer.addSample("");
+        assertEquals(5, trainer.getSampleCount());
+
+        ReceiptDictionary dictionary = trainer.train(7, "GooglePlay");
+        String content = new String(dictionary.getBytes(), StandardCharsets.ISO_8859_1);
+
+        assertEquals(7, dictionary.getId());
+        assertEquals("GooglePlay", dictionary.getStoreName());
+        assertTrue(dictionary.getBytes().length > 0 && dictionary.getBytes().length <= 1024);
+        assertTrue(content.contains("com.badlogic.gdx.pay.example"));
+        // order IDs differ per sample
+        assertTrue(!content.contains("GPA.1234-0000-0003"));
+
+        ReceiptCodec codec = new ReceiptCodec();
+        ReceiptCodec withDictionary = new ReceiptCodec();
+        withDictionary.addDictionary(dictionary);
+        String unseen = googleReceipt(42);
+        assertTrue(withDictionary.compress("GooglePlay", unseen).length < codec.compress("GooglePlay", unseen).length);
+        assertEquals(unseen, withDictionary.decompress(withDictionary.compress("GooglePlay", unseen)));
+    }
+
+    private static void assertRejected(ReceiptCodec codec, byte[] compressed) {
+        try {
+            codec.decompress(compressed);
+            fail("decompress(byte[]) accepted " + Arrays.toString(compressed));
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            stream(codec, compressed);
+            fail("decompress(InputStream, OutputStream) accepted " + Arrays.toString(compressed));
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static String stream(ReceiptCodec codec, byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.decompress(new ByteArrayInputStream(compressed), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static ReceiptDictionary train(int id, String storeName, int samples) {
+        ReceiptDictionaryTrainer trainer = new ReceiptDictionaryTrainer();
+        for (int i = 0; i < samples; i++) {
+            trainer.addSample(googleReceipt(10000 + i));
+        }
+        return trainer.train(id, storeName);
+    }
+
+    private static String googleReceipt(int i) {
+        return "{\"orderId\":\"GPA.1234-" + String.format("%04d-%04d", i / 10000, i % 10000) + "\","
+            + "\"packageName\":\"com.badlogic.gdx.pay.example\",\"productId\":\"com.badlogic.gdx.pay.example.coins_"
+            + (i % 3) + "\",\"purchaseTime\":" + (1700000000000L + i * 7919L) + ",\"purchaseState\":0,"
+            + "\"purchaseToken\":\"opaque-token-" + Integer.toHexString(i * 31 + 17) + "\","
+            + "\"acknowledged\":false,\"quantity\":1}";
+    }
+}
@@ -0,0 +1,78 @@
+package com.badlogic.gdx.pay.server.fingerprint;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.cache.CachingPurchaseVerifier;
+import com.badlogic.gdx.pay.server.cache.InMemoryRemoteCache;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReuseDetectingPurchaseVerifierTest {
+
+    private static final PurchaseVerifier ALWAYS_VALID = new PurchaseVerifier() {
+        @Override
+        public String storeName() {
+            return "GooglePlay";
+        }
+
+        @Override
+        public boolean isValid(Transaction transaction) {
+            return true;
+        }
+    };
+
+    @Test
+    public void receiptOfAnotherUserShouldBeRejected() throws Exception {
+        ReuseDetectingPurchaseVerifier verifier = new ReuseDetectingPurchaseVerifier(ALWAYS_VALID,
+                new ReceiptFingerprintIndex());
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("u1", "GPA.1", "{\"orderId\":\"GPA.1\"}")));
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("u1", "GPA.1", "{\"orderId\":\"GPA.1\"}")));
+        assertEquals(VerificationResult.REFUSED, verifier.verify(transaction("u2", "GPA.1", "{\"orderId\":\"GPA.1\"}")));
+        assertEquals(1, verifier.getReuseCount());
+    }
+
+    @Test
+    public void replayByAnotherUserShouldNotTouchTheOwnersPurchase() throws Exception {
+        VerificationState state = new VerificationState();
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.setVerificationState(state);
+        manager.addVerifier(new ReuseDetectingPurchaseVerifier(
+                new CachingPurchaseVerifier(ALWAYS_VALID, new InMemoryRemoteCache(), 60000),
+                new ReceiptFingerprintIndex()));
+        String receipt = "{\"orderId\":\"GPA.1\"}";
+
+        assertEquals(VerificationResult.VALID, manager.verify(transaction("owner", "GPA.1", receipt)));
+        assertEquals(VerificationResult.REFUSED, manager.verify(transaction("attacker", "GPA.1", receipt)));
+
+        assertTrue(state.isEntitled("GooglePlay", "GPA.1"));
+        assertEquals("owner", state.get("GooglePlay", "GPA.1").getUserId());
+        assertEquals(VerificationResult.VALID, manager.verify(transaction("owner", "GPA.1", receipt)));
+    }
+
+    @Test
+    public void transactionsWithoutReceiptShouldPassThrough() throws Exception {
+        ReuseDetectingPurchaseVerifier verifier = new ReuseDetectingPurchaseVerifier(ALWAYS_VALID,
+                new ReceiptFingerprintIndex());
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("u1", "GPA.1", null)));
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("u2", "GPA.2", null)));
+        assertEquals(0, verifier.getReuseCount());
+        assertEquals(0, verifier.getIndex().size());
+    }
+
+    private static Transaction transaction(String userId, String orderId, String data) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setUserId(userId);
+        transaction.setOrderId(orderId);
+        transaction.setTransactionData(data);
+        if (data != null) transaction.setTransactionDataSignature("c2lnbmF0dXJl");
+        return transaction;
+    }
+}
@@ -0,0 +1,103 @@
+package com.badlogic.gdx.pay.server.hedge;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class HedgingPurchaseVerifierTest {
+
+    @Test
+    public void cancelledLoserShouldRecordItsLatency() throws Exception {
+        final AtomicInteger slowCalls = new AtomicInteger();
+        HedgingPurchaseVerifier verifier = new HedgingPurchaseVerifier(new StubVerifier() {
+            @Override
+            public VerificationResult verify(Transaction transaction) {
+                // only the first request for the slow order is slow, its hedge answers right away
+                if (transaction.getOrderId().equals("slow") && slowCalls.getAndIncrement() == 0) sleep(300);
+                return VerificationResult.VALID;
+            }
+        });
+        verifier.setWindow(1, TimeUnit.HOURS, 1);
+        verifier.setMinDelay(5, TimeUnit.MILLISECONDS);
+        verifier.setBudget(1, 10);
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("fast")));
+        assertEquals(1, verifier.latencies().getCount());
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("slow")));
+        assertEquals(1, verifier.getHedgeWinCount());
+        // the hedge and, as a lower bound, the cancelled first request
+        assertEquals(3, verifier.latencies().getCount());
+    }
+
+    @Test
+    public void fullPoolShouldVerifyOnCallingThread() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger onCaller = new AtomicInteger();
+        final HedgingPurchaseVerifier verifier = new HedgingPurchaseVerifier(new StubVerifier() {
+            @Override
+            public VerificationResult verify(Transaction transaction) {
+                if (transaction.getOrderId().equals("blocking")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        return VerificationResult.ERROR;
+                    }
+                }
+                if (Thread.currentThread() == caller) onCaller.incrementAndGet();
+                return VerificationResult.VALID;
+            }
+        }, 1);
+
+        Thread blocking = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                verifier.verify(transaction("blocking"));
+            }
+        });
+        blocking.start();
+        started.await();
+
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction("other")));
+        assertEquals(1, onCaller.get());
+        release.countDown();
+        blocking.join();
+    }
+
+    private static Transaction transaction(String orderId) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("AppleAppStore");
+        transaction.setOrderId(orderId);
+        return transaction;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private abstract static class StubVerifier implements PurchaseVerifier {
+        @Override
+        public String storeName() {
+            return "AppleAppStore";
+        }
+
+        @Override
+        public boolean isValid(Transaction transaction) {
+            return verify(transaction).isValid();
+        }
+    }
+}
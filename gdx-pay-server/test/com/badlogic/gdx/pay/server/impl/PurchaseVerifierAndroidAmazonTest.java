@@ -0,0 +1,52 @@
+package com.badlogic.gdx.pay.server.impl;
+
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PurchaseVerifierAndroidAmazonTest {
+
+    @Test
+    public void nullSecretShouldBeRejected() throws Exception {
+        try {
+            new PurchaseVerifierAndroidAmazon(null);
+            fail("null secret should be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void responseShouldNameTheReceipt() throws Exception {
+        PurchaseVerifierAndroidAmazon verifier = new PurchaseVerifierAndroidAmazon("secret") {
+            @Override
+            protected void log(String message) {
+            }
+        };
+
+        assertEquals(VerificationResult.VALID,
+                verifier.extractResult("{\"receiptId\":\"r1\",\"productId\":\"coins\",\"cancelDate\":null}", "r1", "coins"));
+        assertEquals(VerificationResult.INVALID, verifier.extractResult("{\"productType\":\"ENTITLED\"}", "r1", "coins"));
+        assertEquals(VerificationResult.INVALID,
+                verifier.extractResult("{\"receiptId\":\"r2\",\"productId\":\"coins\"}", "r1", "coins"));
+        assertEquals(VerificationResult.INVALID,
+                verifier.extractResult("{\"receiptId\":\"r1\",\"productId\":\"coins\",\"cancelDate\":\"1\"}", "r1", "coins"));
+    }
+
+    @Test
+    public void responseShouldNameTheProduct() throws Exception {
+        PurchaseVerifierAndroidAmazon verifier = new PurchaseVerifierAndroidAmazon("secret") {
+            @Override
+            protected void log(String message) {
+            }
+        };
+
+        // a genuine receipt for a cheap item sent with the SKU of an expensive one
+        assertEquals(VerificationResult.INVALID,
+                verifier.extractResult("{\"receiptId\":\"r1\",\"productId\":\"coins\"}", "r1", "premium"));
+        assertEquals(VerificationResult.INVALID, verifier.extractResult("{\"receiptId\":\"r1\"}", "r1", "coins"));
+        assertEquals(VerificationResult.INVALID,
+                verifier.extractResult("{\"receiptId\":\"r1\",\"productId\":null}", "r1", "coins"));
+    }
+}
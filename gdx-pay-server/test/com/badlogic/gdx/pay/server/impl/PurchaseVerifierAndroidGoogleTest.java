@@ -0,0 +1,123 @@
+package com.badlogic.gdx.pay.server.impl;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PurchaseVerifierAndroidGoogleTest {
+
+    private static final String DATA = "{\"orderId\":\"GPA.1\",\"packageName\":\"com.example.game\"}";
+
+    @Test
+    public void missingKeysShouldBeAnErrorNotInvalid() throws Exception {
+        KeyPair signer = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        PublicKeyStore keys = new PublicKeyStore();
+        PurchaseVerifierAndroidGoogle verifier = new PurchaseVerifierAndroidGoogle() {
+            @Override
+            protected void log(String message) {
+            }
+        };
+        verifier.setPublicKeyStore(keys);
+        Transaction transaction = transaction(sign(signer, DATA));
+
+        assertEquals(VerificationResult.ERROR, verifier.verify(transaction));
+
+        keys.setKeys(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE, "com.example.game",
+                Base64.getEncoder().encodeToString(signer.getPublic().getEncoded()));
+        assertEquals(VerificationResult.VALID, verifier.verify(transaction));
+        transaction.setTransactionData(DATA.replace("GPA.1", "GPA.2"));
+        assertEquals(VerificationResult.INVALID, verifier.verify(transaction));
+    }
+
+    @Test
+    public void verifyAllShouldKeepTheOrderOfTheTransactions() throws Exception {
+        KeyPair signer = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        PurchaseVerifierAndroidGoogle verifier = new PurchaseVerifierAndroidGoogle() {
+            @Override
+            public VerificationResult verify(Transaction transaction) {
+                threads.add(Thread.currentThread());
+                return super.verify(transaction);
+            }
+
+            @Override
+            protected void log(String message) {
+            }
+        };
+        verifier.setPublicKey(Base64.getEncoder().encodeToString(signer.getPublic().getEncoded()));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        verifier.setForkJoinPool(pool);
+
+        // well above the threshold, so the work is split across the pool
+        Transaction[] transactions = new Transaction[10 * PurchaseVerifierSignatureBase.DEFAULT_PARALLEL_THRESHOLD + 3];
+        VerificationResult[] expected = new VerificationResult[transactions.length];
+        for (int i = 0; i < transactions.length; i++) {
+            String data = DATA.replace("GPA.1", "GPA." + i);
+            transactions[i] = transaction(sign(signer, data));
+            transactions[i].setTransactionData(data);
+            expected[i] = VerificationResult.VALID;
+            if (i % 3 == 1) {
+                // tampered after signing
+                transactions[i].setTransactionData(data.replace("com.example.game", "com.example.gam3"));
+                expected[i] = VerificationResult.INVALID;
+            } else if (i % 3 == 2) {
+                transactions[i].setTransactionDataSignature(null);
+                expected[i] = VerificationResult.INVALID;
+            }
+        }
+
+        try {
+            VerificationResult[] results = verifier.verifyAll(transactions);
+
+            assertEquals(transactions.length, results.length);
+            for (int i = 0; i < transactions.length; i++) {
+                assertEquals("transaction " + i, expected[i], results[i]);
+            }
+            assertTrue(threads.size() > 0);
+            for (Thread thread : threads) {
+                assertTrue(thread.getName(), thread instanceof ForkJoinWorkerThread
+                        && ((ForkJoinWorkerThread) thread).getPool() == pool);
+            }
+
+            // below the threshold: on the calling thread
+            threads.clear();
+            Transaction[] few = {transactions[1], transactions[0]};
+            results = verifier.verifyAll(few);
+            assertEquals(VerificationResult.INVALID, results[0]);
+            assertEquals(VerificationResult.VALID, results[1]);
+            assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Transaction transaction(String signature) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE);
+        transaction.setTransactionData(DATA);
+        transaction.setTransactionDataSignature(signature);
+        return transaction;
+    }
+
+    private static String sign(KeyPair keyPair, String data) throws Exception {
+        Signature signature = Signature.getInstance("SHA1withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+}
@@ -0,0 +1,80 @@
+package com.badlogic.gdx.pay.server.impl;
+
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SecurityTest {
+
+    private static final String DATA = "{\"orderId\":\"GPA.1234-5678-9012-34567\",\"purchaseState\":0}";
+
+    private static final Security.SecurityLogger QUIET = new Security.SecurityLogger() {
+        @Override
+        public void log(String message) {
+        }
+    };
+
+    @Test
+    public void unusableKeyShouldNotStopRemainingKeys() throws Exception {
+        KeyPair signer = generate("RSA", 1024);
+        PublicKey otherRsa = generate("RSA", 2048).getPublic();
+        PublicKey ec = generate("EC", 256).getPublic();
+        String signature = sign(signer, DATA);
+
+        assertTrue(Security.verify(new PublicKey[] {ec, otherRsa, signer.getPublic()}, DATA, signature, QUIET));
+        assertFalse(Security.verify(new PublicKey[] {ec, otherRsa}, DATA, signature, QUIET));
+        assertFalse(Security.verify(new PublicKey[] {ec}, DATA, signature, QUIET));
+    }
+
+    @Test
+    public void tamperedDataShouldFail() throws Exception {
+        KeyPair signer = generate("RSA", 1024);
+        String signature = sign(signer, DATA);
+
+        assertTrue(Security.verify(signer.getPublic(), DATA, signature, QUIET));
+        assertFalse(Security.verify(signer.getPublic(), DATA.replace(":0", ": 0"), signature, QUIET));
+    }
+
+    @Test
+    public void onlyMismatchShouldBeInvalid() throws Exception {
+        KeyPair signer = generate("RSA", 1024);
+        PublicKey otherRsa = generate("RSA", 1024).getPublic();
+        PublicKey ec = generate("EC", 256).getPublic();
+        String signature = sign(signer, DATA);
+
+        assertEquals(VerificationResult.VALID,
+                Security.check(new PublicKey[] {signer.getPublic()}, DATA, signature, "SHA1withRSA", QUIET));
+        assertEquals(VerificationResult.INVALID,
+                Security.check(new PublicKey[] {ec, otherRsa}, DATA, signature, "SHA1withRSA", QUIET));
+        assertEquals(VerificationResult.INVALID,
+                Security.check(new PublicKey[] {signer.getPublic()}, DATA, "not base64!", "SHA1withRSA", QUIET));
+        // nothing could be checked: no key, no usable key, no algorithm
+        assertEquals(VerificationResult.ERROR, Security.check(new PublicKey[0], DATA, signature, "SHA1withRSA", QUIET));
+        assertEquals(VerificationResult.ERROR, Security.check(new PublicKey[] {ec}, DATA, signature, "SHA1withRSA", QUIET));
+        assertEquals(VerificationResult.ERROR,
+                Security.check(new PublicKey[] {signer.getPublic()}, DATA, signature, "NOPEwithRSA", QUIET));
+    }
+
+    private static KeyPair generate(String algorithm, int size) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(size);
+        return generator.generateKeyPair();
+    }
+
+    private static String sign(KeyPair keyPair, String data) throws Exception {
+        Signature signature = Signature.getInstance("SHA1withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+}
@@ -0,0 +1,25 @@
+package com.badlogic.gdx.pay.server.jfr;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PayEventsTest {
+
+    @Test
+    public void nestedExitShouldRestoreOuterContext() throws Exception {
+        PayEvents.enter("GooglePlay", "com.example.a");
+        PayEvents.enter("AppleAppStore", "com.example.b");
+        assertEquals("AppleAppStore", PayEvents.store());
+        assertEquals("com.example.b", PayEvents.tenant());
+
+        PayEvents.exit();
+        assertEquals("GooglePlay", PayEvents.store());
+        assertEquals("com.example.a", PayEvents.tenant());
+
+        PayEvents.exit();
+        assertNull(PayEvents.store());
+        assertNull(PayEvents.tenant());
+    }
+}
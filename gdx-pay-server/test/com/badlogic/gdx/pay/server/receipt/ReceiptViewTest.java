@@ -0,0 +1,152 @@
+package com.badlogic.gdx.pay.server.receipt;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiptViewTest {
+
+    private static final String GOOGLE = PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE;
+    private static final String AMAZON = PurchaseManagerConfig.STORE_NAME_ANDROID_AMAZON;
+    private static final String HUAWEI = PurchaseManagerConfig.STORE_NAME_ANDROID_HUAWEI;
+
+    @Test
+    public void typedAccessorsShouldReadEachStoresFields() throws Exception {
+        ReceiptView google = new ReceiptView(GOOGLE, "{\"orderId\":\"GPA.1\",\"packageName\":\"com.example.game\","
+                + "\"productId\":\"coins\",\"purchaseTime\":1700000000000,\"purchaseState\":0,\"purchaseToken\":\"tok\"}");
+        assertEquals("GPA.1", google.orderId());
+        assertEquals("coins", google.productId());
+        assertEquals("com.example.game", google.packageName());
+        assertEquals("tok", google.purchaseToken());
+        assertEquals(1700000000000L, google.getLong("purchaseTime", -1));
+        assertEquals(ReceiptView.PurchaseState.PURCHASED, google.purchaseState());
+
+        ReceiptView amazon = new ReceiptView(AMAZON, "{\"receiptId\":\"r1\",\"sku\":\"coins\",\"cancelDate\":null}");
+        assertEquals("r1", amazon.orderId());
+        assertEquals("coins", amazon.productId());
+        assertEquals(ReceiptView.PurchaseState.PURCHASED, amazon.purchaseState());
+        assertEquals(ReceiptView.PurchaseState.CANCELED,
+                new ReceiptView(AMAZON, "{\"receiptId\":\"r1\",\"cancelDate\":1700000000000}").purchaseState());
+
+        assertEquals(ReceiptView.PurchaseState.PENDING,
+                new ReceiptView(GOOGLE, "{\"purchaseState\":2}").purchaseState());
+        assertEquals(ReceiptView.PurchaseState.REFUNDED,
+                new ReceiptView(HUAWEI, "{\"purchaseState\":2}").purchaseState());
+        assertEquals(ReceiptView.PurchaseState.UNKNOWN, new ReceiptView(GOOGLE, "{}").purchaseState());
+    }
+
+    @Test
+    public void nestedFieldsShouldNotBeTopLevel() throws Exception {
+        ReceiptView view = new ReceiptView(GOOGLE, "{\"developerPayload\":{\"orderId\":\"evil\",\"list\":[{\"a\":\"}\"},"
+                + "[1,2]]},\"tags\":[\"productId\",\"]\"],\"orderId\":\"GPA.1\",\"productId\":\"coins\"}");
+
+        assertEquals("GPA.1", view.orderId());
+        assertEquals("coins", view.productId());
+        assertTrue(view.has("developerPayload"));
+        // not a string
+        assertNull(view.getString("developerPayload"));
+        assertFalse(view.has("list"));
+        assertFalse(view.has("a"));
+    }
+
+    @Test
+    public void escapedValuesShouldBeDecoded() throws Exception {
+        ReceiptView view = new ReceiptView(GOOGLE, "{\"developerPayload\":\"say \\\"}\\\", \\\"orderId\\\":\\\"evil\\\"\","
+                + "\"orderId\":\"GPA.\\u0031\",\"productId\":\"a\\/b\\\\c\\n\",\"packageName\" : \"com.example.game\" }");
+
+        assertEquals("say \"}\", \"orderId\":\"evil\"", view.getString("developerPayload"));
+        assertEquals("GPA.1", view.orderId());
+        assertTrue(view.isEqual("orderId", "GPA.1"));
+        assertFalse(view.isEqual("orderId", "GPA.\\u0031"));
+        assertEquals("a/b\\c\n", view.productId());
+        assertTrue(view.isEqual("productId", "a/b\\c\n"));
+        assertEquals("com.example.game", view.packageName());
+    }
+
+    @Test
+    public void duplicateFieldsShouldMakeTheViewEmpty() throws Exception {
+        // parsers disagree on whether the first or the last one counts
+        ReceiptView duplicate = new ReceiptView(GOOGLE, "{\"orderId\":\"GPA.1\",\"productId\":\"coins\",\"productId\":\"gems\"}");
+        assertNull(duplicate.orderId());
+        assertNull(duplicate.productId());
+        assertFalse(duplicate.matches(transaction(GOOGLE, "GPA.1", "coins")));
+        assertFalse(duplicate.matches(transaction(GOOGLE, "GPA.1", "gems")));
+
+        // the same name spelled with an escape
+        ReceiptView escaped = new ReceiptView(GOOGLE, "{\"orderId\":\"GPA.1\",\"productId\":\"coins\",\"product\\u0049d\":\"gems\"}");
+        assertNull(escaped.productId());
+        assertFalse(escaped.matches(transaction(GOOGLE, "GPA.1", "coins")));
+
+        // nested duplicates are not top-level fields
+        ReceiptView nested = new ReceiptView(GOOGLE, "{\"a\":{\"x\":1,\"x\":2},\"orderId\":\"GPA.1\",\"productId\":\"coins\"}");
+        assertTrue(nested.matches(transaction(GOOGLE, "GPA.1", "coins")));
+    }
+
+    @Test
+    public void nonObjectPayloadsShouldBeEmptyViews() throws Exception {
+        String[] payloads = {null, "", "   ", "[{\"orderId\":\"GPA.1\"}]", "\"orderId\"", "42", "null",
+            "{\"orderId\":\"GPA.1\"", "{\"orderId\":\"GPA.1\",}", "{\"orderId\" \"GPA.1\"}", "{orderId:\"GPA.1\"}",
+            "{\"orderId\":\"GPA.1", "{\"orderId\":}", "{\"a\":[1,2}"};
+        for (String payload : payloads) {
+            ReceiptView view = new ReceiptView(GOOGLE, payload);
+            assertNull(payload, view.orderId());
+            assertFalse(payload, view.has("orderId"));
+            assertEquals(payload, -1, view.getLong("purchaseTime", -1));
+            assertFalse(payload, view.matches(transaction(GOOGLE, "GPA.1", null)));
+            assertTrue(payload, view.matches(transaction(GOOGLE, null, null)));
+        }
+        assertTrue(new ReceiptView(GOOGLE, " { } ").matches(transaction(GOOGLE, null, null)));
+    }
+
+    @Test
+    public void matchesShouldCompareOrderIdAndProduct() throws Exception {
+        ReceiptView google = new ReceiptView(GOOGLE, "{\"orderId\":\"GPA.1\",\"productId\":\"coins\"}");
+        assertTrue(google.matches(transaction(GOOGLE, "GPA.1", "coins")));
+        assertFalse(google.matches(transaction(GOOGLE, "GPA.2", "coins")));
+        assertFalse(google.matches(transaction(GOOGLE, "GPA.1", "gems")));
+        assertFalse(google.matches(transaction(GOOGLE, "GPA.1", "coin")));
+        assertFalse(google.matches(transaction(GOOGLE, null, "coins")));
+        assertFalse(google.matches(transaction(GOOGLE, "GPA.1", null)));
+
+        // Amazon names them receiptId and sku
+        ReceiptView amazon = new ReceiptView(AMAZON, "{\"receiptId\":\"r1\",\"sku\":\"coins\",\"orderId\":\"x\"}");
+        assertTrue(amazon.matches(transaction(AMAZON, "r1", "coins")));
+        assertFalse(amazon.matches(transaction(AMAZON, "x", "coins")));
+        assertFalse(amazon.matches(transaction(AMAZON, "r1", "gems")));
+
+        // null in the receipt is the same as missing
+        ReceiptView nullOrder = new ReceiptView(GOOGLE, "{\"orderId\":null,\"productId\":\"coins\"}");
+        assertTrue(nullOrder.matches(transaction(GOOGLE, null, "coins")));
+        assertFalse(nullOrder.matches(transaction(GOOGLE, "GPA.1", "coins")));
+
+        // numbers aren't strings
+        ReceiptView number = new ReceiptView(GOOGLE, "{\"orderId\":1,\"productId\":\"coins\"}");
+        assertFalse(number.matches(transaction(GOOGLE, "1", "coins")));
+    }
+
+    @Test
+    public void quotedAndMalformedNumbersShouldBeHandled() throws Exception {
+        ReceiptView view = new ReceiptView(GOOGLE, "{\"a\":\"123\",\"b\":-5,\"c\":1.5,\"d\":\"x\",\"e\":12345678901234567890,"
+                + "\"f\":true}");
+        assertEquals(123, view.getLong("a", -1));
+        assertEquals(-5, view.getLong("b", -1));
+        assertEquals(-1, view.getLong("c", -1));
+        assertEquals(-1, view.getLong("d", -1));
+        assertEquals(-1, view.getLong("e", -1));
+        assertEquals(-1, view.getLong("f", -1));
+        assertEquals(-1, view.getLong("missing", -1));
+    }
+
+    private static Transaction transaction(String storeName, String orderId, String identifier) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName(storeName);
+        transaction.setOrderId(orderId);
+        transaction.setIdentifier(identifier);
+        return transaction;
+    }
+}
@@ -0,0 +1,124 @@
+package com.badlogic.gdx.pay.server.refund;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RefundPollerTest {
+
+    @Test
+    public void failedJournalWriteShouldKeepTheCursor() throws Exception {
+        MemoryCursorStore cursors = new MemoryCursorStore();
+        TestPoller poller = new TestPoller(cursors, new Reversal("GooglePlay", "GPA.1", 1000, null));
+        File file = Files.createTempFile("reversals", ".ndjson").toFile();
+        ReversalJournal journal = new ReversalJournal(file);
+        poller.addListener(journal);
+
+        journal.close();
+        try {
+            poller.poll();
+            fail("poll should fail");
+        } catch (IOException expected) {
+        }
+        assertNull(cursors.get("test"));
+        assertEquals(0, poller.getReversalCount());
+
+        poller.removeListener(journal);
+        poller.addListener(new ReversalJournal(file));
+        assertEquals(1, poller.poll());
+        assertEquals("1000", cursors.get("test"));
+        // every line starts with a line break
+        assertEquals(2, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    public void reversalBeforeVerificationShouldNotBeLost() throws Exception {
+        VerificationState state = new VerificationState();
+        TestPoller poller = new TestPoller(new MemoryCursorStore(), new Reversal("GooglePlay", "GPA.1", 1000, null));
+        poller.setVerificationState(state);
+        File file = Files.createTempFile("reversals", ".ndjson").toFile();
+        ReversalJournal journal = new ReversalJournal(file);
+        poller.addListener(journal);
+        poller.poll();
+        journal.close();
+
+        PurchaseVerifierManager manager = new PurchaseVerifierManager();
+        manager.setVerificationState(state);
+        manager.addVerifier(new PurchaseVerifier() {
+            @Override
+            public String storeName() {
+                return "GooglePlay";
+            }
+
+            @Override
+            public boolean isValid(Transaction transaction) {
+                // like a signature check: still valid after the refund
+                return true;
+            }
+        });
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId("GPA.1");
+
+        assertEquals(VerificationResult.INVALID, manager.verify(transaction));
+        assertFalse(state.isEntitled("GooglePlay", "GPA.1"));
+
+        // a node restored from a snapshot older than the refund
+        VerificationState restored = new VerificationState();
+        assertEquals(1, new ReversalJournal(file).replay(0, restored));
+        assertEquals(1000, restored.get("GooglePlay", "GPA.1").getReversalTime());
+    }
+
+    private static class TestPoller extends RefundPoller {
+        private final Reversal[] reversals;
+
+        TestPoller(CursorStore cursors, Reversal... reversals) {
+            super("GooglePlay", null, cursors);
+            this.reversals = reversals;
+        }
+
+        @Override
+        public int poll() throws IOException {
+            long newest = 0;
+            for (Reversal reversal : reversals) {
+                apply(reversal);
+                newest = Math.max(newest, reversal.getReversalTime());
+            }
+            cursors.put("test", String.valueOf(newest));
+            cursors.flush();
+            return reversals.length;
+        }
+    }
+
+    private static class MemoryCursorStore implements CursorStore {
+        private final Map<String, String> cursors = new HashMap<String, String>();
+
+        @Override
+        public String get(String name) {
+            return cursors.get(name);
+        }
+
+        @Override
+        public void put(String name, String cursor) {
+            cursors.put(name, cursor);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.badlogic.gdx.pay.server.revenue;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.revenue.RevenueRollup.Dimension;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class RevenueRollupTest {
+
+    @Test
+    public void reusedBucketsShouldStartFromZero() throws Exception {
+        ManualClock clock = new ManualClock();
+        RevenueRollup rollup = new RevenueRollup(1000, 3, clock);
+
+        rollup.record(purchase("GPA.1", 100, clock.millis()));
+        assertEquals(100, rollup.total(Dimension.CURRENCY, "USD", "USD").getGrossAmount());
+
+        // past the whole window: bucket 0 expires and is reused
+        clock.time = 3000;
+        assertEquals(0, rollup.total(Dimension.CURRENCY, "USD", "USD").getGrossAmount());
+        rollup.record(purchase("GPA.2", 50, clock.millis()));
+        RevenueTotal total = rollup.total(Dimension.CURRENCY, "USD", "USD");
+        assertEquals(1, total.getCount());
+        assertEquals(50, total.getGrossAmount());
+        RevenueTotal[] series = rollup.series(Dimension.OFFER, "coins", "USD");
+        assertEquals(50, series[series.length - 1].getGrossAmount());
+
+        clock.time = 6000;
+        total = rollup.total(Dimension.CURRENCY, "USD", "USD");
+        assertEquals(0, total.getCount());
+        assertEquals(0, total.getGrossAmount());
+
+        for (int i = 0; i < 10; i++) {
+            clock.time += 1000;
+            rollup.record(purchase("GPA." + (10 + i), 10, clock.millis()));
+        }
+        total = rollup.total(Dimension.STORE, "GooglePlay", "USD");
+        assertEquals(3, total.getCount());
+        assertEquals(30, total.getGrossAmount());
+    }
+
+    private static Transaction purchase(String orderId, int cost, long time) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setIdentifier("coins");
+        transaction.setOrderId(orderId);
+        transaction.setPurchaseCost(cost);
+        transaction.setPurchaseCostCurrency("USD");
+        transaction.setPurchaseTime(new Date(time));
+        return transaction;
+    }
+
+    private static class ManualClock extends Clock {
+        long time;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return time;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(time);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.badlogic.gdx.pay.server.shard;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.VerificationStage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedVerifierManagerTest {
+
+    private static final int KEYS = 10000;
+
+    @Test
+    public void everyKeyShouldHaveOneOwnerRegardlessOfNodeOrder() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(nodes("a", "b", "c"));
+        ConsistentHashRing reordered = new ConsistentHashRing(nodes("c", "a", "b"));
+
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            String owner = ring.nodeFor("GooglePlay", "GPA." + i);
+            assertEquals(owner, reordered.nodeFor("GooglePlay", "GPA." + i));
+            counts.put(owner, counts.containsKey(owner) ? counts.get(owner) + 1 : 1);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            // a third each, give or take
+            assertTrue("unbalanced: " + counts, count > KEYS / 5 && count < KEYS / 2);
+        }
+    }
+
+    @Test
+    public void emptyRingShouldOwnNothing() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(nodes());
+        assertEquals(null, ring.nodeFor("GooglePlay", "GPA.1"));
+
+        Cluster cluster = new Cluster();
+        ShardedVerifierManager sharded = cluster.sharded("a", ring);
+        assertEquals(VerificationResult.VALID, sharded.verify(transaction("GPA.1")));
+        assertEquals(1, cluster.calls("a"));
+    }
+
+    @Test
+    public void addingNodeShouldOnlyMoveItsShareOfKeys() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(nodes("a", "b", "c"));
+        ConsistentHashRing grown = ring.withNode("d");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String before = ring.nodeFor("GooglePlay", "GPA." + i);
+            String after = grown.nodeFor("GooglePlay", "GPA." + i);
+            if (!before.equals(after)) {
+                // keys only move to the new node, never between old ones
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+
+        // ideally a quarter
+        assertTrue("moved " + moved, moved > KEYS * 15 / 100 && moved < KEYS * 35 / 100);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(ring.nodeFor("GooglePlay", "GPA." + i), grown.withoutNode("d").nodeFor("GooglePlay", "GPA." + i));
+        }
+    }
+
+    @Test
+    public void transactionShouldBeVerifiedByItsOwner() throws Exception {
+        Cluster cluster = new Cluster();
+        ConsistentHashRing ring = new ConsistentHashRing(nodes("a", "b"));
+        ShardedVerifierManager a = cluster.sharded("a", ring);
+        ShardedVerifierManager b = cluster.sharded("b", ring);
+
+        for (int i = 0; i < 100; i++) {
+            Transaction transaction = transaction("GPA." + i);
+            assertEquals(a.ownerOf(transaction), b.ownerOf(transaction));
+            assertEquals(VerificationResult.VALID, a.verify(transaction, "10.0.0.1"));
+            assertEquals(VerificationResult.VALID, b.verify(transaction, "10.0.0.1"));
+        }
+
+        // everything was verified twice, on its owner
+        assertEquals(200, cluster.calls("a") + cluster.calls("b"));
+        int ownedByA = 0;
+        for (int i = 0; i < 100; i++) {
+            if (a.ownerOf(transaction("GPA." + i)).equals("a")) ownedByA++;
+        }
+        assertEquals(ownedByA * 2, cluster.calls("a"));
+    }
+
+    @Test
+    public void resultAndSourceShouldBeForwarded() throws Exception {
+        Cluster cluster = new Cluster();
+        ConsistentHashRing ring = new ConsistentHashRing(nodes("owner"));
+        ShardedVerifierManager front = cluster.sharded("front", ring);
+        cluster.sharded("owner", ring);
+        cluster.result = VerificationResult.ERROR;
+
+        // a transient error on the owner is not a rejection
+        assertEquals(VerificationResult.ERROR, front.verify(transaction("GPA.1"), "10.0.0.1"));
+        assertEquals("10.0.0.1", cluster.sources.get("owner"));
+        assertFalse(front.isValid(transaction("GPA.1")));
+        assertEquals(0, cluster.calls("front"));
+        assertEquals(0, cluster.errors.get());
+    }
+
+    @Test
+    public void unreachableOwnerShouldFallBackToLocalVerification() throws Exception {
+        Cluster cluster = new Cluster();
+        ConsistentHashRing ring = new ConsistentHashRing(nodes("owner"));
+        ShardedVerifierManager front = cluster.sharded("front", ring);
+        cluster.sharded("owner", ring);
+        cluster.transport.removeNode("owner");
+
+        assertEquals(VerificationResult.VALID, front.verify(transaction("GPA.1"), "10.0.0.1"));
+        assertEquals(1, cluster.calls("front"));
+        assertEquals(0, cluster.calls("owner"));
+        assertEquals(1, cluster.errors.get());
+    }
+
+    @Test
+    public void transactionWithoutOrderIdShouldStayLocal() throws Exception {
+        Cluster cluster = new Cluster();
+        ShardedVerifierManager front = cluster.sharded("front", new ConsistentHashRing(nodes("owner")));
+        cluster.sharded("owner", front.getRing());
+
+        assertTrue(front.isValid(transaction(null)));
+        assertEquals(1, cluster.calls("front"));
+    }
+
+    /** Nodes connected in-process, each with a verifier counting the verifications and remembering the last source. Counts
+     * forwarding errors instead of logging them. */
+    private static class Cluster {
+        final InProcessShardTransport transport = new InProcessShardTransport();
+        final Map<String, AtomicInteger> calls = new HashMap<String, AtomicInteger>();
+        final Map<String, String> sources = new HashMap<String, String>();
+        final AtomicInteger errors = new AtomicInteger();
+        volatile VerificationResult result = VerificationResult.VALID;
+
+        ShardedVerifierManager sharded(final String nodeId, ConsistentHashRing ring) {
+            final AtomicInteger count = new AtomicInteger();
+            calls.put(nodeId, count);
+            PurchaseVerifierManager manager = new PurchaseVerifierManager();
+            manager.addStage(new VerificationStage() {
+                @Override
+                public int cost() {
+                    return COST_ADMISSION;
+                }
+
+                @Override
+                public VerificationResult check(Transaction transaction) {
+                    return null;
+                }
+
+                @Override
+                public VerificationResult check(Transaction transaction, String source) {
+                    sources.put(nodeId, source);
+                    return null;
+                }
+            });
+            manager.addVerifier(new PurchaseVerifier() {
+                @Override
+                public String storeName() {
+                    return "GooglePlay";
+                }
+
+                @Override
+                public boolean isValid(Transaction transaction) {
+                    return verify(transaction).isValid();
+                }
+
+                @Override
+                public VerificationResult verify(Transaction transaction) {
+                    count.incrementAndGet();
+                    return result;
+                }
+            });
+            transport.addNode(nodeId, manager);
+            return new ShardedVerifierManager(nodeId, manager, ring, transport) {
+                @Override
+                protected void error(String message, Exception ex) {
+                    errors.incrementAndGet();
+                }
+            };
+        }
+
+        int calls(String nodeId) {
+            return calls.get(nodeId).get();
+        }
+    }
+
+    private static LinkedHashSet<String> nodes(String... ids) {
+        return new LinkedHashSet<String>(Arrays.asList(ids));
+    }
+
+    private static Transaction transaction(String orderId) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId(orderId);
+        transaction.setIdentifier("coins");
+        return transaction;
+    }
+}
@@ -0,0 +1,129 @@
+package com.badlogic.gdx.pay.server.stage;
+
+import com.badlogic.gdx.pay.Offer;
+import com.badlogic.gdx.pay.OfferType;
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TransactionSanityStageTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final String GOOGLE = PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE;
+    private static final String APPLE = PurchaseManagerConfig.STORE_NAME_IOS_APPLE;
+    private static final String AMAZON = PurchaseManagerConfig.STORE_NAME_ANDROID_AMAZON;
+
+    @Test
+    public void purchaseTimeShouldBeWithinBounds() throws Exception {
+        TransactionSanityStage stage = new TransactionSanityStage(null, null);
+        long now = System.currentTimeMillis();
+
+        assertNull(stage.check(transaction(APPLE, "coins", now)));
+        assertNull(stage.check(transaction(APPLE, "coins", TransactionSanityStage.DEFAULT_EARLIEST_PURCHASE_TIME)));
+        assertEquals(VerificationResult.INVALID,
+                stage.check(transaction(APPLE, "coins", TransactionSanityStage.DEFAULT_EARLIEST_PURCHASE_TIME - 1)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(APPLE, "coins", 0)));
+
+        Transaction missing = transaction(APPLE, "coins", now);
+        missing.setPurchaseTime(null);
+        assertEquals(VerificationResult.INVALID, stage.check(missing));
+    }
+
+    @Test
+    public void futurePurchaseTimeShouldBeToleratedUpToTheClockSkew() throws Exception {
+        TransactionSanityStage stage = new TransactionSanityStage(null, null);
+        long now = System.currentTimeMillis();
+
+        // the default skew is 24 hours
+        assertNull(stage.check(transaction(APPLE, "coins", now + 23 * HOUR)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(APPLE, "coins", now + 25 * HOUR)));
+
+        TransactionSanityStage strict = new TransactionSanityStage(null, null, 0, HOUR);
+        assertNull(strict.check(transaction(APPLE, "coins", 1)));
+        assertNull(strict.check(transaction(APPLE, "coins", now + HOUR / 2)));
+        assertEquals(VerificationResult.INVALID, strict.check(transaction(APPLE, "coins", now + 2 * HOUR)));
+    }
+
+    @Test
+    public void identifiersShouldBeCheckedPerStore() throws Exception {
+        PurchaseManagerConfig catalog = new PurchaseManagerConfig();
+        catalog.addOffer(new Offer().setType(OfferType.CONSUMABLE).setIdentifier("coins")
+                .putIdentifierForStore(GOOGLE, "com.example.coins")
+                .putIdentifierForStore(AMAZON, "com.example.amazon.coins"));
+        catalog.addOffer(new Offer().setType(OfferType.ENTITLEMENT).setIdentifier("premium"));
+        TransactionSanityStage stage = new TransactionSanityStage(catalog, null);
+        long now = System.currentTimeMillis();
+
+        assertNull(stage.check(transaction(GOOGLE, "com.example.coins", now)));
+        assertNull(stage.check(transaction(AMAZON, "com.example.amazon.coins", now)));
+        // default identifiers are accepted everywhere, Apple reports them
+        assertNull(stage.check(transaction(APPLE, "coins", now)));
+        assertNull(stage.check(transaction(GOOGLE, "premium", now)));
+        assertNull(stage.check(transaction(APPLE, "premium", now)));
+
+        // the SKU of another store
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(GOOGLE, "com.example.amazon.coins", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(APPLE, "com.example.coins", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(GOOGLE, "gems", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(GOOGLE, null, now)));
+    }
+
+    @Test
+    public void unknownStoresShouldBeRejected() throws Exception {
+        TransactionSanityStage stage = new TransactionSanityStage(null, Arrays.asList(GOOGLE, APPLE));
+        long now = System.currentTimeMillis();
+
+        assertNull(stage.check(transaction(GOOGLE, "coins", now)));
+        assertNull(stage.check(transaction(APPLE, "coins", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(AMAZON, "coins", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction("MyStore", "coins", now)));
+        assertEquals(VerificationResult.INVALID, stage.check(transaction(null, "coins", now)));
+
+        // without known stores, any store passes
+        assertNull(new TransactionSanityStage(null, null).check(transaction("MyStore", "coins", now)));
+    }
+
+    @Test
+    public void receiptShouldMatchTheTransaction() throws Exception {
+        TransactionSanityStage stage = new TransactionSanityStage(null, null);
+        long now = System.currentTimeMillis();
+        Transaction google = transaction(GOOGLE, "com.example.coins", now);
+        google.setOrderId("GPA.1");
+        google.setTransactionData("{\"orderId\":\"GPA.1\",\"productId\":\"com.example.coins\"}");
+        assertNull(stage.check(google));
+
+        google.setOrderId("GPA.2");
+        assertEquals(VerificationResult.INVALID, stage.check(google));
+        google.setOrderId("GPA.1");
+        google.setIdentifier("com.example.premium");
+        assertEquals(VerificationResult.INVALID, stage.check(google));
+
+        Transaction amazon = transaction(AMAZON, "com.example.coins", now);
+        amazon.setOrderId("r1");
+        amazon.setTransactionData("{\"receiptId\":\"r1\",\"sku\":\"com.example.coins\"}");
+        assertNull(stage.check(amazon));
+        amazon.setOrderId("r2");
+        assertEquals(VerificationResult.INVALID, stage.check(amazon));
+
+        // Apple's transaction data is a Base64 receipt, not compared
+        Transaction apple = transaction(APPLE, "coins", now);
+        apple.setOrderId("1000000001");
+        apple.setTransactionData("MIIT0QYJKoZIhvcNAQcCoIITwjCCE74CAQExCzAJBgUrDgMCGgUAMIIDcgYJKoZIhvcNAQcB");
+        assertNull(stage.check(apple));
+    }
+
+    private static Transaction transaction(String storeName, String identifier, long purchaseTime) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName(storeName);
+        transaction.setIdentifier(identifier);
+        transaction.setPurchaseTime(new Date(purchaseTime));
+        return transaction;
+    }
+}
@@ -0,0 +1,115 @@
+package com.badlogic.gdx.pay.server.state;
+
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VerificationStateTest {
+
+    @Test
+    public void reverseShouldMarkKnownPurchases() throws Exception {
+        VerificationState state = new VerificationState();
+        state.record(transaction("GPA.1"), true);
+
+        assertTrue(state.reverse("GooglePlay", "GPA.1", 1000));
+        assertFalse(state.isEntitled("GooglePlay", "GPA.1"));
+        assertEquals(1000, state.get("GooglePlay", "GPA.1").getReversalTime());
+        assertEquals(1, state.size());
+    }
+
+    @Test
+    public void reversalOfUnknownPurchaseShouldOutliveItsVerification() throws Exception {
+        VerificationState state = new VerificationState();
+
+        assertFalse(state.reverse("GooglePlay", "GPA.2", 1000));
+        assertEquals(1, state.size());
+        state.record(transaction("GPA.2"), true);
+
+        assertFalse(state.isEntitled("GooglePlay", "GPA.2"));
+        assertEquals(1000, state.get("GooglePlay", "GPA.2").getReversalTime());
+    }
+
+    @Test
+    public void recordShouldNotUndoReversal() throws Exception {
+        VerificationState state = new VerificationState();
+        state.record(transaction("GPA.1"), true);
+        state.reverse("GooglePlay", "GPA.1", 1000);
+
+        // a verification that started before the refund was known
+        state.record(transaction("GPA.1"), true);
+
+        assertFalse(state.isEntitled("GooglePlay", "GPA.1"));
+        assertEquals(1000, state.get("GooglePlay", "GPA.1").getReversalTime());
+    }
+
+    @Test
+    public void invalidShouldNotReplaceValid() throws Exception {
+        VerificationState state = new VerificationState();
+        state.record(transaction("GPA.1"), true);
+
+        // e.g. a forged receipt sent with the order ID of someone else's purchase
+        state.record(transaction("GPA.1"), false);
+
+        assertTrue(state.isEntitled("GooglePlay", "GPA.1"));
+    }
+
+    @Test
+    public void concurrentRecordAndReverseShouldKeepReversal() throws Exception {
+        final VerificationState state = new VerificationState();
+        final int count = 2000;
+        for (int i = 0; i < count; i++) {
+            state.record(transaction("GPA." + i), true);
+        }
+        Thread verifier = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    state.record(transaction("GPA." + i), true);
+                }
+            }
+        };
+        verifier.start();
+        for (int i = 0; i < count; i++) {
+            state.reverse("GooglePlay", "GPA." + i, 1000);
+        }
+        verifier.join();
+
+        for (int i = 0; i < count; i++) {
+            assertFalse(state.isEntitled("GooglePlay", "GPA." + i));
+        }
+    }
+
+    @Test
+    public void snapshotShouldRoundTrip() throws Exception {
+        VerificationState state = new VerificationState();
+        state.record(transaction("GPA.1"), true);
+        state.record(transaction("GPA.2"), false);
+        state.reverse("GooglePlay", "GPA.1", 1000);
+
+        File file = File.createTempFile("state", ".snapshot");
+        try {
+            StateSnapshot.write(state, file);
+            VerificationState restored = new VerificationState();
+            StateSnapshot.read(file, restored);
+
+            assertEquals(2, restored.size());
+            assertEquals(1000, restored.get("GooglePlay", "GPA.1").getReversalTime());
+            assertFalse(restored.get("GooglePlay", "GPA.2").isValid());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static Transaction transaction(String orderId) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId(orderId);
+        transaction.setIdentifier("coins");
+        return transaction;
+    }
+}
@@ -0,0 +1,87 @@
+package com.badlogic.gdx.pay.server.sync;
+
+import com.badlogic.gdx.pay.Transaction;
+import com.badlogic.gdx.pay.server.PurchaseVerifier;
+import com.badlogic.gdx.pay.server.PurchaseVerifierManager;
+import com.badlogic.gdx.pay.server.VerificationResult;
+import com.badlogic.gdx.pay.server.state.VerificationState;
+import com.badlogic.gdx.pay.sync.EntitlementSync;
+import com.badlogic.gdx.pay.sync.EntitlementTree;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntitlementSyncServiceTest {
+
+    private static final PurchaseVerifier ALWAYS_VALID = new PurchaseVerifier() {
+        @Override
+        public String storeName() {
+            return "GooglePlay";
+        }
+
+        @Override
+        public boolean isValid(Transaction transaction) {
+            return true;
+        }
+    };
+
+    @Test
+    public void leastRecentlySyncedAccountsShouldBeDropped() throws Exception {
+        EntitlementSyncService sync = new EntitlementSyncService(manager(null), 2);
+        sync(sync, "a1", transaction("GPA.1"));
+        sync(sync, "a2", transaction("GPA.2"));
+        sync.rootHash("a1");
+        sync(sync, "a3", transaction("GPA.3"));
+
+        assertEquals(2, sync.size());
+        assertTrue(sync.rootHash("a1") != 0);
+        assertEquals(0, sync.rootHash("a2"));
+        // the dropped account's purchases are no longer indexed
+        assertFalse(sync.reverse("GooglePlay", "GPA.2"));
+    }
+
+    @Test
+    public void reversalShouldReachTheClientOnNextSync() throws Exception {
+        VerificationState state = new VerificationState();
+        EntitlementSyncService sync = new EntitlementSyncService(manager(state), 10);
+        Transaction transaction = transaction("GPA.1");
+        assertEquals(VerificationResult.VALID, sync(sync, "a1", transaction)[0]);
+        assertEquals(client(transaction).rootHash(), sync.rootHash("a1"));
+
+        state.reverse("GooglePlay", "GPA.1", 1000);
+        assertTrue(sync.reverse("GooglePlay", "GPA.1"));
+
+        assertTrue(client(transaction).rootHash() != sync.rootHash("a1"));
+        assertEquals(VerificationResult.INVALID, sync(sync, "a1", transaction)[0]);
+        assertEquals(client(transaction).rootHash(), sync.rootHash("a1"));
+        assertFalse(sync.reverse("GooglePlay", "GPA.2"));
+    }
+
+    private static PurchaseVerifierManager manager(VerificationState state) {
+        PurchaseVerifierManager manager = new PurchaseVerifierManager(false);
+        manager.addVerifier(ALWAYS_VALID);
+        manager.setVerificationState(state);
+        return manager;
+    }
+
+    private static VerificationResult[] sync(EntitlementSyncService sync, String account, Transaction transaction) {
+        int leaf = EntitlementTree.leafOf(EntitlementSync.key(transaction));
+        return sync.reconcile(account, new int[] {leaf}, new Transaction[] {transaction});
+    }
+
+    private static EntitlementTree<Boolean> client(Transaction transaction) {
+        EntitlementTree<Boolean> tree = new EntitlementTree<Boolean>();
+        tree.put(EntitlementSync.key(transaction), EntitlementSync.hash(transaction), Boolean.TRUE);
+        return tree;
+    }
+
+    private static Transaction transaction(String orderId) {
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId(orderId);
+        transaction.setIdentifier("premium");
+        return transaction;
+    }
+}
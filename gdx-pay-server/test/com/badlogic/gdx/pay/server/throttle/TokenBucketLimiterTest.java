@@ -0,0 +1,84 @@
+package com.badlogic.gdx.pay.server.throttle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketLimiterTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void hashShouldBeSecretPerInstance() throws Exception {
+        TokenBucketLimiter a = new TokenBucketLimiter(1000, 1, 10);
+        TokenBucketLimiter b = new TokenBucketLimiter(1000, 1, 10);
+
+        assertTrue(a.hash("victim") == a.hash("victim"));
+        assertTrue(a.hash("victim") != b.hash("victim"));
+    }
+
+    @Test
+    public void knownKeyShouldRefillUpToBurst() throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1000, 1, 3);
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(42, now));
+        }
+        assertFalse(limiter.tryAcquire(42, now));
+
+        now += 10 * SECOND;
+        assertTrue(limiter.tryAcquire(42, now));
+        assertTrue(limiter.tryAcquire(42, now));
+        assertTrue(limiter.tryAcquire(42, now));
+        assertFalse(limiter.tryAcquire(42, now));
+
+        // a little more than a second, the refill rate is rounded down
+        now += SECOND + SECOND / 100;
+        assertTrue(limiter.tryAcquire(42, now));
+        assertFalse(limiter.tryAcquire(42, now));
+    }
+
+    @Test
+    public void newKeyShouldStartWithFullBurst() throws Exception {
+        // the README example, e.g. a client restoring its purchases at startup
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100000, 0.5, 20);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire(42, 0));
+        }
+        assertFalse(limiter.tryAcquire(42, 0));
+        assertTrue(limiter.tryAcquire(43, 0));
+    }
+
+    @Test
+    public void evictedKeyShouldNotStartWithFullBurstIfConfigured() throws Exception {
+        // one stripe of PROBE slots, all keys in it
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 10);
+        limiter.setNewKeyTokens(1);
+        long now = 0;
+        long key = 1L << 58;
+        limiter.tryAcquire(key, now);
+        now += 10 * SECOND;
+        for (int i = 0; i < 9; i++) {
+            assertTrue(limiter.tryAcquire(key, now));
+        }
+        // push the key out with made-up keys of the same stripe
+        for (int i = 1; i <= TokenBucketLimiter.PROBE; i++) {
+            limiter.tryAcquire(key + i, now + i);
+        }
+
+        assertTrue(limiter.tryAcquire(key, now + SECOND / 2));
+        assertFalse(limiter.tryAcquire(key, now + SECOND / 2));
+    }
+
+    @Test
+    public void newKeyTokensShouldBeConfigurable() throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1000, 1, 5);
+        limiter.setNewKeyTokens(2);
+
+        assertTrue(limiter.tryAcquire(7, 0));
+        assertTrue(limiter.tryAcquire(7, 0));
+        assertFalse(limiter.tryAcquire(7, 0));
+    }
+}
@@ -0,0 +1,237 @@
+package com.badlogic.gdx.pay.server.token;
+
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntitlementTokenValidatorTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final long NOW = 1700000000000L;
+
+    @Test
+    public void hmacTokenShouldRoundTrip() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+        EntitlementToken claims = validator.validate(token, NOW);
+
+        assertNotNull(claims);
+        assertEquals("k1", claims.getKeyId());
+        assertEquals("account", claims.getSubject());
+        assertEquals("GooglePlay", claims.getStoreName());
+        assertEquals("GPA.1", claims.getOrderId());
+        assertEquals("coins", claims.getIdentifier());
+        assertEquals(NOW - 1000, claims.getIssuedAt());
+        assertEquals(NOW + 60000, claims.getExpiresAt());
+    }
+
+    @Test
+    public void ed25519TokenShouldRoundTrip() throws Exception {
+        KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addPublicKey("k2", keys.getPublic(), "Ed25519");
+
+        String token = EntitlementTokenIssuer.signature("k2", keys.getPrivate(), "Ed25519").issue(claims("k2"));
+
+        assertNotNull(validator.validate(token, NOW));
+        assertEquals("coins", validator.validate(token, NOW).getIdentifier());
+    }
+
+    @Test
+    public void issueForTransactionShouldEntitleSubject() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        Transaction transaction = new Transaction();
+        transaction.setStoreName("GooglePlay");
+        transaction.setOrderId("GPA.1");
+        transaction.setIdentifier("coins");
+
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue("account", transaction, 60000);
+
+        assertTrue(validator.isEntitled(token, "account", "coins"));
+        assertFalse(validator.isEntitled(token, "someone else", "coins"));
+        assertFalse(validator.isEntitled(token, "account", "gems"));
+    }
+
+    @Test
+    public void tamperedPayloadShouldBeRejected() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+        String forged = EntitlementTokenIssuer.hmac("k1", SECRET).issue(new EntitlementToken("k1", "account", "GooglePlay",
+            "GPA.1", "gems", NOW - 1000, NOW + 60000));
+
+        // the payload of another token with the signature of the first
+        assertNull(validator.validate(payload(forged) + "." + signature(token), NOW));
+    }
+
+    @Test
+    public void tamperedSignatureShouldBeRejected() throws Exception {
+        KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        validator.addPublicKey("k2", keys.getPublic(), "Ed25519");
+
+        String hmac = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+        String ed25519 = EntitlementTokenIssuer.signature("k2", keys.getPrivate(), "Ed25519").issue(claims("k2"));
+
+        assertNull(validator.validate(flipBit(hmac), NOW));
+        assertNull(validator.validate(flipBit(ed25519), NOW));
+        // the validator still accepts the genuine tokens afterwards
+        assertNotNull(validator.validate(hmac, NOW));
+        assertNotNull(validator.validate(ed25519, NOW));
+    }
+
+    @Test
+    public void signatureOfWrongLengthShouldBeRejected() throws Exception {
+        KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        validator.addPublicKey("k2", keys.getPublic(), "Ed25519");
+
+        String hmac = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+        String ed25519 = EntitlementTokenIssuer.signature("k2", keys.getPrivate(), "Ed25519").issue(claims("k2"));
+
+        assertNull(validator.validate(withSignature(hmac, truncated(signature(hmac))), NOW));
+        assertNull(validator.validate(withSignature(ed25519, truncated(signature(ed25519))), NOW));
+        assertNull(validator.validate(payload(hmac) + ".", NOW));
+        assertNull(validator.validate(payload(ed25519) + ".", NOW));
+        assertNotNull(validator.validate(ed25519, NOW));
+    }
+
+    @Test
+    public void unknownKeyShouldBeRejected() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+
+        String token = EntitlementTokenIssuer.hmac("k9", SECRET).issue(claims("k9"));
+
+        assertNull(validator.validate(token, NOW));
+    }
+
+    @Test
+    public void removedKeyShouldBeRejected() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+        assertNotNull(validator.validate(token, NOW));
+
+        validator.removeKey("k1");
+
+        assertNull(validator.validate(token, NOW));
+    }
+
+    @Test
+    public void tokenShouldExpireAtExpiresAt() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+
+        assertNotNull(validator.validate(token, NOW + 60000 - 1));
+        assertNull(validator.validate(token, NOW + 60000));
+    }
+
+    @Test
+    public void malformedTokensShouldBeRejected() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        String token = EntitlementTokenIssuer.hmac("k1", SECRET).issue(claims("k1"));
+
+        assertNull(validator.validate(null, NOW));
+        assertNull(validator.validate("", NOW));
+        assertNull(validator.validate("no dot", NOW));
+        assertNull(validator.validate("!!!." + signature(token), NOW));
+        assertNull(validator.validate(payload(token) + ".!!!", NOW));
+        // standard instead of URL-safe alphabet
+        assertNull(validator.validate(payload(token) + "." + signature(token).replace('-', '+').replace('_', '/') + "+/", NOW));
+        assertNull(validator.validate(payload(token) + "." + signature(token) + ".x", NOW));
+    }
+
+    @Test
+    public void trailingBytesShouldBeRejected() throws Exception {
+        EntitlementTokenValidator validator = new EntitlementTokenValidator();
+        validator.addHmacKey("k1", SECRET);
+        byte[] payload = claims("k1").toBytes();
+        byte[] padded = Arrays.copyOf(payload, payload.length + 1);
+
+        // correctly signed, so only the parser can reject it
+        assertNotNull(validator.validate(sign(payload), NOW));
+        assertNull(validator.validate(sign(padded), NOW));
+        assertNull(validator.validate(sign(Arrays.copyOf(payload, payload.length - 1)), NOW));
+    }
+
+    @Test
+    public void fieldsTooLongForTheEncodingShouldBeRefused() throws Exception {
+        EntitlementTokenIssuer issuer = EntitlementTokenIssuer.hmac("k1", SECRET);
+        char[] ascii = new char[EntitlementToken.MAX_FIELD_LENGTH];
+        Arrays.fill(ascii, 'a');
+        // 3 bytes each in UTF-8
+        char[] wide = new char[EntitlementToken.MAX_FIELD_LENGTH / 3 + 1];
+        Arrays.fill(wide, '€');
+
+        assertNotNull(issuer.issue(new EntitlementToken("k1", new String(ascii), "GooglePlay", "GPA.1", "coins", NOW, NOW + 1)));
+        try {
+            issuer.issue(new EntitlementToken("k1", new String(ascii) + "a", "GooglePlay", "GPA.1", "coins", NOW, NOW + 1));
+            fail("too long subject");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            issuer.issue(new EntitlementToken("k1", "account", "GooglePlay", "GPA.1", new String(wide), NOW, NOW + 1));
+            fail("too long identifier");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static EntitlementToken claims(String keyId) {
+        return new EntitlementToken(keyId, "account", "GooglePlay", "GPA.1", "coins", NOW - 1000, NOW + 60000);
+    }
+
+    private static String sign(byte[] payload) throws Exception {
+        Mac mac = Mac.getInstance(EntitlementTokenIssuer.HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(SECRET, EntitlementTokenIssuer.HMAC_ALGORITHM));
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(mac.doFinal(payload));
+    }
+
+    private static String payload(String token) {
+        return token.substring(0, token.indexOf('.'));
+    }
+
+    private static String signature(String token) {
+        return token.substring(token.indexOf('.') + 1);
+    }
+
+    private static String withSignature(String token, byte[] signature) {
+        return payload(token) + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private static byte[] truncated(String signature) {
+        byte[] bytes = Base64.getUrlDecoder().decode(signature);
+        return Arrays.copyOf(bytes, bytes.length - 1);
+    }
+
+    private static String flipBit(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(signature(token));
+        bytes[0] ^= 1;
+        return withSignature(token, bytes);
+    }
+}
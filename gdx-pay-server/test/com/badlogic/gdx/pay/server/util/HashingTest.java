@@ -0,0 +1,33 @@
+package com.badlogic.gdx.pay.server.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class HashingTest {
+
+    private static final long K0 = 0x0706050403020100L;
+    private static final long K1 = 0x0f0e0d0c0b0a0908L;
+
+    @Test
+    public void sipHashShouldMatchReferenceVectors() throws Exception {
+        byte[] message = new byte[15];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte)i;
+        }
+        assertEquals(0x726fdb47dd0e0e31L, Hashing.sipHash24(K0, K1, message, 0, 0));
+        assertEquals(0x74f839c593dc67fdL, Hashing.sipHash24(K0, K1, message, 0, 1));
+        assertEquals(0xa129ca6149be45e5L, Hashing.sipHash24(K0, K1, message, 0, 15));
+    }
+
+    @Test
+    public void sipHashOfStringShouldHashUtf16Bytes() throws Exception {
+        String[] strings = {"", "a", "ab", "abc", "abcd", "abcde", "user-12345678", "é中😀"};
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_16LE);
+            assertEquals(Hashing.sipHash24(K0, K1, bytes, 0, bytes.length), Hashing.sipHash24(K0, K1, string));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+/** Converts canonical Base64 strings (signatures, Apple receipts) to raw bytes and back, so they take 3/4 of the space in
+ * binary form. Only strings that re-encode to exactly the same text are converted. */
+final class Base64Payload {
+
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+	private static final byte[] DECODING = new byte[128];
+
+	static {
+		for (int i = 0; i < DECODING.length; i++) {
+			DECODING[i] = -1;
+		}
+		for (int i = 0; i < ALPHABET.length; i++) {
+			DECODING[ALPHABET[i]] = (byte)i;
+		}
+	}
+
+	private Base64Payload () {
+	}
+
+	/** Returns the decoded bytes or null if the string isn't canonical padded standard Base64. */
+	static byte[] decodeCanonical (String s) {
+		int length = s.length();
+		if (length == 0 || (length & 3) != 0) return null;
+		int padding = s.charAt(length - 1) == '=' ? (s.charAt(length - 2) == '=' ? 2 : 1) : 0;
+		int dataChars = length - padding;
+		byte[] out = new byte[dataChars * 3 / 4];
+		int op = 0;
+		int bits = 0;
+		int bitCount = 0;
+		for (int i = 0; i < dataChars; i++) {
+			char c = s.charAt(i);
+			int value = c < 128 ? DECODING[c] : -1;
+			if (value < 0) return null;
+			bits = (bits << 6) | value;
+			bitCount += 6;
+			if (bitCount >= 8) {
+				bitCount -= 8;
+				out[op++] = (byte)(bits >> bitCount);
+				bits &= (1 << bitCount) - 1;
+			}
+		}
+		// non-zero leftover bits would not survive re-encoding
+		return bits == 0 ? out : null;
+	}
+
+	static String encode (byte[] in) {
+		char[] out = new char[(in.length + 2) / 3 * 4];
+		int op = 0;
+		for (int ip = 0; ip < in.length; ip += 3) {
+			int b0 = in[ip] & 0xFF;
+			int b1 = ip + 1 < in.length ? in[ip + 1] & 0xFF : 0;
+			int b2 = ip + 2 < in.length ? in[ip + 2] & 0xFF : 0;
+			out[op++] = ALPHABET[b0 >> 2];
+			out[op++] = ALPHABET[((b0 & 3) << 4) | (b1 >> 4)];
+			out[op++] = ip + 1 < in.length ? ALPHABET[((b1 & 0xF) << 2) | (b2 >> 6)] : '=';
+			out[op++] = ip + 2 < in.length ? ALPHABET[b2 & 0x3F] : '=';
+		}
+		return new String(out);
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+/** Reads what {@link BinaryOutput} wrote. Malformed or truncated input results in an {@link IllegalArgumentException}. */
+final class BinaryInput {
+
+	private final byte[] bytes;
+	private final int end;
+	private int position;
+	private char[] chars = new char[64];
+
+	BinaryInput (byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length);
+		}
+		this.bytes = bytes;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	private void require (int count) {
+		if (count < 0 || count > end - position) {
+			throw new IllegalArgumentException("Truncated input at position " + position);
+		}
+	}
+
+	int readByte () {
+		require(1);
+		return bytes[position++] & 0xFF;
+	}
+
+	byte[] readBytes (int length) {
+		require(length);
+		byte[] result = new byte[length];
+		System.arraycopy(bytes, position, result, 0, length);
+		position += length;
+		return result;
+	}
+
+	int readVarInt () {
+		int result = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+		throw new IllegalArgumentException("Malformed varint at position " + position);
+	}
+
+	long readVarLong () {
+		long result = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = readByte();
+			result |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+		throw new IllegalArgumentException("Malformed varint at position " + position);
+	}
+
+	long readSignedVarLong () {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/** Reads a non-negative length and checks it against the remaining input. */
+	int readLength () {
+		int length = readVarInt();
+		require(length);
+		return length;
+	}
+
+	String readString () {
+		int length = readLength();
+		if (chars.length < length) chars = new char[Math.max(length, chars.length * 2)];
+		int limit = position + length;
+		int count = 0;
+		while (position < limit) {
+			int b = bytes[position++] & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char)b;
+			} else if (b < 0xE0) {
+				chars[count++] = (char)(((b & 0x1F) << 6) | continuation(limit));
+			} else if (b < 0xF0) {
+				int b1 = continuation(limit);
+				chars[count++] = (char)(((b & 0x0F) << 12) | (b1 << 6) | continuation(limit));
+			} else {
+				int b1 = continuation(limit);
+				int b2 = continuation(limit);
+				int codePoint = ((b & 0x07) << 18) | (b1 << 12) | (b2 << 6) | continuation(limit);
+				count += Character.toChars(codePoint, chars, count);
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
+	private int continuation (int limit) {
+		if (position >= limit) throw new IllegalArgumentException("Malformed UTF-8 at position " + position);
+		return bytes[position++] & 0x3F;
+	}
+
+	boolean hasRemaining () {
+		return position < end;
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+/** Growable byte buffer with varint and UTF-8 encoding. Kept free of java.nio so it works on all backends (incl. GWT). */
+final class BinaryOutput {
+
+	private byte[] bytes;
+	private int size;
+
+	BinaryOutput (int initialCapacity) {
+		bytes = new byte[Math.max(16, initialCapacity)];
+	}
+
+	private void ensure (int extra) {
+		if (size + extra > bytes.length) {
+			byte[] grown = new byte[Math.max(bytes.length * 2, size + extra)];
+			System.arraycopy(bytes, 0, grown, 0, size);
+			bytes = grown;
+		}
+	}
+
+	void writeByte (int value) {
+		ensure(1);
+		bytes[size++] = (byte)value;
+	}
+
+	void writeBytes (byte[] values, int offset, int length) {
+		ensure(length);
+		System.arraycopy(values, offset, bytes, size, length);
+		size += length;
+	}
+
+	/** Unsigned LEB128 varint: 7 bits per byte, high bit set on all but the last byte. */
+	void writeVarInt (int value) {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			bytes[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte)value;
+	}
+
+	void writeVarLong (long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte)value;
+	}
+
+	/** Zig-zag encoded so small negative numbers stay small. */
+	void writeSignedVarLong (long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/** Writes a string as varint byte length followed by its UTF-8 bytes. */
+	void writeString (String value) {
+		int length = utf8Length(value);
+		writeVarInt(length);
+		ensure(length);
+		int n = value.length();
+		for (int i = 0; i < n; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[size++] = (byte)c;
+			} else if (c < 0x800) {
+				bytes[size++] = (byte)(0xC0 | (c >> 6));
+				bytes[size++] = (byte)(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				bytes[size++] = (byte)(0xF0 | (codePoint >> 18));
+				bytes[size++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[size++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[size++] = (byte)(0x80 | (codePoint & 0x3F));
+			} else {
+				// lone surrogates are written as-is (CESU style) so they survive the round trip
+				bytes[size++] = (byte)(0xE0 | (c >> 12));
+				bytes[size++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+				bytes[size++] = (byte)(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	private static int utf8Length (String value) {
+		int n = value.length();
+		int length = n;
+		for (int i = 0; i < n; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					length += 1;
+				} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+					length += 2;
+					i++;
+				} else {
+					length += 2;
+				}
+			}
+		}
+		return length;
+	}
+
+	int size () {
+		return size;
+	}
+
+	byte[] toByteArray () {
+		byte[] result = new byte[size];
+		System.arraycopy(bytes, 0, result, 0, size);
+		return result;
+	}
+}
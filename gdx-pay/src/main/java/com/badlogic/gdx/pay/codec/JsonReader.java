@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+/** Minimal pull-style JSON reader over a string. No reflection, no dependencies, no intermediate object tree.
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader(json);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *   String name = reader.nextName();
+ *   if (name.equals("orderId")) orderId = reader.nextString();
+ *   else reader.skipValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * Malformed JSON results in an {@link IllegalArgumentException}. Not thread-safe. */
+public final class JsonReader {
+
+	/** The type of the next token, see {@link JsonReader#peek()}. */
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	private static final int EMPTY_ARRAY = 1;
+	private static final int NONEMPTY_ARRAY = 2;
+	private static final int EMPTY_OBJECT = 3;
+	private static final int DANGLING_NAME = 4;
+	private static final int NONEMPTY_OBJECT = 5;
+	private static final int EMPTY_DOCUMENT = 6;
+	private static final int NONEMPTY_DOCUMENT = 7;
+
+	private final String in;
+	private int pos;
+
+	private int[] stack = new int[16];
+	private int size;
+
+	/** The next token if already determined, null otherwise. {@link #pos} then points to its first character. */
+	private Token peeked;
+
+	private StringBuilder buffer;
+
+	public JsonReader (String json) {
+		this.in = json;
+		stack[size++] = EMPTY_DOCUMENT;
+	}
+
+	/** Returns the type of the next token without consuming it. */
+	public Token peek () {
+		if (peeked == null) peeked = doPeek();
+		return peeked;
+	}
+
+	private Token doPeek () {
+		int top = stack[size - 1];
+		int c;
+		if (top == EMPTY_ARRAY) {
+			stack[size - 1] = NONEMPTY_ARRAY;
+			if (skipWhitespace() == ']') return Token.END_ARRAY;
+		} else if (top == NONEMPTY_ARRAY) {
+			c = skipWhitespace();
+			if (c == ']') return Token.END_ARRAY;
+			expect(c, ',');
+		} else if (top == EMPTY_OBJECT || top == NONEMPTY_OBJECT) {
+			stack[size - 1] = DANGLING_NAME;
+			c = skipWhitespace();
+			if (c == '}') return Token.END_OBJECT;
+			if (top == NONEMPTY_OBJECT) {
+				expect(c, ',');
+				c = skipWhitespace();
+			}
+			if (c != '"') throw syntaxError("Expected name");
+			return Token.NAME;
+		} else if (top == DANGLING_NAME) {
+			stack[size - 1] = NONEMPTY_OBJECT;
+			expect(skipWhitespace(), ':');
+		} else if (top == EMPTY_DOCUMENT) {
+			stack[size - 1] = NONEMPTY_DOCUMENT;
+		} else {
+			if (skipWhitespace() == -1) return Token.END_DOCUMENT;
+			throw syntaxError("Unexpected data after document");
+		}
+
+		c = skipWhitespace();
+		switch (c) {
+		case '{':
+			return Token.BEGIN_OBJECT;
+		case '[':
+			return Token.BEGIN_ARRAY;
+		case '"':
+			return Token.STRING;
+		case 't':
+		case 'f':
+			return Token.BOOLEAN;
+		case 'n':
+			return Token.NULL;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) return Token.NUMBER;
+			throw syntaxError(c == -1 ? "Unexpected end of input" : "Unexpected character");
+		}
+	}
+
+	private int skipWhitespace () {
+		while (pos < in.length()) {
+			char c = in.charAt(pos);
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+			pos++;
+		}
+		return -1;
+	}
+
+	private void expect (int c, char expected) {
+		if (c != expected) throw syntaxError("Expected '" + expected + "'");
+		pos++;
+	}
+
+	private void consume (Token expected) {
+		if (peek() != expected) throw syntaxError("Expected " + expected + " but was " + peeked);
+		peeked = null;
+	}
+
+	public void beginObject () {
+		consume(Token.BEGIN_OBJECT);
+		pos++;
+		push(EMPTY_OBJECT);
+	}
+
+	public void endObject () {
+		consume(Token.END_OBJECT);
+		pos++;
+		size--;
+	}
+
+	public void beginArray () {
+		consume(Token.BEGIN_ARRAY);
+		pos++;
+		push(EMPTY_ARRAY);
+	}
+
+	public void endArray () {
+		consume(Token.END_ARRAY);
+		pos++;
+		size--;
+	}
+
+	private void push (int context) {
+		if (size == stack.length) {
+			int[] grown = new int[size * 2];
+			System.arraycopy(stack, 0, grown, 0, size);
+			stack = grown;
+		}
+		stack[size++] = context;
+	}
+
+	/** True if the current object or array has more elements. */
+	public boolean hasNext () {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public String nextName () {
+		consume(Token.NAME);
+		return readQuoted();
+	}
+
+	/** Returns the next string value. Numbers are returned as their literal text. */
+	public String nextString () {
+		if (peek() == Token.NUMBER) {
+			peeked = null;
+			return readNumberLiteral();
+		}
+		consume(Token.STRING);
+		return readQuoted();
+	}
+
+	/** Returns the next string value or null if the next value is null. */
+	public String nextStringOrNull () {
+		if (peek() == Token.NULL) {
+			nextNull();
+			return null;
+		}
+		return nextString();
+	}
+
+	public long nextLong () {
+		String literal = nextNumberLiteral();
+		try {
+			return Long.parseLong(literal);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Not a long: " + literal);
+		}
+	}
+
+	public int nextInt () {
+		long value = nextLong();
+		if (value != (int)value) throw syntaxError("Not an int: " + value);
+		return (int)value;
+	}
+
+	public double nextDouble () {
+		String literal = nextNumberLiteral();
+		try {
+			return Double.parseDouble(literal);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Not a number: " + literal);
+		}
+	}
+
+	private String nextNumberLiteral () {
+		consume(Token.NUMBER);
+		return readNumberLiteral();
+	}
+
+	public boolean nextBoolean () {
+		consume(Token.BOOLEAN);
+		if (in.startsWith("true", pos)) {
+			pos += 4;
+			return true;
+		}
+		if (in.startsWith("false", pos)) {
+			pos += 5;
+			return false;
+		}
+		throw syntaxError("Expected boolean");
+	}
+
+	public void nextNull () {
+		consume(Token.NULL);
+		if (!in.startsWith("null", pos)) throw syntaxError("Expected null");
+		pos += 4;
+	}
+
+	/** Skips the next value including all nested values. */
+	public void skipValue () {
+		int depth = 0;
+		do {
+			switch (peek()) {
+			case BEGIN_OBJECT:
+				beginObject();
+				depth++;
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				depth++;
+				break;
+			case END_OBJECT:
+				endObject();
+				depth--;
+				break;
+			case END_ARRAY:
+				endArray();
+				depth--;
+				break;
+			case NAME:
+				nextName();
+				break;
+			case STRING:
+			case NUMBER:
+				nextString();
+				break;
+			case BOOLEAN:
+				nextBoolean();
+				break;
+			case NULL:
+				nextNull();
+				break;
+			default:
+				throw syntaxError("Unexpected end of input");
+			}
+		} while (depth > 0);
+	}
+
+	private String readNumberLiteral () {
+		int start = pos;
+		while (pos < in.length()) {
+			char c = in.charAt(pos);
+			if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') break;
+			pos++;
+		}
+		return in.substring(start, pos);
+	}
+
+	private String readQuoted () {
+		int start = ++pos;
+		// fast path: no escapes
+		while (pos < in.length()) {
+			char c = in.charAt(pos);
+			if (c == '"') return in.substring(start, pos++);
+			if (c == '\\') break;
+			pos++;
+		}
+		if (buffer == null) buffer = new StringBuilder(64);
+		buffer.setLength(0);
+		buffer.append(in, start, pos);
+		while (pos < in.length()) {
+			char c = in.charAt(pos++);
+			if (c == '"') return buffer.toString();
+			if (c != '\\') {
+				buffer.append(c);
+				continue;
+			}
+			if (pos >= in.length()) break;
+			char escaped = in.charAt(pos++);
+			switch (escaped) {
+			case 'n':
+				buffer.append('\n');
+				break;
+			case 'r':
+				buffer.append('\r');
+				break;
+			case 't':
+				buffer.append('\t');
+				break;
+			case 'b':
+				buffer.append('\b');
+				break;
+			case 'f':
+				buffer.append('\f');
+				break;
+			case 'u':
+				if (pos + 4 > in.length()) throw syntaxError("Truncated escape sequence");
+				int value = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(in.charAt(pos++), 16);
+					if (digit < 0) throw syntaxError("Invalid escape sequence");
+					value = (value << 4) | digit;
+				}
+				buffer.append((char)value);
+				break;
+			default:
+				// '"', '\\' and '/'
+				buffer.append(escaped);
+			}
+		}
+		throw syntaxError("Unterminated string");
+	}
+
+	private IllegalArgumentException syntaxError (String message) {
+		return new IllegalArgumentException(message + " at position " + pos);
+	}
+}
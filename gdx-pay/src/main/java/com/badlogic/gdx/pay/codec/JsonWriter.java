@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+/** Minimal streaming JSON writer appending compact JSON to a {@link StringBuilder}. No reflection, no dependencies.
+ *
+ * <pre>
+ * JsonWriter writer = new JsonWriter();
+ * writer.beginObject().name("orderId").value("GPA.1234").name("purchaseCost").value(499).endObject();
+ * String json = writer.toString();
+ * </pre>
+ *
+ * Not thread-safe. */
+public final class JsonWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final StringBuilder out;
+
+	/** Per nesting level: true if a value was already written at that level (so the next one needs a comma). */
+	private boolean[] hasValue = new boolean[8];
+	private int depth;
+	private boolean afterName;
+
+	public JsonWriter () {
+		this(new StringBuilder(256));
+	}
+
+	public JsonWriter (StringBuilder out) {
+		this.out = out;
+	}
+
+	public JsonWriter beginObject () {
+		beforeValue();
+		out.append('{');
+		push();
+		return this;
+	}
+
+	public JsonWriter endObject () {
+		pop();
+		out.append('}');
+		return this;
+	}
+
+	public JsonWriter beginArray () {
+		beforeValue();
+		out.append('[');
+		push();
+		return this;
+	}
+
+	public JsonWriter endArray () {
+		pop();
+		out.append(']');
+		return this;
+	}
+
+	/** Writes the name of the next object member. */
+	public JsonWriter name (String name) {
+		if (afterName) throw new IllegalStateException("Name written twice: " + name);
+		separate();
+		writeString(name);
+		out.append(':');
+		afterName = true;
+		return this;
+	}
+
+	/** Writes a string value or null. */
+	public JsonWriter value (String value) {
+		if (value == null) return nullValue();
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	public JsonWriter value (long value) {
+		beforeValue();
+		out.append(value);
+		return this;
+	}
+
+	/** @throws IllegalArgumentException for NaN and infinity, which JSON cannot represent. */
+	public JsonWriter value (double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Not a valid JSON number: " + value);
+		}
+		beforeValue();
+		out.append(value);
+		return this;
+	}
+
+	public JsonWriter value (boolean value) {
+		beforeValue();
+		out.append(value);
+		return this;
+	}
+
+	public JsonWriter nullValue () {
+		beforeValue();
+		out.append("null");
+		return this;
+	}
+
+	private void beforeValue () {
+		if (afterName) {
+			afterName = false;
+		} else {
+			separate();
+		}
+	}
+
+	private void separate () {
+		if (depth > 0) {
+			if (hasValue[depth - 1]) out.append(',');
+			hasValue[depth - 1] = true;
+		}
+	}
+
+	private void push () {
+		if (depth == hasValue.length) {
+			boolean[] grown = new boolean[depth * 2];
+			System.arraycopy(hasValue, 0, grown, 0, depth);
+			hasValue = grown;
+		}
+		hasValue[depth++] = false;
+	}
+
+	private void pop () {
+		if (depth == 0 || afterName) throw new IllegalStateException("Nesting problem.");
+		depth--;
+	}
+
+	private void writeString (String value) {
+		out.append('"');
+		int n = value.length();
+		int start = 0;
+		for (int i = 0; i < n; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') continue;
+			out.append(value, start, i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				out.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF])
+					.append(HEX[c & 0xF]);
+			}
+			start = i + 1;
+		}
+		out.append(value, start, n);
+		out.append('"');
+	}
+
+	/** Returns the JSON written so far. */
+	@Override
+	public String toString () {
+		return out.toString();
+	}
+}
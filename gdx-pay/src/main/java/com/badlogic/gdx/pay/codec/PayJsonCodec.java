@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.badlogic.gdx.pay.FreeTrialPeriod;
+import com.badlogic.gdx.pay.Information;
+import com.badlogic.gdx.pay.Offer;
+import com.badlogic.gdx.pay.OfferType;
+import com.badlogic.gdx.pay.Transaction;
+
+/** Hand-written JSON mapping of the gdx-pay model classes ({@link Transaction}, {@link Information}, {@link Offer} and
+ * {@link FreeTrialPeriod}), based on {@link JsonWriter} and {@link JsonReader}. No reflection, so it works the same on
+ * Android, iOS, GWT and your server.
+ * <p>
+ * Field names match the getters. Times are written as epoch milliseconds, null fields are omitted and unknown fields are
+ * ignored when reading, so newer writers stay compatible with older readers. */
+public final class PayJsonCodec {
+
+	private PayJsonCodec () {
+	}
+
+	// --- Transaction ---
+
+	public static String toJson (Transaction transaction) {
+		JsonWriter writer = new JsonWriter();
+		write(writer, transaction);
+		return writer.toString();
+	}
+
+	public static String toJson (Transaction[] transactions) {
+		JsonWriter writer = new JsonWriter();
+		writer.beginArray();
+		for (Transaction transaction : transactions) {
+			write(writer, transaction);
+		}
+		writer.endArray();
+		return writer.toString();
+	}
+
+	public static Transaction transactionFromJson (String json) {
+		JsonReader reader = new JsonReader(json);
+		Transaction transaction = readTransaction(reader);
+		reader.peek(); // fails on trailing garbage
+		return transaction;
+	}
+
+	public static Transaction[] transactionsFromJson (String json) {
+		JsonReader reader = new JsonReader(json);
+		List<Transaction> transactions = new ArrayList<Transaction>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			transactions.add(readTransaction(reader));
+		}
+		reader.endArray();
+		reader.peek();
+		return transactions.toArray(new Transaction[transactions.size()]);
+	}
+
+	public static void write (JsonWriter writer, Transaction transaction) {
+		writer.beginObject();
+		writeString(writer, "identifier", transaction.getIdentifier());
+		writeString(writer, "storeName", transaction.getStoreName());
+		writeString(writer, "orderId", transaction.getOrderId());
+		writeString(writer, "requestId", transaction.getRequestId());
+		writeString(writer, "userId", transaction.getUserId());
+		writeDate(writer, "purchaseTime", transaction.getPurchaseTime());
+		writeString(writer, "purchaseText", transaction.getPurchaseText());
+		if (transaction.getPurchaseCost() != 0) writer.name("purchaseCost").value(transaction.getPurchaseCost());
+		writeString(writer, "purchaseCostCurrency", transaction.getPurchaseCostCurrency());
+		writeDate(writer, "reversalTime", transaction.getReversalTime());
+		writeString(writer, "reversalText", transaction.getReversalText());
+		writeString(writer, "transactionData", transaction.getTransactionData());
+		writeString(writer, "transactionDataSignature", transaction.getTransactionDataSignature());
+		writer.endObject();
+	}
+
+	public static Transaction readTransaction (JsonReader reader) {
+		Transaction transaction = new Transaction();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonReader.Token.NULL) {
+				reader.nextNull();
+			} else if (name.equals("identifier")) {
+				transaction.setIdentifier(reader.nextString());
+			} else if (name.equals("storeName")) {
+				transaction.setStoreName(reader.nextString());
+			} else if (name.equals("orderId")) {
+				transaction.setOrderId(reader.nextString());
+			} else if (name.equals("requestId")) {
+				transaction.setRequestId(reader.nextString());
+			} else if (name.equals("userId")) {
+				transaction.setUserId(reader.nextString());
+			} else if (name.equals("purchaseTime")) {
+				transaction.setPurchaseTime(new Date(reader.nextLong()));
+			} else if (name.equals("purchaseText")) {
+				transaction.setPurchaseText(reader.nextString());
+			} else if (name.equals("purchaseCost")) {
+				transaction.setPurchaseCost(reader.nextInt());
+			} else if (name.equals("purchaseCostCurrency")) {
+				transaction.setPurchaseCostCurrency(reader.nextString());
+			} else if (name.equals("reversalTime")) {
+				transaction.setReversalTime(new Date(reader.nextLong()));
+			} else if (name.equals("reversalText")) {
+				transaction.setReversalText(reader.nextString());
+			} else if (name.equals("transactionData")) {
+				transaction.setTransactionData(reader.nextString());
+			} else if (name.equals("transactionDataSignature")) {
+				transaction.setTransactionDataSignature(reader.nextString());
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return transaction;
+	}
+
+	// --- Information ---
+
+	public static String toJson (Information information) {
+		JsonWriter writer = new JsonWriter();
+		write(writer, information);
+		return writer.toString();
+	}
+
+	public static Information informationFromJson (String json) {
+		JsonReader reader = new JsonReader(json);
+		Information information = readInformation(reader);
+		reader.peek();
+		return information;
+	}
+
+	@SuppressWarnings("deprecation")
+	public static void write (JsonWriter writer, Information information) {
+		writer.beginObject();
+		writeString(writer, "localName", information.getLocalName());
+		writeString(writer, "localDescription", information.getLocalDescription());
+		writeString(writer, "localPricing", information.getLocalPricing());
+		if (information.getPriceInCents() != null) writer.name("priceInCents").value(information.getPriceInCents());
+		if (information.getPriceAsDouble() != null) writer.name("priceAsDouble").value(information.getPriceAsDouble());
+		writeString(writer, "priceCurrencyCode", information.getPriceCurrencyCode());
+		if (information.getFreeTrialPeriod() != null) {
+			writer.name("freeTrialPeriod");
+			write(writer, information.getFreeTrialPeriod());
+		}
+		writer.endObject();
+	}
+
+	@SuppressWarnings("deprecation")
+	public static Information readInformation (JsonReader reader) {
+		Information.Builder builder = Information.newBuilder();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonReader.Token.NULL) {
+				reader.nextNull();
+			} else if (name.equals("localName")) {
+				builder.localName(reader.nextString());
+			} else if (name.equals("localDescription")) {
+				builder.localDescription(reader.nextString());
+			} else if (name.equals("localPricing")) {
+				builder.localPricing(reader.nextString());
+			} else if (name.equals("priceInCents")) {
+				builder.priceInCents(reader.nextInt());
+			} else if (name.equals("priceAsDouble")) {
+				builder.priceAsDouble(reader.nextDouble());
+			} else if (name.equals("priceCurrencyCode")) {
+				builder.priceCurrencyCode(reader.nextString());
+			} else if (name.equals("freeTrialPeriod")) {
+				builder.freeTrialPeriod(readFreeTrialPeriod(reader));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return builder.build();
+	}
+
+	// --- FreeTrialPeriod ---
+
+	public static void write (JsonWriter writer, FreeTrialPeriod period) {
+		writer.beginObject();
+		writer.name("numberOfUnits").value(period.getNumberOfUnits());
+		writer.name("unit").value(period.getUnit().name());
+		writer.endObject();
+	}
+
+	/** @throws IllegalArgumentException if the unit is missing or unknown. */
+	public static FreeTrialPeriod readFreeTrialPeriod (JsonReader reader) {
+		int numberOfUnits = 0;
+		FreeTrialPeriod.PeriodUnit unit = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("numberOfUnits")) {
+				numberOfUnits = reader.nextInt();
+			} else if (name.equals("unit")) {
+				unit = FreeTrialPeriod.PeriodUnit.valueOf(reader.nextString());
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (unit == null) throw new IllegalArgumentException("FreeTrialPeriod without unit.");
+		return new FreeTrialPeriod(numberOfUnits, unit);
+	}
+
+	// --- Offer ---
+
+	public static String toJson (Offer offer) {
+		JsonWriter writer = new JsonWriter();
+		write(writer, offer);
+		return writer.toString();
+	}
+
+	public static Offer offerFromJson (String json) {
+		JsonReader reader = new JsonReader(json);
+		Offer offer = readOffer(reader);
+		reader.peek();
+		return offer;
+	}
+
+	public static void write (JsonWriter writer, Offer offer) {
+		writer.beginObject();
+		if (offer.getType() != null) writer.name("type").value(offer.getType().name());
+		writeString(writer, "identifier", offer.getIdentifier());
+		writer.name("identifierForStores").beginObject();
+		for (Map.Entry<String, String> entry : offer.getIdentifierForStores()) {
+			writer.name(entry.getKey()).value(entry.getValue());
+		}
+		writer.endObject();
+		writer.endObject();
+	}
+
+	/** @throws IllegalArgumentException if the offer type is unknown. */
+	public static Offer readOffer (JsonReader reader) {
+		Offer offer = new Offer();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonReader.Token.NULL) {
+				reader.nextNull();
+			} else if (name.equals("type")) {
+				offer.setType(OfferType.valueOf(reader.nextString()));
+			} else if (name.equals("identifier")) {
+				offer.setIdentifier(reader.nextString());
+			} else if (name.equals("identifierForStores")) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String storeName = reader.nextName();
+					offer.putIdentifierForStore(storeName, reader.nextStringOrNull());
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return offer;
+	}
+
+	private static void writeString (JsonWriter writer, String name, String value) {
+		if (value != null) writer.name(name).value(value);
+	}
+
+	private static void writeDate (JsonWriter writer, String name, Date value) {
+		if (value != null) writer.name(name).value(value.getTime());
+	}
+}
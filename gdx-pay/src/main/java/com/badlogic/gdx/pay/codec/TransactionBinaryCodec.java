@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.codec;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Compact, versioned binary encoding of {@link Transaction} batches, e.g. to ship purchases from a client to your game
+ * server and on to your verification servers. Stateless and thread-safe.
+ *
+ * <pre>
+ * batch:       byte magic ('T'), byte version, varint stringCount, stringCount x string, varint count, count x transaction
+ * transaction: varint fieldMask, then every field whose bit is set, in declaration order
+ * string:      varint utf8Length, byte[] utf8
+ * </pre>
+ *
+ * Values that repeat across a batch (store name, SKU, user ID, currency, purchase/reversal text) are written once to the
+ * string table and referenced by varint index. Times are zig-zag varint deltas of epoch milliseconds against the previous
+ * time in the batch. Payloads (transaction data and signature) are written as raw bytes: canonical Base64 strings, as
+ * used by signatures and Apple receipts, are stored decoded.
+ * <p>
+ * Decoding malformed input throws an {@link IllegalArgumentException}. */
+public final class TransactionBinaryCodec {
+
+	/** The current format version. Decoders reject batches with a newer version. */
+	public static final int VERSION = 1;
+
+	private static final int MAGIC = 'T';
+
+	private static final int IDENTIFIER = 1;
+	private static final int STORE_NAME = 1 << 1;
+	private static final int ORDER_ID = 1 << 2;
+	private static final int REQUEST_ID = 1 << 3;
+	private static final int USER_ID = 1 << 4;
+	private static final int PURCHASE_TIME = 1 << 5;
+	private static final int PURCHASE_TEXT = 1 << 6;
+	private static final int PURCHASE_COST = 1 << 7;
+	private static final int PURCHASE_COST_CURRENCY = 1 << 8;
+	private static final int REVERSAL_TIME = 1 << 9;
+	private static final int REVERSAL_TEXT = 1 << 10;
+	private static final int TRANSACTION_DATA = 1 << 11;
+	private static final int TRANSACTION_DATA_SIGNATURE = 1 << 12;
+
+	private TransactionBinaryCodec () {
+	}
+
+	public static byte[] encode (Transaction transaction) {
+		return encode(new Transaction[] {transaction});
+	}
+
+	/** Encodes a batch of transactions. */
+	public static byte[] encode (Transaction[] transactions) {
+		// collect the string table first, so the decoder can build it before reading transactions
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+		int estimate = 16;
+		for (Transaction transaction : transactions) {
+			index(transaction.getIdentifier(), indexes, strings);
+			index(transaction.getStoreName(), indexes, strings);
+			index(transaction.getUserId(), indexes, strings);
+			index(transaction.getPurchaseText(), indexes, strings);
+			index(transaction.getPurchaseCostCurrency(), indexes, strings);
+			index(transaction.getReversalText(), indexes, strings);
+			estimate += 32 + length(transaction.getOrderId()) + length(transaction.getRequestId())
+				+ length(transaction.getTransactionData()) + length(transaction.getTransactionDataSignature());
+		}
+
+		BinaryOutput out = new BinaryOutput(estimate);
+		out.writeByte(MAGIC);
+		out.writeByte(VERSION);
+		out.writeVarInt(strings.size());
+		for (int i = 0; i < strings.size(); i++) {
+			out.writeString(strings.get(i));
+		}
+		out.writeVarInt(transactions.length);
+		long previousTime = 0;
+		for (Transaction transaction : transactions) {
+			int mask = 0;
+			if (transaction.getIdentifier() != null) mask |= IDENTIFIER;
+			if (transaction.getStoreName() != null) mask |= STORE_NAME;
+			if (transaction.getOrderId() != null) mask |= ORDER_ID;
+			if (transaction.getRequestId() != null) mask |= REQUEST_ID;
+			if (transaction.getUserId() != null) mask |= USER_ID;
+			if (transaction.getPurchaseTime() != null) mask |= PURCHASE_TIME;
+			if (transaction.getPurchaseText() != null) mask |= PURCHASE_TEXT;
+			if (transaction.getPurchaseCost() != 0) mask |= PURCHASE_COST;
+			if (transaction.getPurchaseCostCurrency() != null) mask |= PURCHASE_COST_CURRENCY;
+			if (transaction.getReversalTime() != null) mask |= REVERSAL_TIME;
+			if (transaction.getReversalText() != null) mask |= REVERSAL_TEXT;
+			if (transaction.getTransactionData() != null) mask |= TRANSACTION_DATA;
+			if (transaction.getTransactionDataSignature() != null) mask |= TRANSACTION_DATA_SIGNATURE;
+			out.writeVarInt(mask);
+
+			if ((mask & IDENTIFIER) != 0) out.writeVarInt(indexes.get(transaction.getIdentifier()));
+			if ((mask & STORE_NAME) != 0) out.writeVarInt(indexes.get(transaction.getStoreName()));
+			if ((mask & ORDER_ID) != 0) out.writeString(transaction.getOrderId());
+			if ((mask & REQUEST_ID) != 0) out.writeString(transaction.getRequestId());
+			if ((mask & USER_ID) != 0) out.writeVarInt(indexes.get(transaction.getUserId()));
+			if ((mask & PURCHASE_TIME) != 0) {
+				long time = transaction.getPurchaseTime().getTime();
+				out.writeSignedVarLong(time - previousTime);
+				previousTime = time;
+			}
+			if ((mask & PURCHASE_TEXT) != 0) out.writeVarInt(indexes.get(transaction.getPurchaseText()));
+			if ((mask & PURCHASE_COST) != 0) out.writeSignedVarLong(transaction.getPurchaseCost());
+			if ((mask & PURCHASE_COST_CURRENCY) != 0) out.writeVarInt(indexes.get(transaction.getPurchaseCostCurrency()));
+			if ((mask & REVERSAL_TIME) != 0) {
+				long time = transaction.getReversalTime().getTime();
+				out.writeSignedVarLong(time - previousTime);
+				previousTime = time;
+			}
+			if ((mask & REVERSAL_TEXT) != 0) out.writeVarInt(indexes.get(transaction.getReversalText()));
+			if ((mask & TRANSACTION_DATA) != 0) writePayload(out, transaction.getTransactionData());
+			if ((mask & TRANSACTION_DATA_SIGNATURE) != 0) writePayload(out, transaction.getTransactionDataSignature());
+		}
+		return out.toByteArray();
+	}
+
+	private static void index (String string, Map<String, Integer> indexes, List<String> strings) {
+		if (string != null && !indexes.containsKey(string)) {
+			indexes.put(string, strings.size());
+			strings.add(string);
+		}
+	}
+
+	private static int length (String string) {
+		return string != null ? string.length() : 0;
+	}
+
+	/** Payload header is varint (byteLength << 1 | 1) followed by the decoded Base64 bytes, or 0 followed by a string. */
+	private static void writePayload (BinaryOutput out, String payload) {
+		byte[] raw = Base64Payload.decodeCanonical(payload);
+		if (raw != null) {
+			out.writeVarInt(raw.length << 1 | 1);
+			out.writeBytes(raw, 0, raw.length);
+		} else {
+			// plain text (e.g. JSON): header 0 followed by the string
+			out.writeByte(0);
+			out.writeString(payload);
+		}
+	}
+
+	private static String readPayload (BinaryInput in) {
+		int header = in.readVarInt();
+		if ((header & 1) != 0) {
+			return Base64Payload.encode(in.readBytes(header >>> 1));
+		}
+		if (header != 0) {
+			throw new IllegalArgumentException("Malformed payload header: " + header);
+		}
+		return in.readString();
+	}
+
+	public static Transaction[] decode (byte[] bytes) {
+		return decode(bytes, 0, bytes.length);
+	}
+
+	/** Decodes a batch of transactions.
+	 * @throws IllegalArgumentException if the input is malformed or of an unsupported version. */
+	public static Transaction[] decode (byte[] bytes, int offset, int length) {
+		BinaryInput in = new BinaryInput(bytes, offset, length);
+		if (in.readByte() != MAGIC) {
+			throw new IllegalArgumentException("Not an encoded transaction batch.");
+		}
+		int version = in.readByte();
+		if (version > VERSION) {
+			throw new IllegalArgumentException("Unsupported transaction batch version: " + version);
+		}
+		String[] strings = new String[in.readLength()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readString();
+		}
+		Transaction[] transactions = new Transaction[in.readLength()];
+		long previousTime = 0;
+		for (int i = 0; i < transactions.length; i++) {
+			Transaction transaction = new Transaction();
+			int mask = in.readVarInt();
+			if ((mask & IDENTIFIER) != 0) transaction.setIdentifier(string(strings, in.readVarInt()));
+			if ((mask & STORE_NAME) != 0) transaction.setStoreName(string(strings, in.readVarInt()));
+			if ((mask & ORDER_ID) != 0) transaction.setOrderId(in.readString());
+			if ((mask & REQUEST_ID) != 0) transaction.setRequestId(in.readString());
+			if ((mask & USER_ID) != 0) transaction.setUserId(string(strings, in.readVarInt()));
+			if ((mask & PURCHASE_TIME) != 0) {
+				previousTime += in.readSignedVarLong();
+				transaction.setPurchaseTime(new Date(previousTime));
+			}
+			if ((mask & PURCHASE_TEXT) != 0) transaction.setPurchaseText(string(strings, in.readVarInt()));
+			if ((mask & PURCHASE_COST) != 0) transaction.setPurchaseCost((int)in.readSignedVarLong());
+			if ((mask & PURCHASE_COST_CURRENCY) != 0) transaction.setPurchaseCostCurrency(string(strings, in.readVarInt()));
+			if ((mask & REVERSAL_TIME) != 0) {
+				previousTime += in.readSignedVarLong();
+				transaction.setReversalTime(new Date(previousTime));
+			}
+			if ((mask & REVERSAL_TEXT) != 0) transaction.setReversalText(string(strings, in.readVarInt()));
+			if ((mask & TRANSACTION_DATA) != 0) transaction.setTransactionData(readPayload(in));
+			if ((mask & TRANSACTION_DATA_SIGNATURE) != 0) transaction.setTransactionDataSignature(readPayload(in));
+			transactions[i] = transaction;
+		}
+		return transactions;
+	}
+
+	private static String string (String[] strings, int index) {
+		if (index < 0 || index >= strings.length) {
+			throw new IllegalArgumentException("Invalid string table index: " + index);
+		}
+		return strings[index];
+	}
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.entitlement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Answers "was this user entitled to this item at time T" without scanning transactions. Purchases, renewals, grace
+ * periods and reversals are merged into {@link EntitlementWindows} per user and item (offer identifier) once, queries are
+ * then a hash lookup plus a binary search. Immutable and thread-safe once built.
+ *
+ * <pre>
+ * EntitlementIndex index = EntitlementIndex.newBuilder(new EntitlementPeriod() {
+ *    public long durationMillis (Transaction transaction) {
+ *       if (transaction.getIdentifier().equals("pro_monthly")) return TimeUnit.DAYS.toMillis(30);
+ *       return transaction.getIdentifier().equals("coins") ? EntitlementPeriod.NONE : EntitlementPeriod.LIFETIME;
+ *    }
+ * }).gracePeriod(TimeUnit.DAYS.toMillis(3)).addAll(transactions).build();
+ *
+ * boolean entitled = index.isEntitled("user-17", "pro_monthly", ticket.getCreatedAt());
+ * </pre>
+ *
+ * Every transaction entitles from its purchase time for its {@link EntitlementPeriod}, plus the grace period for periods
+ * that end. Each renewal is a transaction of its own, overlapping or touching windows of a renewal chain are merged. A
+ * reversed transaction only entitles until its reversal time, so a refunded renewal ends the window early while the
+ * periods paid before stay. Transactions without identifier or purchase time are ignored. */
+public final class EntitlementIndex {
+
+	private final Map<String, EntitlementWindows> windows;
+
+	private EntitlementIndex (Map<String, EntitlementWindows> windows) {
+		this.windows = windows;
+	}
+
+	public static Builder newBuilder (EntitlementPeriod period) {
+		return new Builder(period);
+	}
+
+	/** Returns the windows of the user (null for transactions without user ID) and item, empty if there are none. */
+	public EntitlementWindows windows (String userId, String identifier) {
+		EntitlementWindows result = windows.get(key(userId, identifier));
+		return result != null ? result : EntitlementWindows.EMPTY;
+	}
+
+	/** Returns true if the user was entitled to the item at the given time (epoch milliseconds). */
+	public boolean isEntitled (String userId, String identifier, long time) {
+		return windows(userId, identifier).isEntitled(time);
+	}
+
+	/** Returns true if the user was entitled to the item at any time in {@code [from, to)}. */
+	public boolean isEntitledAnyTime (String userId, String identifier, long from, long to) {
+		return windows(userId, identifier).isEntitledAnyTime(from, to);
+	}
+
+	/** Returns the number of user/item pairs with at least one window. */
+	public int size () {
+		return windows.size();
+	}
+
+	static String key (String userId, String identifier) {
+		return userId != null ? userId + '\n' + identifier : identifier;
+	}
+
+	/** Collects transactions and merges them into windows on {@link #build()}. Not thread-safe. */
+	public static final class Builder {
+
+		private final EntitlementPeriod period;
+		private long gracePeriodMillis;
+
+		private final Map<String, RawWindows> pending = new HashMap<String, RawWindows>();
+
+		private Builder (EntitlementPeriod period) {
+			this.period = period;
+		}
+
+		/** Sets how long a user stays entitled after a period ended without renewal, e.g. while the store retries a failed
+		 * payment. Not added to {@link EntitlementPeriod#LIFETIME} windows. 0 by default. */
+		public Builder gracePeriod (long millis) {
+			if (millis < 0) throw new IllegalArgumentException("gracePeriod must be >= 0: " + millis);
+			this.gracePeriodMillis = millis;
+			return this;
+		}
+
+		public Builder add (Transaction transaction) {
+			if (transaction.getIdentifier() == null || transaction.getPurchaseTime() == null) return this;
+			long duration = period.durationMillis(transaction);
+			if (duration <= 0) return this;
+
+			long start = transaction.getPurchaseTime().getTime();
+			long end = duration == EntitlementPeriod.LIFETIME ? Long.MAX_VALUE : saturatedAdd(start, duration);
+			if (end != Long.MAX_VALUE) end = saturatedAdd(end, gracePeriodMillis);
+			if (transaction.getReversalTime() != null) end = Math.min(end, transaction.getReversalTime().getTime());
+			add(key(transaction.getUserId(), transaction.getIdentifier()), start, end);
+			return this;
+		}
+
+		public Builder addAll (Transaction[] transactions) {
+			for (Transaction transaction : transactions) {
+				add(transaction);
+			}
+			return this;
+		}
+
+		public Builder addAll (Iterable<Transaction> transactions) {
+			for (Transaction transaction : transactions) {
+				add(transaction);
+			}
+			return this;
+		}
+
+		/** Adds a window directly, e.g. a promotional entitlement granted outside the stores. */
+		public Builder add (String userId, String identifier, long start, long end) {
+			add(key(userId, identifier), start, end);
+			return this;
+		}
+
+		private void add (String key, long start, long end) {
+			if (end <= start) return;
+			RawWindows raw = pending.get(key);
+			if (raw == null) pending.put(key, raw = new RawWindows());
+			raw.add(start, end);
+		}
+
+		public EntitlementIndex build () {
+			Map<String, EntitlementWindows> windows = new HashMap<String, EntitlementWindows>(pending.size() * 2);
+			for (Map.Entry<String, RawWindows> entry : pending.entrySet()) {
+				RawWindows raw = entry.getValue();
+				// merge sorts in place, so hand it copies and keep the builder reusable
+				windows.put(entry.getKey(), EntitlementWindows.merge(Arrays.copyOf(raw.starts, raw.count),
+					Arrays.copyOf(raw.ends, raw.count), raw.count));
+			}
+			return new EntitlementIndex(windows);
+		}
+	}
+
+	/** Unmerged windows of one user and item. */
+	private static final class RawWindows {
+		long[] starts = new long[2];
+		long[] ends = new long[2];
+		int count;
+
+		void add (long start, long end) {
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				ends = Arrays.copyOf(ends, count * 2);
+			}
+			starts[count] = start;
+			ends[count++] = end;
+		}
+	}
+
+	private static long saturatedAdd (long a, long b) {
+		long sum = a + b;
+		return sum < a ? Long.MAX_VALUE : sum;
+	}
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.entitlement;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Determines how long a transaction entitles its user to the purchased item, see {@link EntitlementIndex}. */
+public interface EntitlementPeriod {
+
+	/** Entitled forever (until reversed), e.g. for entitlements. */
+	long LIFETIME = Long.MAX_VALUE;
+
+	/** Not entitled at all, e.g. for consumables, which are used up on purchase. */
+	long NONE = 0;
+
+	/** Returns for how many milliseconds after its purchase time the transaction entitles its user, {@link #LIFETIME} or
+	 * {@link #NONE}. */
+	long durationMillis (Transaction transaction);
+}
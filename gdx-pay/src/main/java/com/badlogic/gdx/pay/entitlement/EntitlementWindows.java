@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.entitlement;
+
+import java.util.Arrays;
+
+/** The times a user is entitled to one item, as sorted, disjoint, half-open intervals {@code [start, end)} of epoch
+ * milliseconds. Point and range queries are binary searches, O(log n). Immutable and thread-safe.
+ * <p>
+ * Created by merging possibly overlapping windows (purchases, renewals, grace periods), see {@link #merge(long[], long[],
+ * int)}. Touching windows are merged, so a renewal on the second the previous period ends leaves no gap. An end of
+ * {@link Long#MAX_VALUE} means forever. */
+public final class EntitlementWindows {
+
+	public static final EntitlementWindows EMPTY = new EntitlementWindows(new long[0], new long[0]);
+
+	private final long[] starts;
+	private final long[] ends;
+	/** cumulative[i] is the total length of the windows before window i, for range sums. */
+	private final long[] cumulative;
+
+	private EntitlementWindows (long[] starts, long[] ends) {
+		this.starts = starts;
+		this.ends = ends;
+		cumulative = new long[starts.length + 1];
+		for (int i = 0; i < starts.length; i++) {
+			cumulative[i + 1] = saturatedAdd(cumulative[i], ends[i] - starts[i]);
+		}
+	}
+
+	/** Merges the windows {@code [starts[i], ends[i])} for i below count. Empty windows are ignored. The arrays are sorted
+	 * in place. */
+	public static EntitlementWindows merge (long[] starts, long[] ends, int count) {
+		// drop empty windows, then sort starts and ends independently: sweeping both in order counts how many windows
+		// cover a time, and the union is where that count is above zero
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (ends[i] > starts[i]) {
+				starts[n] = starts[i];
+				ends[n] = ends[i];
+				n++;
+			}
+		}
+		if (n == 0) return EMPTY;
+		Arrays.sort(starts, 0, n);
+		Arrays.sort(ends, 0, n);
+
+		long[] mergedStarts = new long[n];
+		long[] mergedEnds = new long[n];
+		int size = 0;
+		int depth = 0;
+		int j = 0;
+		long open = 0;
+		for (int i = 0; i < n; i++) {
+			// close all windows ending before this one starts, ends equal to the start touch and are merged
+			while (ends[j] < starts[i]) {
+				if (--depth == 0) {
+					mergedStarts[size] = open;
+					mergedEnds[size++] = ends[j];
+				}
+				j++;
+			}
+			if (depth++ == 0) open = starts[i];
+		}
+		mergedStarts[size] = open;
+		mergedEnds[size++] = ends[n - 1];
+		return new EntitlementWindows(Arrays.copyOf(mergedStarts, size), Arrays.copyOf(mergedEnds, size));
+	}
+
+	/** Returns the number of windows. */
+	public int size () {
+		return starts.length;
+	}
+
+	public long start (int index) {
+		return starts[index];
+	}
+
+	/** Returns the exclusive end of the window, {@link Long#MAX_VALUE} if it never ends. */
+	public long end (int index) {
+		return ends[index];
+	}
+
+	/** Returns the index of the window containing the time or -1 if the user wasn't entitled at that time. */
+	public int indexOf (long time) {
+		int index = floor(time);
+		return index >= 0 && time < ends[index] ? index : -1;
+	}
+
+	/** Returns true if the user was entitled at the given time. */
+	public boolean isEntitled (long time) {
+		return indexOf(time) >= 0;
+	}
+
+	/** Returns true if the user was entitled at any time in {@code [from, to)}. */
+	public boolean isEntitledAnyTime (long from, long to) {
+		if (to <= from) return false;
+		// the last window starting before to is the only candidate that can reach into the range
+		int index = floor(to - 1);
+		return index >= 0 && ends[index] > from;
+	}
+
+	/** Returns true if the user was entitled during all of {@code [from, to)}. */
+	public boolean isEntitledAllTime (long from, long to) {
+		if (to <= from) return true;
+		int index = indexOf(from);
+		return index >= 0 && ends[index] >= to;
+	}
+
+	/** Returns for how many milliseconds of {@code [from, to)} the user was entitled. */
+	public long entitledMillis (long from, long to) {
+		if (to <= from || starts.length == 0) return 0;
+		int first = floor(from);
+		int last = floor(to - 1);
+		if (last < 0) return 0;
+		if (first < 0) first = 0;
+		// full windows first+1..last-1 from the prefix sums, clipped windows at both ends
+		long total = 0;
+		if (first < last) {
+			total = cumulative[last] - cumulative[first + 1];
+			total = saturatedAdd(total, clip(first, from, to));
+			total = saturatedAdd(total, clip(last, from, to));
+		} else {
+			total = clip(first, from, to);
+		}
+		return total;
+	}
+
+	private long clip (int index, long from, long to) {
+		long start = Math.max(starts[index], from);
+		long end = Math.min(ends[index], to);
+		return end > start ? end - start : 0;
+	}
+
+	/** Returns the index of the last window starting at or before the time, -1 if there is none. */
+	private int floor (long time) {
+		int low = 0, high = starts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (starts[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	private static long saturatedAdd (long a, long b) {
+		long sum = a + b;
+		return sum < a ? Long.MAX_VALUE : sum;
+	}
+
+	@Override
+	public boolean equals (Object o) {
+		if (this == o) return true;
+		if (!(o instanceof EntitlementWindows)) return false;
+		EntitlementWindows other = (EntitlementWindows)o;
+		return Arrays.equals(starts, other.starts) && Arrays.equals(ends, other.ends);
+	}
+
+	@Override
+	public int hashCode () {
+		return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+	}
+
+	@Override
+	public String toString () {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < starts.length; i++) {
+			if (i > 0) builder.append(", ");
+			builder.append('[').append(starts[i]).append(", ");
+			if (ends[i] == Long.MAX_VALUE) {
+				builder.append("forever");
+			} else {
+				builder.append(ends[i]);
+			}
+			builder.append(')');
+		}
+		return builder.append(']').toString();
+	}
+}
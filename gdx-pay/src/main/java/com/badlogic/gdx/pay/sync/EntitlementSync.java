@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.sync;
+
+import java.util.Date;
+
+import com.badlogic.gdx.pay.Transaction;
+
+/** Keys and hashes of {@link Transaction}s for {@link EntitlementTree}, so a client can tell your server which purchases
+ * it knows without uploading them all on every start.
+ * <p>
+ * The client builds a tree from the transactions returned by {@code purchaseRestore()} and sends the root hash. If the
+ * server's tree for that user has the same root, nothing changed and the sync is done. Otherwise they walk down the
+ * tree: the client sends the hashes of the children of every differing node, the server answers which of them differ
+ * ({@link EntitlementTree#differing}), and at the leaves the client uploads the transactions of the differing leaves only.
+ *
+ * <pre>
+ * EntitlementTree&lt;Transaction&gt; tree = EntitlementSync.treeOf(transactions);
+ * long root = tree.rootHash();                           // server: in sync?
+ * int[] nodes = {0};
+ * for (int level = 0; level &lt; EntitlementTree.DEPTH; level++) {
+ *    int[] children = EntitlementTree.children(level, nodes);
+ *    nodes = askServer(level + 1, children, tree.hashes(level + 1, children));
+ * }
+ * upload(nodes, tree.values(nodes));
+ * </pre>
+ *
+ * The hashes are not cryptographic, they detect changes but don't prove anything: the server must verify what it receives
+ * as usual. */
+public final class EntitlementSync {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private EntitlementSync () {
+	}
+
+	/** Returns the key of the transaction (store name and order ID) or null if it has no order ID. */
+	public static String key (Transaction transaction) {
+		return key(transaction.getStoreName(), transaction.getOrderId());
+	}
+
+	public static String key (String storeName, String orderId) {
+		return orderId != null ? storeName + '\n' + orderId : null;
+	}
+
+	/** Returns the entry hash of the transaction. It covers the key, the item, the purchase and reversal times and the
+	 * signed data, so a refund or changed receipt changes the hash. */
+	public static long hash (Transaction transaction) {
+		long hash = FNV_OFFSET;
+		hash = fnv(hash, transaction.getStoreName());
+		hash = fnv(hash, transaction.getOrderId());
+		hash = fnv(hash, transaction.getIdentifier());
+		hash = fnv(hash, millis(transaction.getPurchaseTime()));
+		hash = fnv(hash, millis(transaction.getReversalTime()));
+		hash = fnv(hash, transaction.getTransactionData());
+		hash = fnv(hash, transaction.getTransactionDataSignature());
+		return mix64(hash);
+	}
+
+	/** Builds the tree of the given transactions. Transactions without order ID are skipped, they can't be keyed. */
+	public static EntitlementTree<Transaction> treeOf (Transaction[] transactions) {
+		EntitlementTree<Transaction> tree = new EntitlementTree<Transaction>();
+		for (Transaction transaction : transactions) {
+			String key = key(transaction);
+			if (key != null) tree.put(key, hash(transaction), transaction);
+		}
+		return tree;
+	}
+
+	static long hash64 (String s) {
+		return mix64(fnv(FNV_OFFSET, s));
+	}
+
+	private static long millis (Date date) {
+		return date != null ? date.getTime() : -1;
+	}
+
+	private static long fnv (long hash, long value) {
+		for (int i = 0; i < 64; i += 8) {
+			hash = (hash ^ ((value >>> i) & 0xFF)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/** Hashes the characters followed by a terminator, so ("ab", "c") and ("a", "bc") differ and null differs from "". */
+	private static long fnv (long hash, String s) {
+		if (s == null) return (hash ^ 0xFFFE) * FNV_PRIME;
+		for (int i = 0, n = s.length(); i < n; i++) {
+			char c = s.charAt(i);
+			hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return (hash ^ 0xFFFF) * FNV_PRIME;
+	}
+
+	private static long mix64 (long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.badlogic.gdx.pay.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A fixed-shape hash tree over a set of keyed entries, used to find out which entries two parties disagree about without
+ * exchanging the entries themselves.
+ * <p>
+ * Entries are spread over {@link #LEAF_COUNT} leaves by the hash of their key. Every node's hash is the sum of the hashes
+ * of the entries below it, so adding, replacing or removing an entry updates the {@link #DEPTH} + 1 nodes on its path
+ * only. Nodes are addressed by level (0 is the root) and index within the level; the children of node {@code i} are
+ * {@code i * FANOUT} to {@code i * FANOUT + FANOUT - 1} on the next level.
+ * <p>
+ * Entry hashes should cover the key as well as the content, see {@link EntitlementSync#hash(com.badlogic.gdx.pay.Transaction)}.
+ * Not thread-safe.
+ *
+ * @param <V> the value kept with each entry */
+public class EntitlementTree<V> {
+
+	public static final int FANOUT = 16;
+	public static final int DEPTH = 2;
+	public static final int LEAF_COUNT = 256;
+
+	/** Node hashes per level, {@code nodes[0]} holds the root only. */
+	private final long[][] nodes = new long[DEPTH + 1][];
+	private final Map<String, Entry<V>>[] leaves;
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	public EntitlementTree () {
+		for (int level = 0, count = 1; level <= DEPTH; level++, count *= FANOUT) {
+			nodes[level] = new long[count];
+		}
+		leaves = (Map<String, Entry<V>>[])new Map<?, ?>[LEAF_COUNT];
+	}
+
+	/** Returns the leaf an entry with the given key belongs to. */
+	public static int leafOf (String key) {
+		return (int)(EntitlementSync.hash64(key) >>> 56);
+	}
+
+	/** Returns the indexes of the children of the given nodes, in order. */
+	public static int[] children (int level, int[] indexes) {
+		if (level >= DEPTH) throw new IllegalArgumentException("Leaves have no children.");
+		int[] children = new int[indexes.length * FANOUT];
+		for (int i = 0; i < indexes.length; i++) {
+			for (int j = 0; j < FANOUT; j++) {
+				children[i * FANOUT + j] = indexes[i] * FANOUT + j;
+			}
+		}
+		return children;
+	}
+
+	/** Adds the entry or replaces the entry with the same key. */
+	public void put (String key, long hash, V value) {
+		int leaf = leafOf(key);
+		Map<String, Entry<V>> entries = leaves[leaf];
+		if (entries == null) leaves[leaf] = entries = new HashMap<String, Entry<V>>();
+		Entry<V> previous = entries.put(key, new Entry<V>(hash, value));
+		if (previous == null) size++;
+		update(leaf, hash - (previous != null ? previous.hash : 0));
+	}
+
+	/** Removes the entry with the given key, returns its value or null if there was none. */
+	public V remove (String key) {
+		int leaf = leafOf(key);
+		Map<String, Entry<V>> entries = leaves[leaf];
+		Entry<V> previous = entries != null ? entries.remove(key) : null;
+		if (previous == null) return null;
+		size--;
+		update(leaf, -previous.hash);
+		return previous.value;
+	}
+
+	private void update (int leaf, long delta) {
+		for (int level = DEPTH, index = leaf; level >= 0; level--, index /= FANOUT) {
+			nodes[level][index] += delta;
+		}
+	}
+
+	/** True if the tree holds an entry with the given key and hash. */
+	public boolean contains (String key, long hash) {
+		Map<String, Entry<V>> entries = leaves[leafOf(key)];
+		Entry<V> entry = entries != null ? entries.get(key) : null;
+		return entry != null && entry.hash == hash;
+	}
+
+	/** Returns the value of the entry with the given key or null. */
+	public V get (String key) {
+		Map<String, Entry<V>> entries = leaves[leafOf(key)];
+		Entry<V> entry = entries != null ? entries.get(key) : null;
+		return entry != null ? entry.value : null;
+	}
+
+	/** Returns the keys of all entries in the given leaf. */
+	public List<String> keys (int leaf) {
+		Map<String, Entry<V>> entries = leaves[leaf];
+		return entries != null ? new ArrayList<String>(entries.keySet()) : new ArrayList<String>();
+	}
+
+	/** Returns the values of all entries in the given leaves. */
+	public List<V> values (int[] leaves) {
+		List<V> values = new ArrayList<V>();
+		for (int leaf : leaves) {
+			Map<String, Entry<V>> entries = this.leaves[leaf];
+			if (entries == null) continue;
+			for (Entry<V> entry : entries.values()) {
+				values.add(entry.value);
+			}
+		}
+		return values;
+	}
+
+	public long rootHash () {
+		return nodes[0][0];
+	}
+
+	public long hash (int level, int index) {
+		return nodes[level][index];
+	}
+
+	/** Returns the hashes of the given nodes, in order. */
+	public long[] hashes (int level, int[] indexes) {
+		long[] hashes = new long[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			hashes[i] = nodes[level][indexes[i]];
+		}
+		return hashes;
+	}
+
+	/** Compares the given node hashes of the other party with this tree.
+	 * @return the indexes of the nodes whose hashes differ, in order */
+	public int[] differing (int level, int[] indexes, long[] hashes) {
+		if (level < 0 || level > DEPTH || indexes.length != hashes.length) {
+			throw new IllegalArgumentException("Invalid nodes for level " + level);
+		}
+		int count = 0;
+		int[] differing = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			if (indexes[i] < 0 || indexes[i] >= nodes[level].length) {
+				throw new IllegalArgumentException("Invalid node index: " + indexes[i]);
+			}
+			if (nodes[level][indexes[i]] != hashes[i]) differing[count++] = indexes[i];
+		}
+		int[] result = new int[count];
+		System.arraycopy(differing, 0, result, 0, count);
+		return result;
+	}
+
+	/** Returns the number of entries. */
+	public int size () {
+		return size;
+	}
+
+	private static final class Entry<V> {
+		final long hash;
+		final V value;
+
+		Entry (long hash, V value) {
+			this.hash = hash;
+			this.value = value;
+		}
+	}
+}
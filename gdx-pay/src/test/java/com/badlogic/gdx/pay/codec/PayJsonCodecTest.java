@@ -0,0 +1,87 @@
+package com.badlogic.gdx.pay.codec;
+
+import com.badlogic.gdx.pay.FreeTrialPeriod;
+import com.badlogic.gdx.pay.Information;
+import com.badlogic.gdx.pay.Offer;
+import com.badlogic.gdx.pay.OfferType;
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PayJsonCodecTest {
+
+    @Test
+    public void transactionShouldSurviveRoundTrip() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setIdentifier("com.mygame.coins_100");
+        transaction.setStoreName(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE);
+        transaction.setOrderId("GPA.1234-5678");
+        transaction.setPurchaseTime(new Date(1500000000000L));
+        transaction.setPurchaseText("Gekauft: 100 Münzen\n\"Bonus\"");
+        transaction.setPurchaseCost(499);
+        transaction.setPurchaseCostCurrency("EUR");
+        transaction.setTransactionData("{\"orderId\":\"GPA.1234-5678\",\"purchaseState\":0}");
+        transaction.setTransactionDataSignature("c2lnbmF0dXJl");
+
+        String json = PayJsonCodec.toJson(transaction);
+        Transaction decoded = PayJsonCodec.transactionFromJson(json);
+
+        assertEquals(transaction.toString(), decoded.toString());
+        assertThat(json).doesNotContain("requestId");
+    }
+
+    @Test
+    public void unknownFieldsAndNullsShouldBeIgnored() throws Exception {
+        Transaction decoded = PayJsonCodec.transactionFromJson(
+                "{ \"orderId\" : \"A\", \"future\": {\"nested\": [1, 2.5e3, true, null]}, \"userId\": null }");
+
+        assertEquals("A", decoded.getOrderId());
+        assertEquals(null, decoded.getUserId());
+    }
+
+    @Test
+    public void informationShouldSurviveRoundTrip() throws Exception {
+        Information information = Information.newBuilder()
+                .localName("Full edition")
+                .localPricing("€ 1.00")
+                .priceAsDouble(1.0)
+                .priceCurrencyCode("EUR")
+                .freeTrialPeriod(new FreeTrialPeriod(7, FreeTrialPeriod.PeriodUnit.DAY))
+                .build();
+
+        Information decoded = PayJsonCodec.informationFromJson(PayJsonCodec.toJson(information));
+
+        assertEquals(information, decoded);
+        assertEquals(1.0, decoded.getPriceAsDouble(), 0.0);
+        assertEquals("EUR", decoded.getPriceCurrencyCode());
+        assertEquals(information.getFreeTrialPeriod(), decoded.getFreeTrialPeriod());
+    }
+
+    @Test
+    public void offerShouldSurviveRoundTrip() throws Exception {
+        Offer offer = new Offer()
+                .setType(OfferType.SUBSCRIPTION)
+                .setIdentifier("premium")
+                .putIdentifierForStore(PurchaseManagerConfig.STORE_NAME_IOS_APPLE, "com.mygame.premium");
+
+        Offer decoded = PayJsonCodec.offerFromJson(PayJsonCodec.toJson(offer));
+
+        assertEquals(offer.toString(), decoded.toString());
+    }
+
+    @Test
+    public void malformedJsonShouldBeRejected() throws Exception {
+        try {
+            PayJsonCodec.transactionFromJson("{\"orderId\":\"A\",}");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage()).contains("position");
+        }
+    }
+}
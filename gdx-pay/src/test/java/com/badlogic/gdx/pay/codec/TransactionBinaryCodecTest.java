@@ -0,0 +1,87 @@
+package com.badlogic.gdx.pay.codec;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TransactionBinaryCodecTest {
+
+    @Test
+    public void batchShouldSurviveRoundTrip() throws Exception {
+        Transaction first = googleTransaction("GPA.1234-5678", new Date(1500000000000L));
+        Transaction second = googleTransaction("GPA.1234-5679", new Date(1400000000000L));
+        second.setReversalTime(new Date(1500000001000L));
+        second.setReversalText(Transaction.REVERSAL_TEXT_REFUNDED);
+        Transaction empty = new Transaction();
+
+        Transaction[] decoded = TransactionBinaryCodec.decode(
+                TransactionBinaryCodec.encode(new Transaction[]{first, second, empty}));
+
+        assertEquals(3, decoded.length);
+        assertEquals(first.toString(), decoded[0].toString());
+        assertEquals(second.toString(), decoded[1].toString());
+        assertEquals(empty.toString(), decoded[2].toString());
+    }
+
+    @Test
+    public void nonAsciiTextAndNonCanonicalBase64ShouldSurviveRoundTrip() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setPurchaseText("Gekauft: 100 Münzen € 😀");
+        transaction.setTransactionData("{\"receipt\":\"café\"}");
+        transaction.setTransactionDataSignature("YWJj\nZGVm");
+        transaction.setPurchaseCost(-1);
+
+        Transaction decoded = TransactionBinaryCodec.decode(TransactionBinaryCodec.encode(transaction))[0];
+
+        assertEquals(transaction.toString(), decoded.toString());
+    }
+
+    @Test
+    public void encodedBatchShouldBeSmallerThanToString() throws Exception {
+        Transaction[] transactions = new Transaction[50];
+        for (int i = 0; i < transactions.length; i++) {
+            transactions[i] = googleTransaction("GPA.1234-" + i, new Date(1500000000000L + i * 1000L));
+        }
+
+        int toStringLength = 0;
+        for (Transaction transaction : transactions) {
+            toStringLength += transaction.toString().length();
+        }
+
+        assertThat(TransactionBinaryCodec.encode(transactions).length).isLessThan(toStringLength / 2);
+    }
+
+    @Test
+    public void truncatedInputShouldBeRejected() throws Exception {
+        byte[] encoded = TransactionBinaryCodec.encode(googleTransaction("GPA.1", new Date()));
+        try {
+            TransactionBinaryCodec.decode(encoded, 0, encoded.length - 3);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(expected.getMessage()).contains("Truncated");
+        }
+    }
+
+    private static Transaction googleTransaction(String orderId, Date purchaseTime) {
+        Transaction transaction = new Transaction();
+        transaction.setIdentifier("com.mygame.coins_100");
+        transaction.setStoreName(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE);
+        transaction.setOrderId(orderId);
+        transaction.setUserId("player-42");
+        transaction.setPurchaseTime(purchaseTime);
+        transaction.setPurchaseText("Purchased: 100 Coins");
+        transaction.setPurchaseCost(499);
+        transaction.setPurchaseCostCurrency("USD");
+        transaction.setTransactionData("{\"orderId\":\"" + orderId + "\",\"packageName\":\"com.mygame\","
+                + "\"productId\":\"com.mygame.coins_100\",\"purchaseTime\":" + purchaseTime.getTime()
+                + ",\"purchaseState\":0,\"purchaseToken\":\"abcdefghijklmnopqrstuvwxyz\"}");
+        transaction.setTransactionDataSignature("TWFueSBoYW5kcyBtYWtlIGxpZ2h0IHdvcmsuIFNpZ25hdHVyZSBieXRlcw==");
+        return transaction;
+    }
+}
@@ -0,0 +1,109 @@
+package com.badlogic.gdx.pay.entitlement;
+
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntitlementIndexTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long T0 = 1500000000000L;
+
+    private static final EntitlementPeriod PERIOD = new EntitlementPeriod() {
+        @Override
+        public long durationMillis(Transaction transaction) {
+            if (transaction.getIdentifier().equals("monthly")) return 30 * DAY;
+            return transaction.getIdentifier().equals("coins") ? NONE : LIFETIME;
+        }
+    };
+
+    @Test
+    public void renewalsShouldMergeIntoOneWindowAndGapsShouldSplit() throws Exception {
+        EntitlementIndex index = EntitlementIndex.newBuilder(PERIOD)
+                .add(transaction("u1", "monthly", T0, null))
+                .add(transaction("u1", "monthly", T0 + 30 * DAY, null))
+                .add(transaction("u1", "monthly", T0 + 100 * DAY, null))
+                .build();
+
+        EntitlementWindows windows = index.windows("u1", "monthly");
+        assertEquals(2, windows.size());
+        assertEquals(T0 + 60 * DAY, windows.end(0));
+        assertTrue(index.isEntitled("u1", "monthly", T0 + 45 * DAY));
+        assertFalse(index.isEntitled("u1", "monthly", T0 + 60 * DAY));
+        assertFalse(index.isEntitled("u1", "monthly", T0 - 1));
+        assertFalse(index.isEntitled("u2", "monthly", T0));
+        assertEquals(65 * DAY, windows.entitledMillis(T0 - DAY, T0 + 105 * DAY));
+        assertTrue(index.isEntitledAnyTime("u1", "monthly", T0 + 70 * DAY, T0 + 101 * DAY));
+        assertFalse(index.isEntitledAnyTime("u1", "monthly", T0 + 70 * DAY, T0 + 100 * DAY));
+    }
+
+    @Test
+    public void gracePeriodShouldBridgeLateRenewal() throws Exception {
+        EntitlementIndex index = EntitlementIndex.newBuilder(PERIOD).gracePeriod(3 * DAY)
+                .add(transaction("u1", "monthly", T0, null))
+                .add(transaction("u1", "monthly", T0 + 32 * DAY, null))
+                .build();
+
+        assertEquals(1, index.windows("u1", "monthly").size());
+        assertTrue(index.windows("u1", "monthly").isEntitledAllTime(T0, T0 + 65 * DAY));
+    }
+
+    @Test
+    public void reversalShouldEndOnlyItsOwnPeriod() throws Exception {
+        EntitlementIndex index = EntitlementIndex.newBuilder(PERIOD)
+                .add(transaction("u1", "monthly", T0, null))
+                .add(transaction("u1", "monthly", T0 + 30 * DAY, T0 + 40 * DAY))
+                .add(transaction("u1", "premium", T0, T0 + DAY))
+                .add(transaction("u1", "coins", T0, null))
+                .build();
+
+        assertTrue(index.isEntitled("u1", "monthly", T0 + 39 * DAY));
+        assertFalse(index.isEntitled("u1", "monthly", T0 + 40 * DAY));
+        assertTrue(index.isEntitled("u1", "premium", T0));
+        assertFalse(index.isEntitled("u1", "premium", T0 + DAY));
+        assertFalse(index.isEntitled("u1", "coins", T0));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void mergeShouldMatchBruteForce() throws Exception {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(20);
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            boolean[] covered = new boolean[200];
+            for (int i = 0; i < n; i++) {
+                starts[i] = random.nextInt(180);
+                ends[i] = starts[i] + random.nextInt(20);
+                for (long t = starts[i]; t < ends[i]; t++) covered[(int) t] = true;
+            }
+            EntitlementWindows windows = EntitlementWindows.merge(starts, ends, n);
+            int total = 0;
+            for (int t = 0; t < covered.length; t++) {
+                assertEquals(covered[t], windows.isEntitled(t));
+                if (covered[t]) total++;
+            }
+            assertEquals(total, windows.entitledMillis(0, 200));
+            for (int i = 1; i < windows.size(); i++) {
+                assertThat(windows.start(i)).isGreaterThan(windows.end(i - 1));
+            }
+        }
+    }
+
+    private static Transaction transaction(String userId, String identifier, long purchaseTime, Long reversalTime) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setIdentifier(identifier);
+        transaction.setPurchaseTime(new Date(purchaseTime));
+        if (reversalTime != null) transaction.setReversalTime(new Date(reversalTime));
+        return transaction;
+    }
+}
@@ -0,0 +1,77 @@
+package com.badlogic.gdx.pay.sync;
+
+import com.badlogic.gdx.pay.PurchaseManagerConfig;
+import com.badlogic.gdx.pay.Transaction;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class EntitlementTreeTest {
+
+    @Test
+    public void rootHashShouldNotDependOnInsertionOrder() throws Exception {
+        Transaction[] transactions = transactions(100);
+        Transaction[] reversed = new Transaction[transactions.length];
+        for (int i = 0; i < transactions.length; i++) {
+            reversed[i] = transactions[transactions.length - 1 - i];
+        }
+
+        assertEquals(EntitlementSync.treeOf(transactions).rootHash(), EntitlementSync.treeOf(reversed).rootHash());
+    }
+
+    @Test
+    public void walkingDownShouldFindTheChangedTransactionOnly() throws Exception {
+        Transaction[] transactions = transactions(1000);
+        EntitlementTree<Transaction> server = EntitlementSync.treeOf(transactions);
+        transactions[500].setReversalTime(new Date(1500000999000L));
+        EntitlementTree<Transaction> client = EntitlementSync.treeOf(transactions);
+
+        assertThat(client.rootHash()).isNotEqualTo(server.rootHash());
+
+        int[] nodes = {0};
+        for (int level = 0; level < EntitlementTree.DEPTH; level++) {
+            int[] children = EntitlementTree.children(level, nodes);
+            nodes = server.differing(level + 1, children, client.hashes(level + 1, children));
+            assertEquals(1, nodes.length);
+        }
+
+        List<Transaction> upload = client.values(nodes);
+        assertThat(upload).contains(transactions[500]);
+        assertThat(upload.size()).isLessThan(20);
+
+        server.put(EntitlementSync.key(transactions[500]), EntitlementSync.hash(transactions[500]), transactions[500]);
+        assertEquals(client.rootHash(), server.rootHash());
+    }
+
+    @Test
+    public void removeShouldRestorePreviousHash() throws Exception {
+        EntitlementTree<Transaction> tree = EntitlementSync.treeOf(transactions(10));
+        long root = tree.rootHash();
+        Transaction extra = transactions(11)[10];
+
+        tree.put(EntitlementSync.key(extra), EntitlementSync.hash(extra), extra);
+        assertThat(tree.rootHash()).isNotEqualTo(root);
+
+        tree.remove(EntitlementSync.key(extra));
+        assertEquals(root, tree.rootHash());
+        assertEquals(10, tree.size());
+    }
+
+    private static Transaction[] transactions(int count) {
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setStoreName(PurchaseManagerConfig.STORE_NAME_ANDROID_GOOGLE);
+            transaction.setOrderId("GPA.1234-" + i);
+            transaction.setIdentifier("com.mygame.coins");
+            transaction.setPurchaseTime(new Date(1500000000000L + i * 1000L));
+            transaction.setTransactionDataSignature("c2lnbmF0dXJl");
+            transactions[i] = transaction;
+        }
+        return transactions;
+    }
+}